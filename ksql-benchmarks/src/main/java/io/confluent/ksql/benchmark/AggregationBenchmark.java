@@ -0,0 +1,122 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+
+
+package io.confluent.ksql.benchmark;
+
+import io.confluent.ksql.GenericRow;
+import io.confluent.ksql.benchmark.BenchmarkData.Dataset;
+import io.confluent.ksql.function.KsqlAggregateFunction;
+import io.confluent.ksql.function.KsqlFunctions;
+import io.confluent.ksql.function.udaf.KudafAggregator;
+import io.confluent.ksql.function.udaf.KudafInitializer;
+import io.confluent.ksql.parser.tree.Expression;
+import io.confluent.ksql.util.SchemaUtil;
+import org.apache.kafka.connect.data.Schema;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Folding a row into its group's aggregate with a {@link KudafAggregator}, for GROUP BY ITEMID
+ * with a growing number of aggregate functions. The aggregates are kept in a map rather than a
+ * state store, so this measures the UDAFs and not RocksDB or the serdes.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AggregationBenchmark {
+
+  private static final int ROW_COUNT = 1024;
+  private static final String[] FUNCTIONS = {"SUM", "COUNT", "MAX", "MIN"};
+  private static final String[] ARGUMENTS = {"ORDERUNITS", "ORDERTIME"};
+
+  @Param({"1", "5", "10", "20"})
+  public int aggregateCount;
+
+  private KudafInitializer initializer;
+  private KudafAggregator aggregator;
+  private Map<String, GenericRow> aggregates;
+  private List<String> groupKeys;
+  private List<GenericRow> rows;
+  private int next;
+
+  @Setup
+  public void setUp() throws Exception {
+    BenchmarkData data = BenchmarkData.generate(Dataset.ORDERS, ROW_COUNT);
+    Schema schema = SchemaUtil.buildSchemaWithAlias(data.getSchema(), data.getName());
+    List<Expression> arguments = BenchmarkQueries.analyze(
+        "SELECT " + String.join(", ", ARGUMENTS) + " FROM " + data.getName() + ";",
+        data.newMetaStore()
+    ).getSelectExpressions();
+
+    // Laid out like the planner lays out an aggregate: the group by column, then the UDAFs
+    int groupByIndex = SchemaUtil.getFieldIndexByName(schema, data.getName() + ".ITEMID");
+    List<Object> initialColumns = new ArrayList<>();
+    initialColumns.add("");
+    Map<Integer, KsqlAggregateFunction> aggValToAggFunctionMap = new HashMap<>();
+    for (int i = 0; i < aggregateCount; i++) {
+      Expression argument = arguments.get(i / FUNCTIONS.length % ARGUMENTS.length);
+      KsqlAggregateFunction functionInfo = KsqlFunctions.getAggregateFunction(
+          FUNCTIONS[i % FUNCTIONS.length], Collections.singletonList(argument), schema);
+      KsqlAggregateFunction function = functionInfo.getClass()
+          .getDeclaredConstructor(Integer.class)
+          .newInstance(SchemaUtil.getFieldIndexByName(schema, argument.toString()));
+      aggValToAggFunctionMap.put(initialColumns.size(), function);
+      initialColumns.add(function.getIntialValue());
+    }
+    initializer = new KudafInitializer(initialColumns);
+    aggregator = new KudafAggregator(aggValToAggFunctionMap,
+                                     Collections.singletonMap(0, groupByIndex));
+
+    aggregates = new HashMap<>();
+    groupKeys = new ArrayList<>(ROW_COUNT);
+    for (GenericRow row : data.getRows()) {
+      groupKeys.add(String.valueOf(row.getColumns().get(groupByIndex)));
+    }
+    rows = data.getRows();
+  }
+
+  @Benchmark
+  public GenericRow aggregate() {
+    int index = next++ & (ROW_COUNT - 1);
+    String groupKey = groupKeys.get(index);
+    GenericRow aggregate = aggregates.get(groupKey);
+    if (aggregate == null) {
+      aggregate = initializer.apply();
+      aggregates.put(groupKey, aggregate);
+    }
+    return aggregator.apply(groupKey, rows.get(index), aggregate);
+  }
+}
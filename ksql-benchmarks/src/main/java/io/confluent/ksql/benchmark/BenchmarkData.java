@@ -0,0 +1,164 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+
+
+package io.confluent.ksql.benchmark;
+
+import io.confluent.avro.random.generator.Generator;
+import io.confluent.connect.avro.AvroData;
+import io.confluent.ksql.GenericRow;
+import io.confluent.ksql.metastore.KsqlStream;
+import io.confluent.ksql.metastore.KsqlTopic;
+import io.confluent.ksql.metastore.MetaStore;
+import io.confluent.ksql.metastore.MetaStoreImpl;
+import io.confluent.ksql.serde.json.KsqlJsonTopicSerDe;
+import io.confluent.ksql.util.KsqlException;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Rows for the benchmarks, made by the data generator of ksql-examples from its quickstart
+ * schemas. The generator is seeded so every run, and every commit, benchmarks the same rows.
+ */
+public class BenchmarkData {
+
+  public enum Dataset {
+    // 4 columns
+    ORDERS("orders_schema.avro", "orderid"),
+    // 10 columns
+    CLICKSTREAM("clickstream_schema.avro", "ip");
+
+    private final String schemaFileName;
+    private final String keyName;
+
+    Dataset(String schemaFileName, String keyName) {
+      this.schemaFileName = schemaFileName;
+      this.keyName = keyName;
+    }
+  }
+
+  private static final long SEED = 20170901L;
+
+  private final Dataset dataset;
+  private final org.apache.avro.Schema avroSchema;
+  private final Schema schema;
+  private final List<String> keys;
+  private final List<GenericRow> rows;
+
+  private BenchmarkData(Dataset dataset, org.apache.avro.Schema avroSchema, Schema schema,
+                        List<String> keys, List<GenericRow> rows) {
+    this.dataset = dataset;
+    this.avroSchema = avroSchema;
+    this.schema = schema;
+    this.keys = keys;
+    this.rows = rows;
+  }
+
+  public static BenchmarkData generate(Dataset dataset, int rowCount) {
+    Generator generator;
+    try (InputStream schemaFile =
+             BenchmarkData.class.getClassLoader().getResourceAsStream(dataset.schemaFileName)) {
+      generator = new Generator(schemaFile, new Random(SEED));
+    } catch (IOException e) {
+      throw new KsqlException("Could not read " + dataset.schemaFileName, e);
+    }
+    org.apache.avro.Schema avroSchema = generator.schema();
+
+    // KSQL upper cases every column name
+    SchemaBuilder schemaBuilder = SchemaBuilder.struct();
+    for (Field field : new AvroData(1).toConnectSchema(avroSchema).fields()) {
+      schemaBuilder.field(field.name().toUpperCase(), field.schema());
+    }
+
+    List<String> keys = new ArrayList<>(rowCount);
+    List<GenericRow> rows = new ArrayList<>(rowCount);
+    for (int i = 0; i < rowCount; i++) {
+      GenericRecord record = (GenericRecord) generator.generate();
+      List<Object> columns = new ArrayList<>();
+      for (org.apache.avro.Schema.Field field : avroSchema.getFields()) {
+        columns.add(record.get(field.name()));
+      }
+      keys.add(String.valueOf(record.get(dataset.keyName)));
+      rows.add(new GenericRow(columns));
+    }
+    return new BenchmarkData(dataset, avroSchema, schemaBuilder.build(), keys, rows);
+  }
+
+  public String getName() {
+    return dataset.name();
+  }
+
+  public String getKafkaTopicName() {
+    return dataset.name().toLowerCase();
+  }
+
+  public org.apache.avro.Schema getAvroSchema() {
+    return avroSchema;
+  }
+
+  /**
+   * @return The schema of the generated rows, as KSQL sees the source's columns
+   */
+  public Schema getSchema() {
+    return schema;
+  }
+
+  public List<String> getKeys() {
+    return keys;
+  }
+
+  public List<GenericRow> getRows() {
+    return rows;
+  }
+
+  /**
+   * @return A metastore with just the dataset registered, see {@link #registerIn(MetaStore)}
+   */
+  public MetaStore newMetaStore() {
+    MetaStore metaStore = new MetaStoreImpl();
+    registerIn(metaStore);
+    return metaStore;
+  }
+
+  /**
+   * Registers the dataset as a JSON stream, the way a CREATE STREAM statement would.
+   */
+  public void registerIn(MetaStore metaStore) {
+    registerIn(metaStore, getName());
+  }
+
+  /**
+   * Registers the dataset as a JSON stream under another name, reading a topic of that name, so
+   * that a query can use the same rows as two different sources.
+   */
+  public void registerIn(MetaStore metaStore, String name) {
+    KsqlTopic ksqlTopic = new KsqlTopic(name, name.toLowerCase(),
+                                        new KsqlJsonTopicSerDe(schema));
+    KsqlStream ksqlStream = new KsqlStream(name, schema,
+                                           schema.field(dataset.keyName.toUpperCase()), null,
+                                           ksqlTopic);
+    metaStore.putTopic(ksqlTopic);
+    metaStore.putSource(ksqlStream.cloneWithTimeKeyColumns());
+  }
+}
@@ -0,0 +1,44 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+
+
+package io.confluent.ksql.benchmark;
+
+import io.confluent.ksql.analyzer.Analysis;
+import io.confluent.ksql.analyzer.AnalysisContext;
+import io.confluent.ksql.analyzer.Analyzer;
+import io.confluent.ksql.metastore.MetaStore;
+import io.confluent.ksql.parser.KsqlParser;
+import io.confluent.ksql.parser.tree.Statement;
+
+import java.util.List;
+
+public class BenchmarkQueries {
+
+  private BenchmarkQueries() {
+  }
+
+  /**
+   * Parses and analyzes a query, resolving its column references the way the engine does before
+   * planning it.
+   */
+  public static Analysis analyze(String queryString, MetaStore metaStore) {
+    List<Statement> statements = new KsqlParser().buildAst(queryString, metaStore);
+    Analysis analysis = new Analysis();
+    new Analyzer(analysis, metaStore).process(statements.get(0), new AnalysisContext(null));
+    return analysis;
+  }
+}
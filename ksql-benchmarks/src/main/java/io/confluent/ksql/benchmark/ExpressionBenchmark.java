@@ -0,0 +1,103 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+
+
+package io.confluent.ksql.benchmark;
+
+import io.confluent.ksql.GenericRow;
+import io.confluent.ksql.benchmark.BenchmarkData.Dataset;
+import io.confluent.ksql.codegen.CodeGenRunner;
+import io.confluent.ksql.function.udf.Kudf;
+import io.confluent.ksql.parser.tree.Expression;
+import io.confluent.ksql.util.ExpressionMetadata;
+import io.confluent.ksql.util.GenericRowValueTypeEnforcer;
+import io.confluent.ksql.util.SchemaUtil;
+import org.apache.kafka.connect.data.Schema;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluating a compiled SELECT expression against a row, the per-row work of a projection.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ExpressionBenchmark {
+
+  private static final int ROW_COUNT = 1024;
+
+  @Param({
+      "ORDERUNITS",
+      "ORDERUNITS * 2 + 1",
+      "ORDERTIME > 1500000000000 AND ORDERUNITS < 5.0",
+      "LCASE(ITEMID)",
+      "CONCAT(ITEMID, '_suffix')"
+  })
+  public String expression;
+
+  private ExpressionMetadata expressionMetadata;
+  private GenericRowValueTypeEnforcer typeEnforcer;
+  private List<GenericRow> rows;
+  private int next;
+
+  @Setup
+  public void setUp() throws Exception {
+    BenchmarkData data = BenchmarkData.generate(Dataset.ORDERS, ROW_COUNT);
+    Expression parsed = BenchmarkQueries.analyze(
+        "SELECT " + expression + " FROM " + data.getName() + ";",
+        data.newMetaStore()
+    ).getSelectExpressions().get(0);
+    Schema schema = SchemaUtil.buildSchemaWithAlias(data.getSchema(), data.getName());
+    expressionMetadata = new CodeGenRunner().buildCodeGenFromParseTree(parsed, schema);
+    typeEnforcer = new GenericRowValueTypeEnforcer(schema);
+    rows = data.getRows();
+  }
+
+  /**
+   * Binds the row to the expression's parameters the same way a projection does.
+   */
+  @Benchmark
+  public Object evaluate() throws Exception {
+    GenericRow row = rows.get(next++ & (ROW_COUNT - 1));
+    int[] indexes = expressionMetadata.getIndexes();
+    Kudf[] udfs = expressionMetadata.getUdfs();
+    Object[] parameters = new Object[indexes.length];
+    for (int i = 0; i < indexes.length; i++) {
+      if (indexes[i] < 0) {
+        parameters[i] = udfs[i];
+      } else {
+        parameters[i] =
+            typeEnforcer.enforceFieldType(indexes[i], row.getColumns().get(indexes[i]));
+      }
+    }
+    return expressionMetadata.getExpressionEvaluator().evaluate(parameters);
+  }
+}
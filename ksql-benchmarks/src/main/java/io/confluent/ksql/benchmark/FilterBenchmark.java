@@ -0,0 +1,86 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+
+
+package io.confluent.ksql.benchmark;
+
+import io.confluent.ksql.GenericRow;
+import io.confluent.ksql.benchmark.BenchmarkData.Dataset;
+import io.confluent.ksql.parser.tree.Expression;
+import io.confluent.ksql.structured.SqlPredicate;
+import io.confluent.ksql.util.SchemaUtil;
+import org.apache.kafka.streams.kstream.Predicate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Testing rows against a WHERE clause with a {@link SqlPredicate}. ORDERUNITS is uniform between
+ * 0.1 and 10, so the selectivity picks the fraction of rows that pass.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FilterBenchmark {
+
+  private static final int ROW_COUNT = 1024;
+
+  @Param({"0.01", "0.5", "0.99"})
+  public double selectivity;
+
+  private Predicate<String, GenericRow> predicate;
+  private List<String> keys;
+  private List<GenericRow> rows;
+  private int next;
+
+  @Setup
+  @SuppressWarnings("unchecked")
+  public void setUp() throws Exception {
+    BenchmarkData data = BenchmarkData.generate(Dataset.ORDERS, ROW_COUNT);
+    String query = String.format(Locale.ROOT, "SELECT * FROM %s WHERE ORDERUNITS < %f;",
+                                 data.getName(), 0.1 + 9.9 * selectivity);
+    Expression filterExpression =
+        BenchmarkQueries.analyze(query, data.newMetaStore()).getWhereExpression();
+    predicate = new SqlPredicate(
+        filterExpression,
+        SchemaUtil.buildSchemaWithAlias(data.getSchema(), data.getName()),
+        false
+    ).getPredicate();
+    keys = data.getKeys();
+    rows = data.getRows();
+  }
+
+  @Benchmark
+  public boolean test() {
+    int index = next++ & (ROW_COUNT - 1);
+    return predicate.test(keys.get(index), rows.get(index));
+  }
+}
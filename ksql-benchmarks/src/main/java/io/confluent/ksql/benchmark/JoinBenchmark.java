@@ -0,0 +1,174 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+
+
+package io.confluent.ksql.benchmark;
+
+import io.confluent.ksql.GenericRow;
+import io.confluent.ksql.KsqlEngine;
+import io.confluent.ksql.benchmark.BenchmarkData.Dataset;
+import io.confluent.ksql.parser.tree.Statement;
+import io.confluent.ksql.physical.PhysicalPlanBuilder;
+import io.confluent.ksql.planner.plan.PlanNode;
+import io.confluent.ksql.util.KafkaTopicClient;
+import io.confluent.ksql.util.KsqlConfig;
+import io.confluent.ksql.util.Pair;
+import io.confluent.ksql.util.SerDeUtil;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.kstream.KStreamBuilder;
+import org.apache.kafka.streams.processor.TimestampExtractor;
+import org.apache.kafka.test.ProcessorTopologyTestDriver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * A stream-stream join of two order streams, run through the Kafka Streams test driver. Every
+ * invocation feeds one order to each side under a fresh key, so each pair joins once and the
+ * window stores hold as many rows as arrive within the join window. Event time advances by
+ * {@link #ARRIVAL_INTERVAL_MS} per row, so a wider window keeps more rows in the stores; their
+ * size on disk is printed when the trial ends.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JoinBenchmark {
+
+  private static final int ROW_COUNT = 1024;
+  private static final long ARRIVAL_INTERVAL_MS = 10;
+  private static final String LEFT_NAME = "ORDERS_LEFT";
+  private static final String RIGHT_NAME = "ORDERS_RIGHT";
+  private static final String SINK_NAME = "BENCHMARK_SINK";
+
+  @Param({"1 MINUTE", "1 HOUR"})
+  public String window;
+
+  private KsqlEngine ksqlEngine;
+  private ProcessorTopologyTestDriver driver;
+  private Path stateDir;
+  private String leftTopic;
+  private String rightTopic;
+  private byte[][] values;
+  private long next;
+
+  /**
+   * Stamps the rows of both sides in the order they are processed.
+   */
+  public static class ArrivalTimestampExtractor implements TimestampExtractor {
+
+    private long timestamp;
+
+    @Override
+    public long extract(ConsumerRecord<Object, Object> record, long previousTimestamp) {
+      timestamp += ARRIVAL_INTERVAL_MS;
+      return timestamp;
+    }
+  }
+
+  @Setup
+  public void setUp() throws Exception {
+    BenchmarkData data = BenchmarkData.generate(Dataset.ORDERS, ROW_COUNT);
+
+    stateDir = Files.createTempDirectory("ksql-benchmark");
+    Map<String, Object> props = new HashMap<>();
+    props.put(StreamsConfig.APPLICATION_ID_CONFIG, "ksql-join-benchmark");
+    props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:9092");
+    props.put(StreamsConfig.STATE_DIR_CONFIG, stateDir.toString());
+    props.put(StreamsConfig.TIMESTAMP_EXTRACTOR_CLASS_CONFIG, ArrivalTimestampExtractor.class);
+    props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+    KsqlConfig ksqlConfig = new KsqlConfig(props);
+    KafkaTopicClient topicClient = new NoOpKafkaTopicClient();
+
+    ksqlEngine = new KsqlEngine(ksqlConfig, topicClient);
+    data.registerIn(ksqlEngine.getMetaStore(), LEFT_NAME);
+    data.registerIn(ksqlEngine.getMetaStore(), RIGHT_NAME);
+    String query = String.format(
+        "CREATE STREAM %s AS SELECT l.ORDERID, l.ORDERUNITS, r.ORDERUNITS FROM %s l JOIN %s r "
+        + "WITHIN %s ON l.ORDERID = r.ORDERID;",
+        SINK_NAME, LEFT_NAME, RIGHT_NAME, window
+    );
+    List<Pair<String, Statement>> statements =
+        ksqlEngine.parseQueries(query, Collections.emptyMap(), ksqlEngine.getMetaStore());
+    PlanNode logicalPlan = ksqlEngine.getQueryEngine()
+        .buildLogicalPlans(ksqlEngine.getMetaStore(), statements).get(0).getRight();
+
+    KStreamBuilder builder = new KStreamBuilder();
+    new PhysicalPlanBuilder(builder, ksqlConfig, topicClient).buildPhysicalPlan(logicalPlan);
+    driver = new ProcessorTopologyTestDriver(new StreamsConfig(props), builder);
+
+    leftTopic = LEFT_NAME.toLowerCase();
+    rightTopic = RIGHT_NAME.toLowerCase();
+    Serializer<GenericRow> valueSerializer =
+        SerDeUtil.getGenericRowJsonSerde(data.getSchema()).serializer();
+    values = new byte[ROW_COUNT][];
+    for (int i = 0; i < ROW_COUNT; i++) {
+      values[i] = valueSerializer.serialize(leftTopic, data.getRows().get(i));
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    driver.close();
+    ksqlEngine.close();
+    long stateBytes;
+    try (Stream<Path> files = Files.walk(stateDir)) {
+      stateBytes = files.filter(Files::isRegularFile).mapToLong(file -> file.toFile().length())
+          .sum();
+    }
+    System.out.printf("%nJoin state WITHIN %s after %,d rows per side: %,d KB on disk%n",
+                      window, next, stateBytes / 1024);
+  }
+
+  /**
+   * @return What the join emitted for the pair
+   */
+  @Benchmark
+  public ProducerRecord<byte[], byte[]> joinPair() {
+    long key = next++;
+    byte[] keyBytes = Long.toString(key).getBytes(StandardCharsets.UTF_8);
+    byte[] value = values[(int) (key & (ROW_COUNT - 1))];
+    driver.process(leftTopic, keyBytes, value);
+    driver.process(rightTopic, keyBytes, value);
+    return driver.readOutput(SINK_NAME);
+  }
+}
@@ -0,0 +1,104 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+
+package io.confluent.ksql.benchmark;
+
+import io.confluent.ksql.GenericRow;
+import io.confluent.ksql.structured.RowJoiner;
+import io.confluent.ksql.util.OperatorStats;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building joined rows of a narrow stream and a wide table with {@link RowJoiner}, which keeps
+ * only the table columns the query refers to, against {@link #concatenate()}, which copies all of
+ * both rows into a list the way joins used to. Run with {@code -prof gc} to compare the bytes
+ * allocated per joined row, {@code gc.alloc.rate.norm}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JoinRowBenchmark {
+
+  private static final int LEFT_WIDTH = 6;
+
+  @Param({"10", "100"})
+  public int rightWidth;
+
+  @Param({"1", "5"})
+  public int referencedColumns;
+
+  private RowJoiner joiner;
+  private GenericRow leftRow;
+  private GenericRow rightRow;
+
+  @Setup
+  public void setUp() {
+    SchemaBuilder leftSchema = SchemaBuilder.struct();
+    SchemaBuilder joinSchema = SchemaBuilder.struct();
+    List<Object> leftColumns = new ArrayList<>();
+    for (int i = 0; i < LEFT_WIDTH; i++) {
+      leftSchema.field("COL" + i, Schema.STRING_SCHEMA);
+      joinSchema.field("L.COL" + i, Schema.STRING_SCHEMA);
+      leftColumns.add("left" + i);
+    }
+    SchemaBuilder rightSchema = SchemaBuilder.struct();
+    List<Object> rightColumns = new ArrayList<>();
+    for (int i = 0; i < rightWidth; i++) {
+      rightSchema.field("COL" + i, Schema.STRING_SCHEMA);
+      rightColumns.add("right" + i);
+    }
+    // Spread the referenced columns over the table's row
+    for (int i = 0; i < referencedColumns; i++) {
+      joinSchema.field("R.COL" + (i * rightWidth / referencedColumns), Schema.STRING_SCHEMA);
+    }
+    joiner = RowJoiner.of(leftSchema.build(), rightSchema.build(), joinSchema.build(),
+                          new OperatorStats());
+    leftRow = new GenericRow(leftColumns);
+    rightRow = new GenericRow(rightColumns);
+  }
+
+  @Benchmark
+  public GenericRow join() {
+    return joiner.apply(leftRow, rightRow);
+  }
+
+  @Benchmark
+  public GenericRow concatenate() {
+    List<Object> columns = new ArrayList<>();
+    columns.addAll(leftRow.getColumns());
+    columns.addAll(rightRow.getColumns());
+    return new GenericRow(columns);
+  }
+}
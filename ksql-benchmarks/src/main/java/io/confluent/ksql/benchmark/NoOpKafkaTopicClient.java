@@ -0,0 +1,56 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+
+
+package io.confluent.ksql.benchmark;
+
+import io.confluent.ksql.util.KafkaTopicClient;
+import org.apache.kafka.clients.admin.TopicDescription;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A topic client for benchmarks that run without a broker: every topic exists and creating one
+ * does nothing.
+ */
+public class NoOpKafkaTopicClient implements KafkaTopicClient {
+
+  @Override
+  public void createTopic(String topic, int numPartitions, short replicatonFactor) {
+  }
+
+  @Override
+  public boolean isTopicExists(String topic) {
+    return true;
+  }
+
+  @Override
+  public Set<String> listTopicNames() {
+    return Collections.emptySet();
+  }
+
+  @Override
+  public Map<String, TopicDescription> describeTopics(Collection<String> topicNames) {
+    return Collections.emptyMap();
+  }
+
+  @Override
+  public void close() {
+  }
+}
@@ -0,0 +1,86 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+
+package io.confluent.ksql.benchmark;
+
+import io.confluent.ksql.parser.CaseInsensitiveStream;
+import io.confluent.ksql.parser.KsqlParser;
+import io.confluent.ksql.parser.SqlBaseLexer;
+import io.confluent.ksql.parser.SqlBaseParser;
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing the sample queries shipped with the examples, the way {@link KsqlParser} does it (SLL
+ * prediction, falling back to LL only when SLL fails) against full LL prediction for every
+ * statement. Only the parse tree is built; the AST needs a metastore holding the sources.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ParserBenchmark {
+
+  private static final String SCRIPT = "/SampleQueries.sql";
+
+  private String script;
+
+  @Setup
+  public void setUp() throws IOException {
+    try (InputStream input = ParserBenchmark.class.getResourceAsStream(SCRIPT)) {
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+      byte[] buffer = new byte[4096];
+      for (int read = input.read(buffer); read >= 0; read = input.read(buffer)) {
+        output.write(buffer, 0, read);
+      }
+      script = new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+  }
+
+  @Benchmark
+  public List<SqlBaseParser.SingleStatementContext> sllWithLlFallback() {
+    return new KsqlParser().getStatements(script);
+  }
+
+  @Benchmark
+  public List<SqlBaseParser.SingleStatementContext> llOnly() {
+    SqlBaseLexer lexer =
+        new SqlBaseLexer(new CaseInsensitiveStream(new ANTLRInputStream(script)));
+    SqlBaseParser parser = new SqlBaseParser(new CommonTokenStream(lexer));
+    parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+    return parser.statements().singleStatement();
+  }
+}
@@ -0,0 +1,124 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+
+package io.confluent.ksql.benchmark;
+
+import io.confluent.ksql.KsqlEngine;
+import io.confluent.ksql.rest.server.StatementParser;
+import io.confluent.ksql.rest.server.computation.Command;
+import io.confluent.ksql.rest.server.computation.CommandId;
+import io.confluent.ksql.rest.server.computation.CommandSnapshot;
+import io.confluent.ksql.rest.server.computation.StatementExecutor;
+import io.confluent.ksql.util.KsqlConfig;
+import io.confluent.ksql.util.Pair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rebuilding the server's state on startup, either by replaying the whole command history or by
+ * replaying the compacted snapshot of it. Every other cycle of the history creates a stream,
+ * starts a query into a new stream from it, terminates the query and drops both streams; the
+ * remaining cycles leave their streams behind. The queries are all terminated, so nothing needs a
+ * broker.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ReplayBenchmark {
+
+  @Param({"10", "100"})
+  public int cycles;
+
+  private List<Pair<CommandId, Command>> history;
+  private CommandSnapshot snapshot;
+
+  @Setup
+  public void setUp() throws Exception {
+    history = new ArrayList<>();
+    add(CommandId.Type.TOPIC, "PAGEVIEW_TOPIC",
+        "REGISTER TOPIC pageview_topic WITH (value_format = 'json', "
+        + "kafka_topic = 'pageview_topic_json');");
+    for (int i = 0; i < cycles; i++) {
+      long queryId = i + 1;
+      add(CommandId.Type.STREAM, "PAGEVIEW_" + i,
+          "CREATE STREAM pageview_" + i + " (viewtime bigint, pageid varchar, userid varchar) "
+          + "WITH (registered_topic = 'pageview_topic');");
+      add(CommandId.Type.STREAM, "USER1PV_" + i,
+          "CREATE STREAM user1pv_" + i + " AS SELECT * FROM pageview_" + i
+          + " WHERE userid = 'user1';");
+      add(CommandId.Type.TERMINATE, Long.toString(queryId), "TERMINATE " + queryId + ";");
+      if (i % 2 == 0) {
+        add(CommandId.Type.STREAM, "USER1PV_" + i + "_DROP", "DROP STREAM user1pv_" + i + ";");
+        add(CommandId.Type.STREAM, "PAGEVIEW_" + i + "_DROP", "DROP STREAM pageview_" + i + ";");
+      }
+    }
+
+    try (KsqlEngine ksqlEngine = newEngine()) {
+      StatementExecutor statementExecutor = newStatementExecutor(ksqlEngine);
+      statementExecutor.handleStatements(history);
+      snapshot = statementExecutor.getSnapshot(history.size()).get();
+    }
+  }
+
+  @Benchmark
+  public int replayHistory() throws Exception {
+    try (KsqlEngine ksqlEngine = newEngine()) {
+      newStatementExecutor(ksqlEngine).handleStatements(history);
+      return ksqlEngine.getMetaStore().getAllStructuredDataSources().size();
+    }
+  }
+
+  @Benchmark
+  public int replaySnapshot() throws Exception {
+    try (KsqlEngine ksqlEngine = newEngine()) {
+      newStatementExecutor(ksqlEngine).handleSnapshot(snapshot);
+      return ksqlEngine.getMetaStore().getAllStructuredDataSources().size();
+    }
+  }
+
+  private void add(CommandId.Type type, String entity, String statement) {
+    history.add(new Pair<>(new CommandId(type, entity), new Command(statement, new HashMap<>())));
+  }
+
+  private static KsqlEngine newEngine() {
+    Map<String, Object> props = new HashMap<>();
+    props.put("application.id", "ksql-replay-benchmark");
+    props.put("bootstrap.servers", "localhost:9092");
+    return new KsqlEngine(new KsqlConfig(props), new NoOpKafkaTopicClient());
+  }
+
+  private static StatementExecutor newStatementExecutor(KsqlEngine ksqlEngine) {
+    return new StatementExecutor(ksqlEngine, new StatementParser(ksqlEngine));
+  }
+}
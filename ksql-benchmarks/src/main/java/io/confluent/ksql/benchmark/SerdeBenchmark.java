@@ -0,0 +1,109 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+
+
+package io.confluent.ksql.benchmark;
+
+import io.confluent.ksql.GenericRow;
+import io.confluent.ksql.benchmark.BenchmarkData.Dataset;
+import io.confluent.ksql.serde.DataSource.DataSourceSerDe;
+import io.confluent.ksql.serde.KsqlTopicSerDe;
+import io.confluent.ksql.serde.avro.KsqlAvroTopicSerDe;
+import io.confluent.ksql.serde.delimited.KsqlDelimitedTopicSerDe;
+import io.confluent.ksql.serde.json.KsqlJsonTopicSerDe;
+import io.confluent.ksql.util.SerDeUtil;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializing and deserializing rows in every value format, for a narrow (ORDERS) and a wider
+ * (CLICKSTREAM) schema.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SerdeBenchmark {
+
+  // A power of two, so the next row is a mask away
+  private static final int ROW_COUNT = 1024;
+  private static final String TOPIC_NAME = "serde-benchmark";
+
+  @Param({"ORDERS", "CLICKSTREAM"})
+  public Dataset dataset;
+
+  @Param({"JSON", "AVRO", "DELIMITED"})
+  public DataSourceSerDe format;
+
+  private Serializer<GenericRow> serializer;
+  private Deserializer<GenericRow> deserializer;
+  private List<GenericRow> rows;
+  private byte[][] serializedRows;
+  private int next;
+
+  @Setup
+  public void setUp() {
+    BenchmarkData data = BenchmarkData.generate(dataset, ROW_COUNT);
+    Serde<GenericRow> serde = SerDeUtil.getRowSerDe(topicSerDe(data), data.getSchema());
+    serializer = serde.serializer();
+    deserializer = serde.deserializer();
+    rows = data.getRows();
+    serializedRows = new byte[ROW_COUNT][];
+    for (int i = 0; i < ROW_COUNT; i++) {
+      serializedRows[i] = serializer.serialize(TOPIC_NAME, rows.get(i));
+    }
+  }
+
+  private KsqlTopicSerDe topicSerDe(BenchmarkData data) {
+    switch (format) {
+      case JSON:
+        return new KsqlJsonTopicSerDe(data.getSchema());
+      case AVRO:
+        return new KsqlAvroTopicSerDe(data.getAvroSchema().toString());
+      case DELIMITED:
+        return new KsqlDelimitedTopicSerDe();
+      default:
+        throw new IllegalArgumentException("Unknown format: " + format);
+    }
+  }
+
+  @Benchmark
+  public byte[] serialize() {
+    return serializer.serialize(TOPIC_NAME, rows.get(next++ & (ROW_COUNT - 1)));
+  }
+
+  @Benchmark
+  public GenericRow deserialize() {
+    return deserializer.deserialize(TOPIC_NAME, serializedRows[next++ & (ROW_COUNT - 1)]);
+  }
+}
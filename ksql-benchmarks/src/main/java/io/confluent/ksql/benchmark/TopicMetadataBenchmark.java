@@ -0,0 +1,124 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+
+package io.confluent.ksql.benchmark;
+
+import io.confluent.ksql.util.KafkaTopicClientImpl;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.clients.admin.TopicPartitionInfo;
+import org.apache.kafka.common.Node;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * SHOW TOPICS and the topic lookups of planning a statement against a cluster holding many
+ * topics, with and without the topic client's metadata cache; a TTL of 0 fetches everything on
+ * every call. The brokers are stood in for by answering each listing or description request
+ * after a fixed round trip, so no cluster is needed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TopicMetadataBenchmark {
+
+  @Param({"100", "5000"})
+  public int topicCount;
+
+  @Param({"0", "30000"})
+  public long metadataTtlMs;
+
+  @Param({"500"})
+  public long roundTripMicros;
+
+  private KafkaTopicClientImpl topicClient;
+  private Collection<String> sinkTopics;
+
+  @Setup
+  public void setUp() {
+    Set<String> brokerTopics = new HashSet<>();
+    for (int i = 0; i < topicCount; i++) {
+      brokerTopics.add("topic-" + i);
+    }
+    sinkTopics = Collections.singletonList("topic-0");
+    topicClient = new KafkaTopicClientImpl(Collections.emptyMap(), metadataTtlMs) {
+      @Override
+      protected Collection<String> listTopicNamesFromBrokers() {
+        roundTrip();
+        return brokerTopics;
+      }
+
+      @Override
+      protected Map<String, TopicDescription> fetchTopicDescriptions(
+          Collection<String> topicNames) {
+        roundTrip();
+        Map<String, TopicDescription> descriptions = new HashMap<>();
+        for (String topicName : topicNames) {
+          descriptions.put(topicName, describe(topicName));
+        }
+        return descriptions;
+      }
+    };
+  }
+
+  @TearDown
+  public void tearDown() {
+    topicClient.close();
+  }
+
+  private void roundTrip() {
+    LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(roundTripMicros));
+  }
+
+  private static TopicDescription describe(String topicName) {
+    Node node = new Node(0, "localhost", 9092);
+    return new TopicDescription(topicName, false, Collections.singletonList(
+        new TopicPartitionInfo(0, node, Collections.singletonList(node),
+                               Collections.singletonList(node))));
+  }
+
+  @Benchmark
+  public Map<String, TopicDescription> showTopics() {
+    return topicClient.describeTopics(topicClient.listTopicNames());
+  }
+
+  @Benchmark
+  public Map<String, TopicDescription> checkSinkTopic() {
+    topicClient.isTopicExists("topic-0");
+    return topicClient.describeTopics(sinkTopics);
+  }
+}
@@ -0,0 +1,142 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+
+
+package io.confluent.ksql.benchmark;
+
+import io.confluent.ksql.GenericRow;
+import io.confluent.ksql.KsqlEngine;
+import io.confluent.ksql.benchmark.BenchmarkData.Dataset;
+import io.confluent.ksql.parser.tree.Statement;
+import io.confluent.ksql.physical.PhysicalPlanBuilder;
+import io.confluent.ksql.planner.plan.PlanNode;
+import io.confluent.ksql.util.KafkaTopicClient;
+import io.confluent.ksql.util.KsqlConfig;
+import io.confluent.ksql.util.Pair;
+import io.confluent.ksql.util.SerDeUtil;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.kstream.KStreamBuilder;
+import org.apache.kafka.test.ProcessorTopologyTestDriver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A whole persistent query, from the bytes read off the source topic to the bytes written to the
+ * sink, run through the Kafka Streams test driver so no broker is involved. The query is planned
+ * the way the engine plans it.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TopologyBenchmark {
+
+  private static final int ROW_COUNT = 1024;
+  private static final String SINK_NAME = "BENCHMARK_SINK";
+
+  @Param({"0.01", "0.5", "0.99"})
+  public double selectivity;
+
+  private KsqlEngine ksqlEngine;
+  private ProcessorTopologyTestDriver driver;
+  private String sourceTopic;
+  private byte[][] keys;
+  private byte[][] values;
+  private int next;
+
+  @Setup
+  public void setUp() throws Exception {
+    BenchmarkData data = BenchmarkData.generate(Dataset.ORDERS, ROW_COUNT);
+
+    Map<String, Object> props = new HashMap<>();
+    props.put(StreamsConfig.APPLICATION_ID_CONFIG, "ksql-topology-benchmark");
+    props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:9092");
+    props.put(StreamsConfig.STATE_DIR_CONFIG,
+              Files.createTempDirectory("ksql-benchmark").toString());
+    props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+    KsqlConfig ksqlConfig = new KsqlConfig(props);
+    KafkaTopicClient topicClient = new NoOpKafkaTopicClient();
+
+    ksqlEngine = new KsqlEngine(ksqlConfig, topicClient);
+    data.registerIn(ksqlEngine.getMetaStore());
+    String query = String.format(
+        Locale.ROOT,
+        "CREATE STREAM %s AS SELECT ORDERID, ITEMID, ORDERUNITS * 2 FROM %s "
+        + "WHERE ORDERUNITS < %f;",
+        SINK_NAME, data.getName(), 0.1 + 9.9 * selectivity
+    );
+    List<Pair<String, Statement>> statements =
+        ksqlEngine.parseQueries(query, Collections.emptyMap(), ksqlEngine.getMetaStore());
+    PlanNode logicalPlan = ksqlEngine.getQueryEngine()
+        .buildLogicalPlans(ksqlEngine.getMetaStore(), statements).get(0).getRight();
+
+    KStreamBuilder builder = new KStreamBuilder();
+    new PhysicalPlanBuilder(builder, ksqlConfig, topicClient).buildPhysicalPlan(logicalPlan);
+    driver = new ProcessorTopologyTestDriver(new StreamsConfig(props), builder);
+
+    sourceTopic = data.getKafkaTopicName();
+    Serializer<String> keySerializer = new StringSerializer();
+    Serializer<GenericRow> valueSerializer =
+        SerDeUtil.getGenericRowJsonSerde(data.getSchema()).serializer();
+    keys = new byte[ROW_COUNT][];
+    values = new byte[ROW_COUNT][];
+    for (int i = 0; i < ROW_COUNT; i++) {
+      keys[i] = keySerializer.serialize(sourceTopic, data.getKeys().get(i));
+      values[i] = valueSerializer.serialize(sourceTopic, data.getRows().get(i));
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    driver.close();
+    ksqlEngine.close();
+  }
+
+  /**
+   * @return What the query wrote for the row, or null if it was filtered out
+   */
+  @Benchmark
+  public ProducerRecord<byte[], byte[]> processRow() {
+    int index = next++ & (ROW_COUNT - 1);
+    driver.process(sourceTopic, keys[index], values[index]);
+    return driver.readOutput(SINK_NAME);
+  }
+}
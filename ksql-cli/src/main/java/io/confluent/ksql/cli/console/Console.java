@@ -33,6 +33,7 @@ import io.confluent.ksql.rest.entity.KsqlTopicInfo;
 import io.confluent.ksql.rest.entity.KsqlTopicsList;
 import io.confluent.ksql.rest.entity.PropertiesList;
 import io.confluent.ksql.rest.entity.Queries;
+import io.confluent.ksql.rest.entity.RunningQueryMetrics;
 import io.confluent.ksql.rest.entity.SchemaMapper;
 import io.confluent.ksql.rest.entity.ServerInfo;
 import io.confluent.ksql.rest.entity.SourceDescription;
@@ -423,19 +424,36 @@ public abstract class Console implements Closeable {
           )).collect(Collectors.toList());
     } else if (ksqlEntity instanceof Queries) {
       List<Queries.RunningQuery> runningQueries = ((Queries) ksqlEntity).getQueries();
-      columnHeaders = Arrays.asList("Query ID", "Kafka Topic", "Query String");
+      columnHeaders = Arrays.asList(
+          "Query ID", "Kafka Topic", "State", "Msgs/sec In", "Lag", "Query String");
       rowValues = runningQueries.stream()
-          .map(runningQuery -> Arrays.asList(
-              Long.toString(runningQuery.getId()),
-              runningQuery.getKafkaTopic(),
-              runningQuery.getQueryString()
-          )).collect(Collectors.toList());
+          .map(runningQuery -> {
+            RunningQueryMetrics metrics = runningQuery.getMetrics();
+            return Arrays.asList(
+                Long.toString(runningQuery.getId()),
+                runningQuery.getKafkaTopic(),
+                metrics == null ? "" : metrics.getState(),
+                metrics == null ? "" : String.format("%.2f", metrics.getMessagesInPerSec()),
+                metrics == null ? ""
+                    : Long.toString(metrics.getConsumerLag().values().stream()
+                                        .mapToLong(Long::longValue).sum()),
+                runningQuery.getQueryString()
+            );
+          }).collect(Collectors.toList());
     } else if (ksqlEntity instanceof SourceDescription) {
-      List<SourceDescription.FieldSchemaInfo> fields = ((SourceDescription) ksqlEntity).getSchema();
+      SourceDescription sourceDescription = (SourceDescription) ksqlEntity;
+      List<SourceDescription.FieldSchemaInfo> fields = sourceDescription.getSchema();
       columnHeaders = Arrays.asList("Field", "Type");
       rowValues = fields.stream()
           .map(field -> Arrays.asList(field.getName(), field.getType()))
           .collect(Collectors.toList());
+      RunningQueryMetrics metrics = sourceDescription.getMetrics();
+      if (metrics != null) {
+        printTable(columnHeaders, rowValues);
+        writer().println();
+        columnHeaders = Arrays.asList("Metric", "Value");
+        rowValues = metricsRows(metrics);
+      }
     } else if (ksqlEntity instanceof TopicDescription) {
       columnHeaders = new ArrayList<>();
       columnHeaders.add("Topic Name");
@@ -502,6 +520,25 @@ public abstract class Console implements Closeable {
     printTable(columnHeaders, rowValues);
   }
 
+  private static List<List<String>> metricsRows(RunningQueryMetrics metrics) {
+    List<List<String>> rows = new ArrayList<>();
+    rows.add(Arrays.asList("state", metrics.getState()));
+    rows.add(Arrays.asList(
+        "messages-in-per-sec", String.format("%.2f", metrics.getMessagesInPerSec())));
+    rows.add(Arrays.asList(
+        "messages-out-per-sec", String.format("%.2f", metrics.getMessagesOutPerSec())));
+    rows.add(Arrays.asList(
+        "process-latency-avg-ms", String.format("%.3f", metrics.getProcessLatencyAvgMs())));
+    for (Map.Entry<String, Long> lag : metrics.getConsumerLag().entrySet()) {
+      rows.add(Arrays.asList("consumer-lag " + lag.getKey(), Long.toString(lag.getValue())));
+    }
+    rows.add(Arrays.asList(
+        "restore-records-remaining", Long.toString(metrics.getRestoreRemaining())));
+    rows.add(Arrays.asList(
+        "state-store-entries", Objects.toString(metrics.getStateStoreEntries(), "unavailable")));
+    return rows;
+  }
+
   private void printAsTable(GenericRow row) {
     addResult(row);
     writer().println(
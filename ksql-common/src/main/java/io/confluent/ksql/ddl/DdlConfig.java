@@ -28,5 +28,6 @@ public class DdlConfig {
   public static final String IS_WINDOWED_PROPERTY = "WINDOWED";
   public static final String TIMESTAMP_NAME_PROPERTY = "TIMESTAMP";
   public static final String PARTITION_BY_PROPERTY = "PARTITION_BY";
+  public static final String GLOBAL_PROPERTY = "GLOBAL";
   public static final String SCHEMA_FILE_CONTENT_PROPERTY = "ksql.schema.file.content";
 }
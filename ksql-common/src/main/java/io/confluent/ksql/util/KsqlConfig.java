@@ -100,6 +100,76 @@ public class KsqlConfig extends AbstractConfig {
       KSQL_TABLE_STATESTORE_NAME_SUFFIX_DOC =
       "Suffix for state store names in Tables.";
 
+  public static final String
+      KSQL_PULL_QUERIES_ENABLE_CONFIG = "ksql.pull.queries.enable";
+  public static final ConfigDef.Type
+      KSQL_PULL_QUERIES_ENABLE_TYPE = ConfigDef.Type.BOOLEAN;
+  public static final Boolean
+      KSQL_PULL_QUERIES_ENABLE_DEFAULT = true;
+  public static final ConfigDef.Importance
+      KSQL_PULL_QUERIES_ENABLE_IMPORTANCE = ConfigDef.Importance.LOW;
+  public static final String
+      KSQL_PULL_QUERIES_ENABLE_DOC =
+      "If true, a SELECT against a table that looks up ROWKEY = <literal> is answered from the "
+      + "aggregate or reduce store the query writing the table already keeps, instead of "
+      + "starting a new streams job. No extra store or changelog topic is created for this.";
+
+  public static final String
+      KSQL_SHARED_PRODUCERS_CONFIG = "ksql.persistent.shared.producers";
+  public static final ConfigDef.Type
+      KSQL_SHARED_PRODUCERS_TYPE = ConfigDef.Type.INT;
+  public static final Integer
+      KSQL_SHARED_PRODUCERS_DEFAULT = 0;
+  public static final ConfigDef.Importance
+      KSQL_SHARED_PRODUCERS_IMPORTANCE = ConfigDef.Importance.LOW;
+  public static final String
+      KSQL_SHARED_PRODUCERS_DOC =
+      "If greater than zero, persistent queries write their output through a pool of this many "
+      + "producers shared by all persistent queries on the server, instead of one producer per "
+      + "stream thread of every query. Queries using exactly-once processing always get their "
+      + "own producers.";
+
+  public static final String
+      KSQL_STATEMENT_CACHE_SIZE_CONFIG = "ksql.statement.cache.size";
+  public static final ConfigDef.Type
+      KSQL_STATEMENT_CACHE_SIZE_TYPE = ConfigDef.Type.INT;
+  public static final Integer
+      KSQL_STATEMENT_CACHE_SIZE_DEFAULT = 1000;
+  public static final ConfigDef.Importance
+      KSQL_STATEMENT_CACHE_SIZE_IMPORTANCE = ConfigDef.Importance.LOW;
+  public static final String
+      KSQL_STATEMENT_CACHE_SIZE_DOC =
+      "The number of transient queries whose parsed statements and logical plans are kept so "
+      + "that resubmitting the same query text skips parsing and planning. 0 disables the cache.";
+
+  public static final String
+      KSQL_LATENCY_METRICS_ENABLE_CONFIG = "ksql.query.latency.metrics.enable";
+  public static final ConfigDef.Type
+      KSQL_LATENCY_METRICS_ENABLE_TYPE = ConfigDef.Type.BOOLEAN;
+  public static final Boolean
+      KSQL_LATENCY_METRICS_ENABLE_DEFAULT = true;
+  public static final ConfigDef.Importance
+      KSQL_LATENCY_METRICS_ENABLE_IMPORTANCE = ConfigDef.Importance.LOW;
+  public static final String
+      KSQL_LATENCY_METRICS_ENABLE_DOC =
+      "If true, the sink of every query records how far its output lags behind ROWTIME and how "
+      + "long rows took to process in latency histograms. If false, queries are built without "
+      + "any of the recording steps.";
+
+  public static final String
+      KSQL_TOPIC_METADATA_TTL_MS_CONFIG = "ksql.topic.metadata.ttl.ms";
+  public static final ConfigDef.Type
+      KSQL_TOPIC_METADATA_TTL_MS_TYPE = ConfigDef.Type.LONG;
+  public static final Long
+      KSQL_TOPIC_METADATA_TTL_MS_DEFAULT = 30000L;
+  public static final ConfigDef.Importance
+      KSQL_TOPIC_METADATA_TTL_MS_IMPORTANCE = ConfigDef.Importance.LOW;
+  public static final String
+      KSQL_TOPIC_METADATA_TTL_MS_DOC =
+      "How long the topic names and descriptions fetched from the brokers are reused before they "
+      + "are fetched again. A topic that isn't known yet is always looked up, so this only delays "
+      + "noticing topics deleted or changed outside KSQL.";
+
   public int defaultSinkNumberOfPartitions = 4;
   public short defaultSinkNumberOfReplications = 1;
   // TODO: Find out the best default value.
@@ -124,6 +194,11 @@ public class KsqlConfig extends AbstractConfig {
     ksqlConfigProps.put(KSQL_PERSISTENT_QUERY_NAME_PREFIX_CONFIG, KSQL_PERSISTENT_QUERY_NAME_PREFIX_DEFAULT);
     ksqlConfigProps.put(KSQL_TRANSIENT_QUERY_NAME_PREFIX_CONFIG, KSQL_TRANSIENT_QUERY_NAME_PREFIX_DEFAULT);
     ksqlConfigProps.put(KSQL_TABLE_STATESTORE_NAME_SUFFIX_CONFIG, KSQL_TABLE_STATESTORE_NAME_SUFFIX_DEFAULT);
+    ksqlConfigProps.put(KSQL_PULL_QUERIES_ENABLE_CONFIG, KSQL_PULL_QUERIES_ENABLE_DEFAULT);
+    ksqlConfigProps.put(KSQL_SHARED_PRODUCERS_CONFIG, KSQL_SHARED_PRODUCERS_DEFAULT);
+    ksqlConfigProps.put(KSQL_STATEMENT_CACHE_SIZE_CONFIG, KSQL_STATEMENT_CACHE_SIZE_DEFAULT);
+    ksqlConfigProps.put(KSQL_LATENCY_METRICS_ENABLE_CONFIG, KSQL_LATENCY_METRICS_ENABLE_DEFAULT);
+    ksqlConfigProps.put(KSQL_TOPIC_METADATA_TTL_MS_CONFIG, KSQL_TOPIC_METADATA_TTL_MS_DEFAULT);
 
     if (props.containsKey(DEFAULT_SINK_NUMBER_OF_PARTITIONS)) {
       ksqlConfigProps.put(SINK_NUMBER_OF_PARTITIONS_PROPERTY,
@@ -63,7 +63,7 @@ public class KsqlContext {
     }
     KsqlConfig ksqlConfig = new KsqlConfig(streamsProperties);
 
-    topicClient = new KafkaTopicClientImpl(ksqlConfig.getKsqlAdminClientConfigProps());
+    topicClient = new KafkaTopicClientImpl(ksqlConfig);
     ksqlEngine = new KsqlEngine(ksqlConfig, topicClient);
   }
 
@@ -52,6 +52,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -77,6 +78,9 @@ public class KsqlEngine implements Closeable {
 
   private final Map<Long, PersistentQueryMetadata> persistentQueries;
   private final Set<QueryMetadata> liveQueries;
+  private final Optional<SharedProducerPool> sharedProducerPool;
+  private final StatementCache statementCache;
+  private final QueryLatencyMetrics pushQueryLatencyMetrics;
 
   public KsqlEngine(final KsqlConfig ksqlConfig, final KafkaTopicClient topicClient) {
     Objects.requireNonNull(ksqlConfig, "Streams properties map cannot be null as it may be mutated later on");
@@ -90,6 +94,17 @@ public class KsqlEngine implements Closeable {
 
     this.persistentQueries = new HashMap<>();
     this.liveQueries = new HashSet<>();
+
+    int sharedProducers = Integer.parseInt(
+        String.valueOf(ksqlConfig.get(KsqlConfig.KSQL_SHARED_PRODUCERS_CONFIG)));
+    this.sharedProducerPool = sharedProducers > 0
+        ? Optional.of(new SharedProducerPool(sharedProducers))
+        : Optional.empty();
+    this.statementCache = new StatementCache(Integer.parseInt(
+        String.valueOf(ksqlConfig.get(KsqlConfig.KSQL_STATEMENT_CACHE_SIZE_CONFIG))));
+    this.pushQueryLatencyMetrics = new QueryLatencyMetrics();
+    MBeanRegistrar.register(pushQueryLatencyMetrics,
+                            QueryLatencyMetrics.PUSH_QUERIES_OBJECT_PROPERTIES);
   }
 
   /**
@@ -118,11 +133,80 @@ public class KsqlEngine implements Closeable {
     // MetaStore tempMetaStore = new MetaStoreImpl(metaStore);
 
     MetaStore tempMetaStore = metaStore.clone();
+    Optional<StatementCache.Entry> cached =
+        statementCache.get(queriesString, overriddenProperties, tempMetaStore);
+    if (cached.isPresent()) {
+      return planQueries(
+          createNewAppId,
+          cached.get().getStatements(),
+          cached.get().getLogicalPlans(),
+          overriddenProperties
+      );
+    }
+
+    long startNanos = System.nanoTime();
+    long metaStoreVersion = tempMetaStore.getVersion();
     // Build query AST from the query string
     List<Pair<String, Statement>> queries = parseQueries(queriesString, overriddenProperties, tempMetaStore);
 
-    return planQueries(createNewAppId, queries, overriddenProperties, tempMetaStore);
+    // Logical plan creation from the ASTs
+    List<Pair<String, PlanNode>> logicalPlans = queryEngine.buildLogicalPlans(tempMetaStore, queries);
+    statementCache.put(
+        queriesString,
+        overriddenProperties,
+        metaStoreVersion,
+        queries,
+        logicalPlans,
+        System.nanoTime() - startNanos
+    );
+
+    return planQueries(createNewAppId, queries, logicalPlans, overriddenProperties);
+
+  }
+
+  /**
+   * Build the persistent query of a single CREATE STREAM/TABLE AS SELECT. If the id the query is
+   * given is one of {@code terminatedQueryIds} (as when replaying statements that were followed by
+   * a TERMINATE), only its sink is put into the metastore: no sink topic is created and no Kafka
+   * Streams instance is built for it.
+   *
+   * @param queryString The ksql statement.
+   * @param terminatedQueryIds The ids of the queries that have since been terminated.
+   * @param awaitSinkTopic Whether to wait for the sink topic to be created before the query is
+   *                       given an id; if not, it's up to the caller to wait for
+   *                       {@link PersistentQueryMetadata#getSinkTopicCreation()} before starting
+   *                       the query, which lets the topics of several queries be created at once.
+   * @return The id the query was given; the query itself is available from
+   *         {@link #getPersistentQueries()} unless it was terminated.
+   */
+  public long buildPersistentQuery(
+      final String queryString,
+      final Map<String, Object> overriddenProperties,
+      final Set<Long> terminatedQueryIds,
+      final boolean awaitSinkTopic
+  ) throws Exception {
+    MetaStore tempMetaStore = metaStore.clone();
+    List<Pair<String, Statement>> queries =
+        parseQueries(queryString, overriddenProperties, tempMetaStore);
+    List<Pair<String, PlanNode>> logicalPlans =
+        queryEngine.buildLogicalPlans(tempMetaStore, queries);
+    if (logicalPlans.size() != 1 || logicalPlans.get(0).getRight() == null) {
+      throw new KsqlException("Expected a single persistent query from: " + queryString);
+    }
+
+    // Persistent query ids are handed out in order as queries are planned, one at a time
+    if (terminatedQueryIds.contains(queryEngine.peekNextQueryId())) {
+      return queryEngine.registerTerminatedQuery(logicalPlans.get(0), overriddenProperties);
+    }
 
+    List<QueryMetadata> physicalPlans = new ArrayList<>();
+    queryEngine.buildQueryPhysicalPlan(physicalPlans, false, logicalPlans.get(0),
+                                       overriddenProperties, true, awaitSinkTopic);
+    if (!(physicalPlans.get(0) instanceof PersistentQueryMetadata)) {
+      throw new KsqlException("Expected a single persistent query from: " + queryString);
+    }
+    registerPersistentQueries(physicalPlans);
+    return ((PersistentQueryMetadata) physicalPlans.get(0)).getId();
   }
 
   public List<QueryMetadata> planQueries(final boolean createNewAppId,
@@ -134,6 +218,15 @@ public class KsqlEngine implements Closeable {
     // Logical plan creation from the ASTs
     List<Pair<String, PlanNode>> logicalPlans = queryEngine.buildLogicalPlans(tempMetaStore, statementList);
 
+    return planQueries(createNewAppId, statementList, logicalPlans, overriddenProperties);
+  }
+
+  private List<QueryMetadata> planQueries(final boolean createNewAppId,
+                                          final List<Pair<String, Statement>> statementList,
+                                          final List<Pair<String, PlanNode>> logicalPlans,
+                                          final Map<String, Object> overriddenProperties)
+          throws Exception {
+
     // Physical plan creation from logical plans.
     List<QueryMetadata> runningQueries = queryEngine.buildPhysicalPlans(
             createNewAppId,
@@ -142,16 +235,26 @@ public class KsqlEngine implements Closeable {
             overriddenProperties,
             true
     );
+    registerPersistentQueries(runningQueries);
+    return runningQueries;
+  }
 
+  private void registerPersistentQueries(final List<QueryMetadata> runningQueries) {
     for (QueryMetadata queryMetadata : runningQueries) {
       if (queryMetadata instanceof PersistentQueryMetadata) {
         liveQueries.add(queryMetadata);
         PersistentQueryMetadata persistentQueryMetadata = (PersistentQueryMetadata) queryMetadata;
         persistentQueries.put(persistentQueryMetadata.getId(), persistentQueryMetadata);
+        PersistentQueryMetrics.register(
+            persistentQueryMetadata,
+            () -> getSinkStateStoreName(persistentQueryMetadata)
+        );
+        persistentQueryMetadata.getLatencyMetrics().ifPresent(latencyMetrics ->
+            MBeanRegistrar.register(
+                latencyMetrics,
+                QueryLatencyMetrics.objectProperties(persistentQueryMetadata.getId())));
       }
     }
-
-    return runningQueries;
   }
 
   public QueryMetadata getQueryExecutionPlan(final Query query) throws Exception {
@@ -171,6 +274,23 @@ public class KsqlEngine implements Closeable {
   }
 
 
+  /**
+   * Returns a lookup that answers the given query straight from the state store of a running
+   * persistent query, if pull queries are enabled and the query is a key lookup against a table
+   * written by a query running on this node.
+   */
+  public Optional<TableLookup> buildTableLookup(final Query query,
+                                                final Map<String, Object> overriddenProperties) {
+    Object enabled = overriddenProperties.containsKey(KsqlConfig.KSQL_PULL_QUERIES_ENABLE_CONFIG)
+                     ? overriddenProperties.get(KsqlConfig.KSQL_PULL_QUERIES_ENABLE_CONFIG)
+                     : ksqlConfig.get(KsqlConfig.KSQL_PULL_QUERIES_ENABLE_CONFIG);
+    if (!Boolean.parseBoolean(String.valueOf(enabled))) {
+      return Optional.empty();
+    }
+    return TableLookup.build(query, metaStore, persistentQueries.values());
+  }
+
+
   public List<Pair<String, Statement>> parseQueries(final String queriesString,
                                                     final Map<String, Object> overriddenProperties,
                                                     final MetaStore tempMetaStore) {
@@ -359,6 +479,8 @@ public class KsqlEngine implements Closeable {
       return false;
     }
     liveQueries.remove(queryMetadata);
+    PersistentQueryMetrics.unregister(queryId);
+    MBeanRegistrar.unregister(QueryLatencyMetrics.objectProperties(queryId));
     if (closeStreams) {
       queryMetadata.getKafkaStreams().close(100L, TimeUnit.MILLISECONDS);
       queryMetadata.getKafkaStreams().cleanUp();
@@ -370,6 +492,44 @@ public class KsqlEngine implements Closeable {
     return new HashMap<>(persistentQueries);
   }
 
+  /**
+   * Takes a snapshot of the metrics of a running persistent query. This only reads the metrics
+   * the query's streams clients already keep, so it is cheap enough to call per request.
+   */
+  public QueryMetrics getQueryMetrics(final PersistentQueryMetadata queryMetadata) {
+    return QueryMetrics.collect(
+        queryMetadata.getKafkaStreams(),
+        getSinkStateStoreName(queryMetadata)
+    );
+  }
+
+  /**
+   * @return The latency percentiles of every persistent query recording them, by query id, and
+   *         of all push queries together under {@code push-queries}
+   */
+  public Map<String, Object> getLatencyStats() {
+    Map<String, Object> latencyStats = new LinkedHashMap<>();
+    for (PersistentQueryMetadata queryMetadata : persistentQueries.values()) {
+      queryMetadata.getLatencyMetrics().ifPresent(latencyMetrics ->
+          latencyStats.put(String.valueOf(queryMetadata.getId()), latencyMetrics.getStats()));
+    }
+    latencyStats.put("push-queries", pushQueryLatencyMetrics.getStats());
+    return latencyStats;
+  }
+
+  public QueryLatencyMetrics getPushQueryLatencyMetrics() {
+    return pushQueryLatencyMetrics;
+  }
+
+  private Optional<String> getSinkStateStoreName(final PersistentQueryMetadata queryMetadata) {
+    StructuredDataSource sink =
+        metaStore.getSource(queryMetadata.getOutputNode().getId().toString());
+    if (sink instanceof KsqlTable) {
+      return Optional.ofNullable(((KsqlTable) sink).getStateStoreName());
+    }
+    return Optional.empty();
+  }
+
   public static List<String> getImmutableProperties() {
     return new ArrayList<>(IMMUTABLE_PROPERTIES);
   }
@@ -385,12 +545,27 @@ public class KsqlEngine implements Closeable {
     return ksqlConfig;
   }
 
+  public StatementCache getStatementCache() {
+    return statementCache;
+  }
+
+  public Optional<SharedProducerPool> getSharedProducerPool() {
+    return sharedProducerPool;
+  }
+
   @Override
   public void close() throws IOException {
     for (QueryMetadata queryMetadata : liveQueries) {
+      if (queryMetadata instanceof PersistentQueryMetadata) {
+        long queryId = ((PersistentQueryMetadata) queryMetadata).getId();
+        PersistentQueryMetrics.unregister(queryId);
+        MBeanRegistrar.unregister(QueryLatencyMetrics.objectProperties(queryId));
+      }
       queryMetadata.getKafkaStreams().close(100L, TimeUnit.MILLISECONDS);
       queryMetadata.getKafkaStreams().cleanUp();
     }
+    MBeanRegistrar.unregister(QueryLatencyMetrics.PUSH_QUERIES_OBJECT_PROPERTIES);
+    sharedProducerPool.ifPresent(SharedProducerPool::close);
     topicClient.close();
   }
 
@@ -28,6 +28,7 @@ import io.confluent.ksql.ddl.commands.DDLCommandResult;
 import io.confluent.ksql.ddl.commands.DropSourceCommand;
 import io.confluent.ksql.ddl.commands.DropTopicCommand;
 import io.confluent.ksql.ddl.commands.RegisterTopicCommand;
+import io.confluent.ksql.exception.KafkaResponseGetFailedException;
 import io.confluent.ksql.serde.DataSource;
 import io.confluent.ksql.metastore.KsqlStream;
 import io.confluent.ksql.metastore.KsqlTable;
@@ -59,16 +60,21 @@ import io.confluent.ksql.planner.plan.PlanNode;
 import io.confluent.ksql.structured.QueuedSchemaKStream;
 import io.confluent.ksql.structured.SchemaKStream;
 import io.confluent.ksql.structured.SchemaKTable;
+import io.confluent.ksql.structured.TableStoreView;
+import io.confluent.ksql.util.KafkaTopicClient;
 import io.confluent.ksql.util.KsqlConfig;
 import io.confluent.ksql.util.KsqlException;
 import io.confluent.ksql.util.Pair;
 import io.confluent.ksql.util.PersistentQueryMetadata;
+import io.confluent.ksql.util.QueryLatencyMetrics;
 import io.confluent.ksql.util.QueryMetadata;
 import io.confluent.ksql.util.QueuedQueryMetadata;
 import io.confluent.ksql.util.timestamp.KsqlTimestampExtractor;
+import org.apache.kafka.clients.admin.TopicDescription;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.connect.data.Schema;
 import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.streams.KafkaClientSupplier;
 import org.apache.kafka.streams.KafkaStreams;
 import org.apache.kafka.streams.StreamsConfig;
 import org.apache.kafka.streams.kstream.KStreamBuilder;
@@ -76,8 +82,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -94,7 +106,7 @@ public class QueryEngine {
   }
 
 
-  List<Pair<String, PlanNode>> buildLogicalPlans(
+  public List<Pair<String, PlanNode>> buildLogicalPlans(
       final MetaStore metaStore,
       final List<Pair<String, Statement>> statementList) {
 
@@ -209,6 +221,22 @@ public class QueryEngine {
                                      final Pair<String, PlanNode> statementPlanPair,
                                      final Map<String, Object> overriddenStreamsProperties,
                                      final boolean updateMetastore) throws Exception {
+    buildQueryPhysicalPlan(physicalPlans, addUniqueTimeSuffix, statementPlanPair,
+                           overriddenStreamsProperties, updateMetastore, true);
+  }
+
+  /**
+   * @param awaitSinkTopic Whether to wait for the sink topic of a persistent query to be created
+   *                       before giving the query an id; if not, the caller has to wait for
+   *                       {@link PersistentQueryMetadata#getSinkTopicCreation()} before starting
+   *                       the query, and a failure to create the topic leaves the query behind.
+   */
+  public void buildQueryPhysicalPlan(final List<QueryMetadata> physicalPlans,
+                                     final boolean addUniqueTimeSuffix,
+                                     final Pair<String, PlanNode> statementPlanPair,
+                                     final Map<String, Object> overriddenStreamsProperties,
+                                     final boolean updateMetastore,
+                                     final boolean awaitSinkTopic) throws Exception {
 
     PlanNode logicalPlan = statementPlanPair.getRight();
     KStreamBuilder builder = new KStreamBuilder();
@@ -216,7 +244,8 @@ public class QueryEngine {
     KsqlConfig ksqlConfigClone = ksqlEngine.getKsqlConfig().clone();
 
     // Build a physical plan, in this case a Kafka Streams DSL
-    PhysicalPlanBuilder physicalPlanBuilder = new PhysicalPlanBuilder(builder, ksqlConfigClone, ksqlEngine.getTopicClient());
+    PhysicalPlanBuilder physicalPlanBuilder = new PhysicalPlanBuilder(builder, ksqlConfigClone, ksqlEngine.getTopicClient(),
+                                                                      ksqlEngine.getPushQueryLatencyMetrics());
     SchemaKStream schemaKStream = physicalPlanBuilder.buildPhysicalPlan(logicalPlan);
 
     OutputNode outputNode = physicalPlanBuilder.getPlanSink();
@@ -246,8 +275,10 @@ public class QueryEngine {
     } else if (outputNode instanceof KsqlStructuredDataOutputNode) {
 
       physicalPlans.add(buildPlanForStructuredOutputNode(addUniqueTimeSuffix, statementPlanPair,
-                                                         overriddenStreamsProperties, updateMetastore, builder, ksqlConfigClone, schemaKStream,
-                                                         (KsqlStructuredDataOutputNode) outputNode, serviceId, persistanceQueryPrefix));
+                                                         overriddenStreamsProperties, updateMetastore, awaitSinkTopic, builder, ksqlConfigClone, schemaKStream,
+                                                         (KsqlStructuredDataOutputNode) outputNode, serviceId, persistanceQueryPrefix,
+                                                         physicalPlanBuilder.getLatencyMetrics(),
+                                                         physicalPlanBuilder.getTableStoreView()));
 
     } else {
       throw new KsqlException("Sink data source is not correct.");
@@ -258,6 +289,42 @@ public class QueryEngine {
     log.info(schemaKStream.getExecutionPlan(""));
   }
 
+  /**
+   * Plan a persistent query that has already been terminated, only to put its sink into the
+   * metastore and use up its query id. Its sink topic is neither created nor waited for and no
+   * Kafka Streams instance is built for it, so nothing is left to clean up.
+   * @param statementPlanPair The statement and its logical plan
+   * @param overriddenStreamsProperties The properties the query was started with
+   * @return The id the query was given
+   */
+  public long registerTerminatedQuery(final Pair<String, PlanNode> statementPlanPair,
+                                      final Map<String, Object> overriddenStreamsProperties)
+      throws Exception {
+    PhysicalPlanBuilder physicalPlanBuilder = new PhysicalPlanBuilder(
+        new KStreamBuilder(),
+        ksqlEngine.getKsqlConfig().clone(),
+        new NonCreatingTopicClient(ksqlEngine.getTopicClient())
+    );
+    SchemaKStream schemaKStream = physicalPlanBuilder.buildPhysicalPlan(statementPlanPair.getRight());
+    if (!(physicalPlanBuilder.getPlanSink() instanceof KsqlStructuredDataOutputNode)) {
+      throw new KsqlException(
+          "Only persistent queries can be registered as terminated: " + statementPlanPair.getLeft());
+    }
+    KsqlStructuredDataOutputNode outputNode =
+        (KsqlStructuredDataOutputNode) physicalPlanBuilder.getPlanSink();
+
+    long queryId = getNextQueryId();
+    MetaStore metaStore = ksqlEngine.getMetaStore();
+    if (metaStore.getTopic(outputNode.getKafkaTopicName()) == null) {
+      metaStore.putTopic(outputNode.getKsqlTopic());
+    }
+    metaStore.putSource(buildSinkDataSource(outputNode, schemaKStream).cloneWithTimeKeyColumns());
+
+    log.info("Registered the sink of terminated query {} for {}.", queryId,
+             statementPlanPair.getLeft());
+    return queryId;
+  }
+
   /**
    *
    * @param addUniqueTimeSuffix
@@ -279,7 +346,8 @@ public class QueryEngine {
       applicationId = addTimeSuffix(applicationId);
     }
 
-    KafkaStreams streams = buildStreams(builder, applicationId, ksqlConfigClone, overriddenStreamsProperties);
+    KafkaStreams streams = buildStreams(builder, applicationId, ksqlConfigClone, overriddenStreamsProperties,
+                                        Optional.empty());
 
     SchemaKStream sourceSchemaKstream = schemaKStream.getSourceSchemaKStreams().get(0);
 
@@ -289,6 +357,7 @@ public class QueryEngine {
         bareOutputNode,
         schemaKStream.getExecutionPlan(""),
         schemaKStream.getQueue(),
+        schemaKStream.getQueueClosed(),
         (sourceSchemaKstream instanceof SchemaKTable) ?
         DataSource.DataSourceType.KTABLE : DataSource.DataSourceType.KSTREAM
     );
@@ -300,16 +369,27 @@ public class QueryEngine {
    * @param statementPlanPair
    * @param overriddenStreamsProperties
    * @param updateMetastore
+   * @param awaitSinkTopic
    * @param builder
    * @param ksqlConfigClone
    * @param schemaKStream
    * @param serviceId
    * @param persistanceQueryPrefix
+   * @param latencyMetrics
+   * @param tableStoreView
    */
   private QueryMetadata buildPlanForStructuredOutputNode(boolean addUniqueTimeSuffix,
                                                          Pair<String, PlanNode> statementPlanPair, Map<String, Object> overriddenStreamsProperties,
-                                                         boolean updateMetastore, KStreamBuilder builder, KsqlConfig ksqlConfigClone, SchemaKStream schemaKStream,
-                                                         KsqlStructuredDataOutputNode outputNode, String serviceId, String persistanceQueryPrefix) {
+                                                         boolean updateMetastore, boolean awaitSinkTopic, KStreamBuilder builder, KsqlConfig ksqlConfigClone, SchemaKStream schemaKStream,
+                                                         KsqlStructuredDataOutputNode outputNode, String serviceId, String persistanceQueryPrefix,
+                                                         Optional<QueryLatencyMetrics> latencyMetrics,
+                                                         Optional<TableStoreView> tableStoreView) {
+
+    // The sink topic must exist before the query id is taken or the metastore is updated, so a
+    // failure leaves no trace behind
+    if (awaitSinkTopic) {
+      awaitSinkTopicCreation(outputNode.getKafkaTopicName(), schemaKStream.getSinkTopicCreation());
+    }
 
     long queryId = getNextQueryId();
 
@@ -322,39 +402,49 @@ public class QueryEngine {
     if (metaStore.getTopic(outputNode.getKafkaTopicName()) == null) {
       metaStore.putTopic(outputNode.getKsqlTopic());
     }
-    StructuredDataSource sinkDataSource;
-    if (schemaKStream instanceof SchemaKTable) {
-      SchemaKTable schemaKTable = (SchemaKTable) schemaKStream;
-      sinkDataSource =
-          new KsqlTable(outputNode.getId().toString(),
-                        outputNode.getSchema(),
-                        schemaKStream.getKeyField(),
-                        outputNode.getTimestampField(),
-                        outputNode.getKsqlTopic(),
-                        outputNode.getId().toString() +
-                        ksqlEngine.getKsqlConfig().get(KsqlConfig.KSQL_TABLE_STATESTORE_NAME_SUFFIX_CONFIG),
-                        schemaKTable.isWindowed());
-    } else {
-      sinkDataSource =
-          new KsqlStream(outputNode.getId().toString(),
-                         outputNode.getSchema(),
-                         schemaKStream.getKeyField(),
-                         outputNode.getTimestampField(),
-                         outputNode.getKsqlTopic());
-    }
-
     if (updateMetastore) {
-      metaStore.putSource(sinkDataSource.cloneWithTimeKeyColumns());
+      metaStore.putSource(buildSinkDataSource(outputNode, schemaKStream).cloneWithTimeKeyColumns());
     }
-    KafkaStreams streams = buildStreams(builder, applicationId, ksqlConfigClone, overriddenStreamsProperties);
+    KafkaStreams streams = buildStreams(builder, applicationId, ksqlConfigClone, overriddenStreamsProperties,
+                                        ksqlEngine.getSharedProducerPool()
+                                            .map(pool -> pool.clientSupplierFor(queryId)));
 
     return new PersistentQueryMetadata(statementPlanPair.getLeft(),
-                                       streams, outputNode, schemaKStream
-                                           .getExecutionPlan(""), queryId,
+                                       streams, outputNode, schemaKStream, queryId,
                                        (schemaKStream instanceof SchemaKTable) ? DataSource
-                                           .DataSourceType.KTABLE : DataSource.DataSourceType.KSTREAM);
+                                           .DataSourceType.KTABLE : DataSource.DataSourceType.KSTREAM,
+                                       schemaKStream.getSchema(), latencyMetrics,
+                                       tableStoreView);
   }
 
+  private StructuredDataSource buildSinkDataSource(KsqlStructuredDataOutputNode outputNode,
+                                                   SchemaKStream schemaKStream) {
+    if (schemaKStream instanceof SchemaKTable) {
+      SchemaKTable schemaKTable = (SchemaKTable) schemaKStream;
+      return new KsqlTable(outputNode.getId().toString(),
+                           outputNode.getSchema(),
+                           schemaKStream.getKeyField(),
+                           outputNode.getTimestampField(),
+                           outputNode.getKsqlTopic(),
+                           outputNode.getId().toString() +
+                           ksqlEngine.getKsqlConfig().get(KsqlConfig.KSQL_TABLE_STATESTORE_NAME_SUFFIX_CONFIG),
+                           schemaKTable.isWindowed());
+    }
+    return new KsqlStream(outputNode.getId().toString(),
+                          outputNode.getSchema(),
+                          schemaKStream.getKeyField(),
+                          outputNode.getTimestampField(),
+                          outputNode.getKsqlTopic());
+  }
+
+  private void awaitSinkTopicCreation(String kafkaTopicName, Future<Void> sinkTopicCreation) {
+    try {
+      sinkTopicCreation.get();
+    } catch (InterruptedException | ExecutionException e) {
+      throw new KafkaResponseGetFailedException(
+          "Failed to guarantee existence of topic " + kafkaTopicName, e);
+    }
+  }
 
   public DDLCommandResult handleDdlStatement(
       final Statement statement,
@@ -410,7 +500,8 @@ public class QueryEngine {
       final KStreamBuilder builder,
       final String applicationId,
       final KsqlConfig ksqlConfig,
-      final Map<String, Object> overriddenProperties
+      final Map<String, Object> overriddenProperties,
+      final Optional<KafkaClientSupplier> clientSupplier
   ) {
     Map<String, Object> newStreamsProperties = ksqlConfig.getKsqlStreamConfigProps();
     newStreamsProperties.putAll(overriddenProperties);
@@ -421,9 +512,11 @@ public class QueryEngine {
     newStreamsProperties.put(
         StreamsConfig.COMMIT_INTERVAL_MS_CONFIG,
         ksqlConfig.get(StreamsConfig.COMMIT_INTERVAL_MS_CONFIG));
-    newStreamsProperties.put(
-        StreamsConfig.CACHE_MAX_BYTES_BUFFERING_CONFIG,
-        ksqlConfig.get(StreamsConfig.CACHE_MAX_BYTES_BUFFERING_CONFIG));
+    if (!overriddenProperties.containsKey(StreamsConfig.CACHE_MAX_BYTES_BUFFERING_CONFIG)) {
+      newStreamsProperties.put(
+          StreamsConfig.CACHE_MAX_BYTES_BUFFERING_CONFIG,
+          ksqlConfig.get(StreamsConfig.CACHE_MAX_BYTES_BUFFERING_CONFIG));
+    }
     if (ksqlConfig.get(KsqlConfig.KSQL_TIMESTAMP_COLUMN_INDEX) != null) {
       newStreamsProperties.put(
           KsqlConfig.KSQL_TIMESTAMP_COLUMN_INDEX,
@@ -433,13 +526,32 @@ public class QueryEngine {
     }
 
 
-    return new KafkaStreams(builder, new StreamsConfig(newStreamsProperties));
+    StreamsConfig streamsConfig = new StreamsConfig(newStreamsProperties);
+    if (clientSupplier.isPresent()) {
+      return new KafkaStreams(builder, streamsConfig, clientSupplier.get());
+    }
+    return new KafkaStreams(builder, streamsConfig);
   }
 
   private long getNextQueryId() {
     return queryIdCounter.getAndIncrement();
   }
 
+  /**
+   * @return The id the next persistent query will be given
+   */
+  public long peekNextQueryId() {
+    return queryIdCounter.get();
+  }
+
+  /**
+   * Set the id the next persistent query will be given; used when rebuilding queries from a
+   * command snapshot so that they keep the ids they were originally started with.
+   */
+  public void setNextQueryId(long nextQueryId) {
+    queryIdCounter.set(nextQueryId);
+  }
+
   // TODO: This should probably be changed
   private String getBareQueryApplicationId(String serviceId, String transientQueryPrefix) {
     return  serviceId + transientQueryPrefix +
@@ -462,4 +574,45 @@ public class QueryEngine {
     }
   }
 
-}
\ No newline at end of file
+  /**
+   * Treats every topic as already created, for planning queries whose sink topic isn't needed;
+   * everything else goes to the real client.
+   */
+  private static final class NonCreatingTopicClient implements KafkaTopicClient {
+
+    private final KafkaTopicClient delegate;
+
+    private NonCreatingTopicClient(final KafkaTopicClient delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void createTopic(String topic, int numPartitions, short replicatonFactor) {
+    }
+
+    @Override
+    public Future<Void> createTopicAsync(String topic, int numPartitions, short replicatonFactor) {
+      return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public boolean isTopicExists(String topic) {
+      return delegate.isTopicExists(topic);
+    }
+
+    @Override
+    public Set<String> listTopicNames() {
+      return delegate.listTopicNames();
+    }
+
+    @Override
+    public Map<String, TopicDescription> describeTopics(Collection<String> topicNames) {
+      return delegate.describeTopics(topicNames);
+    }
+
+    @Override
+    public void close() {
+      // The delegate belongs to the engine
+    }
+  }
+}
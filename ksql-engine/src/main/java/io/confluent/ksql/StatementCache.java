@@ -0,0 +1,253 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+
+
+package io.confluent.ksql;
+
+import io.confluent.ksql.metastore.MetaStore;
+import io.confluent.ksql.metastore.StructuredDataSource;
+import io.confluent.ksql.parser.tree.Statement;
+import io.confluent.ksql.planner.plan.KsqlBareOutputNode;
+import io.confluent.ksql.planner.plan.PlanNode;
+import io.confluent.ksql.planner.plan.StructuredDataSourceNode;
+import io.confluent.ksql.util.Pair;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * A bounded, least-recently-used cache of the parsed statements and logical plans of transient
+ * queries, so that clients resubmitting the same SELECT every few seconds skip parsing, analysis
+ * and logical planning.
+ *
+ * <p>Entries are keyed by the statement text with insignificant whitespace removed, together with
+ * the properties the client overrode for it, and remember the metastore version they were planned
+ * against. If the metastore has changed since, the entry
+ * is still used as long as every source it reads from is the very same source that is registered
+ * now; if any of them was dropped or replaced the entry is thrown away.
+ */
+public class StatementCache {
+
+  public static class Entry {
+    private final List<Pair<String, Statement>> statements;
+    private final List<Pair<String, PlanNode>> logicalPlans;
+    private final Map<String, StructuredDataSource> sources;
+    private final long buildNanos;
+    private long metaStoreVersion;
+
+    private Entry(
+        List<Pair<String, Statement>> statements,
+        List<Pair<String, PlanNode>> logicalPlans,
+        Map<String, StructuredDataSource> sources,
+        long buildNanos,
+        long metaStoreVersion
+    ) {
+      this.statements = statements;
+      this.logicalPlans = logicalPlans;
+      this.sources = sources;
+      this.buildNanos = buildNanos;
+      this.metaStoreVersion = metaStoreVersion;
+    }
+
+    public List<Pair<String, Statement>> getStatements() {
+      return statements;
+    }
+
+    public List<Pair<String, PlanNode>> getLogicalPlans() {
+      return logicalPlans;
+    }
+  }
+
+  private static final class Key {
+    private final String statementText;
+    private final Map<String, Object> overriddenProperties;
+
+    private Key(String statementText, Map<String, Object> overriddenProperties) {
+      this.statementText = normalize(statementText);
+      this.overriddenProperties = new HashMap<>(overriddenProperties);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key that = (Key) o;
+      return statementText.equals(that.statementText)
+          && overriddenProperties.equals(that.overriddenProperties);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(statementText, overriddenProperties);
+    }
+  }
+
+  private final int capacity;
+  private final Map<Key, Entry> entries;
+  private long hits;
+  private long misses;
+  private long invalidations;
+  private long savedNanos;
+
+  public StatementCache(int capacity) {
+    this.capacity = capacity;
+    this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+        return size() > StatementCache.this.capacity;
+      }
+    };
+  }
+
+  public boolean isEnabled() {
+    return capacity > 0;
+  }
+
+  /**
+   * Looks up the statements and plans previously built for the given text and property
+   * overrides, if they are still valid against the given metastore.
+   */
+  public synchronized Optional<Entry> get(
+      String statementText,
+      Map<String, Object> overriddenProperties,
+      MetaStore metaStore
+  ) {
+    if (!isEnabled()) {
+      return Optional.empty();
+    }
+    Key key = new Key(statementText, overriddenProperties);
+    Entry entry = entries.get(key);
+    if (entry == null) {
+      misses++;
+      return Optional.empty();
+    }
+    long version = metaStore.getVersion();
+    if (entry.metaStoreVersion != version) {
+      for (Map.Entry<String, StructuredDataSource> source : entry.sources.entrySet()) {
+        if (metaStore.getSource(source.getKey()) != source.getValue()) {
+          entries.remove(key);
+          invalidations++;
+          misses++;
+          return Optional.empty();
+        }
+      }
+      entry.metaStoreVersion = version;
+    }
+    hits++;
+    savedNanos += entry.buildNanos;
+    return Optional.of(entry);
+  }
+
+  /**
+   * Caches the statements and logical plans built for the given text, provided they are all
+   * transient queries; anything that registers sources or runs DDL is never cached.
+   *
+   * @param buildNanos How long parsing and planning took, credited as saved time on every hit
+   */
+  public synchronized void put(
+      String statementText,
+      Map<String, Object> overriddenProperties,
+      long metaStoreVersion,
+      List<Pair<String, Statement>> statements,
+      List<Pair<String, PlanNode>> logicalPlans,
+      long buildNanos
+  ) {
+    if (!isEnabled() || !isCacheable(logicalPlans)) {
+      return;
+    }
+    Map<String, StructuredDataSource> sources = new HashMap<>();
+    for (Pair<String, PlanNode> logicalPlan : logicalPlans) {
+      collectSources(logicalPlan.getRight(), sources);
+    }
+    entries.put(
+        new Key(statementText, overriddenProperties),
+        new Entry(statements, logicalPlans, sources, buildNanos, metaStoreVersion)
+    );
+  }
+
+  public synchronized Map<String, Object> getStats() {
+    Map<String, Object> stats = new LinkedHashMap<>();
+    long lookups = hits + misses;
+    stats.put("capacity", capacity);
+    stats.put("size", entries.size());
+    stats.put("hits", hits);
+    stats.put("misses", misses);
+    stats.put("invalidations", invalidations);
+    stats.put("hitRatio", lookups == 0 ? 0.0 : (double) hits / lookups);
+    stats.put("savedMs", savedNanos / 1_000_000);
+    return stats;
+  }
+
+  public static boolean isCacheable(List<Pair<String, PlanNode>> logicalPlans) {
+    if (logicalPlans.isEmpty()) {
+      return false;
+    }
+    for (Pair<String, PlanNode> logicalPlan : logicalPlans) {
+      if (!(logicalPlan.getRight() instanceof KsqlBareOutputNode)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void collectSources(
+      PlanNode planNode,
+      Map<String, StructuredDataSource> sources
+  ) {
+    if (planNode instanceof StructuredDataSourceNode) {
+      StructuredDataSource source =
+          ((StructuredDataSourceNode) planNode).getStructuredDataSource();
+      sources.put(source.getName(), source);
+    }
+    if (planNode.getSources() != null) {
+      for (PlanNode child : planNode.getSources()) {
+        collectSources(child, sources);
+      }
+    }
+  }
+
+  /**
+   * Collapses runs of whitespace outside of quoted strings and identifiers, and trims the ends.
+   */
+  static String normalize(String statementText) {
+    StringBuilder normalized = new StringBuilder(statementText.length());
+    char quote = 0;
+    boolean pendingSpace = false;
+    for (int i = 0; i < statementText.length(); i++) {
+      char c = statementText.charAt(i);
+      if (quote == 0 && Character.isWhitespace(c)) {
+        pendingSpace = normalized.length() > 0;
+        continue;
+      }
+      if (pendingSpace) {
+        normalized.append(' ');
+        pendingSpace = false;
+      }
+      if (quote == 0 && (c == '\'' || c == '"' || c == '`')) {
+        quote = c;
+      } else if (c == quote) {
+        quote = 0;
+      }
+      normalized.append(c);
+    }
+    return normalized.toString();
+  }
+}
@@ -20,11 +20,13 @@ import io.confluent.ksql.ddl.DdlConfig;
 import io.confluent.ksql.serde.DataSource;
 import io.confluent.ksql.metastore.KsqlStdOut;
 import io.confluent.ksql.metastore.KsqlStream;
+import io.confluent.ksql.metastore.KsqlTable;
 import io.confluent.ksql.metastore.KsqlTopic;
 import io.confluent.ksql.metastore.MetaStore;
 import io.confluent.ksql.metastore.StructuredDataSource;
 import io.confluent.ksql.parser.tree.AliasedRelation;
 import io.confluent.ksql.parser.tree.AllColumns;
+import io.confluent.ksql.parser.tree.BooleanLiteral;
 import io.confluent.ksql.parser.tree.Cast;
 import io.confluent.ksql.parser.tree.ComparisonExpression;
 import io.confluent.ksql.parser.tree.DereferenceExpression;
@@ -50,6 +52,7 @@ import io.confluent.ksql.serde.KsqlTopicSerDe;
 import io.confluent.ksql.serde.avro.KsqlAvroTopicSerDe;
 import io.confluent.ksql.serde.delimited.KsqlDelimitedTopicSerDe;
 import io.confluent.ksql.serde.json.KsqlJsonTopicSerDe;
+import io.confluent.ksql.util.ExpressionSimplifier;
 import io.confluent.ksql.util.KsqlConfig;
 import io.confluent.ksql.util.KsqlException;
 import io.confluent.ksql.util.Pair;
@@ -58,6 +61,7 @@ import org.apache.kafka.connect.data.Schema;
 
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
@@ -176,6 +180,27 @@ public class Analyzer extends DefaultTraversalVisitor<Node, AnalysisContext> {
     if (analysis.getHavingExpression() != null) {
       expressionAnalyzer.analyzeExpression(analysis.getHavingExpression());
     }
+    simplifyExpressions(schema);
+  }
+
+  /**
+   * Folds what doesn't depend on the row, before any code is generated for it. The GROUP BY
+   * expressions are simplified alike, as the SELECT expressions are matched against them.
+   */
+  private void simplifyExpressions(final Schema schema) {
+    ExpressionSimplifier expressionSimplifier = new ExpressionSimplifier(schema);
+    analysis.getSelectExpressions().replaceAll(expressionSimplifier::simplify);
+    if (analysis.getWhereExpression() != null) {
+      Expression whereExpression = expressionSimplifier.simplify(analysis.getWhereExpression());
+      analysis.setWhereExpression(
+          BooleanLiteral.TRUE_LITERAL.equals(whereExpression) ? null : whereExpression);
+    }
+    analysis.getGroupByExpressions().replaceAll(expressionSimplifier::simplify);
+    if (analysis.getHavingExpression() != null) {
+      Expression havingExpression = expressionSimplifier.simplify(analysis.getHavingExpression());
+      analysis.setHavingExpression(
+          BooleanLiteral.TRUE_LITERAL.equals(havingExpression) ? null : havingExpression);
+    }
   }
 
   @Override
@@ -198,6 +223,21 @@ public class Analyzer extends DefaultTraversalVisitor<Node, AnalysisContext> {
 
     rightDataSource = timestampColumn(right, rightDataSource);
 
+    if (isGlobal(left)) {
+      throw new KsqlException("Only the right side of a join can be a global table.");
+    }
+    boolean rightGlobal = isGlobal(right);
+    if (rightGlobal) {
+      if (rightDataSource.getDataSourceType() != DataSource.DataSourceType.KTABLE) {
+        throw new KsqlException(format("%s is a stream; only tables can be joined as global "
+                                       + "tables.", rightSideName));
+      }
+      if (((KsqlTable) rightDataSource).isWindowed()) {
+        throw new KsqlException(format("%s is windowed and can't be joined as a global table.",
+                                       rightSideName));
+      }
+    }
+
     String leftAlias = left.getAlias();
     String rightAlias = right.getAlias();
     StructuredDataSourceNode
@@ -252,7 +292,7 @@ public class Analyzer extends DefaultTraversalVisitor<Node, AnalysisContext> {
     JoinNode joinNode =
         new JoinNode(new PlanNodeId("Join"), joinType, leftSourceKafkaTopicNode,
             rightSourceKafkaTopicNode, leftKeyFieldName, rightKeyFieldName, leftAlias,
-            rightAlias);
+            rightAlias, node.getWithin().orElse(null), rightGlobal, null);
     analysis.setJoin(joinNode);
     return null;
   }
@@ -273,6 +313,21 @@ public class Analyzer extends DefaultTraversalVisitor<Node, AnalysisContext> {
     }
   }
 
+  /**
+   * @return Whether the relation was given the join hint {@code WITH (GLOBAL = true)}
+   */
+  private boolean isGlobal(AliasedRelation aliasedRelation) {
+    Map<String, Expression> properties = ((Table) aliasedRelation.getRelation()).getProperties();
+    if (properties == null || properties.get(DdlConfig.GLOBAL_PROPERTY) == null) {
+      return false;
+    }
+    String global = properties.get(DdlConfig.GLOBAL_PROPERTY).toString();
+    if (global.startsWith("'") && global.endsWith("'")) {
+      global = global.substring(1, global.length() - 1);
+    }
+    return Boolean.parseBoolean(global);
+  }
+
   private StructuredDataSource timestampColumn(AliasedRelation aliasedRelation,
                                                StructuredDataSource
                                                structuredDataSource) {
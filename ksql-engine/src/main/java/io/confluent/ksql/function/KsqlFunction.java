@@ -26,13 +26,20 @@ public class KsqlFunction {
   private final List<Schema> arguments;
   private final String functionName;
   private final Class kudfClass;
+  private final boolean deterministic;
 
   KsqlFunction(Schema returnType, List<Schema> arguments, String functionName,
                Class kudfClass) {
+    this(returnType, arguments, functionName, kudfClass, true);
+  }
+
+  KsqlFunction(Schema returnType, List<Schema> arguments, String functionName,
+               Class kudfClass, boolean deterministic) {
     this.returnType = returnType;
     this.arguments = arguments;
     this.functionName = functionName;
     this.kudfClass = kudfClass;
+    this.deterministic = deterministic;
   }
 
   public Schema getReturnType() {
@@ -51,4 +58,12 @@ public class KsqlFunction {
   public Class getKudfClass() {
     return kudfClass;
   }
+
+  /**
+   * @return Whether the function always returns the same result for the same arguments, so a
+   *         call with only literal arguments can be evaluated once when the query is planned
+   */
+  public boolean isDeterministic() {
+    return deterministic;
+  }
 }
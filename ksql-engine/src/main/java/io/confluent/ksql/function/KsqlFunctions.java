@@ -118,7 +118,7 @@ public class KsqlFunctions {
     addFunction(round);
 
     KsqlFunction random = new KsqlFunction(Schema.FLOAT64_SCHEMA, new ArrayList<>(),
-                                           "RANDOM", RandomKudf.class);
+                                           "RANDOM", RandomKudf.class, false);
     addFunction(random);
 
 
@@ -30,6 +30,7 @@ import io.confluent.ksql.metastore.StructuredDataSource;
 import io.confluent.ksql.util.AggregateExpressionRewriter;
 import io.confluent.ksql.parser.tree.Expression;
 import io.confluent.ksql.parser.tree.FunctionCall;
+import io.confluent.ksql.parser.tree.WithinExpression;
 import io.confluent.ksql.planner.plan.AggregateNode;
 import io.confluent.ksql.planner.plan.FilterNode;
 import io.confluent.ksql.planner.plan.JoinNode;
@@ -45,13 +46,17 @@ import io.confluent.ksql.serde.avro.KsqlAvroTopicSerDe;
 import io.confluent.ksql.structured.SchemaKGroupedStream;
 import io.confluent.ksql.structured.SchemaKStream;
 import io.confluent.ksql.structured.SchemaKTable;
+import io.confluent.ksql.structured.TableStoreView;
 import io.confluent.ksql.util.KafkaTopicClient;
 import io.confluent.ksql.util.KsqlConfig;
 import io.confluent.ksql.util.KsqlException;
+import io.confluent.ksql.util.OperatorStats;
 import io.confluent.ksql.util.Pair;
+import io.confluent.ksql.util.QueryLatencyMetrics;
 import io.confluent.ksql.util.SchemaUtil;
 import io.confluent.ksql.util.SerDeUtil;
 import io.confluent.ksql.util.WindowedSerde;
+import org.apache.kafka.clients.admin.TopicDescription;
 import org.apache.kafka.common.serialization.Serde;
 import org.apache.kafka.common.serialization.Serdes;
 import org.apache.kafka.connect.data.Field;
@@ -59,6 +64,8 @@ import org.apache.kafka.connect.data.Schema;
 import org.apache.kafka.connect.data.SchemaBuilder;
 import org.apache.kafka.streams.KeyValue;
 import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.kstream.GlobalKTable;
+import org.apache.kafka.streams.kstream.JoinWindows;
 import org.apache.kafka.streams.kstream.KStream;
 import org.apache.kafka.streams.kstream.KStreamBuilder;
 import org.apache.kafka.streams.kstream.KTable;
@@ -84,12 +91,31 @@ public class PhysicalPlanBuilder {
   private final KsqlConfig ksqlConfig;
   private final KafkaTopicClient kafkaTopicClient;
 
+  private final boolean latencyMetricsEnabled;
+  private final QueryLatencyMetrics pushQueryLatencyMetrics;
+
   private OutputNode planSink = null;
+  private String aggregateStoreName = null;
+  private Optional<QueryLatencyMetrics> latencyMetrics = Optional.empty();
+  private Optional<TableStoreView> tableStoreView = Optional.empty();
 
   public PhysicalPlanBuilder(final KStreamBuilder builder, final KsqlConfig ksqlConfig, KafkaTopicClient kafkaTopicClient) {
+    this(builder, ksqlConfig, kafkaTopicClient, new QueryLatencyMetrics());
+  }
+
+  /**
+   * @param pushQueryLatencyMetrics Where a push query records its latency; persistent queries
+   *                                each get their own
+   */
+  public PhysicalPlanBuilder(final KStreamBuilder builder, final KsqlConfig ksqlConfig,
+                             KafkaTopicClient kafkaTopicClient,
+                             QueryLatencyMetrics pushQueryLatencyMetrics) {
     this.builder = builder;
     this.ksqlConfig = ksqlConfig;
     this.kafkaTopicClient = kafkaTopicClient;
+    this.latencyMetricsEnabled = Boolean.parseBoolean(
+        String.valueOf(ksqlConfig.get(KsqlConfig.KSQL_LATENCY_METRICS_ENABLE_CONFIG)));
+    this.pushQueryLatencyMetrics = pushQueryLatencyMetrics;
   }
 
   public SchemaKStream buildPhysicalPlan(final PlanNode logicalPlanRoot) throws Exception {
@@ -114,7 +140,7 @@ public class PhysicalPlanBuilder {
       return buildProject(projectNode);
     } else if (planNode instanceof FilterNode) {
       FilterNode filterNode = (FilterNode) planNode;
-      return buildFilter(filterNode);
+      return buildFilter(filterNode, propsMap);
     } else if (planNode instanceof OutputNode) {
       OutputNode outputNode = (OutputNode) planNode;
       return buildOutput(outputNode, propsMap);
@@ -126,6 +152,11 @@ public class PhysicalPlanBuilder {
 
   private SchemaKStream buildOutput(final OutputNode outputNode, Map<String, Object> propsMap)
       throws Exception {
+    if (outputNode instanceof KsqlStructuredDataOutputNode) {
+      // Persistent queries get a store name derived from their sink so the state (and its
+      // changelog) can be found again after a restart.
+      aggregateStoreName = "KSQL_Agg_" + outputNode.getId().toString();
+    }
     SchemaKStream schemaKStream = kafkaStreamsDsl(outputNode.getSource());
     Set<Integer> rowkeyIndexes = SchemaUtil.getRowTimeRowKeyIndexes(outputNode.getSchema());
     if (outputNode instanceof KsqlStructuredDataOutputNode) {
@@ -161,7 +192,33 @@ public class PhysicalPlanBuilder {
                        ));
       }
       SchemaKStream resultSchemaStream = schemaKStream;
-      if (!(resultSchemaStream instanceof SchemaKTable)) {
+      if (resultSchemaStream instanceof SchemaKTable) {
+        // Lookups read the aggregate or reduce store the query keeps anyway, not a copy of the table
+        tableStoreView = ((SchemaKTable) resultSchemaStream).getStoreView();
+      } else if (outputProperties.containsKey(DdlConfig.PARTITION_BY_PROPERTY)) {
+        // into() puts the SINK on top of the REKEY, so the rows written are counted there
+        String keyFieldName = outputProperties.get(DdlConfig.PARTITION_BY_PROPERTY).toString();
+        Optional<Field> keyField = SchemaUtil.getFieldByName(
+            ksqlStructuredDataOutputNode.getSchema(), keyFieldName);
+        if (!keyField.isPresent()) {
+          throw new KsqlException(String.format("Column %s does not exist in the result schema."
+                                                + " Error in Partition By clause.",
+                                                keyFieldName));
+        }
+        resultSchemaStream = resultSchemaStream.selectKey(keyField.get());
+
+        ksqlStructuredDataOutputNodeNoRowKey = new
+            KsqlStructuredDataOutputNode(
+            ksqlStructuredDataOutputNodeNoRowKey.getId(),
+            ksqlStructuredDataOutputNodeNoRowKey.getSource(),
+            ksqlStructuredDataOutputNodeNoRowKey.getSchema(),
+            ksqlStructuredDataOutputNodeNoRowKey.getTimestampField(),
+            keyField.get(),
+            ksqlStructuredDataOutputNodeNoRowKey.getKsqlTopic(),
+            ksqlStructuredDataOutputNodeNoRowKey.getKafkaTopicName(),
+            ksqlStructuredDataOutputNodeNoRowKey.getOutputProperties(),
+            ksqlStructuredDataOutputNodeNoRowKey.getLimit());
+      } else {
         resultSchemaStream = new SchemaKStream(ksqlStructuredDataOutputNode.getSchema(),
                                                schemaKStream.getKstream(),
                                                ksqlStructuredDataOutputNode
@@ -169,32 +226,11 @@ public class PhysicalPlanBuilder {
                                                Arrays.asList(schemaKStream),
                                                SchemaKStream.Type.SINK
         );
-
-        if (outputProperties.containsKey(DdlConfig.PARTITION_BY_PROPERTY)) {
-          String keyFieldName = outputProperties.get(DdlConfig.PARTITION_BY_PROPERTY).toString();
-          Optional<Field> keyField = SchemaUtil.getFieldByName(
-              resultSchemaStream.getSchema(), keyFieldName);
-          if (!keyField.isPresent()) {
-            throw new KsqlException(String.format("Column %s does not exist in the result schema."
-                                                  + " Error in Partition By clause.",
-                                                  keyFieldName));
-          }
-          resultSchemaStream = resultSchemaStream.selectKey(keyField.get());
-
-          ksqlStructuredDataOutputNodeNoRowKey = new
-              KsqlStructuredDataOutputNode(
-              ksqlStructuredDataOutputNodeNoRowKey.getId(),
-              ksqlStructuredDataOutputNodeNoRowKey.getSource(),
-              ksqlStructuredDataOutputNodeNoRowKey.getSchema(),
-              ksqlStructuredDataOutputNodeNoRowKey.getTimestampField(),
-              keyField.get(),
-              ksqlStructuredDataOutputNodeNoRowKey.getKsqlTopic(),
-              ksqlStructuredDataOutputNodeNoRowKey.getKafkaTopicName(),
-              ksqlStructuredDataOutputNodeNoRowKey.getOutputProperties(),
-              ksqlStructuredDataOutputNodeNoRowKey.getLimit());
-        }
       }
 
+      if (latencyMetricsEnabled) {
+        latencyMetrics = Optional.of(new QueryLatencyMetrics());
+      }
       resultSchemaStream = resultSchemaStream.into(
           ksqlStructuredDataOutputNodeNoRowKey.getKafkaTopicName(),
           SerDeUtil.getRowSerDe(
@@ -202,7 +238,8 @@ public class PhysicalPlanBuilder {
                        ksqlStructuredDataOutputNodeNoRowKey.getSchema()),
           rowkeyIndexes,
           ksqlConfig,
-          kafkaTopicClient);
+          kafkaTopicClient,
+          latencyMetrics);
 
 
       KsqlStructuredDataOutputNode ksqlStructuredDataOutputNodeWithRowkey = new
@@ -222,7 +259,10 @@ public class PhysicalPlanBuilder {
       return resultSchemaStream;
     } else if (outputNode instanceof KsqlBareOutputNode) {
       this.planSink = outputNode;
-      return schemaKStream.toQueue(outputNode.getLimit());
+      if (latencyMetricsEnabled) {
+        latencyMetrics = Optional.of(pushQueryLatencyMetrics);
+      }
+      return schemaKStream.toQueue(outputNode.getLimit(), latencyMetrics);
     }
 
     throw new KsqlException("Unsupported output logical node: " + outputNode.getClass().getName());
@@ -306,7 +346,10 @@ public class PhysicalPlanBuilder {
         new KudafInitializer(resultColumns),
         new KudafAggregator(aggValToAggFunctionMap,
                             aggValToValColumnMap), aggregateNode.getWindowExpression(),
-        aggValueGenericRowSerde, "KSQL_Agg_Query_" + System.currentTimeMillis());
+        aggValueGenericRowSerde,
+        aggregateStoreName != null
+        ? aggregateStoreName
+        : "KSQL_Agg_Query_" + System.currentTimeMillis());
 
     // Post aggregate computations
     SchemaBuilder schemaBuilder = SchemaBuilder.struct();
@@ -334,7 +377,9 @@ public class PhysicalPlanBuilder {
                                                       schemaKTable.getKeyField(),
                                                       schemaKTable.getSourceSchemaKStreams(),
                                                       schemaKTable.isWindowed(),
-                                                      SchemaKStream.Type.AGGREGATE);
+                                                      SchemaKStream.Type.AGGREGATE,
+                                                      schemaKTable.getOperatorStats(),
+                                                      schemaKTable.getStoreView());
 
     if (aggregateNode.getHavingExpressions() != null) {
       finalSchemaKTable = finalSchemaKTable.filter(aggregateNode.getHavingExpressions());
@@ -349,11 +394,11 @@ public class PhysicalPlanBuilder {
   }
 
 
-  private SchemaKStream buildFilter(final FilterNode filterNode)
+  private SchemaKStream buildFilter(final FilterNode filterNode, Map<String, Object> propsMap)
       throws Exception {
     SchemaKStream
         filteredSchemaKStream =
-        kafkaStreamsDsl(filterNode.getSource()).filter(filterNode.getPredicate());
+        kafkaStreamsDsl(filterNode.getSource(), propsMap).filter(filterNode.getPredicate());
     return filteredSchemaKStream;
   }
 
@@ -373,6 +418,8 @@ public class PhysicalPlanBuilder {
 
     if (sourceNode instanceof StructuredDataSourceNode) {
       StructuredDataSourceNode structuredDataSourceNode = (StructuredDataSourceNode) sourceNode;
+      // The deserializers hand on a null row for a record they couldn't read
+      OperatorStats sourceStats = new OperatorStats();
 
       if (structuredDataSourceNode.getTimestampField() != null) {
         int timestampColumnIndex = getTimeStampColumnIndex(structuredDataSourceNode
@@ -406,12 +453,16 @@ public class PhysicalPlanBuilder {
                   .stream(autoOffsetReset, new WindowedSerde(), genericRowSerde,
                       ksqlTable.getKsqlTopic().getKafkaTopicName())
                   .map((KeyValueMapper<Windowed<String>, GenericRow, KeyValue<Windowed<String>, GenericRow>>) (key, row) -> {
+                    long start = sourceStats.startRow();
                     if (row != null) {
                       row.getColumns().add(0,
                                            String.format("%s : Window{start=%d end=-}", key
                                                .key(), key.window().start()));
 
+                    } else {
+                      sourceStats.recordError();
                     }
+                    sourceStats.endRow(start, row != null);
                     return new KeyValue<>(key, row);
                   });
           kstream = addTimestampColumn(kstream);
@@ -425,10 +476,14 @@ public class PhysicalPlanBuilder {
                   .stream(autoOffsetReset, Serdes.String(), genericRowSerde,
                       ksqlTable.getKsqlTopic().getKafkaTopicName())
                   .map((KeyValueMapper<String, GenericRow, KeyValue<String, GenericRow>>) (key, row) -> {
+                    long start = sourceStats.startRow();
                     if (row != null) {
                       row.getColumns().add(0, key);
 
+                    } else {
+                      sourceStats.recordError();
                     }
+                    sourceStats.endRow(start, row != null);
                     return new KeyValue<>(key, row);
                   });
           kstream = addTimestampColumn(kstream);
@@ -439,7 +494,12 @@ public class PhysicalPlanBuilder {
         return new SchemaKTable(sourceNode.getSchema(), ktable,
                                 sourceNode.getKeyField(), new ArrayList<>(),
                                 ksqlTable.isWindowed(),
-                                SchemaKStream.Type.SOURCE);
+                                SchemaKStream.Type.SOURCE, sourceStats,
+                                Optional.of(new TableStoreView(
+                                    ksqlTable.getStateStoreName(),
+                                    ksqlTable.isWindowed()
+                                    ? TableStoreView.StoreType.WINDOWED_KEY_VALUE
+                                    : TableStoreView.StoreType.KEY_VALUE)));
       }
       KsqlStream ksqlStream = (KsqlStream) structuredDataSourceNode.getStructuredDataSource();
       KStream
@@ -448,16 +508,20 @@ public class PhysicalPlanBuilder {
               .stream(Serdes.String(), genericRowSerde,
                   ksqlStream.getKsqlTopic().getKafkaTopicName())
               .map((KeyValueMapper<String, GenericRow, KeyValue<String, GenericRow>>) (key, row) -> {
+                long start = sourceStats.startRow();
                 if (row != null) {
                   row.getColumns().add(0, key);
 
+                } else {
+                  sourceStats.recordError();
                 }
+                sourceStats.endRow(start, row != null);
                 return new KeyValue<>(key, row);
               });
       kstream = addTimestampColumn(kstream);
       return new SchemaKStream(sourceNode.getSchema(), kstream,
                                sourceNode.getKeyField(), new ArrayList<>(),
-                               SchemaKStream.Type.SOURCE);
+                               SchemaKStream.Type.SOURCE, sourceStats);
     }
     throw new KsqlException("Unsupported source logical node: " + sourceNode.getClass().getName());
   }
@@ -465,20 +529,33 @@ public class PhysicalPlanBuilder {
   private SchemaKStream buildJoin(final JoinNode joinNode, Map<String, Object> propsMap)
       throws Exception {
     SchemaKStream leftSchemaKStream = kafkaStreamsDsl(joinNode.getLeft());
+    if (joinNode.isRightGlobal()) {
+      return buildGlobalTableJoin(joinNode, leftSchemaKStream);
+    }
 
     propsMap.put(StreamsConfig.COMMIT_INTERVAL_MS_CONFIG,
               TopologyBuilder.AutoOffsetReset.EARLIEST.toString());
     SchemaKStream rightSchemaKStream = kafkaStreamsDsl(joinNode.getRight(), propsMap);
+    if (!(leftSchemaKStream instanceof SchemaKTable)
+        && !(rightSchemaKStream instanceof SchemaKTable)) {
+      return buildStreamStreamJoin(joinNode, leftSchemaKStream, rightSchemaKStream);
+    }
+    if (joinNode.getWithinExpression() != null) {
+      throw new KsqlException("WITHIN is only supported for joins between two streams.");
+    }
+    if (leftSchemaKStream instanceof SchemaKTable && rightSchemaKStream instanceof SchemaKTable) {
+      return buildTableTableJoin(joinNode, (SchemaKTable) leftSchemaKStream,
+                                 (SchemaKTable) rightSchemaKStream);
+    }
     if (rightSchemaKStream instanceof SchemaKTable) {
       SchemaKTable rightSchemaKTable = (SchemaKTable) rightSchemaKStream;
 
-      if (
-          leftSchemaKStream.getKeyField() == null ||
-          !leftSchemaKStream.getKeyField().name().equals(joinNode.getLeftKeyFieldName())) {
-        leftSchemaKStream =
-            leftSchemaKStream.selectKey(SchemaUtil.getFieldByName(leftSchemaKStream.getSchema(),
-                joinNode.getLeftKeyFieldName()).get());
+      SchemaKStream rekeyedSchemaKStream =
+          rekeyForJoin(leftSchemaKStream, joinNode.getLeftKeyFieldName());
+      if (rekeyedSchemaKStream == leftSchemaKStream) {
+        validateCoPartitioned(joinNode);
       }
+      leftSchemaKStream = rekeyedSchemaKStream;
       SchemaKStream joinSchemaKStream;
       switch (joinNode.getType()) {
         case LEFT:
@@ -499,6 +576,192 @@ public class PhysicalPlanBuilder {
                             + joinNode.getLeft() + " , Right: " + joinNode.getRight());
   }
 
+  private SchemaKStream buildStreamStreamJoin(final JoinNode joinNode,
+                                              final SchemaKStream leftSchemaKStream,
+                                              final SchemaKStream rightSchemaKStream) {
+    WithinExpression withinExpression = joinNode.getWithinExpression();
+    if (withinExpression == null) {
+      throw new KsqlException("Joins between two streams need a join window, e.g. "
+                              + "'JOIN <stream> WITHIN 10 MINUTES ON ...'.");
+    }
+    long windowMs = withinExpression.getSizeUnit().toMillis(withinExpression.getSize());
+    // Rows of either side are only needed until they can no longer fall in the window of a row
+    // of the other side, so the window stores keep no more than the window itself.
+    JoinWindows joinWindows = JoinWindows.of(windowMs);
+    joinWindows = joinWindows.until(joinWindows.size());
+
+    SchemaKStream left = rekeyForJoin(leftSchemaKStream, joinNode.getLeftKeyFieldName());
+    SchemaKStream right = rekeyForJoin(rightSchemaKStream, joinNode.getRightKeyFieldName());
+    if (left == leftSchemaKStream && right == rightSchemaKStream) {
+      // Kafka Streams repartitions a rekeyed side to match the other; otherwise the source
+      // topics are joined partition by partition as they are.
+      validateCoPartitioned(joinNode);
+    }
+
+    Serde<GenericRow> leftValueSerDe =
+        SerDeUtil.getRowSerDe(getResultTopicSerde(joinNode.getLeft()), left.getSchema());
+    Serde<GenericRow> rightValueSerDe =
+        SerDeUtil.getRowSerDe(getResultTopicSerde(joinNode.getRight()), right.getSchema());
+    Field joinKeyField = joinNode.getSchema().field(
+        joinNode.getLeftAlias() + "." + left.getKeyField().name());
+
+    switch (joinNode.getType()) {
+      case INNER:
+        return left.join(right, joinNode.getSchema(), joinKeyField, joinWindows,
+                         leftValueSerDe, rightValueSerDe);
+      case LEFT:
+        return left.leftJoin(right, joinNode.getSchema(), joinKeyField, joinWindows,
+                             leftValueSerDe, rightValueSerDe);
+      case FULL:
+        return left.outerJoin(right, joinNode.getSchema(), joinKeyField, joinWindows,
+                              leftValueSerDe, rightValueSerDe);
+      default:
+        throw new KsqlException("Join type is not supportd yet: " + joinNode.getType());
+    }
+  }
+
+  /**
+   * Tables can't be rekeyed, so two tables can only be joined on their keys. The join then
+   * needs no repartitioning, as long as the tables are co-partitioned.
+   */
+  private SchemaKTable buildTableTableJoin(final JoinNode joinNode,
+                                           final SchemaKTable leftSchemaKTable,
+                                           final SchemaKTable rightSchemaKTable) {
+    checkJoinedOnKey(leftSchemaKTable, joinNode.getLeftAlias(), joinNode.getLeftKeyFieldName());
+    checkJoinedOnKey(rightSchemaKTable, joinNode.getRightAlias(),
+                     joinNode.getRightKeyFieldName());
+    validateCoPartitioned(joinNode);
+
+    Field joinKeyField = joinNode.getSchema().field(
+        joinNode.getLeftAlias() + "." + leftSchemaKTable.getKeyField().name());
+    switch (joinNode.getType()) {
+      case INNER:
+        return leftSchemaKTable.join(rightSchemaKTable, joinNode.getSchema(), joinKeyField);
+      case LEFT:
+        return leftSchemaKTable.leftJoin(rightSchemaKTable, joinNode.getSchema(), joinKeyField);
+      case FULL:
+        return leftSchemaKTable.outerJoin(rightSchemaKTable, joinNode.getSchema(), joinKeyField);
+      default:
+        throw new KsqlException("Join type is not supportd yet: " + joinNode.getType());
+    }
+  }
+
+  private void checkJoinedOnKey(final SchemaKTable schemaKTable, final String alias,
+                                final String joinKeyFieldName) {
+    if (schemaKTable.getKeyField() == null
+        || !schemaKTable.getKeyField().name().equals(joinKeyFieldName)) {
+      throw new KsqlException(String.format(
+          "Tables can only be joined on their keys, but %s is joined on %s while its key is %s.",
+          alias, joinKeyFieldName,
+          schemaKTable.getKeyField() == null ? "unknown" : schemaKTable.getKeyField().name()
+      ));
+    }
+  }
+
+  /**
+   * Joins against a table read in full by every instance, looking it up by the left side's join
+   * column as is, so the left side is neither rekeyed nor repartitioned.
+   */
+  private SchemaKStream buildGlobalTableJoin(final JoinNode joinNode,
+                                             final SchemaKStream leftSchemaKStream) {
+    if (leftSchemaKStream instanceof SchemaKTable) {
+      throw new KsqlException("Only a stream can be joined with a global table.");
+    }
+    if (joinNode.getWithinExpression() != null) {
+      throw new KsqlException("WITHIN is only supported for joins between two streams.");
+    }
+    boolean leftJoin;
+    switch (joinNode.getType()) {
+      case INNER:
+        leftJoin = false;
+        break;
+      case LEFT:
+        leftJoin = true;
+        break;
+      default:
+        throw new KsqlException("Join type is not supportd yet for global tables: "
+                                + joinNode.getType());
+    }
+    int joinColumnIndex = SchemaUtil.getFieldIndexByName(leftSchemaKStream.getSchema(),
+                                                         joinNode.getLeftKeyFieldName());
+    if (joinColumnIndex < 0) {
+      throw new KsqlException("Join column " + joinNode.getLeftKeyFieldName()
+                              + " does not exist.");
+    }
+
+    StructuredDataSourceNode tableNode = (StructuredDataSourceNode) joinNode.getRight();
+    KsqlTable ksqlTable = (KsqlTable) tableNode.getStructuredDataSource();
+    if (tableNode.getKeyField() == null
+        || !tableNode.getKeyField().name().equals(joinNode.getRightKeyFieldName())) {
+      throw new KsqlException(String.format(
+          "A global table is looked up by its key, but %s is joined on %s while its key is %s.",
+          joinNode.getRightAlias(), joinNode.getRightKeyFieldName(),
+          tableNode.getKeyField() == null ? "unknown" : tableNode.getKeyField().name()
+      ));
+    }
+    Serde<GenericRow> tableValueSerDe =
+        SerDeUtil.getRowSerDe(ksqlTable.getKsqlTopic().getKsqlTopicSerDe(),
+                              SchemaUtil.removeImplicitRowTimeRowKeyFromSchema(
+                                  tableNode.getSchema()));
+    GlobalKTable<String, GenericRow> globalKTable =
+        builder.globalTable(Serdes.String(), tableValueSerDe,
+                            ksqlTable.getKsqlTopic().getKafkaTopicName(),
+                            ksqlTable.getStateStoreName());
+
+    Field joinKeyField = leftSchemaKStream.getKeyField() == null
+        ? null
+        : joinNode.getSchema().field(
+            joinNode.getLeftAlias() + "." + leftSchemaKStream.getKeyField().name());
+    return leftSchemaKStream.joinGlobalTable(globalKTable, tableNode.getSchema(),
+                                             joinNode.getSchema(), joinKeyField,
+                                             joinColumnIndex, leftJoin, builder);
+  }
+
+  private SchemaKStream rekeyForJoin(final SchemaKStream schemaKStream,
+                                     final String joinKeyFieldName) {
+    if (schemaKStream.getKeyField() != null
+        && schemaKStream.getKeyField().name().equals(joinKeyFieldName)) {
+      return schemaKStream;
+    }
+    Optional<Field> joinKeyField =
+        SchemaUtil.getFieldByName(schemaKStream.getSchema(), joinKeyFieldName);
+    if (!joinKeyField.isPresent()) {
+      throw new KsqlException("Join column " + joinKeyFieldName + " does not exist.");
+    }
+    return schemaKStream.selectKey(joinKeyField.get());
+  }
+
+  /**
+   * Rows with the same key only meet in a join if both sides put them in the same partition,
+   * which needs the same number of partitions on both sides.
+   */
+  private void validateCoPartitioned(final JoinNode joinNode) {
+    String leftTopicName = getKafkaTopicName(joinNode.getLeft());
+    String rightTopicName = getKafkaTopicName(joinNode.getRight());
+    Map<String, TopicDescription> topicDescriptions =
+        kafkaTopicClient.describeTopics(Arrays.asList(leftTopicName, rightTopicName));
+    TopicDescription leftTopic = topicDescriptions.get(leftTopicName);
+    TopicDescription rightTopic = topicDescriptions.get(rightTopicName);
+    if (leftTopic == null || rightTopic == null) {
+      return;
+    }
+    if (leftTopic.partitions().size() != rightTopic.partitions().size()) {
+      throw new KsqlException(String.format(
+          "Can't join %s with %s since the number of partitions don't match: %s has %d "
+          + "partitions and %s has %d. Both sides of a join must be co-partitioned.",
+          joinNode.getLeftAlias(), joinNode.getRightAlias(),
+          leftTopicName, leftTopic.partitions().size(),
+          rightTopicName, rightTopic.partitions().size()
+      ));
+    }
+  }
+
+  private String getKafkaTopicName(final PlanNode node) {
+    // A side may have had filters pushed down onto its source
+    return node.getTheSourceNode().getStructuredDataSource().getKsqlTopic()
+        .getKafkaTopicName();
+  }
+
   private KsqlTopicSerDe getResultTopicSerde(final PlanNode node) {
     if (node instanceof StructuredDataSourceNode) {
       StructuredDataSourceNode structuredDataSourceNode = (StructuredDataSourceNode) node;
@@ -521,6 +784,20 @@ public class PhysicalPlanBuilder {
     return planSink;
   }
 
+  /**
+   * @return Where the sink of the plan records the latency of its rows, unless disabled
+   */
+  public Optional<QueryLatencyMetrics> getLatencyMetrics() {
+    return latencyMetrics;
+  }
+
+  /**
+   * @return Where the latest rows of the table written by the plan can be read, if anywhere
+   */
+  public Optional<TableStoreView> getTableStoreView() {
+    return tableStoreView;
+  }
+
   private KsqlStructuredDataOutputNode addAvroSchemaToResultTopic(
       final KsqlStructuredDataOutputNode ksqlStructuredDataOutputNode) {
     MetastoreUtil metastoreUtil = new MetastoreUtil();
@@ -558,7 +835,9 @@ public class PhysicalPlanBuilder {
       newKeyIndexes.add(getIndexInSchema(groupByExpr.toString(), sourceSchemaKStream.getSchema()));
     }
 
+    OperatorStats rekeyStats = new OperatorStats();
     KStream rekeyedKStream = sourceSchemaKStream.getKstream().selectKey((KeyValueMapper<String, GenericRow, String>) (key, value) -> {
+      long start = rekeyStats.startRow();
       String newKey = "";
       boolean addSeparator1 = false;
       for (int index : newKeyIndexes) {
@@ -569,13 +848,15 @@ public class PhysicalPlanBuilder {
         }
         newKey += String.valueOf(value.getColumns().get(index));
       }
+      rekeyStats.endRow(start, true);
       return newKey;
     });
 
     Field newKeyField = new Field(aggregateKeyName, -1, Schema.STRING_SCHEMA);
 
     return new SchemaKStream(sourceSchemaKStream.getSchema(), rekeyedKStream, newKeyField,
-                             Arrays.asList(sourceSchemaKStream), SchemaKStream.Type.REKEY);
+                             Arrays.asList(sourceSchemaKStream), SchemaKStream.Type.REKEY,
+                             rekeyStats);
   }
 
   private int getIndexInSchema(final String fieldName, final Schema schema) {
@@ -590,6 +871,8 @@ public class PhysicalPlanBuilder {
   }
 
   private KStream addTimestampColumn(final KStream kstream) {
+    // The first step that sees the processor context, so the natural start of a row's latency
+    final boolean markRecordStart = latencyMetricsEnabled;
     return kstream.transformValues(new ValueTransformerSupplier<GenericRow, GenericRow>() {
       @Override
       public ValueTransformer<GenericRow, GenericRow> get() {
@@ -602,6 +885,9 @@ public class PhysicalPlanBuilder {
 
           @Override
           public GenericRow transform(GenericRow row) {
+            if (markRecordStart) {
+              QueryLatencyMetrics.markRecordStart(processorContext);
+            }
             if (row != null) {
               row.getColumns().add(0, processorContext.timestamp());
 
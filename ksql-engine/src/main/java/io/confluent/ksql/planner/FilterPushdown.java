@@ -0,0 +1,210 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+
+package io.confluent.ksql.planner;
+
+import io.confluent.ksql.parser.tree.DefaultExpressionTraversalVisitor;
+import io.confluent.ksql.parser.tree.DereferenceExpression;
+import io.confluent.ksql.parser.tree.Expression;
+import io.confluent.ksql.parser.tree.ExpressionRewriter;
+import io.confluent.ksql.parser.tree.ExpressionTreeRewriter;
+import io.confluent.ksql.parser.tree.LogicalBinaryExpression;
+import io.confluent.ksql.parser.tree.QualifiedName;
+import io.confluent.ksql.parser.tree.QualifiedNameReference;
+import io.confluent.ksql.planner.plan.FilterNode;
+import io.confluent.ksql.planner.plan.JoinNode;
+import io.confluent.ksql.planner.plan.PlanNode;
+import io.confluent.ksql.planner.plan.PlanNodeId;
+import io.confluent.ksql.planner.plan.PlanVisitor;
+import io.confluent.ksql.util.SchemaUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Moves the parts of a filter over a join that only refer to one side of it below the join, onto
+ * that side. Rows that can't pass are then dropped before they are rekeyed, repartitioned and
+ * buffered for the join, rather than after.
+ *
+ * <p>The filter is split into its AND-ed conjuncts. A conjunct is moved when all of its columns
+ * belong to the same side and that side keeps every row through the join: both sides of an
+ * inner join, the left side of a left join. Filtering the other side of a left join would keep
+ * the rows that no longer match, with nulls, where the filter above drops them. Conjuncts that
+ * refer to both sides, to no column, or to a column either side could have stay above the join.
+ */
+public class FilterPushdown extends PlanVisitor<Void, PlanNode> {
+
+  private enum Side {
+    NONE, LEFT, RIGHT, BOTH
+  }
+
+  public PlanNode process(final PlanNode planNode) {
+    return planNode.accept(this, null);
+  }
+
+  @Override
+  protected PlanNode visitPlan(final PlanNode node, final Void context) {
+    return node;
+  }
+
+  @Override
+  public PlanNode visitFilter(final FilterNode node, final Void context) {
+    if (!(node.getSource() instanceof JoinNode)) {
+      return node;
+    }
+    JoinNode joinNode = (JoinNode) node.getSource();
+    boolean pushLeft = joinNode.getType() == JoinNode.Type.INNER
+                       || joinNode.getType() == JoinNode.Type.LEFT;
+    // A global table is read as is, with nothing to filter it on the way
+    boolean pushRight = joinNode.getType() == JoinNode.Type.INNER && !joinNode.isRightGlobal();
+
+    List<Expression> leftConjuncts = new ArrayList<>();
+    List<Expression> rightConjuncts = new ArrayList<>();
+    List<Expression> remainingConjuncts = new ArrayList<>();
+    for (Expression conjunct : conjuncts(node.getPredicate())) {
+      Side side = new SideResolver(joinNode).resolve(conjunct);
+      if (side == Side.LEFT && pushLeft) {
+        leftConjuncts.add(conjunct);
+      } else if (side == Side.RIGHT && pushRight) {
+        rightConjuncts.add(conjunct);
+      } else {
+        remainingConjuncts.add(conjunct);
+      }
+    }
+    if (leftConjuncts.isEmpty() && rightConjuncts.isEmpty()) {
+      return node;
+    }
+
+    PlanNode pushedDownJoin = joinNode.withSources(
+        filter(joinNode.getLeft(), joinNode.getLeftAlias(), leftConjuncts),
+        filter(joinNode.getRight(), joinNode.getRightAlias(), rightConjuncts));
+    if (remainingConjuncts.isEmpty()) {
+      return pushedDownJoin;
+    }
+    return new FilterNode(node.getId(), pushedDownJoin, and(remainingConjuncts));
+  }
+
+  private static PlanNode filter(final PlanNode source, final String alias,
+                                 final List<Expression> conjuncts) {
+    if (conjuncts.isEmpty()) {
+      return source;
+    }
+    // The sides of a join name their columns without the alias
+    Expression predicate =
+        ExpressionTreeRewriter.rewriteWith(new AliasRemover(), and(conjuncts));
+    return new FilterNode(new PlanNodeId(alias + "_Filter"), source, predicate);
+  }
+
+  private static List<Expression> conjuncts(final Expression expression) {
+    List<Expression> conjuncts = new ArrayList<>();
+    if (expression instanceof LogicalBinaryExpression
+        && ((LogicalBinaryExpression) expression).getType() == LogicalBinaryExpression.Type.AND) {
+      LogicalBinaryExpression and = (LogicalBinaryExpression) expression;
+      conjuncts.addAll(conjuncts(and.getLeft()));
+      conjuncts.addAll(conjuncts(and.getRight()));
+    } else {
+      conjuncts.add(expression);
+    }
+    return conjuncts;
+  }
+
+  private static Expression and(final List<Expression> conjuncts) {
+    Expression expression = conjuncts.get(0);
+    for (int i = 1; i < conjuncts.size(); i++) {
+      expression = new LogicalBinaryExpression(LogicalBinaryExpression.Type.AND, expression,
+                                               conjuncts.get(i));
+    }
+    return expression;
+  }
+
+  /**
+   * Works out which side of a join the columns of an expression belong to.
+   */
+  private static class SideResolver extends DefaultExpressionTraversalVisitor<Void, Void> {
+
+    private final JoinNode joinNode;
+    private Side side = Side.NONE;
+
+    SideResolver(final JoinNode joinNode) {
+      this.joinNode = joinNode;
+    }
+
+    Side resolve(final Expression expression) {
+      process(expression, null);
+      return side;
+    }
+
+    @Override
+    protected Void visitQualifiedNameReference(QualifiedNameReference node, Void context) {
+      String name = node.getName().toString();
+      int dotIndex = name.indexOf('.');
+      if (dotIndex < 0) {
+        addColumn(name);
+      } else {
+        addAliasedColumn(name.substring(0, dotIndex));
+      }
+      return null;
+    }
+
+    @Override
+    protected Void visitDereferenceExpression(DereferenceExpression node, Void context) {
+      addAliasedColumn(node.getBase().toString());
+      return null;
+    }
+
+    private void addAliasedColumn(final String alias) {
+      if (alias.equals(joinNode.getLeftAlias())) {
+        add(Side.LEFT);
+      } else if (alias.equals(joinNode.getRightAlias())) {
+        add(Side.RIGHT);
+      } else {
+        add(Side.BOTH);
+      }
+    }
+
+    private void addColumn(final String name) {
+      boolean inLeft =
+          SchemaUtil.getFieldByName(joinNode.getLeft().getSchema(), name).isPresent();
+      boolean inRight =
+          SchemaUtil.getFieldByName(joinNode.getRight().getSchema(), name).isPresent();
+      add(inLeft == inRight ? Side.BOTH : inLeft ? Side.LEFT : Side.RIGHT);
+    }
+
+    private void add(final Side columnSide) {
+      if (side == Side.NONE) {
+        side = columnSide;
+      } else if (side != columnSide) {
+        side = Side.BOTH;
+      }
+    }
+  }
+
+  private static class AliasRemover extends ExpressionRewriter<Void> {
+
+    @Override
+    public Expression rewriteQualifiedNameReference(QualifiedNameReference node, Void context,
+                                                    ExpressionTreeRewriter<Void> treeRewriter) {
+      String name = node.getName().toString();
+      return new QualifiedNameReference(QualifiedName.of(name.substring(name.indexOf('.') + 1)));
+    }
+
+    @Override
+    public Expression rewriteDereferenceExpression(DereferenceExpression node, Void context,
+                                                   ExpressionTreeRewriter<Void> treeRewriter) {
+      return new QualifiedNameReference(QualifiedName.of(node.getFieldName()));
+    }
+  }
+}
@@ -22,9 +22,13 @@ import io.confluent.ksql.metastore.KsqlStdOut;
 import io.confluent.ksql.metastore.KsqlStream;
 import io.confluent.ksql.metastore.KsqlTable;
 import io.confluent.ksql.metastore.StructuredDataSource;
+import io.confluent.ksql.parser.tree.DefaultExpressionTraversalVisitor;
+import io.confluent.ksql.parser.tree.DereferenceExpression;
 import io.confluent.ksql.parser.tree.Expression;
+import io.confluent.ksql.parser.tree.QualifiedNameReference;
 import io.confluent.ksql.planner.plan.AggregateNode;
 import io.confluent.ksql.planner.plan.FilterNode;
+import io.confluent.ksql.planner.plan.JoinNode;
 import io.confluent.ksql.planner.plan.KsqlBareOutputNode;
 import io.confluent.ksql.planner.plan.KsqlStructuredDataOutputNode;
 import io.confluent.ksql.planner.plan.OutputNode;
@@ -41,7 +45,9 @@ import org.apache.kafka.connect.data.Schema;
 import org.apache.kafka.connect.data.SchemaBuilder;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class LogicalPlanner {
 
@@ -56,12 +62,13 @@ public class LogicalPlanner {
   public PlanNode buildPlan() {
     PlanNode currentNode;
     if (analysis.getJoin() != null) {
-      currentNode = analysis.getJoin();
+      currentNode = buildJoinNode(analysis.getJoin());
     } else {
       currentNode = buildSourceNode();
     }
     if (analysis.getWhereExpression() != null) {
       currentNode = buildFilterNode(currentNode.getSchema(), currentNode);
+      currentNode = new FilterPushdown().process(currentNode);
     }
     if ((analysis.getGroupByExpressions() != null) && (!analysis.getGroupByExpressions()
         .isEmpty())) {
@@ -73,6 +80,37 @@ public class LogicalPlanner {
     return buildOutputNode(currentNode.getSchema(), currentNode);
   }
 
+  /**
+   * Drops the columns of the right side that nothing after the join refers to, so joined rows
+   * carry only what the query uses. All of the left side is kept, as the rows of a stream are
+   * passed through the join rather than looked up.
+   */
+  private JoinNode buildJoinNode(final JoinNode joinNode) {
+    ColumnReferenceCollector collector = new ColumnReferenceCollector();
+    for (Expression expression : analysis.getSelectExpressions()) {
+      collector.process(expression, null);
+    }
+    if (analysis.getWhereExpression() != null) {
+      collector.process(analysis.getWhereExpression(), null);
+    }
+    for (Expression expression : analysis.getGroupByExpressions()) {
+      collector.process(expression, null);
+    }
+    if (analysis.getHavingExpression() != null) {
+      collector.process(analysis.getHavingExpression(), null);
+    }
+
+    // References are matched by column name alone, so an unqualified one keeps the column of
+    // that name on the right even if it resolves to the left
+    Set<String> rightColumnNames = new HashSet<>();
+    for (Field field : joinNode.getRight().getSchema().fields()) {
+      if (collector.columnNames.contains(field.name())) {
+        rightColumnNames.add(field.name());
+      }
+    }
+    return joinNode.withRightColumns(rightColumnNames);
+  }
+
   private OutputNode buildOutputNode(final Schema inputSchema, final PlanNode sourcePlanNode) {
     StructuredDataSource intoDataSource = analysis.getInto();
 
@@ -181,4 +219,25 @@ public class LogicalPlanner {
     throw new RuntimeException("Data source is not supported yet.");
   }
 
+
+  private static class ColumnReferenceCollector
+      extends DefaultExpressionTraversalVisitor<Object, Object> {
+
+    private final Set<String> columnNames = new HashSet<>();
+
+    @Override
+    protected Object visitQualifiedNameReference(QualifiedNameReference node, Object context) {
+      // Expanded stars refer to columns as a single ALIAS.COLUMN part
+      String name = node.getName().getSuffix();
+      columnNames.add(name.substring(name.lastIndexOf('.') + 1));
+      return null;
+    }
+
+    @Override
+    protected Object visitDereferenceExpression(DereferenceExpression node, Object context) {
+      // The base is the alias of a source, not a column
+      columnNames.add(node.getFieldName());
+      return null;
+    }
+  }
 }
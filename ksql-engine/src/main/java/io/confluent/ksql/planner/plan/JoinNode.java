@@ -17,12 +17,14 @@
 package io.confluent.ksql.planner.plan;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import io.confluent.ksql.parser.tree.WithinExpression;
 import org.apache.kafka.connect.data.Field;
 import org.apache.kafka.connect.data.Schema;
 import org.apache.kafka.connect.data.SchemaBuilder;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
 
 public class JoinNode extends PlanNode {
 
@@ -40,6 +42,9 @@ public class JoinNode extends PlanNode {
   private final String leftAlias;
   private final String rightAlias;
   private final Field keyField;
+  private final WithinExpression withinExpression;
+  private final boolean rightGlobal;
+  private final Set<String> rightColumnNames;
 
   public JoinNode(@JsonProperty("id") final PlanNodeId id,
                   @JsonProperty("type") final Type type,
@@ -48,7 +53,10 @@ public class JoinNode extends PlanNode {
                   @JsonProperty("leftKeyFieldName") final String leftKeyFieldName,
                   @JsonProperty("rightKeyFieldName") final String rightKeyFieldName,
                   @JsonProperty("leftAlias") final String leftAlias,
-                  @JsonProperty("rightAlias") final String rightAlias) {
+                  @JsonProperty("rightAlias") final String rightAlias,
+                  @JsonProperty("within") final WithinExpression withinExpression,
+                  @JsonProperty("rightGlobal") final boolean rightGlobal,
+                  @JsonProperty("rightColumns") final Set<String> rightColumnNames) {
 
     // TODO: Type should be derived.
     super(id);
@@ -59,6 +67,9 @@ public class JoinNode extends PlanNode {
     this.rightKeyFieldName = rightKeyFieldName;
     this.leftAlias = leftAlias;
     this.rightAlias = rightAlias;
+    this.withinExpression = withinExpression;
+    this.rightGlobal = rightGlobal;
+    this.rightColumnNames = rightColumnNames;
     this.schema = buildSchema(left, right);
     this.keyField = this.schema.field((leftAlias + "." + leftKeyFieldName));
   }
@@ -76,6 +87,9 @@ public class JoinNode extends PlanNode {
     }
 
     for (Field field : rightSchema.fields()) {
+      if (rightColumnNames != null && !rightColumnNames.contains(field.name())) {
+        continue;
+      }
       String fieldName = rightAlias + "." + field.name();
       schemaBuilder.field(fieldName, field.schema());
     }
@@ -124,4 +138,47 @@ public class JoinNode extends PlanNode {
   public Type getType() {
     return type;
   }
+
+  /**
+   * @return The join window of a stream-stream join, or null if the query gave none
+   */
+  public WithinExpression getWithinExpression() {
+    return withinExpression;
+  }
+
+  /**
+   * @return Whether the right side is a table to be replicated in full to every instance, so
+   *         the left side can look it up without being repartitioned
+   */
+  public boolean isRightGlobal() {
+    return rightGlobal;
+  }
+
+  /**
+   * @return The columns of the right side the join keeps, or null if it keeps all of them
+   */
+  public Set<String> getRightColumnNames() {
+    return rightColumnNames;
+  }
+
+  /**
+   * @return This join, of the given sides instead, which must have the same schemas
+   */
+  public JoinNode withSources(final PlanNode left, final PlanNode right) {
+    return new JoinNode(getId(), type, left, right, leftKeyFieldName, rightKeyFieldName,
+                        leftAlias, rightAlias, withinExpression, rightGlobal, rightColumnNames);
+  }
+
+  /**
+   * @return This join, keeping only the given columns of the right side
+   */
+  public JoinNode withRightColumns(final Set<String> rightColumnNames) {
+    return new JoinNode(getId(), type, left, right, leftKeyFieldName, rightKeyFieldName,
+                        leftAlias, rightAlias, withinExpression, rightGlobal, rightColumnNames);
+  }
+
+  @Override
+  public <C, R> R accept(PlanVisitor<C, R> visitor, C context) {
+    return visitor.visitJoin(this, context);
+  }
 }
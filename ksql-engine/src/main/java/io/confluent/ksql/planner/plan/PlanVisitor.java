@@ -34,6 +34,10 @@ public class PlanVisitor<C, R> {
     return visitPlan(node, context);
   }
 
+  public R visitJoin(JoinNode node, C context) {
+    return visitPlan(node, context);
+  }
+
   public R visitAggregate(AggregateNode node, C context) {
     return visitPlan(node, context);
   }
@@ -0,0 +1,67 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+
+package io.confluent.ksql.structured;
+
+import io.confluent.ksql.GenericRow;
+import io.confluent.ksql.util.QueryLatencyMetrics;
+
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.kstream.KeyValueMapper;
+import org.apache.kafka.streams.kstream.Transformer;
+import org.apache.kafka.streams.processor.ProcessorContext;
+
+/**
+ * The last step before a sink: applies the sink's row mapping and records the row's latency.
+ * Only used in place of a plain {@code map} when latency metrics are enabled, because reading
+ * the record timestamp needs the processor context.
+ */
+class LatencyRecordingTransformer<K>
+    implements Transformer<K, GenericRow, KeyValue<K, GenericRow>> {
+
+  private final KeyValueMapper<K, GenericRow, KeyValue<K, GenericRow>> mapper;
+  private final QueryLatencyMetrics latencyMetrics;
+  private ProcessorContext context;
+
+  LatencyRecordingTransformer(
+      KeyValueMapper<K, GenericRow, KeyValue<K, GenericRow>> mapper,
+      QueryLatencyMetrics latencyMetrics
+  ) {
+    this.mapper = mapper;
+    this.latencyMetrics = latencyMetrics;
+  }
+
+  @Override
+  public void init(ProcessorContext context) {
+    this.context = context;
+  }
+
+  @Override
+  public KeyValue<K, GenericRow> transform(K key, GenericRow row) {
+    KeyValue<K, GenericRow> result = mapper.apply(key, row);
+    latencyMetrics.recordEmit(context);
+    return result;
+  }
+
+  @Override
+  public KeyValue<K, GenericRow> punctuate(long timestamp) {
+    return null;
+  }
+
+  @Override
+  public void close() {
+  }
+}
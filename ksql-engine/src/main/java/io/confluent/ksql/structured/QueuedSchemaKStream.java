@@ -23,6 +23,8 @@ import io.confluent.ksql.util.KafkaTopicClient;
 import io.confluent.ksql.util.KsqlConfig;
 import io.confluent.ksql.util.KsqlException;
 import io.confluent.ksql.util.Pair;
+import io.confluent.ksql.util.QueryLatencyMetrics;
+import io.confluent.ksql.util.QueuedQueryMetadata;
 
 import org.apache.kafka.common.serialization.Serde;
 import org.apache.kafka.connect.data.Field;
@@ -31,28 +33,55 @@ import org.apache.kafka.streams.KeyValue;
 import org.apache.kafka.streams.kstream.ForeachAction;
 import org.apache.kafka.streams.kstream.KStream;
 import org.apache.kafka.streams.kstream.Windowed;
+import org.apache.kafka.streams.processor.AbstractProcessor;
 
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class QueuedSchemaKStream extends SchemaKStream {
 
   private final SynchronousQueue<KeyValue<String, GenericRow>> rowQueue = new SynchronousQueue<>();
+  private final AtomicBoolean rowQueueClosed = new AtomicBoolean(false);
 
   private QueuedSchemaKStream(final Schema schema, final KStream kstream, final Field keyField,
                               final List<SchemaKStream> sourceSchemaKStreams,
                               Type type,
-                              Optional<Integer> limit
+                              Optional<Integer> limit,
+                              Optional<QueryLatencyMetrics> latencyMetrics
   ) {
     super(schema, kstream, keyField, sourceSchemaKStreams, type);
-    kstream.foreach(new QueuedSchemaKStream.QueuePopulator(rowQueue, limit));
+    QueuePopulator<Object> populator = new QueuePopulator<>(rowQueue, rowQueueClosed, limit);
+    if (latencyMetrics.isPresent()) {
+      QueryLatencyMetrics metrics = latencyMetrics.get();
+      kstream.process(() -> new AbstractProcessor<Object, GenericRow>() {
+        @Override
+        public void process(Object key, GenericRow row) {
+          if (row != null) {
+            metrics.recordEmit(context());
+          }
+          populator.apply(key, row);
+        }
+      });
+    } else {
+      kstream.foreach(populator);
+    }
   }
 
   QueuedSchemaKStream(SchemaKStream schemaKStream,
                       Optional<Integer> limit
+  ) {
+    this(schemaKStream, limit, Optional.empty());
+  }
+
+  QueuedSchemaKStream(SchemaKStream schemaKStream,
+                      Optional<Integer> limit,
+                      Optional<QueryLatencyMetrics> latencyMetrics
   ) {
     this(
             schemaKStream.schema,
@@ -60,7 +89,8 @@ public class QueuedSchemaKStream extends SchemaKStream {
             schemaKStream.keyField,
             schemaKStream.sourceSchemaKStreams,
             Type.SINK,
-            limit
+            limit,
+            latencyMetrics
     );
   }
 
@@ -68,9 +98,18 @@ public class QueuedSchemaKStream extends SchemaKStream {
     return rowQueue;
   }
 
+  /**
+   * Set once nothing reads the queue any more, so rows stop being handed over to it.
+   */
+  public AtomicBoolean getQueueClosed() {
+    return rowQueueClosed;
+  }
+
   @Override
   public SchemaKStream into(String kafkaTopicName, Serde<GenericRow> topicValueSerDe,
-                            Set<Integer> rowkeyIndexes, KsqlConfig ksqlConfig, KafkaTopicClient kafkaTopicClient) {
+                            Set<Integer> rowkeyIndexes, KsqlConfig ksqlConfig,
+                            KafkaTopicClient kafkaTopicClient,
+                            Optional<QueryLatencyMetrics> latencyMetrics) {
     throw new UnsupportedOperationException();
   }
 
@@ -125,28 +164,43 @@ public class QueuedSchemaKStream extends SchemaKStream {
     return super.getSourceSchemaKStreams();
   }
 
+  /**
+   * Hands rows over to the queue read by the client connection. The same instance is shared by
+   * every stream thread of the query, so a LIMIT is a budget for the whole query rather than for
+   * each partition. Rows beyond the budget are dropped without blocking. The thread that
+   * completes the last handover within the budget enqueues
+   * {@link QueuedQueryMetadata#END_OF_QUERY}, so it follows every row the budget allowed.
+   *
+   * <p>A thread waiting to hand a row over gives up once the queue is closed, so stream threads
+   * never stay blocked after the client connection has gone.
+   */
   protected static class QueuePopulator<K> implements ForeachAction<K, GenericRow> {
+    private static final long OFFER_TIMEOUT_MS = 100;
+
     private final SynchronousQueue<KeyValue<String, GenericRow>> queue;
+    private final AtomicBoolean closed;
     private final Optional<Integer> limit;
-    private int counter = 0;
+    private final AtomicInteger remaining;
+    private final AtomicInteger handedOver;
 
     QueuePopulator(SynchronousQueue<KeyValue<String, GenericRow>> queue,
+                   AtomicBoolean closed,
                    Optional<Integer> limit) {
       this.queue = queue;
+      this.closed = closed;
       this.limit = limit;
+      this.remaining = new AtomicInteger(limit.orElse(0));
+      this.handedOver = new AtomicInteger(0);
     }
 
     @Override
     public void apply(K key, GenericRow row) {
       try {
-        if (row == null) {
+        if (row == null || closed.get()) {
           return;
         }
-        if (limit.isPresent()) {
-          counter++;
-          if (counter > limit.get()) {
-            throw new KsqlException("LIMIT reached for the partition.");
-          }
+        if (limit.isPresent() && remaining.getAndDecrement() <= 0) {
+          return;
         }
         String keyString;
         if (key instanceof Windowed) {
@@ -155,10 +209,24 @@ public class QueuedSchemaKStream extends SchemaKStream {
         } else {
           keyString = Objects.toString(key);
         }
-        queue.put(new KeyValue<>(keyString, row));
+        if (!handOver(new KeyValue<>(keyString, row))) {
+          return;
+        }
+        if (limit.isPresent() && handedOver.incrementAndGet() == limit.get()) {
+          handOver(QueuedQueryMetadata.END_OF_QUERY);
+        }
       } catch (InterruptedException exception) {
         throw new KsqlException("InterruptedException while enqueueing:" + key);
       }
     }
+
+    private boolean handOver(KeyValue<String, GenericRow> keyValue) throws InterruptedException {
+      while (!closed.get()) {
+        if (queue.offer(keyValue, OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+          return true;
+        }
+      }
+      return false;
+    }
   }
 }
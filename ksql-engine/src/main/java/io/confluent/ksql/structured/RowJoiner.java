@@ -0,0 +1,130 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+
+package io.confluent.ksql.structured;
+
+import io.confluent.ksql.GenericRow;
+import io.confluent.ksql.util.KsqlException;
+import io.confluent.ksql.util.OperatorStats;
+import io.confluent.ksql.util.SchemaUtil;
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.streams.kstream.ValueJoiner;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Builds the rows of a join. Which column of which side goes where is worked out once from the
+ * schemas, so joining a pair of rows is one array allocation and a copy of just the columns the
+ * join schema keeps: all of the left side, and the right-side columns the query refers to. A
+ * missing side, as in the unmatched rows of a left or outer join, is left as nulls.
+ */
+public class RowJoiner implements ValueJoiner<GenericRow, GenericRow, GenericRow> {
+
+  private final OperatorStats joinStats;
+  private final int leftColumnCount;
+  private final int[] rightColumnIndexes;
+  private final int lookupColumnIndex;
+
+  private RowJoiner(final OperatorStats joinStats, final int leftColumnCount,
+                    final int[] rightColumnIndexes, final int lookupColumnIndex) {
+    this.joinStats = joinStats;
+    this.leftColumnCount = leftColumnCount;
+    this.rightColumnIndexes = rightColumnIndexes;
+    this.lookupColumnIndex = lookupColumnIndex;
+  }
+
+  /**
+   * @param joinSchema All columns of the left schema, then those of the right schema the join
+   *                   keeps, each prefixed with the alias of its side
+   */
+  public static RowJoiner of(final Schema leftSchema, final Schema rightSchema,
+                             final Schema joinSchema, final OperatorStats joinStats) {
+    return new RowJoiner(joinStats, leftSchema.fields().size(),
+                         rightColumnIndexes(leftSchema, rightSchema, joinSchema), -1);
+  }
+
+  /**
+   * For the rows of a global table, which are stored as read from the table's topic. Their
+   * ROWKEY is the value they were looked up by, the column of the left side at
+   * {@code lookupColumnIndex}, and their ROWTIME isn't kept.
+   */
+  static RowJoiner forGlobalTable(final Schema leftSchema, final Schema rightSchema,
+                                  final Schema joinSchema, final OperatorStats joinStats,
+                                  final int lookupColumnIndex) {
+    // Without implicit columns the stored rows already line up with the schema
+    boolean hasImplicitColumns =
+        SchemaUtil.getFieldByName(rightSchema, SchemaUtil.ROWKEY_NAME).isPresent();
+    return new RowJoiner(joinStats, leftSchema.fields().size(),
+                         rightColumnIndexes(leftSchema, rightSchema, joinSchema),
+                         hasImplicitColumns ? lookupColumnIndex : -1);
+  }
+
+  private static int[] rightColumnIndexes(final Schema leftSchema, final Schema rightSchema,
+                                          final Schema joinSchema) {
+    List<Field> joinFields = joinSchema.fields();
+    int leftColumnCount = leftSchema.fields().size();
+    int[] rightColumnIndexes = new int[joinFields.size() - leftColumnCount];
+    for (int i = 0; i < rightColumnIndexes.length; i++) {
+      String joinFieldName = joinFields.get(leftColumnCount + i).name();
+      String rightFieldName = joinFieldName.substring(joinFieldName.indexOf('.') + 1);
+      Field rightField = rightSchema.field(rightFieldName);
+      if (rightField == null) {
+        throw new KsqlException("Join column " + joinFieldName + " is not in the right side.");
+      }
+      rightColumnIndexes[i] = rightField.index();
+    }
+    return rightColumnIndexes;
+  }
+
+  @Override
+  public GenericRow apply(final GenericRow leftGenericRow, final GenericRow rightGenericRow) {
+    long start = joinStats.startRow();
+    Object[] columns = new Object[leftColumnCount + rightColumnIndexes.length];
+    if (leftGenericRow != null) {
+      List<Object> leftColumns = leftGenericRow.getColumns();
+      for (int i = 0; i < leftColumnCount; i++) {
+        columns[i] = leftColumns.get(i);
+      }
+    }
+    if (rightGenericRow != null) {
+      List<Object> rightColumns = rightGenericRow.getColumns();
+      if (lookupColumnIndex < 0) {
+        for (int i = 0; i < rightColumnIndexes.length; i++) {
+          columns[leftColumnCount + i] = rightColumns.get(rightColumnIndexes[i]);
+        }
+      } else {
+        for (int i = 0; i < rightColumnIndexes.length; i++) {
+          columns[leftColumnCount + i] = globalTableColumn(leftGenericRow, rightColumns,
+                                                           rightColumnIndexes[i]);
+        }
+      }
+    }
+    joinStats.endRow(start, true);
+    return new GenericRow(Arrays.asList(columns));
+  }
+
+  private Object globalTableColumn(final GenericRow leftGenericRow,
+                                   final List<Object> rightColumns, final int index) {
+    if (index == SchemaUtil.ROWKEY_NAME_INDEX) {
+      return leftGenericRow.getColumns().get(lookupColumnIndex).toString();
+    } else if (index == SchemaUtil.ROWTIME_NAME_INDEX) {
+      return null;
+    }
+    return rightColumns.get(index - 2);
+  }
+}
@@ -23,9 +23,11 @@ import io.confluent.ksql.parser.tree.TumblingWindowExpression;
 import io.confluent.ksql.parser.tree.WindowExpression;
 import io.confluent.ksql.GenericRow;
 import io.confluent.ksql.util.KsqlException;
+import io.confluent.ksql.util.OperatorStats;
 import org.apache.kafka.common.serialization.Serde;
 import org.apache.kafka.connect.data.Field;
 import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.streams.kstream.Aggregator;
 import org.apache.kafka.streams.kstream.Initializer;
 import org.apache.kafka.streams.kstream.KGroupedStream;
 import org.apache.kafka.streams.kstream.KTable;
@@ -34,6 +36,7 @@ import org.apache.kafka.streams.kstream.TimeWindows;
 import org.apache.kafka.streams.kstream.Windowed;
 
 import java.util.List;
+import java.util.Optional;
 
 public class SchemaKGroupedStream {
 
@@ -56,25 +59,35 @@ public class SchemaKGroupedStream {
                                 final WindowExpression windowExpression,
                                 final Serde<GenericRow> topicValueSerDe,
                                 final String storeName) {
+    OperatorStats aggregateStats = new OperatorStats();
+    Aggregator<String, GenericRow, GenericRow> countingAggregator = (key, row, aggregate) -> {
+      long start = aggregateStats.startRow();
+      GenericRow result = aggregator.apply(key, row, aggregate);
+      aggregateStats.endRow(start, true);
+      return result;
+    };
     boolean isWindowed = false;
+    TableStoreView.StoreType storeType = TableStoreView.StoreType.KEY_VALUE;
     KTable<Windowed<String>, GenericRow> aggKtable;
     if (windowExpression != null) {
       isWindowed = true;
       if (windowExpression.getKsqlWindowExpression() instanceof TumblingWindowExpression) {
         TumblingWindowExpression tumblingWindowExpression =
             (TumblingWindowExpression) windowExpression.getKsqlWindowExpression();
+        storeType = TableStoreView.StoreType.WINDOW;
         aggKtable =
             kgroupedStream
-                .aggregate(initializer, aggregator,
+                .aggregate(initializer, countingAggregator,
                                      TimeWindows.of(tumblingWindowExpression.getSizeUnit().toMillis(tumblingWindowExpression.getSize())),
                            topicValueSerDe,
                            storeName);
       } else if (windowExpression.getKsqlWindowExpression() instanceof HoppingWindowExpression) {
         HoppingWindowExpression hoppingWindowExpression =
             (HoppingWindowExpression) windowExpression.getKsqlWindowExpression();
+        storeType = TableStoreView.StoreType.WINDOW;
         aggKtable =
             kgroupedStream
-                .aggregate(initializer, aggregator,
+                .aggregate(initializer, countingAggregator,
                            TimeWindows.of(
                                hoppingWindowExpression.getSizeUnit().toMillis(hoppingWindowExpression.getSize()))
                                          .advanceBy(
@@ -83,9 +96,10 @@ public class SchemaKGroupedStream {
       } else if (windowExpression.getKsqlWindowExpression() instanceof SessionWindowExpression) {
         SessionWindowExpression sessionWindowExpression =
             (SessionWindowExpression) windowExpression.getKsqlWindowExpression();
+        storeType = TableStoreView.StoreType.SESSION;
         aggKtable =
             kgroupedStream
-                .aggregate(initializer, aggregator,
+                .aggregate(initializer, countingAggregator,
                            aggregator.getMerger(),
                            SessionWindows.with(sessionWindowExpression.getSizeUnit().toMillis(sessionWindowExpression.getGap())),
                            topicValueSerDe,
@@ -95,10 +109,11 @@ public class SchemaKGroupedStream {
       }
     } else {
       aggKtable =
-          kgroupedStream.aggregate(initializer, aggregator, topicValueSerDe, storeName);
+          kgroupedStream.aggregate(initializer, countingAggregator, topicValueSerDe, storeName);
     }
     return new SchemaKTable(schema, aggKtable, keyField, sourceSchemaKStreams, isWindowed,
-                            SchemaKStream.Type.AGGREGATE);
+                            SchemaKStream.Type.AGGREGATE, aggregateStats,
+                            Optional.of(new TableStoreView(storeName, storeType)));
   }
 
 }
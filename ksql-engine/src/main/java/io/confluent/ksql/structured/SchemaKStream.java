@@ -25,7 +25,9 @@ import io.confluent.ksql.codegen.CodeGenRunner;
 import io.confluent.ksql.util.GenericRowValueTypeEnforcer;
 import io.confluent.ksql.util.KsqlConfig;
 import io.confluent.ksql.util.KsqlException;
+import io.confluent.ksql.util.OperatorStats;
 import io.confluent.ksql.util.Pair;
+import io.confluent.ksql.util.QueryLatencyMetrics;
 import io.confluent.ksql.util.SchemaUtil;
 import io.confluent.ksql.util.SerDeUtil;
 import io.confluent.ksql.util.KafkaTopicClient;
@@ -36,10 +38,12 @@ import org.apache.kafka.connect.data.Field;
 import org.apache.kafka.connect.data.Schema;
 import org.apache.kafka.connect.data.SchemaBuilder;
 import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.kstream.GlobalKTable;
+import org.apache.kafka.streams.kstream.JoinWindows;
 import org.apache.kafka.streams.kstream.KGroupedStream;
 import org.apache.kafka.streams.kstream.KStream;
+import org.apache.kafka.streams.kstream.KStreamBuilder;
 import org.apache.kafka.streams.kstream.KeyValueMapper;
-import org.apache.kafka.streams.kstream.ValueJoiner;
 import org.apache.kafka.streams.kstream.ValueMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -49,6 +53,8 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
 
 public class SchemaKStream {
   
@@ -60,31 +66,68 @@ public class SchemaKStream {
   final List<SchemaKStream> sourceSchemaKStreams;
   final GenericRowValueTypeEnforcer genericRowValueTypeEnforcer;
   protected final Type type;
+  protected final OperatorStats operatorStats;
+  private Future<Void> sinkTopicCreation = CompletableFuture.completedFuture(null);
 
   private static final Logger log = LoggerFactory.getLogger(SchemaKStream.class);
 
   public SchemaKStream(final Schema schema, final KStream kstream, final Field keyField,
                        final List<SchemaKStream> sourceSchemaKStreams, Type type) {
+    this(schema, kstream, keyField, sourceSchemaKStreams, type, new OperatorStats());
+  }
+
+  /**
+   * @param operatorStats The counters the operator producing {@code kstream} records into
+   */
+  public SchemaKStream(final Schema schema, final KStream kstream, final Field keyField,
+                       final List<SchemaKStream> sourceSchemaKStreams, Type type,
+                       final OperatorStats operatorStats) {
     this.schema = schema;
     this.kstream = kstream;
     this.keyField = keyField;
     this.sourceSchemaKStreams = sourceSchemaKStreams;
     this.genericRowValueTypeEnforcer = new GenericRowValueTypeEnforcer(schema);
     this.type = type;
+    this.operatorStats = operatorStats;
   }
 
   public QueuedSchemaKStream toQueue(Optional<Integer> limit) {
     return new QueuedSchemaKStream(this, limit);
   }
 
+  public QueuedSchemaKStream toQueue(Optional<Integer> limit,
+                                     Optional<QueryLatencyMetrics> latencyMetrics) {
+    return new QueuedSchemaKStream(this, limit, latencyMetrics);
+  }
+
   public SchemaKStream into(final String kafkaTopicName, final Serde<GenericRow> topicValueSerDe,
                             final Set<Integer> rowkeyIndexes, KsqlConfig ksqlConfig, KafkaTopicClient kafkaTopicClient) {
+    return into(kafkaTopicName, topicValueSerDe, rowkeyIndexes, ksqlConfig, kafkaTopicClient,
+                Optional.empty());
+  }
 
-    createSinkTopic(kafkaTopicName, ksqlConfig, kafkaTopicClient);
-
-    kstream
-        .map((KeyValueMapper<String, GenericRow, KeyValue<String, GenericRow>>) (key, row) -> {
+  /**
+   * @param latencyMetrics Where to record the latency of every row written, if anywhere
+   * @return The SINK node writing to the topic, counting the rows written
+   */
+  public SchemaKStream into(final String kafkaTopicName, final Serde<GenericRow> topicValueSerDe,
+                            final Set<Integer> rowkeyIndexes, KsqlConfig ksqlConfig,
+                            KafkaTopicClient kafkaTopicClient,
+                            Optional<QueryLatencyMetrics> latencyMetrics) {
+
+    // The rows written are counted on a SINK node of their own, not on the operator feeding it
+    final SchemaKStream sink = type == Type.SINK
+        ? this
+        : new SchemaKStream(schema, kstream, keyField, Arrays.asList(this), Type.SINK);
+    sink.createSinkTopic(kafkaTopicName, ksqlConfig, kafkaTopicClient);
+
+    final OperatorStats sinkStats = sink.operatorStats;
+    mapForSink(
+        kstream,
+        (KeyValueMapper<String, GenericRow, KeyValue<String, GenericRow>>) (key, row) -> {
+          long start = sinkStats.startRow();
           if (row == null) {
+            sinkStats.endRow(start, true);
             return new KeyValue<>(key, null);
           }
           List columns = new ArrayList();
@@ -93,34 +136,53 @@ public class SchemaKStream {
               columns.add(row.getColumns().get(i));
             }
           }
+          sinkStats.endRow(start, true);
           return new KeyValue<>(key, new GenericRow(columns));
-        }).to(Serdes.String(), topicValueSerDe, kafkaTopicName);
-    return this;
+        },
+        latencyMetrics
+    ).to(Serdes.String(), topicValueSerDe, kafkaTopicName);
+    return sink;
+  }
+
+  static <K> KStream<K, GenericRow> mapForSink(
+      KStream<K, GenericRow> stream,
+      KeyValueMapper<K, GenericRow, KeyValue<K, GenericRow>> mapper,
+      Optional<QueryLatencyMetrics> latencyMetrics
+  ) {
+    if (latencyMetrics.isPresent()) {
+      QueryLatencyMetrics metrics = latencyMetrics.get();
+      return stream.transform(() -> new LatencyRecordingTransformer<>(mapper, metrics));
+    }
+    return stream.map(mapper);
   }
 
   public SchemaKStream filter(final Expression filterExpression) throws Exception {
-    SqlPredicate predicate = new SqlPredicate(filterExpression, schema, false);
+    OperatorStats filterStats = new OperatorStats();
+    SqlPredicate predicate = new SqlPredicate(filterExpression, schema, false, filterStats);
     KStream filteredKStream = kstream.filter(predicate.getPredicate());
     return new SchemaKStream(schema, filteredKStream, keyField, Arrays.asList(this),
-                             Type.FILTER);
+                             Type.FILTER, filterStats);
   }
 
   public SchemaKStream select(final Schema selectSchema) {
 
+    OperatorStats projectStats = new OperatorStats();
     KStream
         projectedKStream =
         kstream.map((KeyValueMapper<String, GenericRow, KeyValue<String, GenericRow>>) (key, row) -> {
+          long start = projectStats.startRow();
           List<Object> newColumns = new ArrayList();
           for (Field schemaField : selectSchema.fields()) {
             newColumns.add(
                 row.getColumns().get(SchemaUtil.getFieldIndexByName(schema, schemaField.name())));
           }
           GenericRow newRow = new GenericRow(newColumns);
+          projectStats.endRow(start, true);
           return new KeyValue<>(key, newRow);
         });
 
     return new SchemaKStream(selectSchema, projectedKStream, keyField, Arrays.asList(this),
-                             Type.PROJECT);
+                             Type.PROJECT, projectStats);
   }
 
   public SchemaKStream select(final List<Pair<String, Expression>> expressionPairList)
@@ -138,9 +200,11 @@ public class SchemaKStream {
       schemaBuilder.field(expressionPair.getLeft(), expressionEvaluator.getExpressionType());
       expressionEvaluators.add(expressionEvaluator);
     }
+    OperatorStats projectStats = new OperatorStats();
     KStream
         projectedKStream =
         kstream.mapValues((ValueMapper<GenericRow, GenericRow>) row -> {
+          long start = projectStats.startRow();
           try {
             List<Object> newColumns = new ArrayList();
             for (int i = 0; i < expressionPairList.size(); i++) {
@@ -162,14 +226,17 @@ public class SchemaKStream {
                     .get(i).getExpressionEvaluator().evaluate(parameterObjects);
                 newColumns.add(columnValue);
               } catch (Exception ex) {
+                projectStats.recordError();
                 log.error("Error calculating column with index " + i + " : " +
                           expressionPairList.get(i).getLeft());
                 newColumns.add(null);
               }
             }
             GenericRow newRow = new GenericRow(newColumns);
+            projectStats.endRow(start, true);
             return newRow;
           } catch (Exception e) {
+            projectStats.recordError();
             log.error("Projection exception for row: " + row.toString());
             log.error(e.getMessage(), e);
             throw new KsqlException("Error in SELECT clause: " + e.getMessage(), e);
@@ -178,33 +245,124 @@ public class SchemaKStream {
 
     return new SchemaKStream(schemaBuilder.build(),
                              projectedKStream, keyField, Arrays.asList(this),
-                             Type.PROJECT);
+                             Type.PROJECT, projectStats);
   }
 
   public SchemaKStream leftJoin(final SchemaKTable schemaKTable, final Schema joinSchema,
                                 final Field joinKey,
                                 KsqlTopicSerDe joinSerDe) {
 
+    OperatorStats joinStats = new OperatorStats();
     KStream joinedKStream =
         kstream.leftJoin(
-            schemaKTable.getKtable(), (ValueJoiner<GenericRow, GenericRow, GenericRow>) (leftGenericRow, rightGenericRow) -> {
-              List<Object> columns = new ArrayList<>();
-              columns.addAll(leftGenericRow.getColumns());
-              if (rightGenericRow == null) {
-                for (int i = leftGenericRow.getColumns().size();
-                     i < joinSchema.fields().size(); i++) {
-                  columns.add(null);
-                }
-              } else {
-                columns.addAll(rightGenericRow.getColumns());
-              }
+            schemaKTable.getKtable(),
+            RowJoiner.of(schema, schemaKTable.getSchema(), joinSchema, joinStats),
+            // Only needed to repartition this stream, so it is for this stream's rows
+            Serdes.String(), SerDeUtil.getRowSerDe(joinSerDe, this.getSchema()));
+
+    return new SchemaKStream(joinSchema, joinedKStream, joinKey,
+                             Arrays.asList(this, schemaKTable), Type.JOIN, joinStats);
+  }
 
-              GenericRow joinGenericRow = new GenericRow(columns);
-              return joinGenericRow;
-            }, Serdes.String(), SerDeUtil.getRowSerDe(joinSerDe, this.getSchema()));
+  /**
+   * Joins with another stream keyed on the same column. A row joins every row of the other
+   * stream with the same key whose timestamp is within the join window of its own, so both sides
+   * are buffered in window stores that keep rows as long as the window is wide.
+   *
+   * @param leftValueSerDe  How rows of this stream are stored in its join window store
+   * @param rightValueSerDe How rows of the other stream are stored in its join window store
+   */
+  public SchemaKStream join(final SchemaKStream otherSchemaKStream, final Schema joinSchema,
+                            final Field joinKey, final JoinWindows joinWindows,
+                            final Serde<GenericRow> leftValueSerDe,
+                            final Serde<GenericRow> rightValueSerDe) {
+    OperatorStats joinStats = new OperatorStats();
+    KStream joinedKStream =
+        kstream.join(
+            otherSchemaKStream.getKstream(),
+            RowJoiner.of(schema, otherSchemaKStream.getSchema(), joinSchema, joinStats),
+            joinWindows, Serdes.String(), leftValueSerDe, rightValueSerDe);
 
     return new SchemaKStream(joinSchema, joinedKStream, joinKey,
-                             Arrays.asList(this, schemaKTable), Type.JOIN);
+                             Arrays.asList(this, otherSchemaKStream), Type.JOIN, joinStats);
+  }
+
+  /**
+   * Like {@link #join(SchemaKStream, Schema, Field, JoinWindows, Serde, Serde)}, but also emits
+   * every row of this stream, with nulls for the other stream's columns when nothing matched.
+   */
+  public SchemaKStream leftJoin(final SchemaKStream otherSchemaKStream, final Schema joinSchema,
+                                final Field joinKey, final JoinWindows joinWindows,
+                                final Serde<GenericRow> leftValueSerDe,
+                                final Serde<GenericRow> rightValueSerDe) {
+    OperatorStats joinStats = new OperatorStats();
+    KStream joinedKStream =
+        kstream.leftJoin(
+            otherSchemaKStream.getKstream(),
+            RowJoiner.of(schema, otherSchemaKStream.getSchema(), joinSchema, joinStats),
+            joinWindows, Serdes.String(), leftValueSerDe, rightValueSerDe);
+
+    return new SchemaKStream(joinSchema, joinedKStream, joinKey,
+                             Arrays.asList(this, otherSchemaKStream), Type.JOIN, joinStats);
+  }
+
+  /**
+   * Like {@link #join(SchemaKStream, Schema, Field, JoinWindows, Serde, Serde)}, but also emits
+   * every row of either stream, with nulls for the other side's columns when nothing matched.
+   */
+  public SchemaKStream outerJoin(final SchemaKStream otherSchemaKStream, final Schema joinSchema,
+                                 final Field joinKey, final JoinWindows joinWindows,
+                                 final Serde<GenericRow> leftValueSerDe,
+                                 final Serde<GenericRow> rightValueSerDe) {
+    OperatorStats joinStats = new OperatorStats();
+    KStream joinedKStream =
+        kstream.outerJoin(
+            otherSchemaKStream.getKstream(),
+            RowJoiner.of(schema, otherSchemaKStream.getSchema(), joinSchema, joinStats),
+            joinWindows, Serdes.String(), leftValueSerDe, rightValueSerDe);
+
+    return new SchemaKStream(joinSchema, joinedKStream, joinKey,
+                             Arrays.asList(this, otherSchemaKStream), Type.JOIN, joinStats);
+  }
+
+  /**
+   * Joins with a global table, looking up every row by the value of one of its columns. The
+   * table is replicated in full to every instance, so unlike other joins this one needs neither
+   * a rekey nor a repartition topic. Rows whose join column is null find no match.
+   *
+   * @param globalKTable        Rows as read from the table's topic, without ROWTIME and ROWKEY
+   * @param globalTableSchema   The schema of the table as a source, with ROWTIME and ROWKEY
+   * @param joinColumnIndex     Index of the column of this stream to look the table up by
+   * @param leftJoin            Whether to keep rows without a match, with nulls for the table
+   * @param builder             To merge the rows that can't match back in, for a left join
+   */
+  public SchemaKStream joinGlobalTable(final GlobalKTable<String, GenericRow> globalKTable,
+                                       final Schema globalTableSchema, final Schema joinSchema,
+                                       final Field joinKey, final int joinColumnIndex,
+                                       final boolean leftJoin, final KStreamBuilder builder) {
+    OperatorStats joinStats = new OperatorStats();
+    RowJoiner joiner = RowJoiner.forGlobalTable(schema, globalTableSchema, joinSchema, joinStats,
+                                                joinColumnIndex);
+
+    KStream<String, GenericRow> source = kstream;
+    KStream<String, GenericRow> unmatchable = null;
+    if (leftJoin) {
+      KStream<String, GenericRow>[] branches = source.branch(
+          (key, row) -> row.getColumns().get(joinColumnIndex) != null,
+          (key, row) -> true);
+      source = branches[0];
+      unmatchable = branches[1].mapValues(row -> joiner.apply(row, null));
+    } else {
+      source = source.filter((key, row) -> row.getColumns().get(joinColumnIndex) != null);
+    }
+    KeyValueMapper<String, GenericRow, String> keySelector =
+        (key, row) -> row.getColumns().get(joinColumnIndex).toString();
+    KStream<String, GenericRow> joinedKStream = leftJoin
+        ? builder.merge(source.leftJoin(globalKTable, keySelector, joiner), unmatchable)
+        : source.join(globalKTable, keySelector, joiner);
+
+    return new SchemaKStream(joinSchema, joinedKStream, joinKey, Arrays.asList(this),
+                             Type.JOIN, joinStats);
   }
 
   public SchemaKStream selectKey(final Field newKeyField) {
@@ -213,12 +371,14 @@ public class SchemaKStream {
       return this;
     }
 
+    OperatorStats rekeyStats = new OperatorStats();
     KStream keyedKStream = kstream.selectKey((KeyValueMapper<String, GenericRow, String>) (key, value) -> {
-
+      long start = rekeyStats.startRow();
       String
           newKey =
           value.getColumns().get(SchemaUtil.getFieldIndexByName(schema, newKeyField.name()))
               .toString();
+      rekeyStats.endRow(start, true);
       return newKey;
     }).map((KeyValueMapper<String, GenericRow, KeyValue<String, GenericRow>>) (key, row) -> {
       row.getColumns().set(SchemaUtil.ROWKEY_NAME_INDEX, key);
@@ -226,7 +386,7 @@ public class SchemaKStream {
     });
 
     return new SchemaKStream(schema, keyedKStream, newKeyField, Arrays.asList(this),
-                             Type.REKEY);
+                             Type.REKEY, rekeyStats);
   }
 
   public SchemaKGroupedStream groupByKey(final Serde keySerde,
@@ -251,19 +411,43 @@ public class SchemaKStream {
     return sourceSchemaKStreams;
   }
 
+  public OperatorStats getOperatorStats() {
+    return operatorStats;
+  }
+
   public String getExecutionPlan(String indent) {
+    return getExecutionPlan(indent, false);
+  }
+
+  /**
+   * @param analyze Whether to add what each operator has processed so far, for EXPLAIN ANALYZE
+   */
+  public String getExecutionPlan(String indent, boolean analyze) {
     StringBuilder stringBuilder = new StringBuilder();
     stringBuilder.append(indent + " > [ " + type + " ] Schema: " + SchemaUtil
         .getSchemaDefinitionString(schema) + ".\n");
+    if (analyze) {
+      // Parents only indent the first line of a child's plan, so this line carries it all
+      stringBuilder.append(indent + indent + "   Stats: " + operatorStats + "\n");
+    }
     for (SchemaKStream schemaKStream: sourceSchemaKStreams) {
-      stringBuilder.append("\t" + indent + schemaKStream.getExecutionPlan(indent + "\t"));
+      stringBuilder.append("\t" + indent + schemaKStream.getExecutionPlan(indent + "\t", analyze));
     }
     return stringBuilder.toString();
   }
 
+  /**
+   * The creation of the topic this stream is written into, if it is a sink; it's requested when
+   * the sink is built and only needs to be complete before the query is started.
+   */
+  public Future<Void> getSinkTopicCreation() {
+    return sinkTopicCreation;
+  }
+
   protected void createSinkTopic(final String kafkaTopicName, KsqlConfig ksqlConfig, KafkaTopicClient kafkaTopicClient) {
     int numberOfPartitions = (Integer) ksqlConfig.get(KsqlConfig.SINK_NUMBER_OF_PARTITIONS_PROPERTY);
     short numberOfReplications = (Short) ksqlConfig.get(KsqlConfig.SINK_NUMBER_OF_REPLICATIONS_PROPERTY);
-    kafkaTopicClient.createTopic(kafkaTopicName, numberOfPartitions, numberOfReplications);
+    sinkTopicCreation =
+        kafkaTopicClient.createTopicAsync(kafkaTopicName, numberOfPartitions, numberOfReplications);
   }
 }
@@ -24,7 +24,9 @@ import io.confluent.ksql.codegen.CodeGenRunner;
 import io.confluent.ksql.util.KafkaTopicClient;
 import io.confluent.ksql.util.KsqlConfig;
 import io.confluent.ksql.util.KsqlException;
+import io.confluent.ksql.util.OperatorStats;
 import io.confluent.ksql.util.Pair;
+import io.confluent.ksql.util.QueryLatencyMetrics;
 import io.confluent.ksql.util.WindowedSerde;
 import org.apache.kafka.common.serialization.Serde;
 import org.apache.kafka.common.serialization.Serdes;
@@ -52,25 +54,54 @@ public class SchemaKTable extends SchemaKStream {
 
   private final KTable ktable;
   private final boolean isWindowed;
+  private final Optional<TableStoreView> storeView;
 
   public SchemaKTable(final Schema schema, final KTable ktable, final Field keyField,
                       final List<SchemaKStream> sourceSchemaKStreams, boolean isWindowed,
                       Type type) {
-    super(schema, null, keyField, sourceSchemaKStreams, type);
+    this(schema, ktable, keyField, sourceSchemaKStreams, isWindowed, type, new OperatorStats());
+  }
+
+  public SchemaKTable(final Schema schema, final KTable ktable, final Field keyField,
+                      final List<SchemaKStream> sourceSchemaKStreams, boolean isWindowed,
+                      Type type, final OperatorStats operatorStats) {
+    this(schema, ktable, keyField, sourceSchemaKStreams, isWindowed, type, operatorStats,
+         Optional.empty());
+  }
+
+  /**
+   * @param storeView Where the latest rows of the table can be read from, if anywhere
+   */
+  public SchemaKTable(final Schema schema, final KTable ktable, final Field keyField,
+                      final List<SchemaKStream> sourceSchemaKStreams, boolean isWindowed,
+                      Type type, final OperatorStats operatorStats,
+                      final Optional<TableStoreView> storeView) {
+    super(schema, null, keyField, sourceSchemaKStreams, type, operatorStats);
     this.ktable = ktable;
     this.isWindowed = isWindowed;
+    this.storeView = storeView;
   }
 
   @Override
   public SchemaKTable into(final String kafkaTopicName, final Serde<GenericRow> topicValueSerDe,
-                           Set<Integer> rowkeyIndexes, KsqlConfig ksqlConfig, KafkaTopicClient kafkaTopicClient) {
+                           Set<Integer> rowkeyIndexes, KsqlConfig ksqlConfig,
+                           KafkaTopicClient kafkaTopicClient,
+                           Optional<QueryLatencyMetrics> latencyMetrics) {
 
-    createSinkTopic(kafkaTopicName, ksqlConfig, kafkaTopicClient);
+    final SchemaKTable sink = type == Type.SINK
+        ? this
+        : new SchemaKTable(schema, ktable, keyField, Arrays.asList(this), isWindowed, Type.SINK,
+                           new OperatorStats(), storeView);
+    sink.createSinkTopic(kafkaTopicName, ksqlConfig, kafkaTopicClient);
 
+    final OperatorStats sinkStats = sink.operatorStats;
     if (isWindowed) {
-      ktable.toStream()
-          .map((KeyValueMapper<Windowed<String>, GenericRow, KeyValue<Windowed<String>, GenericRow>>) (key, row) -> {
+      mapForSink(
+          ktable.toStream(),
+          (KeyValueMapper<Windowed<String>, GenericRow, KeyValue<Windowed<String>, GenericRow>>) (key, row) -> {
+            long start = sinkStats.startRow();
             if (row == null) {
+              sinkStats.endRow(start, true);
               return new KeyValue<>(key, null);
             }
             List columns = new ArrayList();
@@ -79,12 +110,18 @@ public class SchemaKTable extends SchemaKStream {
                 columns.add(row.getColumns().get(i));
               }
             }
+            sinkStats.endRow(start, true);
             return new KeyValue<>(key, new GenericRow(columns));
-          }).to(new WindowedSerde(), topicValueSerDe, kafkaTopicName);
+          },
+          latencyMetrics
+      ).to(new WindowedSerde(), topicValueSerDe, kafkaTopicName);
     } else {
-      ktable.toStream()
-          .map((KeyValueMapper<String, GenericRow, KeyValue<String, GenericRow>>) (key, row) -> {
+      mapForSink(
+          ktable.toStream(),
+          (KeyValueMapper<String, GenericRow, KeyValue<String, GenericRow>>) (key, row) -> {
+            long start = sinkStats.startRow();
             if (row == null) {
+              sinkStats.endRow(start, true);
               return new KeyValue<>(key, null);
             }
             List columns = new ArrayList();
@@ -93,11 +130,14 @@ public class SchemaKTable extends SchemaKStream {
                 columns.add(row.getColumns().get(i));
               }
             }
+            sinkStats.endRow(start, true);
             return new KeyValue<>(key, new GenericRow(columns));
-          }).to(Serdes.String(), topicValueSerDe, kafkaTopicName);
+          },
+          latencyMetrics
+      ).to(Serdes.String(), topicValueSerDe, kafkaTopicName);
     }
 
-    return this;
+    return sink;
   }
 
   @Override
@@ -107,29 +147,64 @@ public class SchemaKTable extends SchemaKStream {
 
   @Override
   public SchemaKTable filter(final Expression filterExpression) throws Exception {
-    SqlPredicate predicate = new SqlPredicate(filterExpression, schema, isWindowed);
+    OperatorStats filterStats = new OperatorStats();
+    SqlPredicate predicate = new SqlPredicate(filterExpression, schema, isWindowed, filterStats);
     KTable filteredKTable = ktable.filter(predicate.getPredicate());
+    Optional<TableStoreView> filteredStoreView = Optional.empty();
+    if (storeView.isPresent()) {
+      // Lookups get a predicate of their own, so they don't show in the operator's counts
+      filteredStoreView = Optional.of(storeView.get().filter(
+          new SqlPredicate(filterExpression, schema, isWindowed).getPredicate()));
+    }
     return new SchemaKTable(schema, filteredKTable, keyField, Arrays.asList(this), isWindowed,
-                            Type.FILTER);
+                            Type.FILTER, filterStats, filteredStoreView);
   }
 
   @Override
   public SchemaKTable select(final List<Pair<String, Expression>> expressionPairList) throws Exception {
+    List<ExpressionMetadata> expressionEvaluators = buildExpressionEvaluators(expressionPairList);
+    SchemaBuilder schemaBuilder = SchemaBuilder.struct();
+    for (int i = 0; i < expressionPairList.size(); i++) {
+      schemaBuilder.field(expressionPairList.get(i).getLeft(),
+                          expressionEvaluators.get(i).getExpressionType());
+    }
+
+    OperatorStats projectStats = new OperatorStats();
+    KTable projectedKTable = ktable.mapValues(
+        projector(expressionPairList, expressionEvaluators, projectStats));
+    Optional<TableStoreView> projectedStoreView = Optional.empty();
+    if (storeView.isPresent()) {
+      // Lookups get evaluators of their own, so they don't show in the operator's counts
+      projectedStoreView = Optional.of(storeView.get().mapValues(
+          projector(expressionPairList, buildExpressionEvaluators(expressionPairList),
+                    new OperatorStats())));
+    }
+
+    return new SchemaKTable(schemaBuilder.build(), projectedKTable, keyField,
+                            Arrays.asList(this), isWindowed, Type.PROJECT, projectStats,
+                            projectedStoreView);
+  }
+
+  private List<ExpressionMetadata> buildExpressionEvaluators(
+      final List<Pair<String, Expression>> expressionPairList) throws Exception {
     CodeGenRunner codeGenRunner = new CodeGenRunner();
     // TODO: Optimize to remove the code gen for constants and single
     // TODO: columns references and use them directly.
     // TODO: Only use code get when we have real expression.
     List<ExpressionMetadata> expressionEvaluators = new ArrayList<>();
-    SchemaBuilder schemaBuilder = SchemaBuilder.struct();
     for (Pair<String, Expression> expressionPair : expressionPairList) {
-      ExpressionMetadata
-          expressionEvaluator =
-          codeGenRunner.buildCodeGenFromParseTree(expressionPair.getRight(), schema);
-      schemaBuilder.field(expressionPair.getLeft(), expressionEvaluator.getExpressionType());
-      expressionEvaluators.add(expressionEvaluator);
+      expressionEvaluators.add(
+          codeGenRunner.buildCodeGenFromParseTree(expressionPair.getRight(), schema));
     }
+    return expressionEvaluators;
+  }
 
-    KTable projectedKTable = ktable.mapValues((ValueMapper<GenericRow, GenericRow>) row -> {
+  private ValueMapper<GenericRow, GenericRow> projector(
+      final List<Pair<String, Expression>> expressionPairList,
+      final List<ExpressionMetadata> expressionEvaluators,
+      final OperatorStats projectStats) {
+    return row -> {
+      long start = projectStats.startRow();
       try {
         List<Object> newColumns = new ArrayList();
         for (int i = 0; i < expressionPairList.size(); i++) {
@@ -152,22 +227,74 @@ public class SchemaKTable extends SchemaKStream {
                 .evaluate(parameterObjects);
             newColumns.add(columnValue);
           } catch (Exception e) {
+            projectStats.recordError();
             log.error("Error calculating column with index " + i + " : " +
                       expressionPairList.get(i).getLeft());
             newColumns.add(null);
           }
         }
         GenericRow newRow = new GenericRow(newColumns);
+        projectStats.endRow(start, true);
         return newRow;
       } catch (Exception e) {
+        projectStats.recordError();
         log.error("Projection exception for row: " + row.toString());
         log.error(e.getMessage(), e);
         throw new KsqlException("Error in SELECT clause: " + e.getMessage(), e);
       }
-    });
+    };
+  }
 
-    return new SchemaKTable(schemaBuilder.build(), projectedKTable, keyField,
-                            Arrays.asList(this), isWindowed, Type.PROJECT);
+  /**
+   * Joins with another table on the keys of both tables. The join is maintained incrementally: an
+   * update to either table only recomputes, and only emits, the joined row of the updated key.
+   * Both tables need to have the same kind of key, windowed or not.
+   */
+  public SchemaKTable join(final SchemaKTable schemaKTable, final Schema joinSchema,
+                           final Field joinKey) {
+    checkSameKeyKind(schemaKTable);
+    OperatorStats joinStats = new OperatorStats();
+    KTable joinedKTable = ktable.join(
+        schemaKTable.getKtable(),
+        RowJoiner.of(schema, schemaKTable.getSchema(), joinSchema, joinStats));
+    return new SchemaKTable(joinSchema, joinedKTable, joinKey, Arrays.asList(this, schemaKTable),
+                            isWindowed, Type.JOIN, joinStats);
+  }
+
+  /**
+   * Like {@link #join(SchemaKTable, Schema, Field)}, but also keeps the keys of this table that
+   * the other table lacks, with nulls for its columns.
+   */
+  public SchemaKTable leftJoin(final SchemaKTable schemaKTable, final Schema joinSchema,
+                               final Field joinKey) {
+    checkSameKeyKind(schemaKTable);
+    OperatorStats joinStats = new OperatorStats();
+    KTable joinedKTable = ktable.leftJoin(
+        schemaKTable.getKtable(),
+        RowJoiner.of(schema, schemaKTable.getSchema(), joinSchema, joinStats));
+    return new SchemaKTable(joinSchema, joinedKTable, joinKey, Arrays.asList(this, schemaKTable),
+                            isWindowed, Type.JOIN, joinStats);
+  }
+
+  /**
+   * Like {@link #join(SchemaKTable, Schema, Field)}, but keeps the keys of either table, with
+   * nulls for the columns of the table that lacks the key.
+   */
+  public SchemaKTable outerJoin(final SchemaKTable schemaKTable, final Schema joinSchema,
+                                final Field joinKey) {
+    checkSameKeyKind(schemaKTable);
+    OperatorStats joinStats = new OperatorStats();
+    KTable joinedKTable = ktable.outerJoin(
+        schemaKTable.getKtable(),
+        RowJoiner.of(schema, schemaKTable.getSchema(), joinSchema, joinStats));
+    return new SchemaKTable(joinSchema, joinedKTable, joinKey, Arrays.asList(this, schemaKTable),
+                            isWindowed, Type.JOIN, joinStats);
+  }
+
+  private void checkSameKeyKind(final SchemaKTable schemaKTable) {
+    if (isWindowed != schemaKTable.isWindowed()) {
+      throw new KsqlException("A windowed table can only be joined with another windowed table.");
+    }
   }
 
   @Override
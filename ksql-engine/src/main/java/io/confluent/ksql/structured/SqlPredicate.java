@@ -22,6 +22,7 @@ import io.confluent.ksql.GenericRow;
 import io.confluent.ksql.util.ExpressionMetadata;
 import io.confluent.ksql.codegen.CodeGenRunner;
 import io.confluent.ksql.util.GenericRowValueTypeEnforcer;
+import io.confluent.ksql.util.OperatorStats;
 import io.confluent.ksql.util.SchemaUtil;
 import io.confluent.ksql.codegen.SqlToJavaVisitor;
 import org.apache.kafka.connect.data.Schema;
@@ -41,13 +42,20 @@ public class SqlPredicate {
   private IExpressionEvaluator ee;
   private int[] columnIndexes;
   private boolean isWindowedKey;
+  private final OperatorStats operatorStats;
 
   private GenericRowValueTypeEnforcer genericRowValueTypeEnforcer;
   private static final Logger log = LoggerFactory.getLogger(SqlPredicate.class);
 
+  public SqlPredicate(final Expression filterExpression, final Schema schema,
+                      boolean isWindowedKey) throws Exception {
+    this(filterExpression, schema, isWindowedKey, new OperatorStats());
+  }
+
   SqlPredicate(final Expression filterExpression, final Schema schema,
-               boolean isWindowedKey) throws Exception {
+               boolean isWindowedKey, final OperatorStats operatorStats) throws Exception {
     this.filterExpression = filterExpression;
+    this.operatorStats = operatorStats;
     this.schema = schema;
     this.genericRowValueTypeEnforcer = new GenericRowValueTypeEnforcer(schema);
     this.isWindowedKey = isWindowedKey;
@@ -81,7 +89,7 @@ public class SqlPredicate {
     ee.cook(expressionStr);
   }
 
-  Predicate getPredicate() throws Exception {
+  public Predicate getPredicate() throws Exception {
     if (isWindowedKey) {
       return getWindowedKeyPredicate();
     } else {
@@ -95,6 +103,7 @@ public class SqlPredicate {
         codeGenRunner.buildCodeGenFromParseTree(filterExpression, schema);
 
     return (Predicate<String, GenericRow>) (key, row) -> {
+      long start = operatorStats.startRow();
       try {
         Kudf[] kudfs = expressionEvaluator.getUdfs();
         Object[] values = new Object[columnIndexes.length];
@@ -107,11 +116,14 @@ public class SqlPredicate {
           }
         }
         boolean result = (Boolean) ee.evaluate(values);
+        operatorStats.endRow(start, result);
         return result;
       } catch (Exception e) {
+        operatorStats.recordError();
         log.error(e.getMessage(), e);
       }
       log.error("Invalid format: " + key + " : " + row);
+      operatorStats.endRow(start, false);
       return false;
     };
   }
@@ -122,6 +134,7 @@ public class SqlPredicate {
         expressionEvaluator =
         codeGenRunner.buildCodeGenFromParseTree(filterExpression, schema);
     return (Predicate<Windowed<String>, GenericRow>) (key, row) -> {
+      long start = operatorStats.startRow();
       try {
         Kudf[] kudfs = expressionEvaluator.getUdfs();
         Object[] values = new Object[columnIndexes.length];
@@ -134,11 +147,14 @@ public class SqlPredicate {
           }
         }
         boolean result = (Boolean) ee.evaluate(values);
+        operatorStats.endRow(start, result);
         return result;
       } catch (Exception e) {
+        operatorStats.recordError();
         log.error(e.getMessage(), e);
       }
       log.error("Invalid format: " + key + " : " + row);
+      operatorStats.endRow(start, false);
       return false;
     };
   }
@@ -0,0 +1,88 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+
+package io.confluent.ksql.structured;
+
+import io.confluent.ksql.GenericRow;
+import org.apache.kafka.streams.kstream.Predicate;
+import org.apache.kafka.streams.kstream.ValueMapper;
+
+/**
+ * A state store a persistent query keeps anyway, the aggregate or reduce store upstream of one of
+ * its tables, along with the filters and projections that turn a row in the store into a row of
+ * the table. It lets the latest rows of the table be read without a store of their own.
+ */
+public class TableStoreView {
+
+  /**
+   * How the store is laid out, which decides how a key is looked up in it.
+   */
+  public enum StoreType {
+    // String keys, from a table source or an aggregation without a window
+    KEY_VALUE,
+    // Windowed keys in a key-value store, from a windowed table source
+    WINDOWED_KEY_VALUE,
+    // From a tumbling or hopping window aggregation
+    WINDOW,
+    // From a session window aggregation
+    SESSION
+  }
+
+  private final String storeName;
+  private final StoreType storeType;
+  private final ValueMapper<GenericRow, GenericRow> rowMapper;
+
+  public TableStoreView(final String storeName, final StoreType storeType) {
+    this(storeName, storeType, row -> row);
+  }
+
+  private TableStoreView(final String storeName, final StoreType storeType,
+                         final ValueMapper<GenericRow, GenericRow> rowMapper) {
+    this.storeName = storeName;
+    this.storeType = storeType;
+    this.rowMapper = rowMapper;
+  }
+
+  public String getStoreName() {
+    return storeName;
+  }
+
+  public StoreType getStoreType() {
+    return storeType;
+  }
+
+  /**
+   * @return The row of the table for a row read from the store, or null if the table doesn't
+   *         hold it
+   */
+  public GenericRow toTableRow(final GenericRow storedRow) {
+    return storedRow == null ? null : rowMapper.apply(storedRow);
+  }
+
+  TableStoreView filter(final Predicate<?, GenericRow> predicate) {
+    return new TableStoreView(storeName, storeType, storedRow -> {
+      GenericRow row = rowMapper.apply(storedRow);
+      return row != null && predicate.test(null, row) ? row : null;
+    });
+  }
+
+  TableStoreView mapValues(final ValueMapper<GenericRow, GenericRow> mapper) {
+    return new TableStoreView(storeName, storeType, storedRow -> {
+      GenericRow row = rowMapper.apply(storedRow);
+      return row == null ? null : mapper.apply(row);
+    });
+  }
+}
@@ -0,0 +1,356 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+
+package io.confluent.ksql.util;
+
+import io.confluent.ksql.function.KsqlFunction;
+import io.confluent.ksql.function.KsqlFunctions;
+import io.confluent.ksql.function.udf.Kudf;
+import io.confluent.ksql.parser.tree.ArithmeticBinaryExpression;
+import io.confluent.ksql.parser.tree.ArithmeticUnaryExpression;
+import io.confluent.ksql.parser.tree.BooleanLiteral;
+import io.confluent.ksql.parser.tree.Cast;
+import io.confluent.ksql.parser.tree.ComparisonExpression;
+import io.confluent.ksql.parser.tree.DoubleLiteral;
+import io.confluent.ksql.parser.tree.Expression;
+import io.confluent.ksql.parser.tree.ExpressionRewriter;
+import io.confluent.ksql.parser.tree.ExpressionTreeRewriter;
+import io.confluent.ksql.parser.tree.FunctionCall;
+import io.confluent.ksql.parser.tree.LogicalBinaryExpression;
+import io.confluent.ksql.parser.tree.LongLiteral;
+import io.confluent.ksql.parser.tree.NotExpression;
+import io.confluent.ksql.parser.tree.StringLiteral;
+import org.apache.kafka.connect.data.Schema;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Simplifies expressions before code is generated for them, so that what doesn't depend on the
+ * row is worked out once instead of for every row. It folds operators and casts whose operands
+ * are all literals, and calls of deterministic functions with only literal arguments, into
+ * literals; drops the sides of AND and OR that a literal makes irrelevant; and drops casts to
+ * the type their operand already has.
+ *
+ * <p>Folding follows Java's rules, as the generated code would. Whatever would fail or has no
+ * literal to stand for it is left for the generated code: integer division by zero, results
+ * that aren't finite, INTEGER values, and strings the generated code couldn't quote.
+ */
+public class ExpressionSimplifier extends ExpressionRewriter<Void> {
+
+  private final ExpressionTypeManager expressionTypeManager;
+
+  /**
+   * @param schema The schema the expressions refer to columns of
+   */
+  public ExpressionSimplifier(final Schema schema) {
+    this.expressionTypeManager = new ExpressionTypeManager(schema);
+  }
+
+  public Expression simplify(final Expression expression) {
+    return ExpressionTreeRewriter.rewriteWith(this, expression);
+  }
+
+  @Override
+  public Expression rewriteArithmeticUnary(ArithmeticUnaryExpression node, Void context,
+                                           ExpressionTreeRewriter<Void> treeRewriter) {
+    ArithmeticUnaryExpression rewritten = treeRewriter.defaultRewrite(node, context);
+    Object value = literalValue(rewritten.getValue());
+    if (!(value instanceof Long || value instanceof Double)) {
+      return rewritten;
+    }
+    if (rewritten.getSign() == ArithmeticUnaryExpression.Sign.PLUS) {
+      return rewritten.getValue();
+    }
+    return value instanceof Long
+           ? toLiteral(-((Long) value))
+           : orElse(toLiteral(-((Double) value)), rewritten);
+  }
+
+  @Override
+  public Expression rewriteArithmeticBinary(ArithmeticBinaryExpression node, Void context,
+                                            ExpressionTreeRewriter<Void> treeRewriter) {
+    ArithmeticBinaryExpression rewritten = treeRewriter.defaultRewrite(node, context);
+    Object left = literalValue(rewritten.getLeft());
+    Object right = literalValue(rewritten.getRight());
+    if (!(left instanceof Number && right instanceof Number)) {
+      return rewritten;
+    }
+    if (left instanceof Long && right instanceof Long) {
+      long l = (Long) left;
+      long r = (Long) right;
+      switch (rewritten.getType()) {
+        case ADD:
+          return toLiteral(l + r);
+        case SUBTRACT:
+          return toLiteral(l - r);
+        case MULTIPLY:
+          return toLiteral(l * r);
+        case DIVIDE:
+          return r == 0 ? rewritten : toLiteral(l / r);
+        case MODULUS:
+          return r == 0 ? rewritten : toLiteral(l % r);
+        default:
+          return rewritten;
+      }
+    }
+    double l = ((Number) left).doubleValue();
+    double r = ((Number) right).doubleValue();
+    switch (rewritten.getType()) {
+      case ADD:
+        return orElse(toLiteral(l + r), rewritten);
+      case SUBTRACT:
+        return orElse(toLiteral(l - r), rewritten);
+      case MULTIPLY:
+        return orElse(toLiteral(l * r), rewritten);
+      case DIVIDE:
+        return orElse(toLiteral(l / r), rewritten);
+      case MODULUS:
+        return orElse(toLiteral(l % r), rewritten);
+      default:
+        return rewritten;
+    }
+  }
+
+  @Override
+  public Expression rewriteComparisonExpression(ComparisonExpression node, Void context,
+                                                ExpressionTreeRewriter<Void> treeRewriter) {
+    ComparisonExpression rewritten = treeRewriter.defaultRewrite(node, context);
+    Object left = literalValue(rewritten.getLeft());
+    Object right = literalValue(rewritten.getRight());
+    if (left == null || right == null) {
+      return rewritten;
+    }
+    if (left instanceof Long && right instanceof Long) {
+      long l = (Long) left;
+      long r = (Long) right;
+      switch (rewritten.getType()) {
+        case EQUAL:
+          return toLiteral(l == r);
+        case NOT_EQUAL:
+          return toLiteral(l != r);
+        case LESS_THAN:
+          return toLiteral(l < r);
+        case LESS_THAN_OR_EQUAL:
+          return toLiteral(l <= r);
+        case GREATER_THAN:
+          return toLiteral(l > r);
+        case GREATER_THAN_OR_EQUAL:
+          return toLiteral(l >= r);
+        default:
+          return rewritten;
+      }
+    }
+    if (left instanceof Number && right instanceof Number) {
+      double l = ((Number) left).doubleValue();
+      double r = ((Number) right).doubleValue();
+      switch (rewritten.getType()) {
+        case EQUAL:
+          return toLiteral(l == r);
+        case NOT_EQUAL:
+          return toLiteral(l != r);
+        case LESS_THAN:
+          return toLiteral(l < r);
+        case LESS_THAN_OR_EQUAL:
+          return toLiteral(l <= r);
+        case GREATER_THAN:
+          return toLiteral(l > r);
+        case GREATER_THAN_OR_EQUAL:
+          return toLiteral(l >= r);
+        default:
+          return rewritten;
+      }
+    }
+    if (left.getClass() == right.getClass() && !(left instanceof Number)) {
+      // Strings and booleans can only be compared for equality
+      switch (rewritten.getType()) {
+        case EQUAL:
+          return toLiteral(left.equals(right));
+        case NOT_EQUAL:
+          return toLiteral(!left.equals(right));
+        default:
+          return rewritten;
+      }
+    }
+    return rewritten;
+  }
+
+  @Override
+  public Expression rewriteLogicalBinaryExpression(LogicalBinaryExpression node, Void context,
+                                                   ExpressionTreeRewriter<Void> treeRewriter) {
+    LogicalBinaryExpression rewritten = treeRewriter.defaultRewrite(node, context);
+    // TRUE is the identity of AND and absorbs OR, FALSE the other way around
+    boolean identity = rewritten.getType() == LogicalBinaryExpression.Type.AND;
+    Object left = literalValue(rewritten.getLeft());
+    Object right = literalValue(rewritten.getRight());
+    if (left instanceof Boolean) {
+      return (Boolean) left == identity ? rewritten.getRight() : rewritten.getLeft();
+    }
+    if (right instanceof Boolean) {
+      return (Boolean) right == identity ? rewritten.getLeft() : rewritten.getRight();
+    }
+    return rewritten;
+  }
+
+  @Override
+  public Expression rewriteNotExpression(NotExpression node, Void context,
+                                         ExpressionTreeRewriter<Void> treeRewriter) {
+    NotExpression rewritten = treeRewriter.defaultRewrite(node, context);
+    Object value = literalValue(rewritten.getValue());
+    if (value instanceof Boolean) {
+      return toLiteral(!(Boolean) value);
+    }
+    if (rewritten.getValue() instanceof NotExpression) {
+      return ((NotExpression) rewritten.getValue()).getValue();
+    }
+    return rewritten;
+  }
+
+  @Override
+  public Expression rewriteFunctionCall(FunctionCall node, Void context,
+                                        ExpressionTreeRewriter<Void> treeRewriter) {
+    // The default rewrite leaves the arguments of a function call as they are
+    List<Expression> rewrittenArguments = new ArrayList<>();
+    for (Expression argument : node.getArguments()) {
+      rewrittenArguments.add(treeRewriter.rewrite(argument, context));
+    }
+    FunctionCall rewritten = new FunctionCall(node.getName(), node.getWindow(), node.isDistinct(),
+                                              rewrittenArguments);
+    KsqlFunction ksqlFunction = KsqlFunctions.getFunction(rewritten.getName().getSuffix());
+    if (ksqlFunction == null || !ksqlFunction.isDeterministic()) {
+      return rewritten;
+    }
+    Object[] arguments = new Object[rewritten.getArguments().size()];
+    for (int i = 0; i < arguments.length; i++) {
+      arguments[i] = literalValue(rewritten.getArguments().get(i));
+      if (arguments[i] == null) {
+        return rewritten;
+      }
+    }
+    Object result;
+    try {
+      result = ((Kudf) ksqlFunction.getKudfClass().newInstance()).evaluate(arguments);
+    } catch (Exception e) {
+      // Left to fail, or not, on every row as it would have
+      return rewritten;
+    }
+    return orElse(toLiteral(result, ksqlFunction.getReturnType()), rewritten);
+  }
+
+  @Override
+  public Expression rewriteCast(Cast node, Void context,
+                                ExpressionTreeRewriter<Void> treeRewriter) {
+    Cast rewritten = treeRewriter.defaultRewrite(node, context);
+    Schema castType;
+    try {
+      castType = SchemaUtil.getTypeSchema(rewritten.getType());
+    } catch (KsqlException e) {
+      return rewritten;
+    }
+    Object value = literalValue(rewritten.getExpression());
+    if (value != null) {
+      return orElse(toLiteral(castLiteral(value, castType), castType), rewritten);
+    }
+    // A cast to STRING turns null into "null", so it isn't a no-op even on a string
+    if (castType != Schema.STRING_SCHEMA && castType == typeOf(rewritten.getExpression())) {
+      return rewritten.getExpression();
+    }
+    return rewritten;
+  }
+
+  private static Object castLiteral(final Object value, final Schema castType) {
+    try {
+      if (castType == Schema.STRING_SCHEMA) {
+        return String.valueOf(value);
+      } else if (castType == Schema.INT64_SCHEMA) {
+        if (value instanceof String) {
+          return Long.parseLong((String) value);
+        }
+        return value instanceof Number ? ((Number) value).longValue() : null;
+      } else if (castType == Schema.FLOAT64_SCHEMA) {
+        if (value instanceof String) {
+          return Double.parseDouble((String) value);
+        }
+        return value instanceof Number ? ((Number) value).doubleValue() : null;
+      } else if (castType == Schema.BOOLEAN_SCHEMA) {
+        if (value instanceof String) {
+          return Boolean.parseBoolean((String) value);
+        }
+        return value instanceof Boolean ? value : null;
+      }
+    } catch (NumberFormatException e) {
+      // Left to fail on every row as it would have
+    }
+    return null;
+  }
+
+  private Schema typeOf(final Expression expression) {
+    try {
+      return expressionTypeManager.getExpressionType(expression);
+    } catch (RuntimeException e) {
+      return null;
+    }
+  }
+
+  private static Object literalValue(final Expression expression) {
+    if (expression instanceof LongLiteral) {
+      return ((LongLiteral) expression).getValue();
+    } else if (expression instanceof DoubleLiteral) {
+      return ((DoubleLiteral) expression).getValue();
+    } else if (expression instanceof StringLiteral) {
+      return ((StringLiteral) expression).getValue();
+    } else if (expression instanceof BooleanLiteral) {
+      return ((BooleanLiteral) expression).getValue();
+    }
+    return null;
+  }
+
+  private static Expression toLiteral(final Object value, final Schema type) {
+    if (type == Schema.INT64_SCHEMA && value instanceof Long) {
+      return toLiteral((long) (Long) value);
+    } else if (type == Schema.FLOAT64_SCHEMA && value instanceof Double) {
+      return toLiteral((double) (Double) value);
+    } else if (type == Schema.BOOLEAN_SCHEMA && value instanceof Boolean) {
+      return toLiteral((boolean) (Boolean) value);
+    } else if (type == Schema.STRING_SCHEMA && value instanceof String) {
+      String string = (String) value;
+      // String literals are put in the generated code as they are
+      if (string.indexOf('"') < 0 && string.indexOf('\\') < 0 && string.indexOf('\n') < 0
+          && string.indexOf('\r') < 0) {
+        return new StringLiteral(string);
+      }
+    }
+    return null;
+  }
+
+  private static Expression toLiteral(final long value) {
+    return new LongLiteral(Long.toString(value));
+  }
+
+  private static Expression toLiteral(final double value) {
+    return Double.isInfinite(value) || Double.isNaN(value)
+           ? null
+           : new DoubleLiteral(Double.toString(value));
+  }
+
+  private static Expression toLiteral(final boolean value) {
+    return value ? BooleanLiteral.TRUE_LITERAL : BooleanLiteral.FALSE_LITERAL;
+  }
+
+  private static Expression orElse(final Expression folded, final Expression rewritten) {
+    return folded == null ? rewritten : folded;
+  }
+}
@@ -24,6 +24,8 @@ import java.io.Closeable;
 import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
 
 public interface KafkaTopicClient extends Closeable {
 
@@ -38,6 +40,20 @@ public interface KafkaTopicClient extends Closeable {
    */
   void createTopic(String topic, int numPartitions, short replicatonFactor);
 
+  /**
+   * Create a new topic with the specified name, numPartitions and replicatonFactor without
+   * waiting for the brokers to finish creating it.
+   * @param topic name of the topic to create
+   * @param numPartitions
+   * @param replicatonFactor
+   * @return a future that completes once the topic exists
+   * @throws KafkaTopicException if the topic already exists with a different layout
+   */
+  default Future<Void> createTopicAsync(String topic, int numPartitions, short replicatonFactor) {
+    createTopic(topic, numPartitions, replicatonFactor);
+    return CompletableFuture.completedFuture(null);
+  }
+
   /**
    * [warn] synchronous call to get the response
    * @param topic name of the topic
@@ -14,6 +14,7 @@
  * limitations under the License.
  **/
 
+
 package io.confluent.ksql.util;
 
 import io.confluent.ksql.exception.KafkaResponseGetFailedException;
@@ -21,28 +22,91 @@ import io.confluent.ksql.exception.KafkaTopicException;
 import org.apache.kafka.clients.admin.AdminClient;
 import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.common.KafkaFuture;
+import org.apache.kafka.common.utils.Time;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
+/**
+ * Talks to the brokers through a single {@link AdminClient} shared by all calls, and keeps the
+ * topic names and descriptions it has seen for
+ * {@link KsqlConfig#KSQL_TOPIC_METADATA_TTL_MS_CONFIG} ms so that planning a statement or listing
+ * topics doesn't cost a round trip per topic.
+ *
+ * <p>Only positive answers are served from the cache: a topic that isn't known yet always causes
+ * a fresh listing, so topics created outside KSQL are picked up immediately. Topics created
+ * through this client are added to the cache as soon as the brokers confirm them.
+ */
 public class KafkaTopicClientImpl implements KafkaTopicClient {
   private static final Logger log = LoggerFactory.getLogger(KafkaTopicClient.class);
+
+  private static final class CachedDescription {
+    private final TopicDescription description;
+    private final long fetchedAt;
+
+    private CachedDescription(TopicDescription description, long fetchedAt) {
+      this.description = description;
+      this.fetchedAt = fetchedAt;
+    }
+  }
+
   private final Map<String, Object> adminClientConfig;
+  private final long metadataTtlMs;
+  private final Time time;
+  private final Map<String, CachedDescription> descriptions = new ConcurrentHashMap<>();
+  private volatile Set<String> topicNames = Collections.emptySet();
+  private volatile long topicNamesFetchedAt = Long.MIN_VALUE;
+  private AdminClient adminClient;
 
   public KafkaTopicClientImpl(Map<String, Object> adminClientConfig) {
+    this(adminClientConfig, KsqlConfig.KSQL_TOPIC_METADATA_TTL_MS_DEFAULT);
+  }
+
+  public KafkaTopicClientImpl(KsqlConfig ksqlConfig) {
+    this(ksqlConfig.getKsqlAdminClientConfigProps(), Long.parseLong(
+        String.valueOf(ksqlConfig.get(KsqlConfig.KSQL_TOPIC_METADATA_TTL_MS_CONFIG))));
+  }
+
+  public KafkaTopicClientImpl(Map<String, Object> adminClientConfig, long metadataTtlMs) {
+    this(adminClientConfig, metadataTtlMs, Time.SYSTEM);
+  }
+
+  KafkaTopicClientImpl(Map<String, Object> adminClientConfig, long metadataTtlMs, Time time) {
     this.adminClientConfig = adminClientConfig;
+    this.metadataTtlMs = metadataTtlMs;
+    this.time = time;
   }
 
   public void createTopic(String topic, int numPartitions, short replicatonFactor) {
+    try {
+      createTopicAsync(topic, numPartitions, replicatonFactor).get();
+    } catch (InterruptedException | ExecutionException e) {
+      throw new KafkaResponseGetFailedException("Failed to guarantee existence of topic " +
+                                                topic, e);
+    }
+  }
+
+  /**
+   * Checks an existing topic against the requested layout right away, but only sends the request
+   * to create a missing one; the returned future completes once the brokers have created it.
+   */
+  @Override
+  public Future<Void> createTopicAsync(String topic, int numPartitions, short replicatonFactor) {
     log.info("Creating topic '{}'", topic);
     if (isTopicExists(topic)) {
-      Map<String, TopicDescription> topicDescriptions = describeTopics(Arrays.asList(topic));
+      Map<String, TopicDescription> topicDescriptions = describeTopics(Collections.singletonList(topic));
       TopicDescription topicDescription = topicDescriptions.get(topic);
       if (topicDescription.partitions().size() != numPartitions ||
           topicDescription.partitions().get(0).replicas().size() != replicatonFactor) {
@@ -53,49 +117,115 @@ public class KafkaTopicClientImpl implements KafkaTopicClient {
         ));
       }
       // Topic with the partitons and replicas exists, reuse it!
-      return;
+      return KafkaFuture.completedFuture(null);
     }
     NewTopic newTopic = new NewTopic(topic, numPartitions, replicatonFactor);
-    try {
-      AdminClient adminClient = AdminClient.create(adminClientConfig);
-      adminClient.createTopics(Collections.singleton(newTopic)).all().get();
-      adminClient.close();
-
-    } catch (InterruptedException | ExecutionException e) {
-      throw new KafkaResponseGetFailedException("Failed to guarantee existence of topic " +
-                                                topic, e);
-    }
+    return getAdminClient().createTopics(Collections.singleton(newTopic)).all().thenApply(
+        new KafkaFuture.Function<Void, Void>() {
+          @Override
+          public Void apply(Void result) {
+            addTopicName(topic);
+            return null;
+          }
+        });
   }
 
   public boolean isTopicExists(String topic) {
     log.debug("Checking for existence of topic '{}'", topic);
-    return listTopicNames().contains(topic);
+    if (isFresh(topicNamesFetchedAt) && topicNames.contains(topic)) {
+      return true;
+    }
+    return fetchTopicNames().contains(topic);
   }
 
   public Set<String> listTopicNames() {
-    try {
-      AdminClient adminClient = AdminClient.create(adminClientConfig);
-      Set<String> topicNames =  adminClient.listTopics().names().get();
-      adminClient.close();
+    if (isFresh(topicNamesFetchedAt)) {
       return topicNames;
-    } catch (InterruptedException | ExecutionException e) {
-      throw new KafkaResponseGetFailedException("Failed to retrieve kafka topic names", e);
     }
+    return fetchTopicNames();
   }
 
+  /**
+   * Answers from the cache where it can and fetches all the remaining topics in one request.
+   */
   public Map<String, TopicDescription> describeTopics(Collection<String> topicNames) {
+    Map<String, TopicDescription> topicInfos = new HashMap<>();
+    List<String> missing = new ArrayList<>();
+    for (String topicName : topicNames) {
+      CachedDescription cached = descriptions.get(topicName);
+      if (cached != null && isFresh(cached.fetchedAt)) {
+        topicInfos.put(topicName, cached.description);
+      } else {
+        missing.add(topicName);
+      }
+    }
+    if (missing.isEmpty()) {
+      return topicInfos;
+    }
     try {
-      AdminClient adminClient = AdminClient.create(adminClientConfig);
-      Map<String, TopicDescription> topicInfos =  adminClient.describeTopics(topicNames).all()
-          .get();
-      adminClient.close();
+      long fetchedAt = time.milliseconds();
+      Map<String, TopicDescription> fetched = fetchTopicDescriptions(missing);
+      for (Map.Entry<String, TopicDescription> entry : fetched.entrySet()) {
+        descriptions.put(entry.getKey(), new CachedDescription(entry.getValue(), fetchedAt));
+      }
+      topicInfos.putAll(fetched);
       return topicInfos;
     } catch (InterruptedException | ExecutionException e) {
+      missing.forEach(descriptions::remove);
       throw new KafkaResponseGetFailedException("Failed to describe kafka topics", e);
     }
   }
 
-  public void close() {
+  public synchronized void close() {
+    if (adminClient != null) {
+      adminClient.close();
+      adminClient = null;
+    }
+  }
+
+  private Set<String> fetchTopicNames() {
+    try {
+      long fetchedAt = time.milliseconds();
+      Set<String> names = Collections.unmodifiableSet(new HashSet<>(listTopicNamesFromBrokers()));
+      descriptions.keySet().retainAll(names);
+      topicNames = names;
+      topicNamesFetchedAt = fetchedAt;
+      return names;
+    } catch (InterruptedException | ExecutionException e) {
+      throw new KafkaResponseGetFailedException("Failed to retrieve kafka topic names", e);
+    }
+  }
+
+  /**
+   * The round trips to the brokers that the cache saves; overridden to stand in for a cluster.
+   */
+  protected Collection<String> listTopicNamesFromBrokers()
+      throws InterruptedException, ExecutionException {
+    return getAdminClient().listTopics().names().get();
+  }
+
+  protected Map<String, TopicDescription> fetchTopicDescriptions(Collection<String> topicNames)
+      throws InterruptedException, ExecutionException {
+    return getAdminClient().describeTopics(topicNames).all().get();
+  }
+
+  private synchronized void addTopicName(String topic) {
+    Set<String> names = new HashSet<>(topicNames);
+    names.add(topic);
+    topicNames = Collections.unmodifiableSet(names);
+    descriptions.remove(topic);
+  }
+
+  private boolean isFresh(long fetchedAt) {
+    return fetchedAt != Long.MIN_VALUE
+        && time.milliseconds() - fetchedAt < metadataTtlMs;
+  }
+
+  private synchronized AdminClient getAdminClient() {
+    if (adminClient == null) {
+      adminClient = AdminClient.create(adminClientConfig);
+    }
+    return adminClient;
   }
 
-}
\ No newline at end of file
+}
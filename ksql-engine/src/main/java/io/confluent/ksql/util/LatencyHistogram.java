@@ -0,0 +1,102 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+
+package io.confluent.ksql.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size, lock-free histogram of non-negative longs in the style of HdrHistogram: values
+ * below 64 are counted exactly, larger ones in 32 linear sub-buckets per power of two, so any
+ * reported percentile is within about 3% of the true value. Recording is one array increment,
+ * which keeps it cheap enough to do for every row a query emits. Values above
+ * {@link #MAX_VALUE} are clamped.
+ */
+public class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 5;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  private static final int EXACT_LIMIT = SUB_BUCKET_COUNT * 2;
+  private static final int MAX_MAGNITUDE = 41;
+  public static final long MAX_VALUE = (1L << (MAX_MAGNITUDE + 1)) - 1;
+
+  private final AtomicLongArray counts =
+      new AtomicLongArray(bucketIndex(MAX_VALUE) + 1);
+  private final LongAdder totalCount = new LongAdder();
+  private final LongAccumulator maxValue = new LongAccumulator(Long::max, 0);
+
+  public void record(long value) {
+    long clamped = Math.min(Math.max(value, 0), MAX_VALUE);
+    counts.incrementAndGet(bucketIndex(clamped));
+    totalCount.increment();
+    maxValue.accumulate(clamped);
+  }
+
+  public long getCount() {
+    return totalCount.sum();
+  }
+
+  public long getMax() {
+    return maxValue.get();
+  }
+
+  /**
+   * @param percentile Between 0 and 100
+   * @return The highest value that falls in the same bucket as the value at the given
+   *         percentile, or 0 if nothing was recorded
+   */
+  public long getValueAtPercentile(double percentile) {
+    long[] snapshot = new long[counts.length()];
+    long total = 0;
+    for (int i = 0; i < snapshot.length; i++) {
+      snapshot[i] = counts.get(i);
+      total += snapshot[i];
+    }
+    if (total == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * total));
+    long seen = 0;
+    for (int i = 0; i < snapshot.length; i++) {
+      seen += snapshot[i];
+      if (seen >= rank) {
+        return Math.min(highestValueInBucket(i), getMax());
+      }
+    }
+    return getMax();
+  }
+
+  static int bucketIndex(long value) {
+    if (value < EXACT_LIMIT) {
+      return (int) value;
+    }
+    int magnitude = 63 - Long.numberOfLeadingZeros(value);
+    int shift = magnitude - SUB_BUCKET_BITS;
+    int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+    return EXACT_LIMIT + (shift - 1) * SUB_BUCKET_COUNT + subBucket;
+  }
+
+  static long highestValueInBucket(int index) {
+    if (index < EXACT_LIMIT) {
+      return index;
+    }
+    int shift = (index - EXACT_LIMIT) / SUB_BUCKET_COUNT + 1;
+    long subBucket = (index - EXACT_LIMIT) % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+    return ((subBucket + 1) << shift) - 1;
+  }
+}
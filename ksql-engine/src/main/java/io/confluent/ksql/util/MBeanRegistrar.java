@@ -0,0 +1,67 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+
+package io.confluent.ksql.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Registers KSQL's MBeans with the platform MBean server. Failures are logged rather than
+ * thrown: losing a metric must never stop a query.
+ */
+public final class MBeanRegistrar {
+
+  public static final String DOMAIN = "io.confluent.ksql.metrics";
+
+  private static final Logger log = LoggerFactory.getLogger(MBeanRegistrar.class);
+
+  private MBeanRegistrar() {
+  }
+
+  /**
+   * @param properties The key properties of the name, e.g. {@code type=persistent-query,query-id=1}
+   */
+  public static void register(Object mbean, String properties) {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      ObjectName name = new ObjectName(DOMAIN + ":" + properties);
+      if (server.isRegistered(name)) {
+        server.unregisterMBean(name);
+      }
+      server.registerMBean(mbean, name);
+    } catch (JMException e) {
+      log.warn("Failed to register {} with JMX", properties, e);
+    }
+  }
+
+  public static void unregister(String properties) {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      ObjectName name = new ObjectName(DOMAIN + ":" + properties);
+      if (server.isRegistered(name)) {
+        server.unregisterMBean(name);
+      }
+    } catch (JMException e) {
+      log.warn("Failed to unregister {} from JMX", properties, e);
+    }
+  }
+}
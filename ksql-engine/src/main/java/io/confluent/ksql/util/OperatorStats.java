@@ -0,0 +1,111 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+
+package io.confluent.ksql.util;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runtime counters for one operator of a query's physical plan, shown by EXPLAIN ANALYZE. The
+ * operator calls {@link #startRow()} and {@link #endRow(long, boolean)} around every row it
+ * handles. Counting is a couple of uncontended adds; only about one row in
+ * {@link #SAMPLE_INTERVAL} is timed, so the clock isn't read on the hot path.
+ */
+public class OperatorStats {
+
+  public static final int SAMPLE_INTERVAL = 64;
+  private static final long NOT_SAMPLED = -1L;
+
+  private final LongAdder rowsIn = new LongAdder();
+  private final LongAdder rowsOut = new LongAdder();
+  private final LongAdder errors = new LongAdder();
+  private final LongAdder sampledRows = new LongAdder();
+  private final LongAdder sampledNanos = new LongAdder();
+
+  /**
+   * @return The token to pass to {@link #endRow(long, boolean)} for this row
+   */
+  public long startRow() {
+    rowsIn.increment();
+    if (ThreadLocalRandom.current().nextInt(SAMPLE_INTERVAL) == 0) {
+      return System.nanoTime();
+    }
+    return NOT_SAMPLED;
+  }
+
+  /**
+   * @param emitted Whether the operator passed a row on; false for rows a filter dropped
+   */
+  public void endRow(long startToken, boolean emitted) {
+    if (emitted) {
+      rowsOut.increment();
+    }
+    if (startToken != NOT_SAMPLED) {
+      sampledNanos.add(System.nanoTime() - startToken);
+      sampledRows.increment();
+    }
+  }
+
+  public void recordError() {
+    errors.increment();
+  }
+
+  public long getRowsIn() {
+    return rowsIn.sum();
+  }
+
+  public long getRowsOut() {
+    return rowsOut.sum();
+  }
+
+  public long getErrors() {
+    return errors.sum();
+  }
+
+  /**
+   * @return The fraction of input rows the operator passed on, or NaN before any row was seen
+   */
+  public double getSelectivity() {
+    long in = getRowsIn();
+    return in == 0 ? Double.NaN : (double) getRowsOut() / in;
+  }
+
+  /**
+   * @return The mean time spent per sampled row in microseconds, or NaN if none were sampled
+   */
+  public double getAvgMicrosPerRow() {
+    long samples = sampledRows.sum();
+    return samples == 0 ? Double.NaN : sampledNanos.sum() / 1000.0 / samples;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder stringBuilder = new StringBuilder();
+    stringBuilder.append("rows in: ").append(getRowsIn())
+        .append(", rows out: ").append(getRowsOut());
+    double selectivity = getSelectivity();
+    if (!Double.isNaN(selectivity)) {
+      stringBuilder.append(String.format(", selectivity: %.2f%%", selectivity * 100));
+    }
+    double avgMicros = getAvgMicrosPerRow();
+    if (!Double.isNaN(avgMicros)) {
+      stringBuilder.append(String.format(", avg time/row: %.3f us (sampled)", avgMicros));
+    }
+    stringBuilder.append(", errors: ").append(getErrors());
+    return stringBuilder.toString();
+  }
+}
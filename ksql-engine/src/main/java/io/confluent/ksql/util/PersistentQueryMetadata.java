@@ -18,27 +18,80 @@ package io.confluent.ksql.util;
 
 import io.confluent.ksql.serde.DataSource;
 import io.confluent.ksql.planner.plan.OutputNode;
+import io.confluent.ksql.structured.SchemaKStream;
+import io.confluent.ksql.structured.TableStoreView;
+import org.apache.kafka.connect.data.Schema;
 import org.apache.kafka.streams.KafkaStreams;
 
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Future;
 
 public class PersistentQueryMetadata extends QueryMetadata {
 
   private final long id;
-
+  private final Schema resultSchema;
+  private final SchemaKStream physicalPlan;
+  private final Optional<QueryLatencyMetrics> latencyMetrics;
+  private final Optional<TableStoreView> tableStoreView;
 
   public PersistentQueryMetadata(String statementString, KafkaStreams kafkaStreams,
-                                 OutputNode outputNode, String executionPlan, long id,
-                                 DataSource.DataSourceType dataSourceType) {
-    super(statementString, kafkaStreams, outputNode, executionPlan, dataSourceType);
+                                 OutputNode outputNode, SchemaKStream physicalPlan, long id,
+                                 DataSource.DataSourceType dataSourceType,
+                                 Schema resultSchema,
+                                 Optional<QueryLatencyMetrics> latencyMetrics,
+                                 Optional<TableStoreView> tableStoreView) {
+    super(statementString, kafkaStreams, outputNode, physicalPlan.getExecutionPlan(""),
+          dataSourceType);
     this.id = id;
-
+    this.resultSchema = resultSchema;
+    this.physicalPlan = physicalPlan;
+    this.latencyMetrics = latencyMetrics;
+    this.tableStoreView = tableStoreView;
   }
 
   public long getId() {
     return id;
   }
 
+  /**
+   * The schema of the rows produced by the query before they are written to the sink topic; for
+   * table queries this is also the schema of the rows read through the table store view.
+   */
+  public Schema getResultSchema() {
+    return resultSchema;
+  }
+
+  /**
+   * The execution plan with what each operator has processed since the query was started.
+   */
+  public String getAnalyzedExecutionPlan() {
+    return physicalPlan.getExecutionPlan("", true);
+  }
+
+  /**
+   * The creation of the topic the query writes to, which has to be complete before the query is
+   * started.
+   */
+  public Future<Void> getSinkTopicCreation() {
+    return physicalPlan.getSinkTopicCreation();
+  }
+
+  /**
+   * Latency of the rows written to the sink topic; empty if latency metrics are disabled.
+   */
+  public Optional<QueryLatencyMetrics> getLatencyMetrics() {
+    return latencyMetrics;
+  }
+
+  /**
+   * The aggregate or reduce store the latest row per key of the table the query writes can be
+   * read from; empty for streams and for tables with no such store, like table-table joins.
+   */
+  public Optional<TableStoreView> getTableStoreView() {
+    return tableStoreView;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (!(o instanceof PersistentQueryMetadata)) {
@@ -0,0 +1,112 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+
+package io.confluent.ksql.util;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Publishes the metrics of a persistent query under
+ * {@code io.confluent.ksql.metrics:type=persistent-query,query-id=<id>}. Every attribute read
+ * takes a fresh {@link QueryMetrics} snapshot, so nothing is computed unless somebody looks.
+ */
+public class PersistentQueryMetrics implements PersistentQueryMetricsMBean {
+
+  private final String statementString;
+  private final Supplier<String> state;
+  private final Supplier<QueryMetrics> snapshot;
+
+  PersistentQueryMetrics(
+      String statementString,
+      Supplier<String> state,
+      Supplier<QueryMetrics> snapshot
+  ) {
+    this.statementString = statementString;
+    this.state = state;
+    this.snapshot = snapshot;
+  }
+
+  public static void register(
+      PersistentQueryMetadata queryMetadata,
+      Supplier<Optional<String>> stateStoreName
+  ) {
+    register(
+        queryMetadata.getId(),
+        new PersistentQueryMetrics(
+            queryMetadata.getStatementString(),
+            () -> queryMetadata.getKafkaStreams().state().toString(),
+            () -> QueryMetrics.collect(queryMetadata.getKafkaStreams(), stateStoreName.get())
+        )
+    );
+  }
+
+  static void register(long queryId, PersistentQueryMetrics metrics) {
+    MBeanRegistrar.register(metrics, objectProperties(queryId));
+  }
+
+  public static void unregister(long queryId) {
+    MBeanRegistrar.unregister(objectProperties(queryId));
+  }
+
+  static String objectProperties(long queryId) {
+    return "type=persistent-query,query-id=" + queryId;
+  }
+
+  private QueryMetrics snapshot() {
+    return snapshot.get();
+  }
+
+  @Override
+  public String getStatementString() {
+    return statementString;
+  }
+
+  @Override
+  public String getState() {
+    return state.get();
+  }
+
+  @Override
+  public double getMessagesInPerSec() {
+    return snapshot().getMessagesInPerSec();
+  }
+
+  @Override
+  public double getMessagesOutPerSec() {
+    return snapshot().getMessagesOutPerSec();
+  }
+
+  @Override
+  public double getProcessLatencyAvgMs() {
+    return snapshot().getProcessLatencyAvgMs();
+  }
+
+  @Override
+  public long getTotalLag() {
+    return snapshot().getTotalLag();
+  }
+
+  @Override
+  public long getRestoreRemaining() {
+    return snapshot().getRestoreRemaining();
+  }
+
+  @Override
+  public Long getStateStoreEntries() {
+    return snapshot().getStateStoreEntries();
+  }
+}
@@ -0,0 +1,158 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+
+package io.confluent.ksql.util;
+
+import org.apache.kafka.streams.processor.ProcessorContext;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * End-to-end latency of the rows a query emits, recorded by its sink (or, for push queries, by
+ * the populator handing rows to the client).
+ *
+ * <p>Event-time lag is the wall-clock time of the emit minus the record's ROWTIME, i.e. the
+ * timestamp taken by the timestamp extractor. Processing latency is the time from KSQL first
+ * seeing the input record to emitting its result; it can only be attributed when both happen
+ * in the same pass through a sub-topology, so rows coming out of an aggregation or a table
+ * (which are repartitioned and cached before they're emitted) only get an event-time lag.
+ */
+public class QueryLatencyMetrics implements QueryLatencyMetricsMBean {
+
+  public static final String PUSH_QUERIES_OBJECT_PROPERTIES =
+      "type=query-latency,query=push-queries";
+
+  private static final ThreadLocal<RecordStart> RECORD_START =
+      ThreadLocal.withInitial(RecordStart::new);
+
+  private final LatencyHistogram eventTimeLagMs = new LatencyHistogram();
+  private final LatencyHistogram processingLatencyMicros = new LatencyHistogram();
+
+  /**
+   * Notes when the input record the given context is on entered KSQL, for a later
+   * {@link #recordEmit(ProcessorContext)} in the same sub-topology.
+   */
+  public static void markRecordStart(ProcessorContext context) {
+    RecordStart recordStart = RECORD_START.get();
+    recordStart.topic = context.topic();
+    recordStart.partition = context.partition();
+    recordStart.offset = context.offset();
+    recordStart.nanos = System.nanoTime();
+  }
+
+  /**
+   * @return The key properties this query's latency is published under with JMX
+   */
+  public static String objectProperties(long queryId) {
+    return "type=query-latency,query-id=" + queryId;
+  }
+
+  public void recordEmit(ProcessorContext context) {
+    long timestamp = context.timestamp();
+    if (timestamp >= 0) {
+      eventTimeLagMs.record(System.currentTimeMillis() - timestamp);
+    }
+    RecordStart recordStart = RECORD_START.get();
+    if (recordStart.topic != null
+        && recordStart.offset == context.offset()
+        && recordStart.partition == context.partition()
+        && recordStart.topic.equals(context.topic())) {
+      processingLatencyMicros.record((System.nanoTime() - recordStart.nanos) / 1000);
+    }
+  }
+
+  @Override
+  public long getEventTimeLagCount() {
+    return eventTimeLagMs.getCount();
+  }
+
+  @Override
+  public double getEventTimeLagP50Ms() {
+    return eventTimeLagMs.getValueAtPercentile(50);
+  }
+
+  @Override
+  public double getEventTimeLagP99Ms() {
+    return eventTimeLagMs.getValueAtPercentile(99);
+  }
+
+  @Override
+  public double getEventTimeLagP999Ms() {
+    return eventTimeLagMs.getValueAtPercentile(99.9);
+  }
+
+  @Override
+  public double getEventTimeLagMaxMs() {
+    return eventTimeLagMs.getMax();
+  }
+
+  @Override
+  public long getProcessingLatencyCount() {
+    return processingLatencyMicros.getCount();
+  }
+
+  @Override
+  public double getProcessingLatencyP50Ms() {
+    return processingLatencyMicros.getValueAtPercentile(50) / 1000.0;
+  }
+
+  @Override
+  public double getProcessingLatencyP99Ms() {
+    return processingLatencyMicros.getValueAtPercentile(99) / 1000.0;
+  }
+
+  @Override
+  public double getProcessingLatencyP999Ms() {
+    return processingLatencyMicros.getValueAtPercentile(99.9) / 1000.0;
+  }
+
+  @Override
+  public double getProcessingLatencyMaxMs() {
+    return processingLatencyMicros.getMax() / 1000.0;
+  }
+
+  /**
+   * @return The percentiles of both histograms, for the REST status endpoint
+   */
+  public Map<String, Object> getStats() {
+    Map<String, Object> eventTimeLag = new LinkedHashMap<>();
+    eventTimeLag.put("count", getEventTimeLagCount());
+    eventTimeLag.put("p50", getEventTimeLagP50Ms());
+    eventTimeLag.put("p99", getEventTimeLagP99Ms());
+    eventTimeLag.put("p999", getEventTimeLagP999Ms());
+    eventTimeLag.put("max", getEventTimeLagMaxMs());
+
+    Map<String, Object> processingLatency = new LinkedHashMap<>();
+    processingLatency.put("count", getProcessingLatencyCount());
+    processingLatency.put("p50", getProcessingLatencyP50Ms());
+    processingLatency.put("p99", getProcessingLatencyP99Ms());
+    processingLatency.put("p999", getProcessingLatencyP999Ms());
+    processingLatency.put("max", getProcessingLatencyMaxMs());
+
+    Map<String, Object> stats = new LinkedHashMap<>();
+    stats.put("eventTimeLagMs", eventTimeLag);
+    stats.put("processingLatencyMs", processingLatency);
+    return stats;
+  }
+
+  private static class RecordStart {
+    private String topic;
+    private int partition = -1;
+    private long offset = -1;
+    private long nanos;
+  }
+}
@@ -0,0 +1,191 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+
+package io.confluent.ksql.util;
+
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.streams.KafkaStreams;
+import org.apache.kafka.streams.errors.InvalidStateStoreException;
+import org.apache.kafka.streams.state.QueryableStoreTypes;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * A point-in-time view of how a persistent query is doing, read from the metrics its Kafka
+ * Streams clients already maintain. Nothing is measured on the processing path: the metrics are
+ * only aggregated when a snapshot is taken.
+ */
+public class QueryMetrics {
+
+  private static final String STREAM_METRICS_GROUP = "stream-metrics";
+  private static final String CONSUMER_METRICS_GROUP = "consumer-fetch-manager-metrics";
+  private static final String PRODUCER_METRICS_GROUP = "producer-metrics";
+  private static final String PARTITION_LAG_SUFFIX = ".records-lag";
+  private static final String RESTORE_CONSUMER_SUFFIX = "restore-consumer";
+
+  private final String state;
+  private final double messagesInPerSec;
+  private final double messagesOutPerSec;
+  private final double processLatencyAvgMs;
+  private final Map<String, Long> consumerLag;
+  private final long restoreRemaining;
+  private final Long stateStoreEntries;
+
+  public QueryMetrics(
+      String state,
+      double messagesInPerSec,
+      double messagesOutPerSec,
+      double processLatencyAvgMs,
+      Map<String, Long> consumerLag,
+      long restoreRemaining,
+      Long stateStoreEntries
+  ) {
+    this.state = state;
+    this.messagesInPerSec = messagesInPerSec;
+    this.messagesOutPerSec = messagesOutPerSec;
+    this.processLatencyAvgMs = processLatencyAvgMs;
+    this.consumerLag = consumerLag;
+    this.restoreRemaining = restoreRemaining;
+    this.stateStoreEntries = stateStoreEntries;
+  }
+
+  /**
+   * @param stateStoreName The store holding the rows of the table the query writes, if any
+   */
+  public static QueryMetrics collect(KafkaStreams kafkaStreams, Optional<String> stateStoreName) {
+    return collect(
+        kafkaStreams.metrics(),
+        kafkaStreams.state().toString(),
+        stateStoreName.map(storeName -> countEntries(kafkaStreams, storeName)).orElse(null)
+    );
+  }
+
+  static QueryMetrics collect(
+      Map<MetricName, ? extends Metric> metrics,
+      String state,
+      Long stateStoreEntries
+  ) {
+    double messagesIn = 0;
+    double messagesOut = 0;
+    double latencySum = 0;
+    int latencyCount = 0;
+    long restoreRemaining = 0;
+    Map<String, Long> consumerLag = new TreeMap<>();
+
+    for (Map.Entry<MetricName, ? extends Metric> entry : metrics.entrySet()) {
+      MetricName metricName = entry.getKey();
+      double value = entry.getValue().value();
+      if (Double.isNaN(value) || Double.isInfinite(value)) {
+        continue;
+      }
+      String clientId = metricName.tags().getOrDefault("client-id", "");
+      boolean restoreConsumer = clientId.endsWith(RESTORE_CONSUMER_SUFFIX);
+      switch (metricName.group()) {
+        case STREAM_METRICS_GROUP:
+          if (metricName.name().equals("process-latency-avg")) {
+            latencySum += value;
+            latencyCount++;
+          }
+          break;
+        case CONSUMER_METRICS_GROUP:
+          if (metricName.name().endsWith(PARTITION_LAG_SUFFIX)) {
+            String partition = metricName.name().substring(
+                0, metricName.name().length() - PARTITION_LAG_SUFFIX.length());
+            if (restoreConsumer) {
+              restoreRemaining += (long) value;
+            } else {
+              consumerLag.merge(partition, (long) value, Long::sum);
+            }
+          } else if (metricName.name().equals("records-consumed-rate") && !restoreConsumer) {
+            messagesIn += value;
+          }
+          break;
+        case PRODUCER_METRICS_GROUP:
+          if (metricName.name().equals("record-send-rate")) {
+            messagesOut += value;
+          }
+          break;
+        default:
+          break;
+      }
+    }
+
+    return new QueryMetrics(
+        state,
+        messagesIn,
+        messagesOut,
+        latencyCount == 0 ? 0 : latencySum / latencyCount,
+        consumerLag,
+        restoreRemaining,
+        stateStoreEntries
+    );
+  }
+
+  private static Long countEntries(KafkaStreams kafkaStreams, String storeName) {
+    try {
+      return kafkaStreams.store(storeName, QueryableStoreTypes.keyValueStore())
+          .approximateNumEntries();
+    } catch (InvalidStateStoreException e) {
+      // Not queryable while the query is (re)starting or rebalancing
+      return null;
+    }
+  }
+
+  public String getState() {
+    return state;
+  }
+
+  public double getMessagesInPerSec() {
+    return messagesInPerSec;
+  }
+
+  public double getMessagesOutPerSec() {
+    return messagesOutPerSec;
+  }
+
+  public double getProcessLatencyAvgMs() {
+    return processLatencyAvgMs;
+  }
+
+  /**
+   * @return How many records each input partition is behind, keyed by topic-partition
+   */
+  public Map<String, Long> getConsumerLag() {
+    return consumerLag;
+  }
+
+  public long getTotalLag() {
+    return consumerLag.values().stream().mapToLong(Long::longValue).sum();
+  }
+
+  /**
+   * @return How many changelog records are left to restore before the query's state is rebuilt
+   */
+  public long getRestoreRemaining() {
+    return restoreRemaining;
+  }
+
+  /**
+   * @return The approximate number of rows in the table's state store, or null if the query
+   *         doesn't write a table or the store can't be read right now
+   */
+  public Long getStateStoreEntries() {
+    return stateStoreEntries;
+  }
+}
@@ -24,10 +24,17 @@ import org.apache.kafka.streams.KeyValue;
 
 import java.util.Objects;
 import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class QueuedQueryMetadata extends QueryMetadata {
 
+  /**
+   * Placed on the row queue once a query's LIMIT has been satisfied; no rows follow it.
+   */
+  public static final KeyValue<String, GenericRow> END_OF_QUERY = new KeyValue<>(null, null);
+
   private final SynchronousQueue<KeyValue<String, GenericRow>> rowQueue;
+  private final AtomicBoolean rowQueueClosed;
 
   public QueuedQueryMetadata(
       String statementString,
@@ -35,16 +42,26 @@ public class QueuedQueryMetadata extends QueryMetadata {
       OutputNode outputNode,
       String executionPlan,
       SynchronousQueue<KeyValue<String, GenericRow>> rowQueue,
+      AtomicBoolean rowQueueClosed,
       DataSource.DataSourceType dataSourceType
   ) {
     super(statementString, kafkaStreams, outputNode, executionPlan, dataSourceType);
     this.rowQueue = rowQueue;
+    this.rowQueueClosed = rowQueueClosed;
   }
 
   public SynchronousQueue<KeyValue<String, GenericRow>> getRowQueue() {
     return rowQueue;
   }
 
+  /**
+   * Tells the query that nothing reads its row queue any more, so stream threads waiting to hand
+   * rows over give up instead of blocking forever. Must be called before the streams are closed.
+   */
+  public void closeRowQueue() {
+    rowQueueClosed.set(true);
+  }
+
   @Override
   public boolean equals(Object o) {
     if (!(o instanceof QueuedQueryMetadata)) {
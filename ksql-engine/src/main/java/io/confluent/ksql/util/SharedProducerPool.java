@@ -0,0 +1,278 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+
+package io.confluent.ksql.util;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.InterruptException;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.streams.KafkaClientSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * A fixed number of producers shared by the persistent queries on this server. Every stream
+ * thread of every query would otherwise create its own producer, with its own buffers and broker
+ * connections; on a server running hundreds of queries most of them sit nearly idle.
+ *
+ * <p>Consumers can't be shared because each query is its own consumer group, so the
+ * {@link KafkaClientSupplier} handed out here only swaps in a shared producer and creates
+ * consumers as usual. Closing a query closes nothing but its consumers; the shared producers live
+ * until the pool is closed.
+ *
+ * <p>Only queries whose producer configs are the same share producers, so per-query overrides
+ * such as acks or compression keep applying; each distinct config gets its own set of producers.
+ * A flush from one query waits for that query's own records only, rather than forcing out the
+ * batches of every query on the producer.
+ */
+public class SharedProducerPool implements Closeable {
+
+  private static final Logger log = LoggerFactory.getLogger(SharedProducerPool.class);
+
+  private final int size;
+  private final Function<Map<String, Object>, Producer<byte[], byte[]>> producerFactory;
+  // Keyed by the producer config without its client id, which differs for every stream thread
+  private final Map<Map<String, Object>, Producer<byte[], byte[]>[]> producers = new HashMap<>();
+
+  public SharedProducerPool(int size) {
+    this(size, config -> new KafkaProducer<>(
+        config,
+        new ByteArraySerializer(),
+        new ByteArraySerializer()
+    ));
+  }
+
+  SharedProducerPool(int size,
+                     Function<Map<String, Object>, Producer<byte[], byte[]>> producerFactory) {
+    this.size = size;
+    this.producerFactory = producerFactory;
+  }
+
+  /**
+   * @param queryId The id of the persistent query the supplier is for; queries are spread over
+   *                the pool's producers by id
+   */
+  public KafkaClientSupplier clientSupplierFor(long queryId) {
+    return new SharedProducerClientSupplier((int) (queryId % size));
+  }
+
+  @SuppressWarnings("unchecked")
+  private synchronized Producer<byte[], byte[]> getProducer(int index, Map<String, Object> config) {
+    Map<String, Object> sharedConfig = new HashMap<>(config);
+    sharedConfig.remove(ProducerConfig.CLIENT_ID_CONFIG);
+    Producer<byte[], byte[]>[] group = producers.get(sharedConfig);
+    if (group == null) {
+      group = new Producer[size];
+      producers.put(sharedConfig, group);
+      if (producers.size() > 1) {
+        log.info("Persistent queries with different producer configs don't share producers; "
+                 + "there are now {} sets of shared producers", producers.size());
+      }
+    }
+    if (group[index] == null) {
+      Map<String, Object> producerConfig = new HashMap<>(sharedConfig);
+      String clientId = "ksql-shared-producer-" + (producers.size() - 1) + "-" + index;
+      producerConfig.put(ProducerConfig.CLIENT_ID_CONFIG, clientId);
+      group[index] = producerFactory.apply(producerConfig);
+      log.info("Created shared producer {} for persistent queries", clientId);
+    }
+    return group[index];
+  }
+
+  /**
+   * @return How many shared producers have been created so far
+   */
+  synchronized int getProducerCount() {
+    int count = 0;
+    for (Producer<byte[], byte[]>[] group : producers.values()) {
+      for (Producer<byte[], byte[]> producer : group) {
+        if (producer != null) {
+          count++;
+        }
+      }
+    }
+    return count;
+  }
+
+  @Override
+  public synchronized void close() {
+    for (Producer<byte[], byte[]>[] group : producers.values()) {
+      for (Producer<byte[], byte[]> producer : group) {
+        if (producer != null) {
+          producer.close();
+        }
+      }
+    }
+    producers.clear();
+  }
+
+  private class SharedProducerClientSupplier implements KafkaClientSupplier {
+
+    private final int index;
+
+    SharedProducerClientSupplier(int index) {
+      this.index = index;
+    }
+
+    @Override
+    public Producer<byte[], byte[]> getProducer(Map<String, Object> config) {
+      if (config.containsKey(ProducerConfig.TRANSACTIONAL_ID_CONFIG)) {
+        // Transactions are bound to a single producer, so exactly-once tasks can't share one
+        return new KafkaProducer<>(config, new ByteArraySerializer(), new ByteArraySerializer());
+      }
+      return new UncloseableProducer(SharedProducerPool.this.getProducer(index, config));
+    }
+
+    @Override
+    public Consumer<byte[], byte[]> getConsumer(Map<String, Object> config) {
+      return new KafkaConsumer<>(config, new ByteArrayDeserializer(), new ByteArrayDeserializer());
+    }
+
+    @Override
+    public Consumer<byte[], byte[]> getRestoreConsumer(Map<String, Object> config) {
+      return new KafkaConsumer<>(config, new ByteArrayDeserializer(), new ByteArrayDeserializer());
+    }
+  }
+
+  /**
+   * Passes everything through to a shared producer except close, which is left to the pool, and
+   * flush, which only waits for the records sent through this instance.
+   */
+  private static class UncloseableProducer implements Producer<byte[], byte[]> {
+
+    private final Producer<byte[], byte[]> delegate;
+    private final Object lock = new Object();
+    private long pendingSends = 0;
+
+    UncloseableProducer(Producer<byte[], byte[]> delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void initTransactions() {
+      throw new UnsupportedOperationException("Shared producers are not transactional");
+    }
+
+    @Override
+    public void beginTransaction() {
+      throw new UnsupportedOperationException("Shared producers are not transactional");
+    }
+
+    @Override
+    public void sendOffsetsToTransaction(
+        Map<TopicPartition, OffsetAndMetadata> offsets,
+        String consumerGroupId
+    ) {
+      throw new UnsupportedOperationException("Shared producers are not transactional");
+    }
+
+    @Override
+    public void commitTransaction() {
+      throw new UnsupportedOperationException("Shared producers are not transactional");
+    }
+
+    @Override
+    public void abortTransaction() {
+      throw new UnsupportedOperationException("Shared producers are not transactional");
+    }
+
+    @Override
+    public Future<RecordMetadata> send(ProducerRecord<byte[], byte[]> record) {
+      return send(record, null);
+    }
+
+    @Override
+    public Future<RecordMetadata> send(ProducerRecord<byte[], byte[]> record, Callback callback) {
+      synchronized (lock) {
+        pendingSends++;
+      }
+      try {
+        return delegate.send(record, (metadata, exception) -> {
+          sendCompleted();
+          if (callback != null) {
+            callback.onCompletion(metadata, exception);
+          }
+        });
+      } catch (RuntimeException e) {
+        sendCompleted();
+        throw e;
+      }
+    }
+
+    private void sendCompleted() {
+      synchronized (lock) {
+        pendingSends--;
+        lock.notifyAll();
+      }
+    }
+
+    /**
+     * Waits for this query's records to be sent. Unlike a flush of the shared producer it doesn't
+     * cut short the linger of other queries' batches, so it can take up to linger.ms longer.
+     */
+    @Override
+    public void flush() {
+      synchronized (lock) {
+        while (pendingSends > 0) {
+          try {
+            lock.wait();
+          } catch (InterruptedException e) {
+            throw new InterruptException(e);
+          }
+        }
+      }
+    }
+
+    @Override
+    public List<PartitionInfo> partitionsFor(String topic) {
+      return delegate.partitionsFor(topic);
+    }
+
+    @Override
+    public Map<MetricName, ? extends Metric> metrics() {
+      return delegate.metrics();
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public void close(long timeout, TimeUnit unit) {
+    }
+  }
+}
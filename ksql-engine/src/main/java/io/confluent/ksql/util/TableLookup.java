@@ -0,0 +1,443 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+
+package io.confluent.ksql.util;
+
+import io.confluent.ksql.GenericRow;
+import io.confluent.ksql.metastore.KsqlTable;
+import io.confluent.ksql.metastore.MetaStore;
+import io.confluent.ksql.metastore.StructuredDataSource;
+import io.confluent.ksql.parser.tree.AliasedRelation;
+import io.confluent.ksql.parser.tree.AllColumns;
+import io.confluent.ksql.parser.tree.ComparisonExpression;
+import io.confluent.ksql.parser.tree.DereferenceExpression;
+import io.confluent.ksql.parser.tree.Expression;
+import io.confluent.ksql.parser.tree.LogicalBinaryExpression;
+import io.confluent.ksql.parser.tree.LongLiteral;
+import io.confluent.ksql.parser.tree.QualifiedNameReference;
+import io.confluent.ksql.parser.tree.Query;
+import io.confluent.ksql.parser.tree.QuerySpecification;
+import io.confluent.ksql.parser.tree.Relation;
+import io.confluent.ksql.parser.tree.SelectItem;
+import io.confluent.ksql.parser.tree.SingleColumn;
+import io.confluent.ksql.parser.tree.StringLiteral;
+import io.confluent.ksql.parser.tree.Table;
+import io.confluent.ksql.serde.DataSource;
+import io.confluent.ksql.structured.TableStoreView;
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.errors.InvalidStateStoreException;
+import org.apache.kafka.streams.kstream.Windowed;
+import org.apache.kafka.streams.kstream.internals.UnlimitedWindow;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.QueryableStoreTypes;
+import org.apache.kafka.streams.state.ReadOnlyKeyValueStore;
+import org.apache.kafka.streams.state.ReadOnlySessionStore;
+import org.apache.kafka.streams.state.ReadOnlyWindowStore;
+import org.apache.kafka.streams.state.WindowStoreIterator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A request/response query that reads the latest rows for a single key straight out of the
+ * aggregate or reduce store kept by the persistent query that writes a table, e.g.
+ * {@code SELECT * FROM pageviews_per_user WHERE ROWKEY = 'user_1';}
+ * The filters and projections between that store and the table are applied to the rows read.
+ *
+ * <p>For windowed tables the rows for all windows of the key are returned; they can be narrowed
+ * down with comparisons against {@code WINDOWSTART}, e.g.
+ * {@code ... WHERE ROWKEY = 'user_1' AND WINDOWSTART >= 1500000000000;}
+ *
+ * <p>{@code SELECT *} returns ROWKEY, then WINDOWSTART for windowed tables, then the columns of
+ * the rows in the store.
+ *
+ * <p>Tables without such a store upstream, like the result of a table-table join, can't be
+ * looked up. Only the state held by this node is consulted, so with several servers sharing the
+ * same queries a key owned by another instance will not be found.
+ */
+public class TableLookup {
+
+  public static final String WINDOWSTART_NAME = "WINDOWSTART";
+
+  private final KsqlTable table;
+  private final PersistentQueryMetadata queryMetadata;
+  private final TableStoreView storeView;
+  private final String key;
+  private final long windowStartFrom;
+  private final long windowStartTo;
+  private final List<String> selectFieldNames;
+  private final Optional<Integer> limit;
+
+  private TableLookup(KsqlTable table, PersistentQueryMetadata queryMetadata,
+                      TableStoreView storeView,
+                      String key, long windowStartFrom, long windowStartTo,
+                      List<String> selectFieldNames, Optional<Integer> limit) {
+    this.table = table;
+    this.queryMetadata = queryMetadata;
+    this.storeView = storeView;
+    this.key = key;
+    this.windowStartFrom = windowStartFrom;
+    this.windowStartTo = windowStartTo;
+    this.selectFieldNames = selectFieldNames;
+    this.limit = limit;
+  }
+
+  /**
+   * Returns a lookup for the given query if it can be answered from a local state store: it
+   * must select plain columns, or all of them, from a table written by a persistent query running
+   * on this node that keeps a store the table can be read from, and its WHERE clause must pin
+   * ROWKEY to a literal.
+   */
+  public static Optional<TableLookup> build(Query query, MetaStore metaStore,
+                                            Collection<PersistentQueryMetadata> queries) {
+    if (!(query.getQueryBody() instanceof QuerySpecification)) {
+      return Optional.empty();
+    }
+    QuerySpecification querySpecification = (QuerySpecification) query.getQueryBody();
+    if (querySpecification.getWindowExpression().isPresent()
+        || querySpecification.getGroupBy().isPresent()
+        || querySpecification.getHaving().isPresent()
+        || !querySpecification.getWhere().isPresent()
+        || !querySpecification.getFrom().isPresent()) {
+      return Optional.empty();
+    }
+
+    Relation from = querySpecification.getFrom().get();
+    if (from instanceof AliasedRelation) {
+      from = ((AliasedRelation) from).getRelation();
+    }
+    if (!(from instanceof Table)) {
+      return Optional.empty();
+    }
+    StructuredDataSource dataSource =
+        metaStore.getSource(((Table) from).getName().getSuffix());
+    if (!(dataSource instanceof KsqlTable)) {
+      return Optional.empty();
+    }
+    KsqlTable table = (KsqlTable) dataSource;
+
+    List<String> selectFieldNames = new ArrayList<>();
+    boolean selectAll = false;
+    for (SelectItem selectItem : querySpecification.getSelect().getSelectItems()) {
+      if (selectItem instanceof AllColumns) {
+        selectAll = true;
+        continue;
+      }
+      if (!(selectItem instanceof SingleColumn)) {
+        return Optional.empty();
+      }
+      Optional<String> fieldName = getFieldName(((SingleColumn) selectItem).getExpression());
+      if (!fieldName.isPresent()) {
+        return Optional.empty();
+      }
+      selectFieldNames.add(fieldName.get());
+    }
+
+    List<ComparisonExpression> conjuncts = new ArrayList<>();
+    if (!collectConjuncts(querySpecification.getWhere().get(), conjuncts)) {
+      return Optional.empty();
+    }
+    String key = null;
+    long windowStartFrom = 0;
+    long windowStartTo = Long.MAX_VALUE;
+    for (ComparisonExpression comparison : conjuncts) {
+      Optional<String> fieldName = getFieldName(comparison.getLeft());
+      Expression literal = comparison.getRight();
+      ComparisonExpression.Type type = comparison.getType();
+      if (!fieldName.isPresent()) {
+        fieldName = getFieldName(comparison.getRight());
+        literal = comparison.getLeft();
+        type = type.flip();
+      }
+      if (!fieldName.isPresent()) {
+        return Optional.empty();
+      }
+
+      if (fieldName.get().equalsIgnoreCase(SchemaUtil.ROWKEY_NAME)
+          && type == ComparisonExpression.Type.EQUAL) {
+        Optional<String> keyValue = getKeyLiteral(literal);
+        if (!keyValue.isPresent() || (key != null && !key.equals(keyValue.get()))) {
+          return Optional.empty();
+        }
+        key = keyValue.get();
+      } else if (fieldName.get().equalsIgnoreCase(WINDOWSTART_NAME)) {
+        if (!table.isWindowed()) {
+          throw new KsqlException(String.format(
+              "%s can only be used in lookups against windowed tables.", WINDOWSTART_NAME));
+        }
+        Optional<Long> bound = getLongLiteral(literal);
+        if (!bound.isPresent()) {
+          return Optional.empty();
+        }
+        switch (type) {
+          case EQUAL:
+            windowStartFrom = Math.max(windowStartFrom, bound.get());
+            windowStartTo = Math.min(windowStartTo, bound.get());
+            break;
+          case GREATER_THAN:
+            windowStartFrom = Math.max(windowStartFrom, bound.get() + 1);
+            break;
+          case GREATER_THAN_OR_EQUAL:
+            windowStartFrom = Math.max(windowStartFrom, bound.get());
+            break;
+          case LESS_THAN:
+            windowStartTo = Math.min(windowStartTo, bound.get() - 1);
+            break;
+          case LESS_THAN_OR_EQUAL:
+            windowStartTo = Math.min(windowStartTo, bound.get());
+            break;
+          default:
+            return Optional.empty();
+        }
+      } else {
+        return Optional.empty();
+      }
+    }
+    if (key == null) {
+      return Optional.empty();
+    }
+
+    for (PersistentQueryMetadata queryMetadata : queries) {
+      if (queryMetadata.getDataSourceType() == DataSource.DataSourceType.KTABLE
+          && queryMetadata.getTableStoreView().isPresent()
+          && queryMetadata.getOutputNode().getId().toString().equalsIgnoreCase(table.getName())) {
+        if (selectAll) {
+          // Any columns named alongside * come after all of the table's columns
+          List<String> allFieldNames =
+              getAllFieldNames(queryMetadata.getResultSchema(), table.isWindowed());
+          allFieldNames.addAll(selectFieldNames);
+          selectFieldNames = allFieldNames;
+        }
+        Optional<Integer> limit = query.getLimit()
+            .filter(limitText -> limitText.matches("\\d+"))
+            .map(Integer::parseInt);
+        return Optional.of(new TableLookup(table, queryMetadata,
+                                           queryMetadata.getTableStoreView().get(), key,
+                                           windowStartFrom, windowStartTo, selectFieldNames,
+                                           limit));
+      }
+    }
+    return Optional.empty();
+  }
+
+  private static List<String> getAllFieldNames(Schema resultSchema, boolean isWindowed) {
+    List<String> fieldNames = new ArrayList<>();
+    fieldNames.add(SchemaUtil.ROWKEY_NAME);
+    if (isWindowed) {
+      fieldNames.add(WINDOWSTART_NAME);
+    }
+    for (Field field : resultSchema.fields()) {
+      String fieldName = field.name().substring(field.name().lastIndexOf('.') + 1);
+      if (!fieldName.equalsIgnoreCase(SchemaUtil.ROWKEY_NAME)) {
+        fieldNames.add(fieldName);
+      }
+    }
+    return fieldNames;
+  }
+
+  public String getTableName() {
+    return table.getName();
+  }
+
+  public String getKey() {
+    return key;
+  }
+
+  List<String> getSelectFieldNames() {
+    return selectFieldNames;
+  }
+
+  /**
+   * Reads the matching rows from the state store, projected onto the selected columns.
+   */
+  public List<GenericRow> execute() {
+    List<GenericRow> rows = new ArrayList<>();
+    if (storeView.getStoreType() != TableStoreView.StoreType.KEY_VALUE
+        && windowStartFrom > windowStartTo) {
+      return rows;
+    }
+    try {
+      switch (storeView.getStoreType()) {
+        case KEY_VALUE:
+          readKeyValueStore(rows);
+          break;
+        case WINDOWED_KEY_VALUE:
+          readWindowedKeyValueStore(rows);
+          break;
+        case WINDOW:
+          readWindowStore(rows);
+          break;
+        case SESSION:
+          readSessionStore(rows);
+          break;
+        default:
+          throw new KsqlException("Unknown store type: " + storeView.getStoreType());
+      }
+    } catch (InvalidStateStoreException e) {
+      throw new KsqlException(String.format(
+          "State store for table %s is not available yet; the query that writes it may still be "
+          + "starting up or rebalancing.", table.getName()), e);
+    }
+    return rows;
+  }
+
+  private void readKeyValueStore(List<GenericRow> rows) {
+    ReadOnlyKeyValueStore<String, GenericRow> store =
+        queryMetadata.getKafkaStreams().store(
+            storeView.getStoreName(),
+            QueryableStoreTypes.<String, GenericRow>keyValueStore()
+        );
+    addRow(rows, key, null, store.get(key));
+  }
+
+  private void readWindowedKeyValueStore(List<GenericRow> rows) {
+    ReadOnlyKeyValueStore<Windowed<String>, GenericRow> store =
+        queryMetadata.getKafkaStreams().store(
+            storeView.getStoreName(),
+            QueryableStoreTypes.<Windowed<String>, GenericRow>keyValueStore()
+        );
+    // Windowed keys are stored as the key bytes followed by the big-endian window start, so
+    // all windows of one key are adjacent and ordered by start time.
+    try (KeyValueIterator<Windowed<String>, GenericRow> iterator = store.range(
+        new Windowed<>(key, new UnlimitedWindow(windowStartFrom)),
+        new Windowed<>(key, new UnlimitedWindow(windowStartTo)))) {
+      while (iterator.hasNext() && !limitReached(rows)) {
+        KeyValue<Windowed<String>, GenericRow> entry = iterator.next();
+        if (key.equals(entry.key.key())) {
+          addRow(rows, windowedRowKey(entry.key.window().start()), entry.key.window().start(),
+                 entry.value);
+        }
+      }
+    }
+  }
+
+  private void readWindowStore(List<GenericRow> rows) {
+    ReadOnlyWindowStore<String, GenericRow> store =
+        queryMetadata.getKafkaStreams().store(
+            storeView.getStoreName(),
+            QueryableStoreTypes.<String, GenericRow>windowStore()
+        );
+    try (WindowStoreIterator<GenericRow> iterator =
+             store.fetch(key, windowStartFrom, windowStartTo)) {
+      while (iterator.hasNext() && !limitReached(rows)) {
+        KeyValue<Long, GenericRow> entry = iterator.next();
+        addRow(rows, windowedRowKey(entry.key), entry.key, entry.value);
+      }
+    }
+  }
+
+  private void readSessionStore(List<GenericRow> rows) {
+    ReadOnlySessionStore<String, GenericRow> store =
+        queryMetadata.getKafkaStreams().store(
+            storeView.getStoreName(),
+            QueryableStoreTypes.<String, GenericRow>sessionStore()
+        );
+    try (KeyValueIterator<Windowed<String>, GenericRow> iterator = store.fetch(key)) {
+      while (iterator.hasNext() && !limitReached(rows)) {
+        KeyValue<Windowed<String>, GenericRow> entry = iterator.next();
+        long windowStart = entry.key.window().start();
+        if (windowStart >= windowStartFrom && windowStart <= windowStartTo) {
+          addRow(rows, windowedRowKey(windowStart), windowStart, entry.value);
+        }
+      }
+    }
+  }
+
+  private String windowedRowKey(long windowStart) {
+    return String.format("%s : Window{start=%d end=-}", key, windowStart);
+  }
+
+  private void addRow(List<GenericRow> rows, String rowKey, Long windowStart,
+                      GenericRow storedRow) {
+    GenericRow row = storeView.toTableRow(storedRow);
+    if (row != null && !limitReached(rows)) {
+      rows.add(project(rowKey, windowStart, row));
+    }
+  }
+
+  private boolean limitReached(List<GenericRow> rows) {
+    return limit.isPresent() && rows.size() >= limit.get();
+  }
+
+  private GenericRow project(String rowKey, Long windowStart, GenericRow row) {
+    Schema resultSchema = queryMetadata.getResultSchema();
+    List<Object> columns = new ArrayList<>(selectFieldNames.size());
+    for (String fieldName : selectFieldNames) {
+      if (fieldName.equalsIgnoreCase(SchemaUtil.ROWKEY_NAME)) {
+        columns.add(rowKey);
+      } else if (fieldName.equalsIgnoreCase(WINDOWSTART_NAME)) {
+        columns.add(windowStart);
+      } else {
+        int index = getFieldIndex(resultSchema, fieldName);
+        columns.add(index < 0 ? null : row.getColumns().get(index));
+      }
+    }
+    return new GenericRow(columns);
+  }
+
+  private static int getFieldIndex(Schema schema, String fieldName) {
+    List<Field> fields = schema.fields();
+    for (int i = 0; i < fields.size(); i++) {
+      String name = fields.get(i).name();
+      if (name.substring(name.lastIndexOf('.') + 1).equalsIgnoreCase(fieldName)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static boolean collectConjuncts(Expression expression,
+                                          List<ComparisonExpression> conjuncts) {
+    if (expression instanceof LogicalBinaryExpression) {
+      LogicalBinaryExpression logicalBinaryExpression = (LogicalBinaryExpression) expression;
+      return logicalBinaryExpression.getType() == LogicalBinaryExpression.Type.AND
+             && collectConjuncts(logicalBinaryExpression.getLeft(), conjuncts)
+             && collectConjuncts(logicalBinaryExpression.getRight(), conjuncts);
+    } else if (expression instanceof ComparisonExpression) {
+      conjuncts.add((ComparisonExpression) expression);
+      return true;
+    }
+    return false;
+  }
+
+  private static Optional<String> getFieldName(Expression expression) {
+    if (expression instanceof DereferenceExpression) {
+      return Optional.of(((DereferenceExpression) expression).getFieldName());
+    } else if (expression instanceof QualifiedNameReference) {
+      String name = ((QualifiedNameReference) expression).getName().toString();
+      return Optional.of(name.substring(name.lastIndexOf('.') + 1));
+    }
+    return Optional.empty();
+  }
+
+  private static Optional<String> getKeyLiteral(Expression expression) {
+    if (expression instanceof StringLiteral) {
+      return Optional.of(((StringLiteral) expression).getValue());
+    }
+    return getLongLiteral(expression).map(String::valueOf);
+  }
+
+  private static Optional<Long> getLongLiteral(Expression expression) {
+    if (expression instanceof LongLiteral) {
+      return Optional.of(((LongLiteral) expression).getValue());
+    }
+    return Optional.empty();
+  }
+}
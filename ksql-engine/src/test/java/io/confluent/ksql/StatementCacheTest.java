@@ -0,0 +1,125 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+
+
+package io.confluent.ksql;
+
+import io.confluent.ksql.analyzer.AggregateAnalysis;
+import io.confluent.ksql.analyzer.AggregateAnalyzer;
+import io.confluent.ksql.analyzer.Analysis;
+import io.confluent.ksql.analyzer.AnalysisContext;
+import io.confluent.ksql.analyzer.Analyzer;
+import io.confluent.ksql.metastore.MetaStore;
+import io.confluent.ksql.metastore.StructuredDataSource;
+import io.confluent.ksql.parser.KsqlParser;
+import io.confluent.ksql.parser.tree.Expression;
+import io.confluent.ksql.parser.tree.Statement;
+import io.confluent.ksql.planner.LogicalPlanner;
+import io.confluent.ksql.planner.plan.PlanNode;
+import io.confluent.ksql.util.MetaStoreFixture;
+import io.confluent.ksql.util.Pair;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class StatementCacheTest {
+
+  @Test
+  public void shouldCollapseWhitespaceOutsideQuotes() {
+    Assert.assertEquals(
+        "SELECT * FROM orders WHERE name = 'a  b';",
+        StatementCache.normalize("  SELECT *\n  FROM   orders\tWHERE name = 'a  b';\n")
+    );
+  }
+
+  @Test
+  public void shouldNotCacheWhenDisabled() {
+    StatementCache statementCache = new StatementCache(0);
+    statementCache.put("SELECT * FROM orders;", Collections.emptyMap(), 1,
+                       Collections.emptyList(), Collections.emptyList(), 0);
+    Assert.assertFalse(statementCache.get(
+        "SELECT * FROM orders;", Collections.emptyMap(), MetaStoreFixture.getNewMetaStore()
+    ).isPresent());
+  }
+
+  @Test
+  public void shouldHitOnlyForTheSameStatementAndOverrides() {
+    MetaStore metaStore = MetaStoreFixture.getNewMetaStore();
+    StatementCache statementCache = new StatementCache(10);
+    put(statementCache, "SELECT col0 FROM test1;", Collections.emptyMap(), metaStore);
+
+    Assert.assertTrue(statementCache.get(
+        "SELECT col0\n  FROM test1;", Collections.emptyMap(), metaStore).isPresent());
+    Assert.assertFalse(statementCache.get(
+        "SELECT col0 FROM test1;",
+        Collections.singletonMap("auto.offset.reset", "earliest"),
+        metaStore
+    ).isPresent());
+
+    Map<String, Object> stats = statementCache.getStats();
+    Assert.assertEquals(1L, stats.get("hits"));
+    Assert.assertEquals(1L, stats.get("misses"));
+  }
+
+  @Test
+  public void shouldInvalidateOnlyWhenASourceReadIsReplaced() {
+    MetaStore metaStore = MetaStoreFixture.getNewMetaStore();
+    StatementCache statementCache = new StatementCache(10);
+    put(statementCache, "SELECT col0 FROM test1;", Collections.emptyMap(), metaStore);
+
+    // The query doesn't read from TEST2
+    metaStore.deleteSource("TEST2");
+    Assert.assertTrue(statementCache.get(
+        "SELECT col0 FROM test1;", Collections.emptyMap(), metaStore).isPresent());
+
+    StructuredDataSource test1 = metaStore.getSource("TEST1");
+    metaStore.deleteSource("TEST1");
+    metaStore.putSource(test1.cloneWithTimeKeyColumns());
+    Assert.assertFalse(statementCache.get(
+        "SELECT col0 FROM test1;", Collections.emptyMap(), metaStore).isPresent());
+    Assert.assertEquals(1L, statementCache.getStats().get("invalidations"));
+    Assert.assertEquals(0, statementCache.getStats().get("size"));
+  }
+
+  private static void put(
+      StatementCache statementCache,
+      String statementText,
+      Map<String, Object> overriddenProperties,
+      MetaStore metaStore
+  ) {
+    long metaStoreVersion = metaStore.getVersion();
+    List<Statement> statements = new KsqlParser().buildAst(statementText, metaStore);
+    Analysis analysis = new Analysis();
+    new Analyzer(analysis, metaStore).process(statements.get(0), new AnalysisContext(null));
+    AggregateAnalysis aggregateAnalysis = new AggregateAnalysis();
+    AggregateAnalyzer aggregateAnalyzer = new AggregateAnalyzer(aggregateAnalysis, analysis);
+    for (Expression expression : analysis.getSelectExpressions()) {
+      aggregateAnalyzer.process(expression, new AnalysisContext(null));
+    }
+    PlanNode logicalPlan = new LogicalPlanner(analysis, aggregateAnalysis).buildPlan();
+    statementCache.put(
+        statementText,
+        overriddenProperties,
+        metaStoreVersion,
+        Collections.singletonList(new Pair<>(statementText, statements.get(0))),
+        Collections.singletonList(new Pair<>(statementText, logicalPlan)),
+        0
+    );
+  }
+}
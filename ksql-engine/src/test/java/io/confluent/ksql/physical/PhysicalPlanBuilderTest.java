@@ -16,31 +16,55 @@
 
 package io.confluent.ksql.physical;
 
+import io.confluent.ksql.GenericRow;
+import io.confluent.ksql.KsqlEngine;
 import io.confluent.ksql.analyzer.AggregateAnalysis;
 import io.confluent.ksql.analyzer.AggregateAnalyzer;
 import io.confluent.ksql.analyzer.Analysis;
 import io.confluent.ksql.analyzer.AnalysisContext;
 import io.confluent.ksql.analyzer.Analyzer;
+import io.confluent.ksql.metastore.KsqlTable;
+import io.confluent.ksql.metastore.KsqlTopic;
 import io.confluent.ksql.metastore.MetaStore;
+import io.confluent.ksql.metastore.StructuredDataSource;
 import io.confluent.ksql.parser.KsqlParser;
 import io.confluent.ksql.util.AggregateExpressionRewriter;
 import io.confluent.ksql.parser.tree.Expression;
 import io.confluent.ksql.parser.tree.ExpressionTreeRewriter;
 import io.confluent.ksql.parser.tree.Statement;
 import io.confluent.ksql.planner.LogicalPlanner;
+import io.confluent.ksql.planner.plan.KsqlStructuredDataOutputNode;
 import io.confluent.ksql.planner.plan.PlanNode;
+import io.confluent.ksql.serde.json.KsqlJsonTopicSerDe;
 import io.confluent.ksql.structured.SchemaKStream;
 import io.confluent.ksql.structured.SchemaKTable;
 import io.confluent.ksql.util.FakeKafkaTopicClient;
+import io.confluent.ksql.util.KafkaTopicClient;
 import io.confluent.ksql.util.KsqlConfig;
+import io.confluent.ksql.util.KsqlException;
 import io.confluent.ksql.util.MetaStoreFixture;
+import io.confluent.ksql.util.Pair;
+import io.confluent.ksql.util.SchemaUtil;
+import io.confluent.ksql.util.SerDeUtil;
+import org.apache.kafka.clients.admin.TopicDescription;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.TopicPartitionInfo;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.common.serialization.StringSerializer;
 import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.streams.StreamsConfig;
 import org.apache.kafka.streams.kstream.KStreamBuilder;
+import org.apache.kafka.test.ProcessorTopologyTestDriver;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -51,6 +75,7 @@ public class PhysicalPlanBuilderTest {
     KsqlParser ksqlParser;
     PhysicalPlanBuilder physicalPlanBuilder;
     MetaStore metaStore;
+    KsqlConfig ksqlConfig;
 
     @Before
     public void before() {
@@ -63,7 +88,35 @@ public class PhysicalPlanBuilderTest {
         configMap.put("commit.interval.ms", 0);
         configMap.put("cache.max.bytes.buffering", 0);
         configMap.put("auto.offset.reset", "earliest");
-        physicalPlanBuilder = new PhysicalPlanBuilder(kStreamBuilder, new KsqlConfig(configMap), new FakeKafkaTopicClient());
+        ksqlConfig = new KsqlConfig(configMap);
+        physicalPlanBuilder = new PhysicalPlanBuilder(kStreamBuilder, ksqlConfig, new FakeKafkaTopicClient());
+    }
+
+    private void registerTable(String name) {
+        KsqlTable test2 = (KsqlTable) metaStore.getSource("TEST2");
+        KsqlTopic ksqlTopic =
+            new KsqlTopic(name, name.toLowerCase(), new KsqlJsonTopicSerDe(null));
+        metaStore.putTopic(ksqlTopic);
+        metaStore.putSource(new KsqlTable(name, test2.getSchema(), test2.getKeyField(), null,
+                                          ksqlTopic, name, false));
+    }
+
+    private void usePartitionCounts(Map<String, Integer> partitionCounts) {
+        physicalPlanBuilder = new PhysicalPlanBuilder(kStreamBuilder, ksqlConfig, new FakeKafkaTopicClient() {
+            @Override
+            public Map<String, TopicDescription> describeTopics(Collection<String> topicNames) {
+                Map<String, TopicDescription> descriptions = new HashMap<>();
+                for (String topicName : topicNames) {
+                    List<TopicPartitionInfo> partitions = new ArrayList<>();
+                    for (int i = 0; i < partitionCounts.get(topicName); i++) {
+                        partitions.add(new TopicPartitionInfo(i, null, Collections.emptyList(),
+                                                              Collections.emptyList()));
+                    }
+                    descriptions.put(topicName, new TopicDescription(topicName, false, partitions));
+                }
+                return descriptions;
+            }
+        });
     }
 
     private SchemaKStream buildPhysicalPlan(String queryStr) throws Exception {
@@ -120,8 +173,9 @@ public class PhysicalPlanBuilderTest {
         Assert.assertTrue(schemaKStream.getSchema().fields().get(3).name().equalsIgnoreCase
             ("COL5"));
         Assert.assertTrue(schemaKStream.getSourceSchemaKStreams().get(0).getSourceSchemaKStreams().size() == 2);
+        // TEST2's COL0 and COL3 aren't referenced
         Assert.assertTrue(schemaKStream.getSourceSchemaKStreams().get(0).getSchema().fields()
-                              .size() == 11);
+                              .size() == 9);
     }
 
     @Test
@@ -141,6 +195,102 @@ public class PhysicalPlanBuilderTest {
         Assert.assertTrue(schemaKStream.getSourceSchemaKStreams().get(0).getSourceSchemaKStreams().get(0).getSourceSchemaKStreams().size() == 2);
     }
 
+    @Test
+    public void testLeftJoinFilterPushedDown() throws Exception {
+        SchemaKStream schemaKStream = buildPhysicalPlan(
+            "SELECT t1.col1, t2.col1 FROM test1 t1 LEFT JOIN test2 t2 "
+            + "ON t1.col1 = t2.col1 WHERE t1.col0 > 10;");
+        SchemaKStream joinSchemaKStream = schemaKStream.getSourceSchemaKStreams().get(0);
+        String executionPlan = joinSchemaKStream.getExecutionPlan("");
+        Assert.assertTrue(executionPlan.startsWith(" > [ JOIN ]"));
+        // The stream is filtered before it is rekeyed for the join
+        Assert.assertTrue(executionPlan.contains("[ REKEY ]"));
+        Assert.assertTrue(executionPlan.indexOf("[ FILTER ]")
+                          > executionPlan.indexOf("[ REKEY ]"));
+    }
+
+    @Test
+    public void testStreamStreamJoin() throws Exception {
+        String simpleQuery =
+            "SELECT t1.col0, o.orderid, o.orderunits FROM test1 t1 JOIN orders o "
+            + "WITHIN 1 MINUTE ON t1.col1 = o.orderid;";
+        SchemaKStream schemaKStream = buildPhysicalPlan(simpleQuery);
+        Assert.assertEquals(3, schemaKStream.getSchema().fields().size());
+        SchemaKStream joinSchemaKStream = schemaKStream.getSourceSchemaKStreams().get(0);
+        Assert.assertEquals(8, joinSchemaKStream.getSchema().fields().size());
+        Assert.assertEquals("T1.COL1", joinSchemaKStream.getKeyField().name());
+        Assert.assertEquals(2, joinSchemaKStream.getSourceSchemaKStreams().size());
+    }
+
+    @Test(expected = KsqlException.class)
+    public void testStreamStreamJoinWithoutWithin() throws Exception {
+        buildPhysicalPlan("SELECT t1.col0, o.orderid FROM test1 t1 JOIN orders o "
+                          + "ON t1.col1 = o.orderid;");
+    }
+
+    @Test(expected = KsqlException.class)
+    public void testStreamTableJoinWithin() throws Exception {
+        buildPhysicalPlan("SELECT t1.col1, t2.col1 FROM test1 t1 LEFT JOIN test2 t2 "
+                          + "WITHIN 1 MINUTE ON t1.col1 = t2.col1;");
+    }
+
+    @Test
+    public void testGlobalTableJoin() throws Exception {
+        SchemaKStream schemaKStream = buildPhysicalPlan(
+            "SELECT t1.col1, t2.col0, t2.col2 FROM test1 t1 LEFT JOIN test2 WITH (GLOBAL = true) t2 "
+            + "ON t1.col1 = t2.col0;");
+        Assert.assertEquals(3, schemaKStream.getSchema().fields().size());
+        SchemaKStream joinSchemaKStream = schemaKStream.getSourceSchemaKStreams().get(0);
+        Assert.assertEquals(9, joinSchemaKStream.getSchema().fields().size());
+        // The stream is joined as it is read, without a rekey in between
+        Assert.assertEquals(1, joinSchemaKStream.getSourceSchemaKStreams().size());
+        Assert.assertTrue(joinSchemaKStream.getSourceSchemaKStreams().get(0)
+                              .getSourceSchemaKStreams().isEmpty());
+        Assert.assertEquals("T1.COL0", joinSchemaKStream.getKeyField().name());
+    }
+
+    @Test(expected = KsqlException.class)
+    public void testGlobalTableJoinNotOnKey() throws Exception {
+        buildPhysicalPlan("SELECT t1.col1, t2.col2 FROM test1 t1 JOIN test2 WITH (GLOBAL = true) t2 "
+                          + "ON t1.col1 = t2.col1;");
+    }
+
+    @Test
+    public void testTableTableJoin() throws Exception {
+        registerTable("TEST3");
+        Map<String, Integer> partitionCounts = new HashMap<>();
+        partitionCounts.put("test2", 4);
+        partitionCounts.put("test3", 4);
+        usePartitionCounts(partitionCounts);
+        SchemaKStream schemaKStream = buildPhysicalPlan(
+            "SELECT t2.col0, t2.col1, t3.col3 FROM test2 t2 LEFT JOIN test3 t3 "
+            + "ON t2.col0 = t3.col0;");
+        Assert.assertTrue(schemaKStream instanceof SchemaKTable);
+        Assert.assertEquals(3, schemaKStream.getSchema().fields().size());
+        SchemaKStream joinSchemaKStream = schemaKStream.getSourceSchemaKStreams().get(0);
+        Assert.assertTrue(joinSchemaKStream instanceof SchemaKTable);
+        Assert.assertEquals(8, joinSchemaKStream.getSchema().fields().size());
+        Assert.assertEquals("T2.COL0", joinSchemaKStream.getKeyField().name());
+    }
+
+    @Test(expected = KsqlException.class)
+    public void testTableTableJoinNotOnKey() throws Exception {
+        registerTable("TEST3");
+        buildPhysicalPlan("SELECT t2.col0, t3.col3 FROM test2 t2 JOIN test3 t3 "
+                          + "ON t2.col1 = t3.col1;");
+    }
+
+    @Test(expected = KsqlException.class)
+    public void testTableTableJoinNotCoPartitioned() throws Exception {
+        registerTable("TEST3");
+        Map<String, Integer> partitionCounts = new HashMap<>();
+        partitionCounts.put("test2", 4);
+        partitionCounts.put("test3", 2);
+        usePartitionCounts(partitionCounts);
+        buildPhysicalPlan("SELECT t2.col0, t3.col3 FROM test2 t2 JOIN test3 t3 "
+                          + "ON t2.col0 = t3.col0;");
+    }
+
     @Test
     public void testSimpleAggregate() throws Exception {
         String queryString = "SELECT col0, sum(col3), count(col3) FROM test1 window TUMBLING ( "
@@ -189,4 +339,133 @@ public class PhysicalPlanBuilderTest {
         Assert.assertEquals(lines[5], "\t\t\t\t\t\t\t\t\t\t > [ SOURCE ] Schema: [TEST1.COL0 : INT64 , TEST1.COL1 : STRING , TEST1.COL2 : STRING , TEST1.COL3 : FLOAT64 , TEST1.COL4 : ARRAY , TEST1.COL5 : MAP].");
     }
 
+    @Test
+    public void testAnalyzedExecutionPlan() throws Exception {
+        useTimeKeyColumns("TEST1");
+        SchemaKStream schemaKStream = buildPersistentPlan(
+            "CREATE STREAM FILTERED AS SELECT col0, col2 FROM test1 WHERE col0 > 100;");
+        int written = process("TEST1", Arrays.asList(test1Row(50), test1Row(150), test1Row(250)));
+        Assert.assertEquals(2, written);
+
+        String[] lines = schemaKStream.getExecutionPlan("", true).split("\n");
+        Assert.assertTrue(lines[0].startsWith(" > [ SINK ]"));
+        Assert.assertTrue(lines[1], lines[1].startsWith("   Stats: rows in: 2, rows out: 2,"));
+        Assert.assertTrue(lines[2].trim().startsWith("> [ PROJECT ]"));
+        Assert.assertTrue(lines[3], lines[3].trim().startsWith("Stats: rows in: 2, rows out: 2,"));
+        Assert.assertTrue(lines[4].trim().startsWith("> [ FILTER ]"));
+        Assert.assertTrue(lines[5], lines[5].trim().startsWith("Stats: rows in: 3, rows out: 2,"));
+        Assert.assertTrue(lines[6].trim().startsWith("> [ SOURCE ]"));
+        Assert.assertTrue(lines[7], lines[7].trim().startsWith("Stats: rows in: 3, rows out: 3,"));
+    }
+
+    @Test
+    public void testAnalyzedExecutionPlanCountsRekeyedSinkRows() throws Exception {
+        useTimeKeyColumns("TEST1");
+        SchemaKStream schemaKStream = buildPersistentPlan(
+            "CREATE STREAM REKEYED AS SELECT col0, col2 FROM test1 WHERE col0 > 100 "
+            + "PARTITION BY col2;");
+        int written = process("TEST1", Arrays.asList(test1Row(50), test1Row(150), test1Row(250)));
+        Assert.assertEquals(2, written);
+
+        Assert.assertTrue(schemaKStream.getExecutionPlan("").startsWith(" > [ SINK ]"));
+        Assert.assertEquals(2, schemaKStream.getOperatorStats().getRowsIn());
+        Assert.assertEquals(2, schemaKStream.getOperatorStats().getRowsOut());
+        SchemaKStream rekeySchemaKStream = schemaKStream.getSourceSchemaKStreams().get(0);
+        Assert.assertTrue(rekeySchemaKStream.getExecutionPlan("").startsWith(" > [ REKEY ]"));
+        Assert.assertEquals("COL2", schemaKStream.getKeyField().name());
+        Assert.assertEquals(2, rekeySchemaKStream.getOperatorStats().getRowsIn());
+    }
+
+    @Test
+    public void testAnalyzedExecutionPlanCountsTableSinkRows() throws Exception {
+        useTimeKeyColumns("TEST2");
+        SchemaKStream schemaKStream = buildPersistentPlan(
+            "CREATE TABLE FILTERED_TABLE AS SELECT col0, col1 FROM test2 WHERE col0 > 100;");
+        int written = process("TEST2", Arrays.asList(test2Row(50), test2Row(150), test2Row(250)));
+        Assert.assertTrue(written >= 2);
+
+        Assert.assertTrue(schemaKStream instanceof SchemaKTable);
+        Assert.assertTrue(schemaKStream.getExecutionPlan("").startsWith(" > [ SINK ]"));
+        Assert.assertEquals(written, schemaKStream.getOperatorStats().getRowsIn());
+        Assert.assertEquals(written, schemaKStream.getOperatorStats().getRowsOut());
+    }
+
+    private void useTimeKeyColumns(String name) {
+        StructuredDataSource source = metaStore.getSource(name);
+        metaStore.deleteSource(name);
+        metaStore.putSource(source.cloneWithTimeKeyColumns());
+    }
+
+    private SchemaKStream buildPersistentPlan(String statementStr) throws Exception {
+        KafkaTopicClient topicClient = new FakeKafkaTopicClient() {
+            @Override
+            public void createTopic(String topic, int numPartitions, short replicatonFactor) {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        physicalPlanBuilder = new PhysicalPlanBuilder(kStreamBuilder, ksqlConfig, topicClient);
+        KsqlEngine ksqlEngine = new KsqlEngine(ksqlConfig, topicClient);
+        try {
+            List<Pair<String, Statement>> statements =
+                ksqlEngine.parseQueries(statementStr, Collections.emptyMap(), metaStore);
+            PlanNode logicalPlan = ksqlEngine.getQueryEngine()
+                .buildLogicalPlans(metaStore, statements).get(0).getRight();
+            return physicalPlanBuilder.buildPhysicalPlan(logicalPlan);
+        } finally {
+            ksqlEngine.close();
+        }
+    }
+
+    private static GenericRow test1Row(long col0) {
+        return new GenericRow(Arrays.<Object>asList(col0, "col1", "col2", 1.5,
+                                                    Collections.singletonList(2.5),
+                                                    Collections.singletonMap("key", 3.5)));
+    }
+
+    private static GenericRow test2Row(long col0) {
+        return new GenericRow(Arrays.<Object>asList(col0, "col1", "col2", 1.5, true));
+    }
+
+    /**
+     * Runs the rows, keyed by their first column, through the topology that was built.
+     *
+     * @return The number of records the query wrote to its sink topic
+     */
+    private int process(String sourceName, List<GenericRow> rows) throws IOException {
+        Map<String, Object> props = new HashMap<>();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, "KSQL");
+        props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:9092");
+        props.put(StreamsConfig.CACHE_MAX_BYTES_BUFFERING_CONFIG, 0);
+        props.put(StreamsConfig.STATE_DIR_CONFIG,
+                  Files.createTempDirectory("ksql-plan-test").toString());
+        ProcessorTopologyTestDriver driver =
+            new ProcessorTopologyTestDriver(new StreamsConfig(props), kStreamBuilder);
+        try {
+            StructuredDataSource source = metaStore.getSource(sourceName);
+            String sourceTopic = source.getKsqlTopic().getKafkaTopicName();
+            Serializer<String> keySerializer = new StringSerializer();
+            Serializer<GenericRow> valueSerializer = SerDeUtil.getGenericRowJsonSerde(
+                SchemaUtil.removeImplicitRowTimeRowKeyFromSchema(source.getSchema())).serializer();
+            for (GenericRow row : rows) {
+                driver.process(sourceTopic,
+                               keySerializer.serialize(sourceTopic,
+                                                       row.getColumns().get(0).toString()),
+                               valueSerializer.serialize(sourceTopic, row));
+            }
+
+            String sinkTopic =
+                ((KsqlStructuredDataOutputNode) physicalPlanBuilder.getPlanSink()).getKafkaTopicName();
+            int written = 0;
+            while (driver.readOutput(sinkTopic) != null) {
+                written++;
+            }
+            return written;
+        } finally {
+            driver.close();
+        }
+    }
+
 }
@@ -116,16 +116,77 @@ public class LogicalPlannerTest {
 
     Assert.assertTrue(projectNode.getSources().get(0) instanceof FilterNode);
     FilterNode filterNode = (FilterNode) projectNode.getSources().get(0);
+    // The left side's half of the filter is pushed down below the join
     Assert.assertTrue(filterNode.getPredicate().toString()
-                          .equalsIgnoreCase("((T1.COL1 > 10) AND (T2.COL4 = 10.8))"));
+                          .equalsIgnoreCase("(T2.COL4 = 10.8)"));
 
     Assert.assertTrue(filterNode.getSources().get(0) instanceof JoinNode);
     JoinNode joinNode = (JoinNode) filterNode.getSources().get(0);
-    Assert.assertTrue(joinNode.getSources().get(0) instanceof StructuredDataSourceNode);
+    Assert.assertTrue(joinNode.getSources().get(0) instanceof FilterNode);
+    FilterNode leftFilterNode = (FilterNode) joinNode.getSources().get(0);
+    Assert.assertTrue(leftFilterNode.getPredicate().toString().equalsIgnoreCase("(COL1 > 10)"));
+    Assert.assertTrue(leftFilterNode.getSource() instanceof StructuredDataSourceNode);
     Assert.assertTrue(joinNode.getSources().get(1) instanceof StructuredDataSourceNode);
 
   }
 
+  @Test
+  public void testInnerJoinFilterPushedDownToBothSides() throws Exception {
+    String simpleQuery = "SELECT t1.col1, t2.col1 FROM test1 t1 JOIN test2 t2 ON "
+                         + "t1.col1 = t2.col1 WHERE t1.col0 > 10 AND t2.col3 = 10.8 "
+                         + "AND t1.col3 > 1.5;";
+    PlanNode logicalPlan = buildLogicalPlan(simpleQuery);
+
+    // Nothing is left to filter above the join
+    Assert.assertTrue(logicalPlan.getSources().get(0).getSources().get(0) instanceof JoinNode);
+    JoinNode joinNode = (JoinNode) logicalPlan.getSources().get(0).getSources().get(0);
+    FilterNode leftFilterNode = (FilterNode) joinNode.getLeft();
+    Assert.assertTrue(leftFilterNode.getPredicate().toString()
+                          .equalsIgnoreCase("((COL0 > 10) AND (COL3 > 1.5))"));
+    FilterNode rightFilterNode = (FilterNode) joinNode.getRight();
+    Assert.assertTrue(rightFilterNode.getPredicate().toString()
+                          .equalsIgnoreCase("(COL3 = 10.8)"));
+  }
+
+  @Test
+  public void testJoinFilterOnBothSidesNotPushedDown() throws Exception {
+    String simpleQuery = "SELECT t1.col1, t2.col1 FROM test1 t1 JOIN test2 t2 ON "
+                         + "t1.col1 = t2.col1 WHERE t1.col3 > t2.col3 OR t1.col0 > 10;";
+    PlanNode logicalPlan = buildLogicalPlan(simpleQuery);
+
+    Assert.assertTrue(logicalPlan.getSources().get(0).getSources().get(0) instanceof FilterNode);
+    FilterNode filterNode = (FilterNode) logicalPlan.getSources().get(0).getSources().get(0);
+    JoinNode joinNode = (JoinNode) filterNode.getSource();
+    Assert.assertTrue(joinNode.getLeft() instanceof StructuredDataSourceNode);
+    Assert.assertTrue(joinNode.getRight() instanceof StructuredDataSourceNode);
+  }
+
+  @Test
+  public void testJoinKeepsReferencedRightColumns() throws Exception {
+    String simpleQuery = "SELECT t1.col1, t2.col2 FROM test1 t1 LEFT JOIN test2 t2 ON "
+                         + "t1.col1 = t2.col1 WHERE t2.col3 > 10.5;";
+    PlanNode logicalPlan = buildLogicalPlan(simpleQuery);
+
+    JoinNode joinNode =
+        (JoinNode) logicalPlan.getSources().get(0).getSources().get(0).getSources().get(0);
+    Assert.assertEquals(9, joinNode.getSchema().fields().size());
+    Assert.assertNotNull(joinNode.getSchema().field("T1.COL0"));
+    Assert.assertNotNull(joinNode.getSchema().field("T2.COL1"));
+    Assert.assertNotNull(joinNode.getSchema().field("T2.COL2"));
+    Assert.assertNotNull(joinNode.getSchema().field("T2.COL3"));
+    Assert.assertNull(joinNode.getSchema().field("T2.COL0"));
+    Assert.assertNull(joinNode.getSchema().field("T2.COL4"));
+  }
+
+  @Test
+  public void testJoinSelectStarKeepsAllColumns() throws Exception {
+    PlanNode logicalPlan =
+        buildLogicalPlan("SELECT * FROM test1 t1 LEFT JOIN test2 t2 ON t1.col1 = t2.col1;");
+
+    JoinNode joinNode = (JoinNode) logicalPlan.getSources().get(0).getSources().get(0);
+    Assert.assertEquals(11, joinNode.getSchema().fields().size());
+  }
+
   @Test
   public void testSimpleAggregateLogicalPlan() throws Exception {
     String simpleQuery = "SELECT col0, sum(col3), count(col3) FROM test1 window TUMBLING ( size 2 "
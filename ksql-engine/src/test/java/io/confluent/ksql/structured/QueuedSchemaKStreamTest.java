@@ -0,0 +1,114 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+
+package io.confluent.ksql.structured;
+
+import io.confluent.ksql.GenericRow;
+import io.confluent.ksql.util.QueuedQueryMetadata;
+import org.apache.kafka.streams.KeyValue;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class QueuedSchemaKStreamTest {
+
+  private static final int THREADS = 8;
+  private static final int ROWS_PER_THREAD = 200;
+
+  private final SynchronousQueue<KeyValue<String, GenericRow>> queue = new SynchronousQueue<>();
+  private final AtomicBoolean closed = new AtomicBoolean(false);
+
+  private List<Thread> startWriters(QueuedSchemaKStream.QueuePopulator<String> populator) {
+    List<Thread> writers = new ArrayList<>();
+    for (int i = 0; i < THREADS; i++) {
+      String key = "key" + i;
+      Thread writer = new Thread(() -> {
+        for (int j = 0; j < ROWS_PER_THREAD; j++) {
+          populator.apply(key, new GenericRow(Collections.singletonList(j)));
+        }
+      });
+      writer.start();
+      writers.add(writer);
+    }
+    return writers;
+  }
+
+  private static void assertFinished(List<Thread> writers) throws InterruptedException {
+    for (Thread writer : writers) {
+      writer.join(TimeUnit.SECONDS.toMillis(10));
+      Assert.assertFalse("A stream thread is still blocked on the queue", writer.isAlive());
+    }
+  }
+
+  @Test
+  public void shouldEndQueryAfterExactlyLimitRowsFromConcurrentThreads() throws Exception {
+    for (int attempt = 0; attempt < 20; attempt++) {
+      SynchronousQueue<KeyValue<String, GenericRow>> queue = new SynchronousQueue<>();
+      AtomicBoolean closed = new AtomicBoolean(false);
+      List<Thread> writers = startWriters(
+          new QueuedSchemaKStream.QueuePopulator<>(queue, closed, Optional.of(5)));
+
+      int rows = 0;
+      while (true) {
+        KeyValue<String, GenericRow> next = queue.poll(10, TimeUnit.SECONDS);
+        Assert.assertNotNull("Timed out waiting for the end of the query", next);
+        if (next == QueuedQueryMetadata.END_OF_QUERY) {
+          break;
+        }
+        rows++;
+      }
+      closed.set(true);
+
+      Assert.assertEquals(5, rows);
+      assertFinished(writers);
+      Assert.assertNull(queue.poll());
+    }
+  }
+
+  @Test
+  public void shouldStopBlockingWritersOnceQueueIsClosed() throws Exception {
+    List<Thread> writers =
+        startWriters(new QueuedSchemaKStream.QueuePopulator<>(queue, closed, Optional.empty()));
+
+    // The client reads a few rows and goes away without reading the rest
+    for (int i = 0; i < 3; i++) {
+      Assert.assertNotNull(queue.poll(10, TimeUnit.SECONDS));
+    }
+    closed.set(true);
+
+    assertFinished(writers);
+  }
+
+  @Test
+  public void shouldHandOverEveryRowWithoutLimit() throws Exception {
+    List<Thread> writers =
+        startWriters(new QueuedSchemaKStream.QueuePopulator<>(queue, closed, Optional.empty()));
+
+    for (int i = 0; i < THREADS * ROWS_PER_THREAD; i++) {
+      KeyValue<String, GenericRow> next = queue.poll(10, TimeUnit.SECONDS);
+      Assert.assertNotNull(next);
+      Assert.assertNotSame(QueuedQueryMetadata.END_OF_QUERY, next);
+    }
+    assertFinished(writers);
+  }
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+
+package io.confluent.ksql.structured;
+
+import io.confluent.ksql.GenericRow;
+import io.confluent.ksql.util.OperatorStats;
+import io.confluent.ksql.util.SchemaUtil;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class RowJoinerTest {
+
+  private final Schema leftSchema = SchemaBuilder.struct()
+      .field("COL0", Schema.INT64_SCHEMA)
+      .field("COL1", Schema.STRING_SCHEMA)
+      .build();
+
+  private final Schema rightSchema = SchemaBuilder.struct()
+      .field("COL0", Schema.INT64_SCHEMA)
+      .field("COL1", Schema.STRING_SCHEMA)
+      .field("COL2", Schema.FLOAT64_SCHEMA)
+      .build();
+
+  // Keeps only the right side's COL2
+  private final Schema joinSchema = SchemaBuilder.struct()
+      .field("L.COL0", Schema.INT64_SCHEMA)
+      .field("L.COL1", Schema.STRING_SCHEMA)
+      .field("R.COL2", Schema.FLOAT64_SCHEMA)
+      .build();
+
+  @Test
+  public void shouldCopyOnlyKeptRightColumns() {
+    RowJoiner joiner = RowJoiner.of(leftSchema, rightSchema, joinSchema, new OperatorStats());
+    GenericRow row = joiner.apply(new GenericRow(Arrays.asList(1L, "a")),
+                                  new GenericRow(Arrays.asList(2L, "b", 3.5)));
+    Assert.assertEquals(Arrays.asList(1L, "a", 3.5), row.getColumns());
+  }
+
+  @Test
+  public void shouldLeaveMissingSideNull() {
+    RowJoiner joiner = RowJoiner.of(leftSchema, rightSchema, joinSchema, new OperatorStats());
+    Assert.assertEquals(Arrays.asList(1L, "a", null),
+                        joiner.apply(new GenericRow(Arrays.asList(1L, "a")), null).getColumns());
+    Assert.assertEquals(Arrays.asList(null, null, 3.5),
+                        joiner.apply(null, new GenericRow(Arrays.asList(2L, "b", 3.5)))
+                            .getColumns());
+  }
+
+  @Test
+  public void shouldFillGlobalTableImplicitColumnsFromLookup() {
+    Schema globalTableSchema = SchemaBuilder.struct()
+        .field(SchemaUtil.ROWTIME_NAME, Schema.INT64_SCHEMA)
+        .field(SchemaUtil.ROWKEY_NAME, Schema.STRING_SCHEMA)
+        .field("COL0", Schema.INT64_SCHEMA)
+        .field("COL1", Schema.STRING_SCHEMA)
+        .build();
+    Schema globalJoinSchema = SchemaBuilder.struct()
+        .field("L.COL0", Schema.INT64_SCHEMA)
+        .field("L.COL1", Schema.STRING_SCHEMA)
+        .field("R." + SchemaUtil.ROWTIME_NAME, Schema.INT64_SCHEMA)
+        .field("R." + SchemaUtil.ROWKEY_NAME, Schema.STRING_SCHEMA)
+        .field("R.COL1", Schema.STRING_SCHEMA)
+        .build();
+    RowJoiner joiner = RowJoiner.forGlobalTable(leftSchema, globalTableSchema, globalJoinSchema,
+                                                new OperatorStats(), 0);
+    // The table's rows are stored without ROWTIME and ROWKEY
+    GenericRow row = joiner.apply(new GenericRow(Arrays.asList(7L, "a")),
+                                  new GenericRow(Arrays.asList(7L, "b")));
+    Assert.assertEquals(Arrays.asList(7L, "a", null, "7", "b"), row.getColumns());
+  }
+}
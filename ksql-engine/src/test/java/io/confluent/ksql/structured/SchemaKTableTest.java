@@ -16,6 +16,7 @@
 
 package io.confluent.ksql.structured;
 
+import io.confluent.ksql.GenericRow;
 import io.confluent.ksql.analyzer.AggregateAnalysis;
 import io.confluent.ksql.analyzer.AggregateAnalyzer;
 import io.confluent.ksql.analyzer.Analysis;
@@ -32,6 +33,7 @@ import io.confluent.ksql.planner.plan.FilterNode;
 import io.confluent.ksql.planner.plan.PlanNode;
 import io.confluent.ksql.planner.plan.ProjectNode;
 import io.confluent.ksql.util.MetaStoreFixture;
+import io.confluent.ksql.util.OperatorStats;
 import io.confluent.ksql.util.SerDeUtil;
 import org.apache.kafka.common.serialization.Serdes;
 import org.apache.kafka.connect.data.Schema;
@@ -42,7 +44,10 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 
 public class SchemaKTableTest {
 
@@ -194,4 +199,53 @@ public class SchemaKTableTest {
                       initialSchemaKTable);
   }
 
+  @Test
+  public void testStoreViewAppliesFilterAndSelect() throws Exception {
+    String selectQuery = "SELECT col0, col2, col3 FROM test1 WHERE col0 > 100;";
+    PlanNode logicalPlan = buildLogicalPlan(selectQuery);
+    ProjectNode projectNode = (ProjectNode) logicalPlan.getSources().get(0);
+    FilterNode filterNode = (FilterNode) projectNode.getSources().get(0);
+
+    initialSchemaKTable = new SchemaKTable(logicalPlan.getTheSourceNode().getSchema(),
+                                           kTable,
+                                           ksqlTable.getKeyField(), new ArrayList<>(),
+                                           false,
+                                           SchemaKStream.Type.SOURCE, new OperatorStats(),
+                                           Optional.of(new TableStoreView(
+                                               "store", TableStoreView.StoreType.KEY_VALUE)));
+    SchemaKTable projectedSchemaKTable = initialSchemaKTable.filter(filterNode.getPredicate())
+        .select(projectNode.getProjectNameExpressionPairList());
+
+    Assert.assertTrue(projectedSchemaKTable.getStoreView().isPresent());
+    TableStoreView storeView = projectedSchemaKTable.getStoreView().get();
+    Assert.assertEquals("store", storeView.getStoreName());
+    Assert.assertEquals(TableStoreView.StoreType.KEY_VALUE, storeView.getStoreType());
+    Assert.assertEquals(
+        Arrays.asList(150L, "c", 2.5),
+        storeView.toTableRow(storedRow(150L, "b", "c", 2.5)).getColumns());
+    Assert.assertNull(storeView.toTableRow(storedRow(50L, "b", "c", 2.5)));
+    // Reading through the view doesn't count as work done by the query
+    Assert.assertEquals(0, projectedSchemaKTable.getOperatorStats().getRowsIn());
+  }
+
+  @Test
+  public void testNoStoreViewWithoutOneUpstream() throws Exception {
+    String selectQuery = "SELECT col0, col2, col3 FROM test1 WHERE col0 > 100;";
+    PlanNode logicalPlan = buildLogicalPlan(selectQuery);
+    ProjectNode projectNode = (ProjectNode) logicalPlan.getSources().get(0);
+    initialSchemaKTable = new SchemaKTable(logicalPlan.getTheSourceNode().getSchema(),
+                                           kTable,
+                                           ksqlTable.getKeyField(), new ArrayList<>(),
+                                           false,
+                                           SchemaKStream.Type.SOURCE);
+    SchemaKTable projectedSchemaKTable = initialSchemaKTable
+        .select(projectNode.getProjectNameExpressionPairList());
+    Assert.assertFalse(projectedSchemaKTable.getStoreView().isPresent());
+  }
+
+  private static GenericRow storedRow(long col0, String col1, String col2, double col3) {
+    return new GenericRow(Arrays.asList(col0, col1, col2, col3,
+                                        Collections.emptyList(), Collections.emptyMap()));
+  }
+
 }
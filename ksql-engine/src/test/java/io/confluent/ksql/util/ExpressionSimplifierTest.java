@@ -0,0 +1,103 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+
+package io.confluent.ksql.util;
+
+import io.confluent.ksql.analyzer.Analysis;
+import io.confluent.ksql.analyzer.AnalysisContext;
+import io.confluent.ksql.analyzer.Analyzer;
+import io.confluent.ksql.metastore.MetaStore;
+import io.confluent.ksql.parser.KsqlParser;
+import io.confluent.ksql.parser.tree.Expression;
+import io.confluent.ksql.parser.tree.Statement;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+public class ExpressionSimplifierTest {
+
+  private static final KsqlParser KSQL_PARSER = new KsqlParser();
+  private MetaStore metaStore;
+
+  @Before
+  public void init() {
+    metaStore = MetaStoreFixture.getNewMetaStore();
+  }
+
+  private Analysis analyzeQuery(String queryStr) {
+    List<Statement> statements = KSQL_PARSER.buildAst(queryStr, metaStore);
+    Analysis analysis = new Analysis();
+    Analyzer analyzer = new Analyzer(analysis, metaStore);
+    analyzer.process(statements.get(0), new AnalysisContext(null));
+    return analysis;
+  }
+
+  private static void assertExpression(String expected, Expression actual) {
+    Assert.assertEquals(expected, actual.toString());
+  }
+
+  @Test
+  public void shouldFoldArithmeticOnLiterals() {
+    Analysis analysis = analyzeQuery(
+        "SELECT col0 * (60 * 1000), col3 + (1 + 0.5), -(2 - 5), 7 / 2, 7 / 0 FROM test1;");
+    List<Expression> selectExpressions = analysis.getSelectExpressions();
+    assertExpression("(TEST1.COL0 * 60000)", selectExpressions.get(0));
+    assertExpression("(TEST1.COL3 + 1.5)", selectExpressions.get(1));
+    assertExpression("3", selectExpressions.get(2));
+    assertExpression("3", selectExpressions.get(3));
+    // Left to fail at runtime as it would have
+    assertExpression("(7 / 0)", selectExpressions.get(4));
+  }
+
+  @Test
+  public void shouldFoldCastsOfLiterals() {
+    Analysis analysis = analyzeQuery(
+        "SELECT CAST('10' AS BIGINT), CAST(2 AS DOUBLE), CAST(col0 AS BIGINT), "
+        + "CAST(col1 AS STRING), CAST('x' AS BIGINT) FROM test1;");
+    List<Expression> selectExpressions = analysis.getSelectExpressions();
+    assertExpression("10", selectExpressions.get(0));
+    assertExpression("2.0", selectExpressions.get(1));
+    assertExpression("TEST1.COL0", selectExpressions.get(2));
+    assertExpression("CAST(TEST1.COL1 AS STRING)", selectExpressions.get(3));
+    assertExpression("CAST('x' AS BIGINT)", selectExpressions.get(4));
+  }
+
+  @Test
+  public void shouldDropRedundantLogicalOperands() {
+    Analysis analysis = analyzeQuery(
+        "SELECT col0 FROM test1 WHERE TRUE AND col0 > 10 AND NOT (1 > 2);");
+    assertExpression("(TEST1.COL0 > 10)", analysis.getWhereExpression());
+  }
+
+  @Test
+  public void shouldDropAlwaysTrueFilter() {
+    Analysis analysis = analyzeQuery("SELECT col0 FROM test1 WHERE col0 > 10 OR 1 < 2;");
+    Assert.assertNull(analysis.getWhereExpression());
+  }
+
+  @Test
+  public void shouldFoldOnlyDeterministicFunctions() {
+    Analysis analysis = analyzeQuery("SELECT UCASE('a'), ABS(-2.5) + col0, RANDOM(), LEN('abc') FROM test1;");
+    List<Expression> selectExpressions = analysis.getSelectExpressions();
+    assertExpression("'A'", selectExpressions.get(0));
+    assertExpression("(2.5 + TEST1.COL0)", selectExpressions.get(1));
+    assertExpression("RANDOM()", selectExpressions.get(2));
+    // There is no INTEGER literal to stand for the result
+    assertExpression("LEN('abc')", selectExpressions.get(3));
+  }
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+
+package io.confluent.ksql.util;
+
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.clients.admin.TopicPartitionInfo;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.utils.MockTime;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class KafkaTopicClientImplTest {
+
+  private static final long TTL_MS = 1000;
+
+  private final MockTime time = new MockTime();
+  private final Set<String> brokerTopics = new HashSet<>(Arrays.asList("a", "b"));
+  private final List<Collection<String>> describeRequests = new ArrayList<>();
+  private int listRequests;
+
+  private final KafkaTopicClientImpl topicClient =
+      new KafkaTopicClientImpl(Collections.emptyMap(), TTL_MS, time) {
+        @Override
+        protected Collection<String> listTopicNamesFromBrokers() {
+          listRequests++;
+          return new HashSet<>(brokerTopics);
+        }
+
+        @Override
+        protected Map<String, TopicDescription> fetchTopicDescriptions(
+            Collection<String> topicNames) {
+          describeRequests.add(new HashSet<>(topicNames));
+          Map<String, TopicDescription> descriptions = new HashMap<>();
+          for (String topicName : topicNames) {
+            descriptions.put(topicName, describe(topicName));
+          }
+          return descriptions;
+        }
+      };
+
+  private static TopicDescription describe(String topicName) {
+    Node node = new Node(0, "localhost", 9092);
+    return new TopicDescription(topicName, false, Collections.singletonList(
+        new TopicPartitionInfo(0, node, Collections.singletonList(node),
+                               Collections.singletonList(node))));
+  }
+
+  @Test
+  public void shouldListTopicsFromCacheUntilTtlPasses() {
+    Assert.assertEquals(brokerTopics, topicClient.listTopicNames());
+    brokerTopics.add("c");
+    time.sleep(TTL_MS - 1);
+    Assert.assertEquals(new HashSet<>(Arrays.asList("a", "b")), topicClient.listTopicNames());
+    Assert.assertTrue(topicClient.isTopicExists("a"));
+    Assert.assertEquals(1, listRequests);
+
+    time.sleep(1);
+    Assert.assertEquals(brokerTopics, topicClient.listTopicNames());
+    Assert.assertEquals(2, listRequests);
+  }
+
+  @Test
+  public void shouldLookUpUnknownTopicsEvenWithinTtl() {
+    Assert.assertFalse(topicClient.isTopicExists("c"));
+    brokerTopics.add("c");
+    Assert.assertTrue(topicClient.isTopicExists("c"));
+    Assert.assertEquals(2, listRequests);
+  }
+
+  @Test
+  public void shouldDescribeOnlyTopicsNotInCache() {
+    topicClient.describeTopics(Collections.singletonList("a"));
+    Map<String, TopicDescription> descriptions =
+        topicClient.describeTopics(Arrays.asList("a", "b"));
+
+    Assert.assertEquals(new HashSet<>(Arrays.asList("a", "b")), descriptions.keySet());
+    Assert.assertEquals(
+        Arrays.asList(Collections.singleton("a"), Collections.singleton("b")), describeRequests);
+
+    topicClient.describeTopics(Arrays.asList("a", "b"));
+    Assert.assertEquals(2, describeRequests.size());
+  }
+
+  @Test
+  public void shouldDescribeTopicsAgainOnceTtlPasses() {
+    topicClient.describeTopics(Arrays.asList("a", "b"));
+    time.sleep(TTL_MS);
+    topicClient.describeTopics(Collections.singletonList("a"));
+
+    Assert.assertEquals(
+        Arrays.asList(new HashSet<>(Arrays.asList("a", "b")), Collections.singleton("a")),
+        describeRequests);
+  }
+
+  @Test
+  public void shouldDropDescriptionsOfTopicsNoLongerListed() {
+    topicClient.listTopicNames();
+    time.sleep(TTL_MS / 2);
+    topicClient.describeTopics(Collections.singletonList("a"));
+    brokerTopics.remove("a");
+    time.sleep(TTL_MS / 2);
+    topicClient.listTopicNames();
+    topicClient.describeTopics(Collections.singletonList("a"));
+
+    Assert.assertEquals(2, describeRequests.size());
+  }
+}
@@ -0,0 +1,71 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+
+
+package io.confluent.ksql.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+  @Test
+  public void testEveryValueFallsInABucketThatCoversIt() {
+    for (long value = 0; value < 1 << 16; value++) {
+      int index = LatencyHistogram.bucketIndex(value);
+      Assert.assertTrue(LatencyHistogram.highestValueInBucket(index) >= value);
+      if (index > 0) {
+        Assert.assertTrue(LatencyHistogram.highestValueInBucket(index - 1) < value);
+      }
+    }
+    int last = LatencyHistogram.bucketIndex(LatencyHistogram.MAX_VALUE);
+    Assert.assertEquals(LatencyHistogram.MAX_VALUE, LatencyHistogram.highestValueInBucket(last));
+  }
+
+  @Test
+  public void testPercentilesAreWithinBucketPrecision() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (long value = 1; value <= 10000; value++) {
+      histogram.record(value);
+    }
+
+    Assert.assertEquals(10000, histogram.getCount());
+    Assert.assertEquals(10000, histogram.getMax());
+    assertWithinPrecision(5000, histogram.getValueAtPercentile(50));
+    assertWithinPrecision(9900, histogram.getValueAtPercentile(99));
+    assertWithinPrecision(9990, histogram.getValueAtPercentile(99.9));
+    Assert.assertEquals(10000, histogram.getValueAtPercentile(100));
+  }
+
+  @Test
+  public void testSmallValuesAreExactAndOutOfRangeValuesAreClamped() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    Assert.assertEquals(0, histogram.getValueAtPercentile(50));
+
+    histogram.record(-5);
+    histogram.record(7);
+    histogram.record(Long.MAX_VALUE);
+
+    Assert.assertEquals(0, histogram.getValueAtPercentile(10));
+    Assert.assertEquals(7, histogram.getValueAtPercentile(50));
+    Assert.assertEquals(LatencyHistogram.MAX_VALUE, histogram.getMax());
+  }
+
+  private static void assertWithinPrecision(long expected, long actual) {
+    Assert.assertTrue(actual + " is below " + expected, actual >= expected);
+    Assert.assertTrue(actual + " is too far above " + expected, actual <= expected * 1.04);
+  }
+}
@@ -0,0 +1,125 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+
+package io.confluent.ksql.util;
+
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+public class QueryMetricsTest {
+
+  private final Map<MetricName, Metric> metrics = new HashMap<>();
+
+  private void addMetric(String group, String name, String clientId, double value) {
+    MetricName metricName =
+        new MetricName(name, group, "", Collections.singletonMap("client-id", clientId));
+    metrics.put(metricName, new Metric() {
+      @Override
+      public MetricName metricName() {
+        return metricName;
+      }
+
+      @Override
+      public double value() {
+        return value;
+      }
+    });
+  }
+
+  private QueryMetrics collect() {
+    addMetric("stream-metrics", "process-latency-avg", "query_1-StreamThread-1", 2.0);
+    addMetric("stream-metrics", "process-latency-avg", "query_1-StreamThread-2", 4.0);
+    addMetric("stream-metrics", "process-latency-max", "query_1-StreamThread-1", 50.0);
+    addMetric("consumer-fetch-manager-metrics", "records-consumed-rate",
+              "query_1-StreamThread-1-consumer", 10.0);
+    addMetric("consumer-fetch-manager-metrics", "records-consumed-rate",
+              "query_1-StreamThread-2-consumer", 5.0);
+    addMetric("consumer-fetch-manager-metrics", "records-consumed-rate",
+              "query_1-StreamThread-1-restore-consumer", 100.0);
+    addMetric("consumer-fetch-manager-metrics", "pageviews-0.records-lag",
+              "query_1-StreamThread-1-consumer", 7.0);
+    addMetric("consumer-fetch-manager-metrics", "pageviews-1.records-lag",
+              "query_1-StreamThread-2-consumer", 3.0);
+    addMetric("consumer-fetch-manager-metrics", "pageviews-2.records-lag",
+              "query_1-StreamThread-2-consumer", Double.NaN);
+    addMetric("consumer-fetch-manager-metrics", "query_1-store-changelog-0.records-lag",
+              "query_1-StreamThread-1-restore-consumer", 40.0);
+    addMetric("producer-metrics", "record-send-rate", "query_1-StreamThread-1-producer", 6.0);
+    return QueryMetrics.collect(metrics, "RUNNING", 25L);
+  }
+
+  @Test
+  public void shouldAggregateMetricsOfAllClientsOfTheQuery() {
+    QueryMetrics queryMetrics = collect();
+
+    Assert.assertEquals("RUNNING", queryMetrics.getState());
+    Assert.assertEquals(15.0, queryMetrics.getMessagesInPerSec(), 0);
+    Assert.assertEquals(6.0, queryMetrics.getMessagesOutPerSec(), 0);
+    Assert.assertEquals(3.0, queryMetrics.getProcessLatencyAvgMs(), 0);
+    Map<String, Long> expectedLag = new HashMap<>();
+    expectedLag.put("pageviews-0", 7L);
+    expectedLag.put("pageviews-1", 3L);
+    Assert.assertEquals(expectedLag, queryMetrics.getConsumerLag());
+    Assert.assertEquals(10, queryMetrics.getTotalLag());
+    Assert.assertEquals(40, queryMetrics.getRestoreRemaining());
+    Assert.assertEquals(Long.valueOf(25), queryMetrics.getStateStoreEntries());
+  }
+
+  @Test
+  public void shouldReportZeroesWithoutMetrics() {
+    QueryMetrics queryMetrics = QueryMetrics.collect(metrics, "CREATED", null);
+
+    Assert.assertEquals(0.0, queryMetrics.getMessagesInPerSec(), 0);
+    Assert.assertEquals(0.0, queryMetrics.getProcessLatencyAvgMs(), 0);
+    Assert.assertEquals(0, queryMetrics.getTotalLag());
+    Assert.assertNull(queryMetrics.getStateStoreEntries());
+  }
+
+  @Test
+  public void shouldPublishSnapshotsAsMBeanAttributes() throws Exception {
+    QueryMetrics queryMetrics = collect();
+    long queryId = 4242;
+    PersistentQueryMetrics.register(queryId, new PersistentQueryMetrics(
+        "CREATE STREAM S AS SELECT * FROM PAGEVIEWS;", () -> "RUNNING", () -> queryMetrics));
+
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = new ObjectName(
+        MBeanRegistrar.DOMAIN + ":" + PersistentQueryMetrics.objectProperties(queryId));
+    try {
+      Assert.assertEquals("CREATE STREAM S AS SELECT * FROM PAGEVIEWS;",
+                          server.getAttribute(name, "StatementString"));
+      Assert.assertEquals("RUNNING", server.getAttribute(name, "State"));
+      Assert.assertEquals(15.0, server.getAttribute(name, "MessagesInPerSec"));
+      Assert.assertEquals(6.0, server.getAttribute(name, "MessagesOutPerSec"));
+      Assert.assertEquals(3.0, server.getAttribute(name, "ProcessLatencyAvgMs"));
+      Assert.assertEquals(10L, server.getAttribute(name, "TotalLag"));
+      Assert.assertEquals(40L, server.getAttribute(name, "RestoreRemaining"));
+      Assert.assertEquals(25L, server.getAttribute(name, "StateStoreEntries"));
+    } finally {
+      PersistentQueryMetrics.unregister(queryId);
+    }
+    Assert.assertFalse(server.isRegistered(name));
+  }
+}
@@ -0,0 +1,120 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+
+package io.confluent.ksql.util;
+
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.streams.KafkaClientSupplier;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SharedProducerPoolTest {
+
+  private final List<MockProducer<byte[], byte[]>> created = new ArrayList<>();
+  private final List<Map<String, Object>> createdConfigs = new ArrayList<>();
+  private final AtomicInteger closes = new AtomicInteger();
+  private final SharedProducerPool pool = new SharedProducerPool(2, config -> {
+    MockProducer<byte[], byte[]> producer = new MockProducer<byte[], byte[]>(
+        false, new ByteArraySerializer(), new ByteArraySerializer()) {
+      @Override
+      public void close() {
+        closes.incrementAndGet();
+        super.close();
+      }
+    };
+    created.add(producer);
+    createdConfigs.add(config);
+    return producer;
+  });
+
+  private static Map<String, Object> config(String clientId, String acks) {
+    Map<String, Object> config = new HashMap<>();
+    config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:9092");
+    config.put(ProducerConfig.CLIENT_ID_CONFIG, clientId);
+    config.put(ProducerConfig.ACKS_CONFIG, acks);
+    return config;
+  }
+
+  private Producer<byte[], byte[]> producerFor(long queryId, String clientId, String acks) {
+    KafkaClientSupplier clientSupplier = pool.clientSupplierFor(queryId);
+    return clientSupplier.getProducer(config(clientId, acks));
+  }
+
+  @Test
+  public void shouldShareProducersBetweenThreadsWithSameConfig() {
+    producerFor(1, "query1-thread1", "1");
+    producerFor(1, "query1-thread2", "1");
+    producerFor(3, "query3-thread1", "1");
+    Assert.assertEquals(1, pool.getProducerCount());
+
+    producerFor(2, "query2-thread1", "1");
+    Assert.assertEquals(2, pool.getProducerCount());
+  }
+
+  @Test
+  public void shouldNotShareProducersBetweenDifferentConfigs() {
+    producerFor(1, "query1-thread1", "1");
+    producerFor(3, "query3-thread1", "all");
+    Assert.assertEquals(2, pool.getProducerCount());
+    Assert.assertEquals("1", createdConfigs.get(0).get(ProducerConfig.ACKS_CONFIG));
+    Assert.assertEquals("all", createdConfigs.get(1).get(ProducerConfig.ACKS_CONFIG));
+    Assert.assertNotEquals(createdConfigs.get(0).get(ProducerConfig.CLIENT_ID_CONFIG),
+                           createdConfigs.get(1).get(ProducerConfig.CLIENT_ID_CONFIG));
+  }
+
+  @Test
+  public void shouldOnlyWaitForOwnRecordsOnFlush() throws Exception {
+    Producer<byte[], byte[]> first = producerFor(1, "query1-thread1", "1");
+    Producer<byte[], byte[]> second = producerFor(3, "query3-thread1", "1");
+    Assert.assertEquals(1, created.size());
+    MockProducer<byte[], byte[]> shared = created.get(0);
+
+    Future<RecordMetadata> firstSend = first.send(new ProducerRecord<>("topic", new byte[0]));
+    Future<RecordMetadata> secondSend = second.send(new ProducerRecord<>("topic", new byte[0]));
+
+    Thread flush = new Thread(first::flush);
+    flush.start();
+    flush.join(200);
+    Assert.assertTrue("Flush returned before the query's record was sent", flush.isAlive());
+
+    Assert.assertTrue(shared.completeNext());
+    flush.join(TimeUnit.SECONDS.toMillis(10));
+    Assert.assertFalse(flush.isAlive());
+    Assert.assertTrue(firstSend.isDone());
+    Assert.assertFalse("Another query's record was flushed", secondSend.isDone());
+  }
+
+  @Test
+  public void shouldLeaveSharedProducerOpenWhenQueryClosesIt() {
+    producerFor(1, "query1-thread1", "1").close();
+    Assert.assertEquals(0, closes.get());
+    pool.close();
+    Assert.assertEquals(1, closes.get());
+  }
+}
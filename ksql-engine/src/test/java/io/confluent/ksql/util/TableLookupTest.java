@@ -0,0 +1,128 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+
+package io.confluent.ksql.util;
+
+import io.confluent.ksql.metastore.KsqlTable;
+import io.confluent.ksql.metastore.KsqlTopic;
+import io.confluent.ksql.metastore.MetaStore;
+import io.confluent.ksql.parser.KsqlParser;
+import io.confluent.ksql.parser.tree.Query;
+import io.confluent.ksql.planner.plan.KsqlStructuredDataOutputNode;
+import io.confluent.ksql.planner.plan.PlanNodeId;
+import io.confluent.ksql.planner.plan.StructuredDataSourceNode;
+import io.confluent.ksql.serde.DataSource;
+import io.confluent.ksql.serde.json.KsqlJsonTopicSerDe;
+import io.confluent.ksql.structured.SchemaKStream;
+import io.confluent.ksql.structured.SchemaKTable;
+import io.confluent.ksql.structured.TableStoreView;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Optional;
+
+public class TableLookupTest {
+
+  private static final KsqlParser KSQL_PARSER = new KsqlParser();
+  private static final TableStoreView STORE_VIEW =
+      new TableStoreView("store", TableStoreView.StoreType.KEY_VALUE);
+
+  private MetaStore metaStore;
+  private KsqlTable table;
+  private Schema resultSchema;
+
+  @Before
+  public void init() {
+    metaStore = MetaStoreFixture.getNewMetaStore();
+    Schema schema = SchemaBuilder.struct()
+        .field("COL0", SchemaBuilder.INT64_SCHEMA)
+        .field("COL1", SchemaBuilder.STRING_SCHEMA)
+        .build();
+    KsqlTopic ksqlTopic = new KsqlTopic("LOOKUP", "lookup", new KsqlJsonTopicSerDe(null));
+    table = (KsqlTable) new KsqlTable("LOOKUP", schema, schema.field("COL0"), null, ksqlTopic,
+                                      "LOOKUP_statestore", false).cloneWithTimeKeyColumns();
+    metaStore.putTopic(ksqlTopic);
+    metaStore.putSource(table);
+    resultSchema = SchemaUtil.addImplicitRowTimeRowKeyToSchema(schema);
+  }
+
+  private Collection<PersistentQueryMetadata> queries(Optional<TableStoreView> tableStoreView) {
+    StructuredDataSourceNode sourceNode = new StructuredDataSourceNode(
+        new PlanNodeId("KsqlTopic"), table.getSchema(), table.getKeyField(), null, "lookup",
+        "LOOKUP", DataSource.DataSourceType.KTABLE, table);
+    KsqlStructuredDataOutputNode outputNode = new KsqlStructuredDataOutputNode(
+        new PlanNodeId("LOOKUP"), sourceNode, resultSchema, null, table.getKeyField(),
+        table.getKsqlTopic(), "lookup", Collections.emptyMap(), Optional.empty());
+    SchemaKTable physicalPlan = new SchemaKTable(resultSchema, null, table.getKeyField(),
+                                                 Collections.emptyList(), false,
+                                                 SchemaKStream.Type.SINK);
+    return Collections.singletonList(new PersistentQueryMetadata(
+        "CREATE TABLE LOOKUP AS SELECT * FROM TEST2;", null, outputNode, physicalPlan, 1,
+        DataSource.DataSourceType.KTABLE, resultSchema, Optional.empty(), tableStoreView));
+  }
+
+  private Optional<TableLookup> build(String queryStr, Optional<TableStoreView> tableStoreView) {
+    Query query = (Query) KSQL_PARSER.buildAst(queryStr, metaStore).get(0);
+    return TableLookup.build(query, metaStore, queries(tableStoreView));
+  }
+
+  @Test
+  public void shouldBuildLookupForKeyEquality() {
+    Optional<TableLookup> tableLookup =
+        build("SELECT col1, col0 FROM lookup WHERE ROWKEY = 'k1';", Optional.of(STORE_VIEW));
+    Assert.assertTrue(tableLookup.isPresent());
+    Assert.assertEquals("LOOKUP", tableLookup.get().getTableName());
+    Assert.assertEquals("k1", tableLookup.get().getKey());
+    Assert.assertEquals(Arrays.asList("COL1", "COL0"), tableLookup.get().getSelectFieldNames());
+  }
+
+  @Test
+  public void shouldExpandSelectAllToKeyAndColumns() {
+    Optional<TableLookup> tableLookup =
+        build("SELECT * FROM lookup WHERE ROWKEY = 10;", Optional.of(STORE_VIEW));
+    Assert.assertTrue(tableLookup.isPresent());
+    Assert.assertEquals("10", tableLookup.get().getKey());
+    Assert.assertEquals(Arrays.asList("ROWKEY", "ROWTIME", "COL0", "COL1"),
+                        tableLookup.get().getSelectFieldNames());
+  }
+
+  @Test
+  public void shouldNotBuildLookupWithoutKeyEquality() {
+    Assert.assertFalse(
+        build("SELECT col0 FROM lookup WHERE col0 = 10;", Optional.of(STORE_VIEW)).isPresent());
+    Assert.assertFalse(
+        build("SELECT col0 FROM lookup WHERE ROWKEY = 'k1' OR ROWKEY = 'k2';",
+              Optional.of(STORE_VIEW)).isPresent());
+  }
+
+  @Test
+  public void shouldNotBuildLookupForTableWithoutStoreView() {
+    Assert.assertFalse(
+        build("SELECT col0 FROM lookup WHERE ROWKEY = 'k1';", Optional.empty()).isPresent());
+  }
+
+  @Test(expected = KsqlException.class)
+  public void shouldRejectWindowStartOnTableThatIsNotWindowed() {
+    build("SELECT col0 FROM lookup WHERE ROWKEY = 'k1' AND WINDOWSTART > 10;",
+          Optional.of(STORE_VIEW));
+  }
+}
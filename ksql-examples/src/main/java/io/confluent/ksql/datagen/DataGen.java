@@ -77,8 +77,25 @@ public class DataGen {
     props.put("bootstrap.servers", arguments.bootstrapServer);
     props.put("client.id", "KSQLDataGenProducer");
 
-    dataProducer.populateTopic(props, generator, arguments.topicName, arguments.keyName,
-                               arguments.iterations, arguments.maxInterval);
+    if (arguments.threads > 0 || arguments.rate > 0) {
+      LoadGenerator loadGenerator = new LoadGenerator(
+          props,
+          dataProducer.generatePayloadPool(generator, arguments.topicName, arguments.keyName,
+                                           arguments.pool, arguments.keys),
+          Math.max(1, arguments.threads),
+          arguments.iterations,
+          arguments.rate,
+          arguments.skew
+      );
+      try {
+        loadGenerator.run();
+      } catch (InterruptedException exception) {
+        Thread.currentThread().interrupt();
+      }
+    } else {
+      dataProducer.populateTopic(props, generator, arguments.topicName, arguments.keyName,
+                                 arguments.iterations, arguments.maxInterval);
+    }
   }
 
   private static void usage() {
@@ -93,7 +110,15 @@ public class DataGen {
             + "topic=<kafka topic name> "
             + "key=<name of key column> "
             + "[iterations=<number of rows> (defaults to 1,000,000)] "
-            + "[maxInterval=<Max time in ms between rows> (defaults to 500)]"
+            + "[maxInterval=<Max time in ms between rows> (defaults to 500)] "
+            + "[threads=<number of producer threads>] "
+            + "[rate=<target rows per second over all threads> (defaults to unthrottled)] "
+            + "[pool=<number of pre-generated rows replayed by threads/rate> "
+            + "(defaults to 10,000)] "
+            + "[keys=<number of distinct keys used by threads/rate> "
+            + "(defaults to the generated keys)] "
+            + "[skew=<Zipf exponent of the distribution over the keys> (needs keys; defaults to 0, "
+            + "uniform)]"
     );
   }
 
@@ -113,6 +138,11 @@ public class DataGen {
     public final String keyName;
     public final int iterations;
     public final long maxInterval;
+    public final int threads;
+    public final int rate;
+    public final int pool;
+    public final int keys;
+    public final double skew;
 
     public Arguments(
         boolean help,
@@ -122,7 +152,12 @@ public class DataGen {
         String topicName,
         String keyName,
         int iterations,
-        long maxInterval
+        long maxInterval,
+        int threads,
+        int rate,
+        int pool,
+        int keys,
+        double skew
     ) {
       this.help = help;
       this.bootstrapServer = bootstrapServer;
@@ -132,6 +167,11 @@ public class DataGen {
       this.keyName = keyName;
       this.iterations = iterations;
       this.maxInterval = maxInterval;
+      this.threads = threads;
+      this.rate = rate;
+      this.pool = pool;
+      this.keys = keys;
+      this.skew = skew;
     }
 
     public static class ArgumentParseException extends RuntimeException {
@@ -151,6 +191,11 @@ public class DataGen {
       private String keyName;
       private int iterations;
       private long maxInterval;
+      private int threads;
+      private int rate;
+      private int pool;
+      private int keys;
+      private double skew;
 
       public Builder() {
         quickstart = null;
@@ -162,6 +207,11 @@ public class DataGen {
         keyName = null;
         iterations = 1000000;
         maxInterval = -1;
+        threads = 0;
+        rate = 0;
+        pool = 10000;
+        keys = 0;
+        skew = 0;
       }
 
       private enum Quickstart {
@@ -203,7 +253,7 @@ public class DataGen {
 
       public Arguments build() {
         if (help) {
-          return new Arguments(true, null, null, null, null, null, 0, -1);
+          return new Arguments(true, null, null, null, null, null, 0, -1, 0, 0, 0, 0, 0);
         }
 
         if (quickstart != null) {
@@ -221,8 +271,13 @@ public class DataGen {
         } catch (NullPointerException exception) {
           throw new ArgumentParseException(exception.getMessage());
         }
+        if (skew > 0 && keys <= 0) {
+          throw new ArgumentParseException(
+              "Key skew needs a number of distinct keys; set keys=<number of distinct keys>"
+          );
+        }
         return new Arguments(help, bootstrapServer, schemaFile, format, topicName, keyName,
-                             iterations, maxInterval);
+                             iterations, maxInterval, threads, rate, pool, keys, skew);
       }
 
       public Builder parseArgs(String[] args) throws IOException {
@@ -298,6 +353,21 @@ public class DataGen {
           case "maxInterval":
             maxInterval = parseIterations(argValue);
             break;
+          case "threads":
+            threads = parsePositiveInt(argName, argValue);
+            break;
+          case "rate":
+            rate = parsePositiveInt(argName, argValue);
+            break;
+          case "pool":
+            pool = parsePositiveInt(argName, argValue);
+            break;
+          case "keys":
+            keys = parsePositiveInt(argName, argValue);
+            break;
+          case "skew":
+            skew = parseSkew(argValue);
+            break;
           default:
             throw new ArgumentParseException(String.format(
                 "Unknown argument name in '%s'",
@@ -336,6 +406,44 @@ public class DataGen {
         }
       }
 
+      private int parsePositiveInt(String argName, String intString) {
+        try {
+          int result = Integer.valueOf(intString, 10);
+          if (result <= 0) {
+            throw new ArgumentParseException(String.format(
+                "Invalid %s in '%d'; must be a positive number",
+                argName,
+                result
+            ));
+          }
+          return result;
+        } catch (NumberFormatException exception) {
+          throw new ArgumentParseException(String.format(
+              "Invalid %s in '%s'; must be a valid base 10 integer",
+              argName,
+              intString
+          ));
+        }
+      }
+
+      private double parseSkew(String skewString) {
+        try {
+          double result = Double.parseDouble(skewString);
+          if (result < 0) {
+            throw new ArgumentParseException(String.format(
+                "Invalid skew in '%s'; must not be negative",
+                skewString
+            ));
+          }
+          return result;
+        } catch (NumberFormatException exception) {
+          throw new ArgumentParseException(String.format(
+              "Invalid skew in '%s'; must be a valid decimal number",
+              skewString
+          ));
+        }
+      }
+
       private long parseMaxInterval(String maxIntervalString) {
         try {
           long result = Long.valueOf(maxIntervalString, 10);
@@ -58,57 +58,8 @@ public abstract class DataGenProducer {
     SessionManager sessionManager = new SessionManager();
 
     for (int i = 0; i < messageCount; i++) {
-      Object generatedObject = generator.generate();
-
-      if (!(generatedObject instanceof GenericRecord)) {
-        throw new RuntimeException(String.format(
-            "Expected Avro Random Generator to return instance of GenericRecord, found %s instead",
-            generatedObject.getClass().getName()
-        ));
-      }
-      GenericRecord randomAvroMessage = (GenericRecord) generatedObject;
-
-      List<Object> genericRowValues = new ArrayList<>();
-
-      SimpleDateFormat timeformatter = null;
-
-      /**
-       * Populate the record entries
-       */
-      String sessionisationValue = null;
-      for (Schema.Field field : avroSchema.getFields()) {
-
-        boolean isSession = field.schema().getProp("session") != null;
-        boolean isSessionSiblingIntHash = field.schema().getProp("session-sibling-int-hash") != null;
-        String timeFormatFromLong = field.schema().getProp("format_as_time");
-
-        if (isSession) {
-          String currentValue = (String) randomAvroMessage.get(field.name());
-          String newCurrentValue = handleSessionisationOfValue(sessionManager, currentValue);
-          sessionisationValue = newCurrentValue;
-
-          genericRowValues.add(newCurrentValue);
-        } else if (isSessionSiblingIntHash && sessionisationValue != null) {
-
-          // super cheeky hack to link int-ids to session-values - if anything fails then we use the 'avro-gen' randomised version
-          handleSessionSiblingField(randomAvroMessage, genericRowValues, sessionisationValue, field);
-
-        } else if (timeFormatFromLong != null) {
-          Date date = new Date(System.currentTimeMillis());
-          if (timeFormatFromLong.equals("unix_long")) {
-            genericRowValues.add(date.getTime());
-          } else {
-            if (timeformatter == null) {
-              timeformatter = new SimpleDateFormat(timeFormatFromLong);
-            }
-            genericRowValues.add(timeformatter.format(date));
-          }
-        } else {
-          genericRowValues.add(randomAvroMessage.get(field.name()));
-        }
-      }
-
-      GenericRow genericRow = new GenericRow(genericRowValues);
+      GenericRecord randomAvroMessage = generateRecord(generator);
+      GenericRow genericRow = buildRow(randomAvroMessage, avroSchema, sessionManager);
 
       String keyString = randomAvroMessage.get(key).toString();
 
@@ -125,6 +76,130 @@ public abstract class DataGenProducer {
     producer.close();
   }
 
+  /**
+   * Pre-generates {@code poolSize} records, already serialized, so they can be replayed at a high
+   * rate without generating or encoding anything per message.
+   *
+   * @param keyCardinality If positive, the key column of every record is replaced with one of this
+   *                       many values, and the records are grouped by it: the returned list has
+   *                       one list of records per key. Otherwise the generated keys are kept and
+   *                       all records are in a single group.
+   */
+  public List<List<ProducerRecord<String, byte[]>>> generatePayloadPool(
+      Generator generator,
+      String kafkaTopicName,
+      String key,
+      int poolSize,
+      int keyCardinality
+  ) {
+    Schema avroSchema = generator.schema();
+    org.apache.kafka.connect.data.Schema kafkaSchema = new AvroData(1).toConnectSchema(avroSchema);
+    Serializer<GenericRow> serializer = getSerializer(avroSchema, kafkaSchema, kafkaTopicName);
+    Schema.Field keyField = avroSchema.getField(key);
+    if (keyField == null) {
+      throw new IllegalArgumentException("No key column named " + key + " in the schema");
+    }
+
+    int groups = Math.max(1, keyCardinality);
+    List<List<ProducerRecord<String, byte[]>>> pool = new ArrayList<>(groups);
+    for (int i = 0; i < groups; i++) {
+      pool.add(new ArrayList<>());
+    }
+
+    SessionManager sessionManager = new SessionManager();
+    for (int i = 0; i < Math.max(poolSize, groups); i++) {
+      GenericRecord randomAvroMessage = generateRecord(generator);
+      GenericRow genericRow = buildRow(randomAvroMessage, avroSchema, sessionManager);
+      int group = i % groups;
+      Object keyValue = randomAvroMessage.get(key);
+      if (keyCardinality > 0) {
+        keyValue = keyValue(keyField, group);
+        genericRow.getColumns().set(keyField.pos(), keyValue);
+      }
+      pool.get(group).add(new ProducerRecord<>(
+          kafkaTopicName,
+          keyValue.toString(),
+          serializer.serialize(kafkaTopicName, genericRow)
+      ));
+    }
+    return pool;
+  }
+
+  private static Object keyValue(Schema.Field keyField, int keyIndex) {
+    switch (keyField.schema().getType()) {
+      case INT:
+        return keyIndex;
+      case LONG:
+        return (long) keyIndex;
+      case STRING:
+        return keyField.name() + "_" + keyIndex;
+      default:
+        throw new IllegalArgumentException(String.format(
+            "Key column %s is a %s; a key cardinality can only be set for int, long or string keys",
+            keyField.name(), keyField.schema().getType()));
+    }
+  }
+
+  private GenericRecord generateRecord(Generator generator) {
+    Object generatedObject = generator.generate();
+
+    if (!(generatedObject instanceof GenericRecord)) {
+      throw new RuntimeException(String.format(
+          "Expected Avro Random Generator to return instance of GenericRecord, found %s instead",
+          generatedObject.getClass().getName()
+      ));
+    }
+    return (GenericRecord) generatedObject;
+  }
+
+  private GenericRow buildRow(
+      GenericRecord randomAvroMessage,
+      Schema avroSchema,
+      SessionManager sessionManager
+  ) {
+    List<Object> genericRowValues = new ArrayList<>();
+
+    SimpleDateFormat timeformatter = null;
+
+    /**
+     * Populate the record entries
+     */
+    String sessionisationValue = null;
+    for (Schema.Field field : avroSchema.getFields()) {
+
+      boolean isSession = field.schema().getProp("session") != null;
+      boolean isSessionSiblingIntHash = field.schema().getProp("session-sibling-int-hash") != null;
+      String timeFormatFromLong = field.schema().getProp("format_as_time");
+
+      if (isSession) {
+        String currentValue = (String) randomAvroMessage.get(field.name());
+        String newCurrentValue = handleSessionisationOfValue(sessionManager, currentValue);
+        sessionisationValue = newCurrentValue;
+
+        genericRowValues.add(newCurrentValue);
+      } else if (isSessionSiblingIntHash && sessionisationValue != null) {
+
+        // super cheeky hack to link int-ids to session-values - if anything fails then we use the 'avro-gen' randomised version
+        handleSessionSiblingField(randomAvroMessage, genericRowValues, sessionisationValue, field);
+
+      } else if (timeFormatFromLong != null) {
+        Date date = new Date(System.currentTimeMillis());
+        if (timeFormatFromLong.equals("unix_long")) {
+          genericRowValues.add(date.getTime());
+        } else {
+          if (timeformatter == null) {
+            timeformatter = new SimpleDateFormat(timeFormatFromLong);
+          }
+          genericRowValues.add(timeformatter.format(date));
+        }
+      } else {
+        genericRowValues.add(randomAvroMessage.get(field.name()));
+      }
+    }
+
+    return new GenericRow(genericRowValues);
+  }
+
   private void handleSessionSiblingField(GenericRecord randomAvroMessage, List<Object> genericRowValues, String sessionisationValue, Schema.Field field) {
     try {
       Schema.Type type = field.schema().getType();
@@ -0,0 +1,150 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+
+
+package io.confluent.ksql.datagen;
+
+import io.confluent.ksql.util.LatencyHistogram;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Replays a pool of pre-serialized messages from several producer threads, optionally paced to
+ * a target rate, and reports the achieved throughput and send latency every second. Unlike
+ * {@link DataGenProducer#populateTopic} nothing is generated or encoded per message, so the rate
+ * is bounded by the producers and the brokers rather than by the generator.
+ */
+public class LoadGenerator {
+
+  private final Properties producerProps;
+  private final List<List<ProducerRecord<String, byte[]>>> payloadPool;
+  private final int threads;
+  private final long messageCount;
+  private final double messagesPerSecond;
+  private final ZipfSampler keySampler;
+
+  private final LongAdder sent = new LongAdder();
+  private final LongAdder acked = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+  private final AtomicReference<LatencyHistogram> sendLatencyMicros =
+      new AtomicReference<>(new LatencyHistogram());
+
+  /**
+   * @param payloadPool       Messages to replay, grouped by key
+   * @param messagesPerSecond Target rate over all threads; 0 or less sends as fast as possible
+   * @param keySkew           Zipf exponent for choosing the key group of each message
+   */
+  public LoadGenerator(
+      Properties producerProps,
+      List<List<ProducerRecord<String, byte[]>>> payloadPool,
+      int threads,
+      long messageCount,
+      double messagesPerSecond,
+      double keySkew
+  ) {
+    this.producerProps = producerProps;
+    this.payloadPool = payloadPool;
+    this.threads = threads;
+    this.messageCount = messageCount;
+    this.messagesPerSecond = messagesPerSecond;
+    this.keySampler = new ZipfSampler(payloadPool.size(), keySkew);
+  }
+
+  public void run() throws InterruptedException {
+    ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+    long startNanos = System.nanoTime();
+    reporter.scheduleAtFixedRate(this::report, 1, 1, TimeUnit.SECONDS);
+
+    List<Thread> producerThreads = new ArrayList<>(threads);
+    for (int i = 0; i < threads; i++) {
+      long threadMessageCount = messageCount / threads + (i < messageCount % threads ? 1 : 0);
+      Thread thread = new Thread(() -> produce(threadMessageCount), "DataGenProducer-" + i);
+      producerThreads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : producerThreads) {
+      thread.join();
+    }
+
+    reporter.shutdownNow();
+    report();
+    double elapsedSeconds = (System.nanoTime() - startNanos) / 1_000_000_000.0;
+    System.err.printf(
+        "Sent %,d messages in %.1f s (%,.0f msgs/s); %,d failed%n",
+        acked.sum(), elapsedSeconds, acked.sum() / elapsedSeconds, failed.sum()
+    );
+  }
+
+  private void produce(long threadMessageCount) {
+    Random random = ThreadLocalRandom.current();
+    TokenBucket tokenBucket = messagesPerSecond > 0
+        ? new TokenBucket(messagesPerSecond / threads)
+        : null;
+    Properties props = new Properties();
+    props.putAll(producerProps);
+    props.put(ProducerConfig.CLIENT_ID_CONFIG,
+              producerProps.getProperty(ProducerConfig.CLIENT_ID_CONFIG) + "-"
+              + Thread.currentThread().getName());
+
+    try (KafkaProducer<String, byte[]> producer =
+             new KafkaProducer<>(props, new StringSerializer(), new ByteArraySerializer())) {
+      for (long i = 0; i < threadMessageCount; i++) {
+        if (tokenBucket != null) {
+          tokenBucket.acquire();
+        }
+        List<ProducerRecord<String, byte[]>> group = payloadPool.get(keySampler.next(random));
+        ProducerRecord<String, byte[]> record = group.get(random.nextInt(group.size()));
+        long sendNanos = System.nanoTime();
+        producer.send(record, (metadata, exception) -> {
+          if (exception == null) {
+            acked.increment();
+            sendLatencyMicros.get().record((System.nanoTime() - sendNanos) / 1000);
+          } else {
+            failed.increment();
+          }
+        });
+        sent.increment();
+      }
+      producer.flush();
+    }
+  }
+
+  private void report() {
+    LatencyHistogram latency = sendLatencyMicros.getAndSet(new LatencyHistogram());
+    System.err.printf(
+        "%,d msgs/s sent, %,d msgs/s acked, %,d failed in total; "
+        + "send latency p50 %.1f ms, p99 %.1f ms, max %.1f ms%n",
+        sent.sumThenReset(), latency.getCount(), failed.sum(),
+        latency.getValueAtPercentile(50) / 1000.0,
+        latency.getValueAtPercentile(99) / 1000.0,
+        latency.getMax() / 1000.0
+    );
+  }
+}
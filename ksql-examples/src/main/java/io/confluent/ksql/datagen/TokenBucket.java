@@ -0,0 +1,55 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+
+
+package io.confluent.ksql.datagen;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Paces a single producer thread to a fixed rate. Tokens accrue continuously up to a burst of
+ * 10ms worth of messages, so a thread that falls behind catches up quickly but never floods.
+ * Not thread safe; give every thread its own.
+ */
+class TokenBucket {
+
+  private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+  private final double tokensPerNano;
+  private final double capacity;
+  private double tokens;
+  private long lastRefillNanos;
+
+  TokenBucket(double tokensPerSecond) {
+    this.tokensPerNano = tokensPerSecond / NANOS_PER_SECOND;
+    this.capacity = Math.max(1.0, tokensPerSecond / 100);
+    this.tokens = 1.0;
+    this.lastRefillNanos = System.nanoTime();
+  }
+
+  void acquire() {
+    while (true) {
+      long now = System.nanoTime();
+      tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * tokensPerNano);
+      lastRefillNanos = now;
+      if (tokens >= 1.0) {
+        tokens -= 1.0;
+        return;
+      }
+      LockSupport.parkNanos((long) Math.ceil((1.0 - tokens) / tokensPerNano));
+    }
+  }
+}
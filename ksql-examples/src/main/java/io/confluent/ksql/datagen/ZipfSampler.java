@@ -0,0 +1,49 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+
+
+package io.confluent.ksql.datagen;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Draws key indexes in {@code [0, n)} following a Zipf distribution: index {@code k} is drawn
+ * with probability proportional to {@code 1 / (k + 1)^exponent}. An exponent of 0 is uniform;
+ * around 1 a handful of keys get most of the traffic.
+ */
+class ZipfSampler {
+
+  private final double[] cumulativeProbabilities;
+
+  ZipfSampler(int n, double exponent) {
+    cumulativeProbabilities = new double[n];
+    double sum = 0;
+    for (int k = 0; k < n; k++) {
+      sum += 1.0 / Math.pow(k + 1, exponent);
+      cumulativeProbabilities[k] = sum;
+    }
+    for (int k = 0; k < n; k++) {
+      cumulativeProbabilities[k] /= sum;
+    }
+  }
+
+  int next(Random random) {
+    int index = Arrays.binarySearch(cumulativeProbabilities, random.nextDouble());
+    int k = index >= 0 ? index + 1 : -index - 1;
+    return Math.min(k, cumulativeProbabilities.length - 1);
+  }
+}
@@ -44,4 +44,11 @@ public interface MetaStore {
   public void putAll(MetaStore otherMetaStore);
 
   public MetaStore clone();
+
+  /**
+   * Identifies the current contents of the metastore: the version changes whenever a topic or
+   * source is added or removed, and a clone reports the same version as the store it was taken
+   * from until either of them changes.
+   */
+  public long getVersion();
 }
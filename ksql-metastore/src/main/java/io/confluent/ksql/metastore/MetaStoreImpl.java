@@ -18,34 +18,58 @@ package io.confluent.ksql.metastore;
 
 import io.confluent.ksql.util.KsqlException;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * The registered topics and sources are held in an immutable {@link State} that is swapped
+ * atomically on every change. Reads never lock and always see a consistent pair of maps, and
+ * {@link #clone()} just shares the current state, so taking a copy of the metastore to plan
+ * against is O(1) however many sources are registered. Only the (rare) writes pay for a copy.
+ */
 public class MetaStoreImpl implements MetaStore {
 
-  private final Map<String, KsqlTopic> topicMap;
-  private final Map<String, StructuredDataSource> dataSourceMap;
+  private static final AtomicLong VERSIONS = new AtomicLong();
+
+  private static final class State {
+    private final long version;
+    private final Map<String, KsqlTopic> topicMap;
+    private final Map<String, StructuredDataSource> dataSourceMap;
+
+    private State(Map<String, KsqlTopic> topicMap, Map<String, StructuredDataSource> dataSourceMap) {
+      // Versions are unique across all stores so that diverging clones never share one
+      this.version = VERSIONS.incrementAndGet();
+      this.topicMap = Collections.unmodifiableMap(topicMap);
+      this.dataSourceMap = Collections.unmodifiableMap(dataSourceMap);
+    }
+  }
+
+  private static final State EMPTY = new State(new HashMap<>(), new HashMap<>());
+
+  private volatile State state;
 
   public MetaStoreImpl() {
-    this.topicMap = new HashMap<>();
-    this.dataSourceMap = new HashMap<>();
+    this(EMPTY);
   }
 
-  private MetaStoreImpl(Map<String, KsqlTopic> topicMap, Map<String, StructuredDataSource> dataSourceMap) {
-    this.topicMap = (topicMap != null) ? topicMap : new HashMap<>();
-    this.dataSourceMap = (dataSourceMap != null) ? dataSourceMap : new HashMap<>();
+  private MetaStoreImpl(State state) {
+    this.state = state;
   }
 
   @Override
   public KsqlTopic getTopic(String topicName) {
-    return topicMap.get(topicName);
+    return state.topicMap.get(topicName);
   }
 
   @Override
-  public void putTopic(final KsqlTopic topic) {
-    if (topicMap.get(topic.getName()) == null) {
-      topicMap.put(topic.getName(), topic);
+  public synchronized void putTopic(final KsqlTopic topic) {
+    if (state.topicMap.get(topic.getName()) == null) {
+      Map<String, KsqlTopic> newTopicMap = new HashMap<>(state.topicMap);
+      newTopicMap.put(topic.getName(), topic);
+      state = new State(newTopicMap, state.dataSourceMap);
     } else {
       throw new KsqlException(
           "Cannot add the new topic. Another topic with the same name already exists: "
@@ -55,13 +79,15 @@ public class MetaStoreImpl implements MetaStore {
 
   @Override
   public StructuredDataSource getSource(final String sourceName) {
-    return dataSourceMap.get(sourceName);
+    return state.dataSourceMap.get(sourceName);
   }
 
   @Override
-  public void putSource(final StructuredDataSource dataSource) {
+  public synchronized void putSource(final StructuredDataSource dataSource) {
     if (getSource(dataSource.getName()) == null) {
-      dataSourceMap.put(dataSource.getName(), dataSource);
+      Map<String, StructuredDataSource> newDataSourceMap = new HashMap<>(state.dataSourceMap);
+      newDataSourceMap.put(dataSource.getName(), dataSource);
+      state = new State(state.topicMap, newDataSourceMap);
     } else {
       throw new KsqlException(
           "Cannot add the new data source. Another data source with the same name already exists: "
@@ -70,24 +96,28 @@ public class MetaStoreImpl implements MetaStore {
   }
 
   @Override
-  public void deleteTopic(String topicName) {
-    if (!topicMap.containsKey(topicName)) {
+  public synchronized void deleteTopic(String topicName) {
+    if (!state.topicMap.containsKey(topicName)) {
       throw new KsqlException(String.format("No topic with name %s was registered.", true));
     }
-    topicMap.remove(topicName);
+    Map<String, KsqlTopic> newTopicMap = new HashMap<>(state.topicMap);
+    newTopicMap.remove(topicName);
+    state = new State(newTopicMap, state.dataSourceMap);
   }
 
   @Override
-  public void deleteSource(final String sourceName) {
-    if (!dataSourceMap.containsKey(sourceName)) {
+  public synchronized void deleteSource(final String sourceName) {
+    if (!state.dataSourceMap.containsKey(sourceName)) {
       throw new KsqlException(String.format("No data source with name %s exists.", sourceName));
     }
-    dataSourceMap.remove(sourceName);
+    Map<String, StructuredDataSource> newDataSourceMap = new HashMap<>(state.dataSourceMap);
+    newDataSourceMap.remove(sourceName);
+    state = new State(state.topicMap, newDataSourceMap);
   }
 
   @Override
   public Map<String, StructuredDataSource> getAllStructuredDataSources() {
-    return dataSourceMap;
+    return state.dataSourceMap;
   }
 
   @Override
@@ -97,7 +127,7 @@ public class MetaStoreImpl implements MetaStore {
 
   @Override
   public Map<String, KsqlTopic> getAllKsqlTopics() {
-    return topicMap;
+    return state.topicMap;
   }
 
   @Override
@@ -106,20 +136,22 @@ public class MetaStoreImpl implements MetaStore {
   }
 
   @Override
-  public void putAll(MetaStore otherMetaStore) {
-    this.topicMap.putAll(otherMetaStore.getAllKsqlTopics());
-    this.dataSourceMap.putAll(otherMetaStore.getAllStructuredDataSources());
+  public synchronized void putAll(MetaStore otherMetaStore) {
+    Map<String, KsqlTopic> newTopicMap = new HashMap<>(state.topicMap);
+    Map<String, StructuredDataSource> newDataSourceMap = new HashMap<>(state.dataSourceMap);
+    newTopicMap.putAll(otherMetaStore.getAllKsqlTopics());
+    newDataSourceMap.putAll(otherMetaStore.getAllStructuredDataSources());
+    state = new State(newTopicMap, newDataSourceMap);
   }
 
   @Override
   public MetaStore clone() {
-    Map<String, KsqlTopic> cloneTopicMap = new HashMap<>();
-    Map<String, StructuredDataSource> cloneDataSourceMap = new HashMap<>();
-
-    cloneTopicMap.putAll(topicMap);
-    cloneDataSourceMap.putAll(dataSourceMap);
+    return new MetaStoreImpl(state);
+  }
 
-    return new MetaStoreImpl(cloneTopicMap, cloneDataSourceMap);
+  @Override
+  public long getVersion() {
+    return state.version;
   }
 
 }
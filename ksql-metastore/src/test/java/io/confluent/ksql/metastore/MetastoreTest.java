@@ -73,4 +73,18 @@ public class MetastoreTest {
     Assert.assertNull(structuredDataSource4);
   }
 
-}
\ No newline at end of file
+  @Test
+  public void testCloneIsIndependent() {
+    MetaStore clone = metaStore.clone();
+    StructuredDataSource orders = metaStore.getSource("ORDERS");
+    clone.deleteSource("ORDERS");
+    Assert.assertNull(clone.getSource("ORDERS"));
+    Assert.assertSame(orders, metaStore.getSource("ORDERS"));
+
+    KsqlTopic ksqlTopic = new KsqlTopic("cloneTopic", "cloneTopicKafka", new KsqlJsonTopicSerDe(null));
+    metaStore.putTopic(ksqlTopic);
+    Assert.assertNotNull(metaStore.getTopic("cloneTopic"));
+    Assert.assertNull(clone.getTopic("cloneTopic"));
+  }
+
+}
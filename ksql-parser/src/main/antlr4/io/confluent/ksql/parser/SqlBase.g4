@@ -41,7 +41,7 @@ statement
     | (LIST | SHOW) REGISTERED TOPICS                                       #listRegisteredTopics
     | (LIST | SHOW) STREAMS                                                 #listStreams
     | (LIST | SHOW) TABLES                                                  #listTables
-    | DESCRIBE (qualifiedName | TOPIC qualifiedName)                        #showColumns
+    | DESCRIBE EXTENDED? (qualifiedName | TOPIC qualifiedName)              #showColumns
     | PRINT qualifiedName (FROM BEGINNING)? ((INTERVAL | SAMPLE) number)?   #printTopic
     | (LIST | SHOW) QUERIES                                                 #listQueries
     | TERMINATE QUERY? INTEGER_VALUE                                               #terminateQuery
@@ -64,6 +64,7 @@ statement
     | DROP TOPIC (IF EXISTS)? qualifiedName                                 #dropTopic
     | DROP STREAM (IF EXISTS)? qualifiedName                                #dropStream
     | DROP TABLE (IF EXISTS)? qualifiedName                                 #dropTable
+    | EXPLAIN ANALYZE INTEGER_VALUE                                         #explainAnalyze
     | EXPLAIN ANALYZE?
             ('(' explainOption (',' explainOption)* ')')? statement         #explain
     | EXPORT CATALOG TO STRING                                              #exportCatalog
@@ -194,7 +195,7 @@ selectItem
 relation
     : left=relation
       ( CROSS JOIN right=aliasedRelation
-      | joinType JOIN rightRelation=relation joinCriteria
+      | joinType JOIN rightRelation=relation joinWindow? joinCriteria
       | NATURAL joinType JOIN right=aliasedRelation
       )                                           #joinRelation
     | aliasedRelation                             #relationDefault
@@ -207,6 +208,10 @@ joinType
     | FULL OUTER?
     ;
 
+joinWindow
+    : WITHIN number windowUnit
+    ;
+
 joinCriteria
     : ON booleanExpression
     | USING '(' identifier (',' identifier)* ')'
@@ -428,7 +433,7 @@ nonReserved
     | OVER | PARTITION | RANGE | ROWS | PRECEDING | FOLLOWING | CURRENT | ROW | MAP | ARRAY
     | TINYINT | SMALLINT | INTEGER | DATE | TIME | TIMESTAMP | INTERVAL | ZONE
     | YEAR | MONTH | DAY | HOUR | MINUTE | SECOND
-    | EXPLAIN | ANALYZE | FORMAT | TYPE | TEXT | GRAPHVIZ | LOGICAL | DISTRIBUTED
+    | EXPLAIN | ANALYZE | FORMAT | TYPE | TEXT | GRAPHVIZ | LOGICAL | DISTRIBUTED | EXTENDED
     | TABLESAMPLE | SYSTEM | BERNOULLI | POISSONIZED | USE | TO
     | RESCALED | APPROXIMATE | AT | CONFIDENCE
     | SET | RESET
@@ -523,6 +528,7 @@ EXTRACT: 'EXTRACT';
 TUMBLING: 'TUMBLING';
 HOPPING: 'HOPPING';
 SIZE: 'SIZE';
+WITHIN: 'WITHIN';
 ADVANCE: 'ADVANCE';
 CASE: 'CASE';
 WHEN: 'WHEN';
@@ -564,6 +570,7 @@ DELETE: 'DELETE';
 INTO: 'INTO';
 CONSTRAINT: 'CONSTRAINT';
 DESCRIBE: 'DESCRIBE';
+EXTENDED: 'EXTENDED';
 PRINT: 'PRINT';
 GRANT: 'GRANT';
 REVOKE: 'REVOKE';
@@ -559,7 +559,7 @@ public class AstBuilder
   @Override
   public Node visitShowColumns(SqlBaseParser.ShowColumnsContext context) {
     return new ShowColumns(getLocation(context), getQualifiedName(context.qualifiedName()),
-                           context.TOPIC() != null);
+                           context.TOPIC() != null, context.EXTENDED() != null);
   }
 
   @Override
@@ -706,7 +706,16 @@ public class AstBuilder
       joinType = Join.Type.INNER;
     }
 
-    return new Join(getLocation(context), joinType, left, right, Optional.of(criteria));
+    Optional<WithinExpression> within = Optional.empty();
+    if (context.joinWindow() != null) {
+      within = Optional.of(new WithinExpression(
+          getLocation(context.joinWindow()),
+          Long.parseLong(context.joinWindow().number().getText()),
+          WindowExpression.getWindowUnit(context.joinWindow().windowUnit().getText().toUpperCase())
+      ));
+    }
+
+    return new Join(getLocation(context), joinType, left, right, Optional.of(criteria), within);
   }
 
   @Override
@@ -1167,6 +1176,11 @@ public class AstBuilder
     return explain;
   }
 
+  @Override
+  public Node visitExplainAnalyze(SqlBaseParser.ExplainAnalyzeContext ctx) {
+    return new ExplainAnalyze(getLocation(ctx), Long.parseLong(ctx.INTEGER_VALUE().getText()));
+  }
+
   // ***************** helpers *****************
 
   @Override
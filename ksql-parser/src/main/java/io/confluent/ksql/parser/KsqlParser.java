@@ -23,8 +23,10 @@ import io.confluent.ksql.parser.tree.Statement;
 import io.confluent.ksql.util.DataSourceExtractor;
 import io.confluent.ksql.util.Pair;
 import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.BailErrorStrategy;
 import org.antlr.v4.runtime.BaseErrorListener;
 import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
 import org.antlr.v4.runtime.ParserRuleContext;
 import org.antlr.v4.runtime.RecognitionException;
 import org.antlr.v4.runtime.Recognizer;
@@ -102,14 +104,17 @@ public class KsqlParser {
     Function<SqlBaseParser, ParserRuleContext> parseFunction = SqlBaseParser::statements;
     ParserRuleContext tree;
     try {
-      // first, try parsing with potentially faster SLL mode
+      // first, try parsing with potentially faster SLL mode, giving up at the first error instead
+      // of trying to recover from it
       sqlBaseParser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+      sqlBaseParser.setErrorHandler(new BailErrorStrategy());
       tree = parseFunction.apply(sqlBaseParser);
     } catch (ParseCancellationException ex) {
-      // if we fail, parse with LL mode
+      // if we fail, parse with LL mode, reusing the tokens the lexer already produced
       tokenStream.reset(); // rewind input stream
       sqlBaseParser.reset();
 
+      sqlBaseParser.setErrorHandler(new DefaultErrorStrategy());
       sqlBaseParser.getInterpreter().setPredictionMode(PredictionMode.LL);
       tree = parseFunction.apply(sqlBaseParser);
     }
@@ -27,19 +27,39 @@ public class ShowColumns
 
   private final QualifiedName table;
   private final boolean isTopic;
+  private final boolean isExtended;
 
   public ShowColumns(QualifiedName table, boolean isTopic) {
-    this(Optional.empty(), table, isTopic);
+    this(Optional.empty(), table, isTopic, false);
+  }
+
+  public ShowColumns(QualifiedName table, boolean isTopic, boolean isExtended) {
+    this(Optional.empty(), table, isTopic, isExtended);
   }
 
   public ShowColumns(NodeLocation location, QualifiedName table, boolean isTopic) {
-    this(Optional.of(location), table, isTopic);
+    this(Optional.of(location), table, isTopic, false);
+  }
+
+  public ShowColumns(
+      NodeLocation location,
+      QualifiedName table,
+      boolean isTopic,
+      boolean isExtended
+  ) {
+    this(Optional.of(location), table, isTopic, isExtended);
   }
 
-  private ShowColumns(Optional<NodeLocation> location, QualifiedName table, boolean isTopic) {
+  private ShowColumns(
+      Optional<NodeLocation> location,
+      QualifiedName table,
+      boolean isTopic,
+      boolean isExtended
+  ) {
     super(location);
     this.table = requireNonNull(table, "table is null");
     this.isTopic = isTopic;
+    this.isExtended = isExtended;
   }
 
   public QualifiedName getTable() {
@@ -50,6 +70,10 @@ public class ShowColumns
     return isTopic;
   }
 
+  public boolean isExtended() {
+    return isExtended;
+  }
+
   @Override
   public <R, C> R accept(AstVisitor<R, C> visitor, C context) {
     return visitor.visitShowColumns(this, context);
@@ -57,7 +81,7 @@ public class ShowColumns
 
   @Override
   public int hashCode() {
-    return Objects.hash(table);
+    return Objects.hash(table, isExtended);
   }
 
   @Override
@@ -69,13 +93,14 @@ public class ShowColumns
       return false;
     }
     ShowColumns o = (ShowColumns) obj;
-    return Objects.equals(table, o.table);
+    return Objects.equals(table, o.table) && isExtended == o.isExtended;
   }
 
   @Override
   public String toString() {
     return toStringHelper(this)
         .add("table", table)
+        .add("isExtended", isExtended)
         .toString();
   }
 }
@@ -0,0 +1,76 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+
+
+package io.confluent.ksql.parser.tree;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code WITHIN} clause of a stream-stream join: two rows join when their timestamps are at
+ * most this far apart, in either direction.
+ */
+public class WithinExpression extends Node {
+
+  private final long size;
+  private final TimeUnit sizeUnit;
+
+  public WithinExpression(long size, TimeUnit sizeUnit) {
+    this(Optional.empty(), size, sizeUnit);
+  }
+
+  public WithinExpression(NodeLocation location, long size, TimeUnit sizeUnit) {
+    this(Optional.of(location), size, sizeUnit);
+  }
+
+  private WithinExpression(Optional<NodeLocation> location, long size, TimeUnit sizeUnit) {
+    super(location);
+    this.size = size;
+    this.sizeUnit = sizeUnit;
+  }
+
+  public long getSize() {
+    return size;
+  }
+
+  public TimeUnit getSizeUnit() {
+    return sizeUnit;
+  }
+
+  @Override
+  public String toString() {
+    return " WITHIN " + size + " " + sizeUnit + " ";
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(size, sizeUnit);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    WithinExpression withinExpression = (WithinExpression) o;
+    return withinExpression.size == size && withinExpression.sizeUnit == sizeUnit;
+  }
+}
@@ -26,6 +26,7 @@ import io.confluent.ksql.parser.tree.CreateStreamAsSelect;
 import io.confluent.ksql.parser.tree.CreateTable;
 import io.confluent.ksql.parser.tree.DropStream;
 import io.confluent.ksql.parser.tree.DropTable;
+import io.confluent.ksql.parser.tree.ExplainAnalyze;
 import io.confluent.ksql.parser.tree.ListProperties;
 import io.confluent.ksql.parser.tree.ListStreams;
 import io.confluent.ksql.parser.tree.ListTables;
@@ -36,8 +37,10 @@ import io.confluent.ksql.parser.tree.Query;
 import io.confluent.ksql.parser.tree.QuerySpecification;
 import io.confluent.ksql.parser.tree.Relation;
 import io.confluent.ksql.parser.tree.SetProperty;
+import io.confluent.ksql.parser.tree.ShowColumns;
 import io.confluent.ksql.parser.tree.SingleColumn;
 import io.confluent.ksql.parser.tree.Statement;
+import io.confluent.ksql.parser.tree.WithinExpression;
 import io.confluent.ksql.util.MetaStoreFixture;
 import org.junit.Assert;
 import org.junit.Before;
@@ -45,6 +48,8 @@ import org.junit.Ignore;
 import org.junit.Test;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -260,6 +265,31 @@ public class KsqlParserTest {
     Assert.assertTrue("testLeftJoinWithFilter fails", querySpecification.getWhere().get().toString().equalsIgnoreCase("(T2.COL2 = 'test')"));
   }
 
+  @Test
+  public void testStreamStreamJoinWithin() throws Exception {
+    String queryStr =
+        "SELECT t1.col1, o.itemid FROM test1 t1 JOIN orders o WITHIN 10 MINUTES "
+        + "ON t1.col1 = o.orderid;";
+    Statement statement = KSQL_PARSER.buildAst(queryStr, metaStore).get(0);
+    QuerySpecification querySpecification =
+        (QuerySpecification) ((Query) statement).getQueryBody();
+    Join join = (Join) querySpecification.getFrom().get();
+    assertThat(join.getType(), equalTo(Join.Type.INNER));
+    assertThat(join.getWithin(),
+               equalTo(Optional.of(new WithinExpression(10, TimeUnit.MINUTES))));
+  }
+
+  @Test
+  public void testJoinWithoutWithin() throws Exception {
+    String queryStr =
+        "SELECT t1.col1, t2.col1 FROM test1 t1 LEFT JOIN test2 t2 ON t1.col1 = t2.col1;";
+    Statement statement = KSQL_PARSER.buildAst(queryStr, metaStore).get(0);
+    QuerySpecification querySpecification =
+        (QuerySpecification) ((Query) statement).getQueryBody();
+    Join join = (Join) querySpecification.getFrom().get();
+    assertThat(join.getWithin(), equalTo(Optional.empty()));
+  }
+
   @Test
   public void testSelectAll() throws Exception {
     String queryStr = "SELECT * FROM test1 t1;";
@@ -595,4 +625,23 @@ public class KsqlParserTest {
     Assert.assertTrue(dropTable.getName().toString().equalsIgnoreCase("TABLE1"));
   }
 
+  @Test
+  public void testDescribeExtended() throws Exception {
+    String simpleQuery = "DESCRIBE ORDERS; DESCRIBE EXTENDED ORDERS;";
+    List<Statement> statements = KSQL_PARSER.buildAst(simpleQuery, metaStore);
+    Assert.assertTrue(statements.get(0) instanceof ShowColumns);
+    Assert.assertTrue(statements.get(1) instanceof ShowColumns);
+    ShowColumns describe = (ShowColumns) statements.get(0);
+    ShowColumns describeExtended = (ShowColumns) statements.get(1);
+    Assert.assertFalse(describe.isExtended());
+    Assert.assertTrue(describeExtended.isExtended());
+    Assert.assertTrue(describeExtended.getTable().toString().equalsIgnoreCase("ORDERS"));
+  }
+
+  @Test
+  public void testExplainAnalyzeQueryId() throws Exception {
+    Statement statement = KSQL_PARSER.buildAst("EXPLAIN ANALYZE 3;", metaStore).get(0);
+    Assert.assertTrue(statement instanceof ExplainAnalyze);
+    Assert.assertEquals(3L, ((ExplainAnalyze) statement).getQueryId());
+  }
 }
@@ -27,14 +27,21 @@ import java.util.Optional;
 public class KsqlRequest {
   private final String ksql;
   private final Map<String, Object> streamsProperties;
+  private final boolean async;
+
+  public KsqlRequest(String ksql, Map<String, Object> streamsProperties) {
+    this(ksql, streamsProperties, null);
+  }
 
   @JsonCreator
   public KsqlRequest(
       @JsonProperty("ksql") String ksql,
-      @JsonProperty("streamsProperties") Map<String, Object> streamsProperties
+      @JsonProperty("streamsProperties") Map<String, Object> streamsProperties,
+      @JsonProperty("async") Boolean async
   ) {
     this.ksql = ksql;
     this.streamsProperties = Optional.ofNullable(streamsProperties).orElse(Collections.emptyMap());
+    this.async = Optional.ofNullable(async).orElse(false);
   }
 
   public String getKsql() {
@@ -45,6 +52,14 @@ public class KsqlRequest {
     return streamsProperties;
   }
 
+  /**
+   * @return Whether to return as soon as the statements have been written to the command topic,
+   *         without waiting for them to be executed
+   */
+  public boolean isAsync() {
+    return async;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
@@ -55,11 +70,12 @@ public class KsqlRequest {
     }
     KsqlRequest that = (KsqlRequest) o;
     return Objects.equals(getKsql(), that.getKsql())
-        && Objects.equals(getStreamsProperties(), that.getStreamsProperties());
+        && Objects.equals(getStreamsProperties(), that.getStreamsProperties())
+        && isAsync() == that.isAsync();
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(getKsql(), getStreamsProperties());
+    return Objects.hash(getKsql(), getStreamsProperties(), isAsync());
   }
 }
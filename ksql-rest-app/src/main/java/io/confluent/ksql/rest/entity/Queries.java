@@ -45,16 +45,23 @@ public class Queries extends KsqlEntity {
     private final String queryString;
     private final String kafkaTopic;
     private final long id;
+    private final RunningQueryMetrics metrics;
 
     @JsonCreator
     public RunningQuery(
         @JsonProperty("queryString") String queryString,
         @JsonProperty("kafkaTopic") String kafkaTopic,
-        @JsonProperty("id") long id
+        @JsonProperty("id") long id,
+        @JsonProperty("metrics") RunningQueryMetrics metrics
     ) {
       this.queryString = queryString;
       this.kafkaTopic = kafkaTopic;
       this.id = id;
+      this.metrics = metrics;
+    }
+
+    public RunningQuery(String queryString, String kafkaTopic, long id) {
+      this(queryString, kafkaTopic, id, null);
     }
 
     public String getQueryString() {
@@ -69,6 +76,13 @@ public class Queries extends KsqlEntity {
       return id;
     }
 
+    /**
+     * @return A snapshot of how the query was doing when it was listed, or null if unknown
+     */
+    public RunningQueryMetrics getMetrics() {
+      return metrics;
+    }
+
     @Override
     public boolean equals(Object o) {
       if (this == o) {
@@ -80,12 +94,13 @@ public class Queries extends KsqlEntity {
       RunningQuery that = (RunningQuery) o;
       return getId() == that.getId()
           && Objects.equals(getQueryString(), that.getQueryString())
-          && Objects.equals(getKafkaTopic(), that.getKafkaTopic());
+          && Objects.equals(getKafkaTopic(), that.getKafkaTopic())
+          && Objects.equals(getMetrics(), that.getMetrics());
     }
 
     @Override
     public int hashCode() {
-      return Objects.hash(getQueryString(), getKafkaTopic(), getId());
+      return Objects.hash(getQueryString(), getKafkaTopic(), getId(), getMetrics());
     }
   }
 
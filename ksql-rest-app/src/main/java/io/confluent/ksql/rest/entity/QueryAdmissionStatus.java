@@ -0,0 +1,115 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+
+package io.confluent.ksql.rest.entity;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.annotation.JsonTypeName;
+
+import java.util.Map;
+import java.util.Objects;
+
+@JsonTypeInfo(include = JsonTypeInfo.As.WRAPPER_OBJECT, use = JsonTypeInfo.Id.NAME)
+@JsonTypeName("queryAdmission")
+public class QueryAdmissionStatus {
+  private final int maxRunning;
+  private final int maxRunningPerClient;
+  private final int running;
+  private final int waiting;
+  private final long admitted;
+  private final long rejected;
+  private final Map<String, Integer> runningPerClient;
+
+  @JsonCreator
+  public QueryAdmissionStatus(
+      @JsonProperty("maxRunning")          int maxRunning,
+      @JsonProperty("maxRunningPerClient") int maxRunningPerClient,
+      @JsonProperty("running")             int running,
+      @JsonProperty("waiting")             int waiting,
+      @JsonProperty("admitted")            long admitted,
+      @JsonProperty("rejected")            long rejected,
+      @JsonProperty("runningPerClient")    Map<String, Integer> runningPerClient
+  ) {
+    this.maxRunning = maxRunning;
+    this.maxRunningPerClient = maxRunningPerClient;
+    this.running = running;
+    this.waiting = waiting;
+    this.admitted = admitted;
+    this.rejected = rejected;
+    this.runningPerClient = runningPerClient;
+  }
+
+  public int getMaxRunning() {
+    return maxRunning;
+  }
+
+  public int getMaxRunningPerClient() {
+    return maxRunningPerClient;
+  }
+
+  public int getRunning() {
+    return running;
+  }
+
+  public int getWaiting() {
+    return waiting;
+  }
+
+  public long getAdmitted() {
+    return admitted;
+  }
+
+  public long getRejected() {
+    return rejected;
+  }
+
+  public Map<String, Integer> getRunningPerClient() {
+    return runningPerClient;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof QueryAdmissionStatus)) {
+      return false;
+    }
+    QueryAdmissionStatus that = (QueryAdmissionStatus) o;
+    return getMaxRunning() == that.getMaxRunning()
+        && getMaxRunningPerClient() == that.getMaxRunningPerClient()
+        && getRunning() == that.getRunning()
+        && getWaiting() == that.getWaiting()
+        && getAdmitted() == that.getAdmitted()
+        && getRejected() == that.getRejected()
+        && Objects.equals(getRunningPerClient(), that.getRunningPerClient());
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(
+        getMaxRunning(),
+        getMaxRunningPerClient(),
+        getRunning(),
+        getWaiting(),
+        getAdmitted(),
+        getRejected(),
+        getRunningPerClient()
+    );
+  }
+}
@@ -0,0 +1,120 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+
+package io.confluent.ksql.rest.entity;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import io.confluent.ksql.util.QueryMetrics;
+
+import java.util.Map;
+import java.util.Objects;
+
+public class RunningQueryMetrics {
+
+  private final String state;
+  private final double messagesInPerSec;
+  private final double messagesOutPerSec;
+  private final double processLatencyAvgMs;
+  private final Map<String, Long> consumerLag;
+  private final long restoreRemaining;
+  private final Long stateStoreEntries;
+
+  @JsonCreator
+  public RunningQueryMetrics(
+      @JsonProperty("state")               String state,
+      @JsonProperty("messagesInPerSec")    double messagesInPerSec,
+      @JsonProperty("messagesOutPerSec")   double messagesOutPerSec,
+      @JsonProperty("processLatencyAvgMs") double processLatencyAvgMs,
+      @JsonProperty("consumerLag")         Map<String, Long> consumerLag,
+      @JsonProperty("restoreRemaining")    long restoreRemaining,
+      @JsonProperty("stateStoreEntries")   Long stateStoreEntries
+  ) {
+    this.state = state;
+    this.messagesInPerSec = messagesInPerSec;
+    this.messagesOutPerSec = messagesOutPerSec;
+    this.processLatencyAvgMs = processLatencyAvgMs;
+    this.consumerLag = consumerLag;
+    this.restoreRemaining = restoreRemaining;
+    this.stateStoreEntries = stateStoreEntries;
+  }
+
+  public RunningQueryMetrics(QueryMetrics queryMetrics) {
+    this(
+        queryMetrics.getState(),
+        queryMetrics.getMessagesInPerSec(),
+        queryMetrics.getMessagesOutPerSec(),
+        queryMetrics.getProcessLatencyAvgMs(),
+        queryMetrics.getConsumerLag(),
+        queryMetrics.getRestoreRemaining(),
+        queryMetrics.getStateStoreEntries()
+    );
+  }
+
+  public String getState() {
+    return state;
+  }
+
+  public double getMessagesInPerSec() {
+    return messagesInPerSec;
+  }
+
+  public double getMessagesOutPerSec() {
+    return messagesOutPerSec;
+  }
+
+  public double getProcessLatencyAvgMs() {
+    return processLatencyAvgMs;
+  }
+
+  public Map<String, Long> getConsumerLag() {
+    return consumerLag;
+  }
+
+  public long getRestoreRemaining() {
+    return restoreRemaining;
+  }
+
+  public Long getStateStoreEntries() {
+    return stateStoreEntries;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof RunningQueryMetrics)) {
+      return false;
+    }
+    RunningQueryMetrics that = (RunningQueryMetrics) o;
+    return Double.compare(that.getMessagesInPerSec(), getMessagesInPerSec()) == 0
+        && Double.compare(that.getMessagesOutPerSec(), getMessagesOutPerSec()) == 0
+        && Double.compare(that.getProcessLatencyAvgMs(), getProcessLatencyAvgMs()) == 0
+        && getRestoreRemaining() == that.getRestoreRemaining()
+        && Objects.equals(getState(), that.getState())
+        && Objects.equals(getConsumerLag(), that.getConsumerLag())
+        && Objects.equals(getStateStoreEntries(), that.getStateStoreEntries());
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(getState(), getMessagesInPerSec(), getMessagesOutPerSec(),
+        getProcessLatencyAvgMs(), getConsumerLag(), getRestoreRemaining(),
+        getStateStoreEntries());
+  }
+}
@@ -39,6 +39,7 @@ public class SourceDescription extends KsqlEntity {
   private final DataSource.DataSourceType type;
   private final String key;
   private final String timestamp;
+  private final RunningQueryMetrics metrics;
 
   @JsonCreator
   public SourceDescription(
@@ -47,7 +48,8 @@ public class SourceDescription extends KsqlEntity {
       @JsonProperty("schema")        List<FieldSchemaInfo> schema,
       @JsonProperty("type")          DataSource.DataSourceType type,
       @JsonProperty("key")           String key,
-      @JsonProperty("timestamp")     String timestamp
+      @JsonProperty("timestamp")     String timestamp,
+      @JsonProperty("metrics")       RunningQueryMetrics metrics
   ) {
     super(statementText);
     this.name = name;
@@ -55,10 +57,29 @@ public class SourceDescription extends KsqlEntity {
     this.type = type;
     this.key = key;
     this.timestamp = timestamp;
+    this.metrics = metrics;
+  }
+
+  public SourceDescription(
+      String statementText,
+      String name,
+      List<FieldSchemaInfo> schema,
+      DataSource.DataSourceType type,
+      String key,
+      String timestamp
+  ) {
+    this(statementText, name, schema, type, key, timestamp, null);
   }
 
   public SourceDescription(String statementText, StructuredDataSource dataSource) {
+    this(statementText, dataSource, null);
+  }
 
+  public SourceDescription(
+      String statementText,
+      StructuredDataSource dataSource,
+      RunningQueryMetrics metrics
+  ) {
     this(
         statementText,
         dataSource.getName(),
@@ -69,7 +90,8 @@ public class SourceDescription extends KsqlEntity {
             }).collect(Collectors.toList()),
         dataSource.getDataSourceType(),
         Optional.ofNullable(dataSource.getKeyField()).map(Field::name).orElse(null),
-        Optional.ofNullable(dataSource.getTimestampField()).map(Field::name).orElse(null)
+        Optional.ofNullable(dataSource.getTimestampField()).map(Field::name).orElse(null),
+        metrics
     );
   }
 
@@ -93,6 +115,14 @@ public class SourceDescription extends KsqlEntity {
     return timestamp;
   }
 
+  /**
+   * @return The metrics of the query writing this source, if DESCRIBE EXTENDED asked for them
+   *         and such a query is running
+   */
+  public RunningQueryMetrics getMetrics() {
+    return metrics;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
@@ -106,12 +136,13 @@ public class SourceDescription extends KsqlEntity {
         && Objects.equals(getSchema(), that.getSchema())
         && getType() == that.getType()
         && Objects.equals(getKey(), that.getKey())
-        && Objects.equals(getTimestamp(), that.getTimestamp());
+        && Objects.equals(getTimestamp(), that.getTimestamp())
+        && Objects.equals(getMetrics(), that.getMetrics());
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(getName(), getSchema(), getType(), getKey(), getTimestamp());
+    return Objects.hash(getName(), getSchema(), getType(), getKey(), getTimestamp(), getMetrics());
   }
 
   public static class FieldSchemaInfo {
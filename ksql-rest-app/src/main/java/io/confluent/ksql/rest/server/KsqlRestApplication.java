@@ -25,6 +25,7 @@ import io.confluent.ksql.KsqlEngine;
 import io.confluent.ksql.ddl.DdlConfig;
 import io.confluent.ksql.ddl.commands.CreateStreamCommand;
 import io.confluent.ksql.ddl.commands.RegisterTopicCommand;
+import io.confluent.ksql.exception.KafkaResponseGetFailedException;
 import io.confluent.ksql.exception.KafkaTopicException;
 import io.confluent.ksql.parser.tree.CreateStream;
 import io.confluent.ksql.parser.tree.RegisterTopic;
@@ -45,6 +46,7 @@ import io.confluent.ksql.rest.server.resources.KsqlResource;
 import io.confluent.ksql.rest.server.resources.StatusResource;
 import io.confluent.ksql.rest.server.resources.ServerInfoResource;
 import io.confluent.ksql.rest.server.resources.streaming.StreamedQueryResource;
+import io.confluent.ksql.rest.server.resources.streaming.TransientQueryAdmission;
 import io.confluent.ksql.util.KafkaTopicClient;
 import io.confluent.ksql.util.KafkaTopicClientImpl;
 import io.confluent.ksql.util.KsqlConfig;
@@ -65,12 +67,17 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.ws.rs.core.Configurable;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 public class KsqlRestApplication extends Application<KsqlRestConfig> {
 
@@ -208,18 +215,20 @@ public class KsqlRestApplication extends Application<KsqlRestConfig> {
     ksqlConfProperties.putAll(restConfig.getOriginals());
 
     KsqlConfig ksqlConfig = new KsqlConfig(ksqlConfProperties);
-    KsqlEngine ksqlEngine = new KsqlEngine(ksqlConfig, new KafkaTopicClientImpl(ksqlConfig.getKsqlAdminClientConfigProps()));
+    KsqlEngine ksqlEngine = new KsqlEngine(ksqlConfig, new KafkaTopicClientImpl(ksqlConfig));
     KafkaTopicClient client = ksqlEngine.getTopicClient();
 
     String commandTopic = restConfig.getCommandTopic();
 
+    // Only sent here; the topic is first read when the prior commands are processed
+    Future<Void> commandTopicCreation = CompletableFuture.completedFuture(null);
     try {
       short replicationFactor = 1;
       if(restConfig.getOriginals().containsKey(KsqlConfig.DEFAULT_SINK_NUMBER_OF_REPLICATIONS)) {
         replicationFactor = Short.parseShort(restConfig.getOriginals()
                                                      .get(KsqlConfig.DEFAULT_SINK_NUMBER_OF_REPLICATIONS).toString());
       }
-      client.createTopic(commandTopic, 1, replicationFactor);
+      commandTopicCreation = client.createTopicAsync(commandTopic, 1, replicationFactor);
     } catch (KafkaTopicException e) {
       log.info("Command Topic Exists: " + e.getMessage());
     }
@@ -272,21 +281,41 @@ public class KsqlRestApplication extends Application<KsqlRestConfig> {
 
     StatementExecutor statementExecutor = new StatementExecutor(
         ksqlEngine,
-        statementParser
+        statementParser,
+        restConfig.getInt(KsqlRestConfig.COMMAND_STATUS_MAX_RETAINED_CONFIG),
+        restConfig.getLong(KsqlRestConfig.COMMAND_STATUS_RETENTION_MS_CONFIG)
     );
 
+    String snapshotFile = restConfig.getString(KsqlRestConfig.COMMAND_SNAPSHOT_FILE_CONFIG);
     CommandRunner commandRunner = new CommandRunner(
         statementExecutor,
-        commandStore
+        commandStore,
+        snapshotFile.isEmpty() ? Optional.empty() : Optional.of(new File(snapshotFile)),
+        restConfig.getInt(KsqlRestConfig.COMMAND_SNAPSHOT_INTERVAL_CONFIG)
     );
 
     ServerInfoResource serverInfoResource =
         new ServerInfoResource(new ServerInfo(Version.getVersion()));
-    StatusResource statusResource = new StatusResource(statementExecutor);
+    TransientQueryAdmission queryAdmission = new TransientQueryAdmission(
+        restConfig.getInt(KsqlRestConfig.TRANSIENT_QUERY_MAX_RUNNING_CONFIG),
+        restConfig.getInt(KsqlRestConfig.TRANSIENT_QUERY_MAX_RUNNING_PER_CLIENT_CONFIG),
+        restConfig.getLong(KsqlRestConfig.TRANSIENT_QUERY_ADMISSION_WAIT_MS_CONFIG),
+        restConfig.getInt(KsqlRestConfig.TRANSIENT_QUERY_MAX_STREAM_THREADS_CONFIG),
+        restConfig.getLong(KsqlRestConfig.TRANSIENT_QUERY_MAX_CACHE_BYTES_CONFIG),
+        ksqlEngine.getKsqlConfig().getKsqlStreamConfigProps()
+    );
+    StatusResource statusResource = new StatusResource(
+        statementExecutor,
+        queryAdmission,
+        ksqlEngine.getStatementCache(),
+        ksqlEngine::getLatencyStats
+    );
     StreamedQueryResource streamedQueryResource = new StreamedQueryResource(
         ksqlEngine,
         statementParser,
-        restConfig.getLong(KsqlRestConfig.STREAMED_QUERY_DISCONNECT_CHECK_MS_CONFIG)
+        restConfig.getLong(KsqlRestConfig.STREAMED_QUERY_DISCONNECT_CHECK_MS_CONFIG),
+        restConfig.getLong(KsqlRestConfig.PRINT_TOPIC_MAX_BYTES_PER_SECOND_CONFIG),
+        queryAdmission
     );
     KsqlResource ksqlResource = new KsqlResource(
         ksqlEngine,
@@ -295,6 +324,12 @@ public class KsqlRestApplication extends Application<KsqlRestConfig> {
         restConfig.getLong(KsqlRestConfig.DISTRIBUTED_COMMAND_RESPONSE_TIMEOUT_MS_CONFIG)
     );
 
+    try {
+      commandTopicCreation.get();
+    } catch (ExecutionException e) {
+      throw new KafkaResponseGetFailedException(
+          "Failed to guarantee existence of topic " + commandTopic, e);
+    }
     commandRunner.processPriorCommands();
 
     return new KsqlRestApplication(
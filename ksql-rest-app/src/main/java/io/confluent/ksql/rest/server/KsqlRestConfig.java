@@ -60,6 +60,137 @@ public class KsqlRestConfig extends RestConfig {
               + "JSON; this helps proactively determine if the connection has been terminated in "
               + "order to avoid keeping the created streams job alive longer than necessary";
 
+  public static final String
+      PRINT_TOPIC_MAX_BYTES_PER_SECOND_CONFIG = "query.print.max.bytes.per.second";
+  public static final ConfigDef.Type
+      PRINT_TOPIC_MAX_BYTES_PER_SECOND_TYPE = ConfigDef.Type.LONG;
+  public static final Long
+      PRINT_TOPIC_MAX_BYTES_PER_SECOND_DEFAULT = 0L;
+  public static final ConfigDef.Importance
+      PRINT_TOPIC_MAX_BYTES_PER_SECOND_IMPORTANCE = ConfigDef.Importance.LOW;
+  public static final String
+      PRINT_TOPIC_MAX_BYTES_PER_SECOND_DOC =
+          "The maximum number of bytes per second a single PRINT statement may write to its "
+              + "client; useful to protect the server while printing large topics FROM BEGINNING. "
+              + "A value of zero or less disables the limit";
+
+  public static final String
+      TRANSIENT_QUERY_MAX_RUNNING_CONFIG = "query.transient.max.running";
+  public static final ConfigDef.Type
+      TRANSIENT_QUERY_MAX_RUNNING_TYPE = ConfigDef.Type.INT;
+  public static final Integer
+      TRANSIENT_QUERY_MAX_RUNNING_DEFAULT = 0;
+  public static final ConfigDef.Importance
+      TRANSIENT_QUERY_MAX_RUNNING_IMPORTANCE = ConfigDef.Importance.MEDIUM;
+  public static final String
+      TRANSIENT_QUERY_MAX_RUNNING_DOC =
+          "The maximum number of non-persistent queries this server will run at once. Queries "
+              + "beyond the limit wait for a slot and are rejected with status 429 if none frees "
+              + "up in time. A value of zero or less disables the limit";
+
+  public static final String
+      TRANSIENT_QUERY_MAX_RUNNING_PER_CLIENT_CONFIG = "query.transient.max.running.per.client";
+  public static final ConfigDef.Type
+      TRANSIENT_QUERY_MAX_RUNNING_PER_CLIENT_TYPE = ConfigDef.Type.INT;
+  public static final Integer
+      TRANSIENT_QUERY_MAX_RUNNING_PER_CLIENT_DEFAULT = 0;
+  public static final ConfigDef.Importance
+      TRANSIENT_QUERY_MAX_RUNNING_PER_CLIENT_IMPORTANCE = ConfigDef.Importance.LOW;
+  public static final String
+      TRANSIENT_QUERY_MAX_RUNNING_PER_CLIENT_DOC =
+          "The maximum number of non-persistent queries a single client address may run at "
+              + "once on this server. A value of zero or less disables the limit";
+
+  public static final String
+      TRANSIENT_QUERY_ADMISSION_WAIT_MS_CONFIG = "query.transient.admission.wait.ms";
+  public static final ConfigDef.Type
+      TRANSIENT_QUERY_ADMISSION_WAIT_MS_TYPE = ConfigDef.Type.LONG;
+  public static final Long
+      TRANSIENT_QUERY_ADMISSION_WAIT_MS_DEFAULT = 0L;
+  public static final ConfigDef.Importance
+      TRANSIENT_QUERY_ADMISSION_WAIT_MS_IMPORTANCE = ConfigDef.Importance.LOW;
+  public static final String
+      TRANSIENT_QUERY_ADMISSION_WAIT_MS_DOC =
+          "How long a non-persistent query may wait for a slot when the server is at its query "
+              + "limit before it is rejected";
+
+  public static final String
+      TRANSIENT_QUERY_MAX_STREAM_THREADS_CONFIG = "query.transient.max.stream.threads";
+  public static final ConfigDef.Type
+      TRANSIENT_QUERY_MAX_STREAM_THREADS_TYPE = ConfigDef.Type.INT;
+  public static final Integer
+      TRANSIENT_QUERY_MAX_STREAM_THREADS_DEFAULT = 1;
+  public static final ConfigDef.Importance
+      TRANSIENT_QUERY_MAX_STREAM_THREADS_IMPORTANCE = ConfigDef.Importance.LOW;
+  public static final String
+      TRANSIENT_QUERY_MAX_STREAM_THREADS_DOC =
+          "The maximum number of stream threads a single non-persistent query may use; larger "
+              + "requests, and a larger server default, are reduced to this value";
+
+  public static final String
+      TRANSIENT_QUERY_MAX_CACHE_BYTES_CONFIG = "query.transient.max.cache.bytes";
+  public static final ConfigDef.Type
+      TRANSIENT_QUERY_MAX_CACHE_BYTES_TYPE = ConfigDef.Type.LONG;
+  public static final Long
+      TRANSIENT_QUERY_MAX_CACHE_BYTES_DEFAULT = 10L * 1024 * 1024;
+  public static final ConfigDef.Importance
+      TRANSIENT_QUERY_MAX_CACHE_BYTES_IMPORTANCE = ConfigDef.Importance.LOW;
+  public static final String
+      TRANSIENT_QUERY_MAX_CACHE_BYTES_DOC =
+          "The maximum record cache size, in bytes, a single non-persistent query may use; "
+              + "larger requests, and a larger server default, are reduced to this value";
+
+  public static final String
+      COMMAND_SNAPSHOT_FILE_CONFIG = "command.snapshot.file";
+  public static final ConfigDef.Type
+      COMMAND_SNAPSHOT_FILE_TYPE = ConfigDef.Type.STRING;
+  public static final String
+      COMMAND_SNAPSHOT_FILE_DEFAULT = "";
+  public static final ConfigDef.Importance
+      COMMAND_SNAPSHOT_FILE_IMPORTANCE = ConfigDef.Importance.LOW;
+  public static final String
+      COMMAND_SNAPSHOT_FILE_DOC =
+          "A local file in which to keep a compacted snapshot of the commands executed so far. On "
+              + "startup the snapshot is replayed and only the commands written to the command "
+              + "topic after it are read. Leave empty to always replay the whole command topic";
+
+  public static final String
+      COMMAND_SNAPSHOT_INTERVAL_CONFIG = "command.snapshot.interval";
+  public static final ConfigDef.Type
+      COMMAND_SNAPSHOT_INTERVAL_TYPE = ConfigDef.Type.INT;
+  public static final Integer
+      COMMAND_SNAPSHOT_INTERVAL_DEFAULT = 100;
+  public static final ConfigDef.Importance
+      COMMAND_SNAPSHOT_INTERVAL_IMPORTANCE = ConfigDef.Importance.LOW;
+  public static final String
+      COMMAND_SNAPSHOT_INTERVAL_DOC =
+          "How many commands to execute between updates of the command snapshot";
+
+  public static final String
+      COMMAND_STATUS_MAX_RETAINED_CONFIG = "command.status.max.retained";
+  public static final ConfigDef.Type
+      COMMAND_STATUS_MAX_RETAINED_TYPE = ConfigDef.Type.INT;
+  public static final Integer
+      COMMAND_STATUS_MAX_RETAINED_DEFAULT = 10000;
+  public static final ConfigDef.Importance
+      COMMAND_STATUS_MAX_RETAINED_IMPORTANCE = ConfigDef.Importance.LOW;
+  public static final String
+      COMMAND_STATUS_MAX_RETAINED_DOC =
+          "How many statuses of finished commands to keep for the status endpoint; the oldest "
+              + "are dropped first. Statuses of running queries are always kept";
+
+  public static final String
+      COMMAND_STATUS_RETENTION_MS_CONFIG = "command.status.retention.ms";
+  public static final ConfigDef.Type
+      COMMAND_STATUS_RETENTION_MS_TYPE = ConfigDef.Type.LONG;
+  public static final Long
+      COMMAND_STATUS_RETENTION_MS_DEFAULT = 24 * 60 * 60 * 1000L;
+  public static final ConfigDef.Importance
+      COMMAND_STATUS_RETENTION_MS_IMPORTANCE = ConfigDef.Importance.LOW;
+  public static final String
+      COMMAND_STATUS_RETENTION_MS_DOC =
+          "How long to keep the statuses of finished commands for the status endpoint";
+
   public static final String
       DISTRIBUTED_COMMAND_RESPONSE_TIMEOUT_MS_CONFIG = "command.response.timeout.ms";
   public static final ConfigDef.Type
@@ -88,6 +219,66 @@ public class KsqlRestConfig extends RestConfig {
         STREAMED_QUERY_DISCONNECT_CHECK_MS_DEFAULT,
         STREAMED_QUERY_DISCONNECT_CHECK_MS_IMPORTANCE,
         STREAMED_QUERY_DISCONNECT_CHECK_MS_DOC
+    ).define(
+        PRINT_TOPIC_MAX_BYTES_PER_SECOND_CONFIG,
+        PRINT_TOPIC_MAX_BYTES_PER_SECOND_TYPE,
+        PRINT_TOPIC_MAX_BYTES_PER_SECOND_DEFAULT,
+        PRINT_TOPIC_MAX_BYTES_PER_SECOND_IMPORTANCE,
+        PRINT_TOPIC_MAX_BYTES_PER_SECOND_DOC
+    ).define(
+        TRANSIENT_QUERY_MAX_RUNNING_CONFIG,
+        TRANSIENT_QUERY_MAX_RUNNING_TYPE,
+        TRANSIENT_QUERY_MAX_RUNNING_DEFAULT,
+        TRANSIENT_QUERY_MAX_RUNNING_IMPORTANCE,
+        TRANSIENT_QUERY_MAX_RUNNING_DOC
+    ).define(
+        TRANSIENT_QUERY_MAX_RUNNING_PER_CLIENT_CONFIG,
+        TRANSIENT_QUERY_MAX_RUNNING_PER_CLIENT_TYPE,
+        TRANSIENT_QUERY_MAX_RUNNING_PER_CLIENT_DEFAULT,
+        TRANSIENT_QUERY_MAX_RUNNING_PER_CLIENT_IMPORTANCE,
+        TRANSIENT_QUERY_MAX_RUNNING_PER_CLIENT_DOC
+    ).define(
+        TRANSIENT_QUERY_ADMISSION_WAIT_MS_CONFIG,
+        TRANSIENT_QUERY_ADMISSION_WAIT_MS_TYPE,
+        TRANSIENT_QUERY_ADMISSION_WAIT_MS_DEFAULT,
+        TRANSIENT_QUERY_ADMISSION_WAIT_MS_IMPORTANCE,
+        TRANSIENT_QUERY_ADMISSION_WAIT_MS_DOC
+    ).define(
+        TRANSIENT_QUERY_MAX_STREAM_THREADS_CONFIG,
+        TRANSIENT_QUERY_MAX_STREAM_THREADS_TYPE,
+        TRANSIENT_QUERY_MAX_STREAM_THREADS_DEFAULT,
+        TRANSIENT_QUERY_MAX_STREAM_THREADS_IMPORTANCE,
+        TRANSIENT_QUERY_MAX_STREAM_THREADS_DOC
+    ).define(
+        TRANSIENT_QUERY_MAX_CACHE_BYTES_CONFIG,
+        TRANSIENT_QUERY_MAX_CACHE_BYTES_TYPE,
+        TRANSIENT_QUERY_MAX_CACHE_BYTES_DEFAULT,
+        TRANSIENT_QUERY_MAX_CACHE_BYTES_IMPORTANCE,
+        TRANSIENT_QUERY_MAX_CACHE_BYTES_DOC
+    ).define(
+        COMMAND_SNAPSHOT_FILE_CONFIG,
+        COMMAND_SNAPSHOT_FILE_TYPE,
+        COMMAND_SNAPSHOT_FILE_DEFAULT,
+        COMMAND_SNAPSHOT_FILE_IMPORTANCE,
+        COMMAND_SNAPSHOT_FILE_DOC
+    ).define(
+        COMMAND_SNAPSHOT_INTERVAL_CONFIG,
+        COMMAND_SNAPSHOT_INTERVAL_TYPE,
+        COMMAND_SNAPSHOT_INTERVAL_DEFAULT,
+        COMMAND_SNAPSHOT_INTERVAL_IMPORTANCE,
+        COMMAND_SNAPSHOT_INTERVAL_DOC
+    ).define(
+        COMMAND_STATUS_MAX_RETAINED_CONFIG,
+        COMMAND_STATUS_MAX_RETAINED_TYPE,
+        COMMAND_STATUS_MAX_RETAINED_DEFAULT,
+        COMMAND_STATUS_MAX_RETAINED_IMPORTANCE,
+        COMMAND_STATUS_MAX_RETAINED_DOC
+    ).define(
+        COMMAND_STATUS_RETENTION_MS_CONFIG,
+        COMMAND_STATUS_RETENTION_MS_TYPE,
+        COMMAND_STATUS_RETENTION_MS_DEFAULT,
+        COMMAND_STATUS_RETENTION_MS_IMPORTANCE,
+        COMMAND_STATUS_RETENTION_MS_DOC
     ).define(
         DISTRIBUTED_COMMAND_RESPONSE_TIMEOUT_MS_CONFIG,
         DISTRIBUTED_COMMAND_RESPONSE_TIMEOUT_MS_TYPE,
@@ -0,0 +1,218 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+
+package io.confluent.ksql.rest.server.computation;
+
+import io.confluent.ksql.ddl.DdlConfig;
+import io.confluent.ksql.parser.tree.AliasedRelation;
+import io.confluent.ksql.parser.tree.CreateStream;
+import io.confluent.ksql.parser.tree.CreateStreamAsSelect;
+import io.confluent.ksql.parser.tree.CreateTable;
+import io.confluent.ksql.parser.tree.CreateTableAsSelect;
+import io.confluent.ksql.parser.tree.DropStream;
+import io.confluent.ksql.parser.tree.DropTable;
+import io.confluent.ksql.parser.tree.DropTopic;
+import io.confluent.ksql.parser.tree.Expression;
+import io.confluent.ksql.parser.tree.Join;
+import io.confluent.ksql.parser.tree.Query;
+import io.confluent.ksql.parser.tree.QuerySpecification;
+import io.confluent.ksql.parser.tree.Relation;
+import io.confluent.ksql.parser.tree.RunScript;
+import io.confluent.ksql.parser.tree.Statement;
+import io.confluent.ksql.parser.tree.StringLiteral;
+import io.confluent.ksql.parser.tree.Table;
+import io.confluent.ksql.parser.tree.TerminateQuery;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Keeps the successfully executed commands needed to rebuild the current state of the server, in
+ * the order they were executed. A DROP removes itself along with the command that created the
+ * dropped topic, stream or table, as long as nothing recorded in between reads from it and any
+ * query that wrote to it has been terminated; the TERMINATE for such a query goes with them.
+ * Every other command keeps its place, so replaying the log never runs a command before one it
+ * depends on.
+ */
+class CommandLog {
+
+  private final List<CommandSnapshot.Entry> entries = new ArrayList<>();
+  private boolean compactable = true;
+
+  void load(CommandSnapshot snapshot) {
+    entries.clear();
+    entries.addAll(snapshot.getEntries());
+  }
+
+  /**
+   * Record a command that has been executed successfully and didn't start a query.
+   */
+  void record(CommandId commandId, Command command, Statement statement) {
+    if (statement instanceof RunScript) {
+      // The statements in a script aren't tracked individually, so they can't be compacted
+      compactable = false;
+      return;
+    }
+    if (statement instanceof TerminateQuery) {
+      Long queryId = ((TerminateQuery) statement).getQueryId();
+      entries.replaceAll(entry -> queryId.equals(entry.getQueryId()) ? entry.asTerminated() : entry);
+    }
+    entries.add(
+        new CommandSnapshot.Entry(commandId, command, null, false, getDependencies(statement)));
+    if (statement instanceof DropStream
+        || statement instanceof DropTable
+        || statement instanceof DropTopic
+        || statement instanceof TerminateQuery) {
+      compact();
+    }
+  }
+
+  /**
+   * Record a CREATE STREAM/TABLE AS SELECT along with the id of the query it started.
+   */
+  void recordQuery(
+      CommandId commandId,
+      Command command,
+      Statement statement,
+      long queryId,
+      boolean terminated
+  ) {
+    entries.add(new CommandSnapshot.Entry(
+        commandId,
+        command,
+        queryId,
+        terminated,
+        getDependencies(statement)
+    ));
+  }
+
+  /**
+   * @return A snapshot of the current state, unless a command that can't be compacted has been
+   *         recorded
+   */
+  Optional<CommandSnapshot> toSnapshot(long offset, long nextQueryId) {
+    if (!compactable) {
+      return Optional.empty();
+    }
+    return Optional.of(new CommandSnapshot(offset, nextQueryId, new ArrayList<>(entries)));
+  }
+
+  int size() {
+    return entries.size();
+  }
+
+  /**
+   * Remove every DROP that can be removed along with its creator, until none are left; removing
+   * one pair may free up another, e.g. a stream and then the topic it was registered on.
+   */
+  private void compact() {
+    boolean removed = true;
+    while (removed) {
+      removed = false;
+      for (int i = 0; i < entries.size() && !removed; i++) {
+        removed = removeWithCreator(i);
+      }
+    }
+  }
+
+  private boolean removeWithCreator(int dropIndex) {
+    CommandId dropId = entries.get(dropIndex).getCommandId();
+    if (dropId.getType() == CommandId.Type.TERMINATE || !dropId.getEntity().endsWith("_DROP")) {
+      return false;
+    }
+    String name = dropId.getEntity().substring(0, dropId.getEntity().length() - "_DROP".length());
+
+    int creatorIndex = dropIndex - 1;
+    while (creatorIndex >= 0 && !isCreator(entries.get(creatorIndex), dropId.getType(), name)) {
+      creatorIndex--;
+    }
+    if (creatorIndex < 0) {
+      return false;
+    }
+    CommandSnapshot.Entry creator = entries.get(creatorIndex);
+    if (creator.getQueryId() != null && !creator.isTerminated()) {
+      return false;
+    }
+    for (int i = creatorIndex + 1; i < dropIndex; i++) {
+      if (entries.get(i).getDependencies().contains(name.toUpperCase())) {
+        return false;
+      }
+    }
+
+    // Remove from the back so that the indexes stay valid
+    entries.remove(dropIndex);
+    entries.remove(creatorIndex);
+    if (creator.getQueryId() != null) {
+      CommandId terminateId =
+          new CommandId(CommandId.Type.TERMINATE, creator.getQueryId().toString());
+      entries.removeIf(entry -> entry.getCommandId().equals(terminateId));
+    }
+    return true;
+  }
+
+  private static boolean isCreator(CommandSnapshot.Entry entry, CommandId.Type type, String name) {
+    return entry.getCommandId().getType() == type
+        && entry.getCommandId().getEntity().equalsIgnoreCase(name);
+  }
+
+  /**
+   * @return The names of the topics, streams and tables the statement reads from, in upper case
+   */
+  static Set<String> getDependencies(Statement statement) {
+    Set<String> result = new HashSet<>();
+    if (statement instanceof CreateStream) {
+      addRegisteredTopic(((CreateStream) statement).getProperties(), result);
+    } else if (statement instanceof CreateTable) {
+      addRegisteredTopic(((CreateTable) statement).getProperties(), result);
+    } else if (statement instanceof CreateStreamAsSelect) {
+      addSources(((CreateStreamAsSelect) statement).getQuery(), result);
+    } else if (statement instanceof CreateTableAsSelect) {
+      addSources(((CreateTableAsSelect) statement).getQuery(), result);
+    }
+    return result;
+  }
+
+  private static void addRegisteredTopic(Map<String, Expression> properties, Set<String> result) {
+    for (Map.Entry<String, Expression> property : properties.entrySet()) {
+      if (property.getKey().equalsIgnoreCase(DdlConfig.TOPIC_NAME_PROPERTY)
+          && property.getValue() instanceof StringLiteral) {
+        result.add(((StringLiteral) property.getValue()).getValue().toUpperCase());
+      }
+    }
+  }
+
+  private static void addSources(Query query, Set<String> result) {
+    if (query.getQueryBody() instanceof QuerySpecification) {
+      ((QuerySpecification) query.getQueryBody()).getFrom()
+          .ifPresent(from -> addSources(from, result));
+    }
+  }
+
+  private static void addSources(Relation relation, Set<String> result) {
+    if (relation instanceof Table) {
+      result.add(((Table) relation).getName().getSuffix().toUpperCase());
+    } else if (relation instanceof AliasedRelation) {
+      addSources(((AliasedRelation) relation).getRelation(), result);
+    } else if (relation instanceof Join) {
+      addSources(((Join) relation).getLeft(), result);
+      addSources(((Join) relation).getRight(), result);
+    }
+  }
+}
@@ -23,9 +23,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import io.confluent.ksql.util.Pair;
@@ -42,14 +45,32 @@ public class CommandRunner implements Runnable, Closeable {
 
   private final StatementExecutor statementExecutor;
   private final CommandStore commandStore;
+  private final Optional<File> snapshotFile;
+  private final int snapshotInterval;
   private final AtomicBoolean closed;
+  private int commandsSinceSnapshot;
 
   public CommandRunner(
       StatementExecutor statementExecutor,
       CommandStore commandStore
+  ) {
+    this(statementExecutor, commandStore, Optional.empty(), 0);
+  }
+
+  /**
+   * @param snapshotFile Where to keep a compacted snapshot of the executed commands, if anywhere
+   * @param snapshotInterval How many new commands to execute between snapshots
+   */
+  public CommandRunner(
+      StatementExecutor statementExecutor,
+      CommandStore commandStore,
+      Optional<File> snapshotFile,
+      int snapshotInterval
   ) {
     this.statementExecutor = statementExecutor;
     this.commandStore = commandStore;
+    this.snapshotFile = snapshotFile;
+    this.snapshotInterval = Math.max(1, snapshotInterval);
 
     closed = new AtomicBoolean(false);
   }
@@ -65,14 +86,20 @@ public class CommandRunner implements Runnable, Closeable {
         log.debug("Polling for new writes to command topic");
         ConsumerRecords<CommandId, Command> records = commandStore.getNewCommands();
         log.debug("Found {} new writes to command topic", records.count());
+        long nextOffset = -1;
         for (ConsumerRecord<CommandId, Command> record : records) {
           CommandId commandId = record.key();
           Command command = record.value();
           if (command.getStatement() != null) {
             executeStatement(command, commandId);
+            commandsSinceSnapshot++;
           } else {
             log.debug("Skipping null statement for ID {}", commandId);
           }
+          nextOffset = record.offset() + 1;
+        }
+        if (nextOffset >= 0 && commandsSinceSnapshot >= snapshotInterval) {
+          writeSnapshot(nextOffset);
         }
       }
     } catch (WakeupException wue) {
@@ -96,8 +123,69 @@ public class CommandRunner implements Runnable, Closeable {
    * @throws Exception TODO: Refine this.
    */
   public void processPriorCommands() throws Exception {
-    List<Pair<CommandId, Command>> priorCommands = commandStore.getPriorCommands();
+    long startTime = System.currentTimeMillis();
+    Optional<CommandSnapshot> snapshot = readSnapshot();
+    int snapshotCommands = 0;
+    long fromOffset = 0L;
+    if (snapshot.isPresent()) {
+      statementExecutor.handleSnapshot(snapshot.get());
+      snapshotCommands = snapshot.get().getEntries().size();
+      fromOffset = snapshot.get().getOffset();
+    }
+    List<Pair<CommandId, Command>> priorCommands = snapshot.isPresent()
+        ? commandStore.getPriorCommands(fromOffset)
+        : commandStore.getPriorCommands();
     statementExecutor.handleStatements(priorCommands);
+    log.info(
+        "Restored {} commands from snapshot and {} from the command topic in {} ms",
+        snapshotCommands,
+        priorCommands.size(),
+        System.currentTimeMillis() - startTime
+    );
+    if (snapshotFile.isPresent() && !priorCommands.isEmpty()) {
+      writeSnapshot(commandStore.getPosition());
+    }
+  }
+
+  private Optional<CommandSnapshot> readSnapshot() {
+    if (!snapshotFile.isPresent()) {
+      return Optional.empty();
+    }
+    try {
+      Optional<CommandSnapshot> snapshot = CommandSnapshot.read(snapshotFile.get());
+      if (snapshot.isPresent() && snapshot.get().getOffset() > commandStore.getEndOffset()) {
+        log.warn(
+            "Ignoring command snapshot {}: it is ahead of the command topic, which may have been "
+            + "recreated",
+            snapshotFile.get()
+        );
+        return Optional.empty();
+      }
+      return snapshot;
+    } catch (IOException exception) {
+      log.warn("Failed to read command snapshot {}; replaying the whole command topic",
+               snapshotFile.get(), exception);
+      return Optional.empty();
+    }
+  }
+
+  private void writeSnapshot(long offset) {
+    commandsSinceSnapshot = 0;
+    if (!snapshotFile.isPresent()) {
+      return;
+    }
+    Optional<CommandSnapshot> snapshot = statementExecutor.getSnapshot(offset);
+    if (!snapshot.isPresent()) {
+      log.debug("Skipping command snapshot: executed commands can't be compacted");
+      return;
+    }
+    try {
+      snapshot.get().write(snapshotFile.get());
+      log.debug("Wrote command snapshot of {} commands up to offset {}",
+                snapshot.get().getEntries().size(), offset);
+    } catch (IOException exception) {
+      log.warn("Failed to write command snapshot {}", snapshotFile.get(), exception);
+    }
   }
 
   private void executeStatement(Command command, CommandId commandId) {
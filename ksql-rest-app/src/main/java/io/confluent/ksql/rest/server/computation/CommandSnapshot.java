@@ -0,0 +1,150 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+
+package io.confluent.ksql.rest.server.computation;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * The commands needed to rebuild the server's metastore and persistent queries as of a given
+ * offset in the command topic, with the statements whose effects have since been undone already
+ * compacted away. Replaying a snapshot and then the command topic from its offset onwards leaves
+ * the server in the same state as replaying the whole topic.
+ */
+public class CommandSnapshot {
+
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+  private final long offset;
+  private final long nextQueryId;
+  private final List<Entry> entries;
+
+  @JsonCreator
+  public CommandSnapshot(
+      @JsonProperty("offset")      long offset,
+      @JsonProperty("nextQueryId") long nextQueryId,
+      @JsonProperty("entries")     List<Entry> entries
+  ) {
+    this.offset = offset;
+    this.nextQueryId = nextQueryId;
+    this.entries = entries;
+  }
+
+  /**
+   * @return The offset of the first command in the command topic not covered by this snapshot
+   */
+  public long getOffset() {
+    return offset;
+  }
+
+  /**
+   * @return The id to give the next persistent query started after this snapshot is replayed
+   */
+  public long getNextQueryId() {
+    return nextQueryId;
+  }
+
+  public List<Entry> getEntries() {
+    return new ArrayList<>(entries);
+  }
+
+  public static Optional<CommandSnapshot> read(File file) throws IOException {
+    if (!file.exists()) {
+      return Optional.empty();
+    }
+    return Optional.of(OBJECT_MAPPER.readValue(file, CommandSnapshot.class));
+  }
+
+  /**
+   * Write the snapshot to the given file, replacing any previous snapshot only once the new one
+   * has been written in full.
+   */
+  public void write(File file) throws IOException {
+    File tempFile = new File(file.getPath() + ".tmp");
+    OBJECT_MAPPER.writeValue(tempFile, this);
+    Files.move(
+        tempFile.toPath(),
+        file.toPath(),
+        StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE
+    );
+  }
+
+  public static class Entry {
+    private final CommandId commandId;
+    private final Command command;
+    private final Long queryId;
+    private final boolean terminated;
+    private final Set<String> dependencies;
+
+    /**
+     * @param commandId The ID the command was distributed with
+     * @param command The command itself
+     * @param queryId The id of the persistent query the command started, if any
+     * @param terminated Whether that query has since been terminated
+     * @param dependencies The names of the topics, streams and tables the command reads from
+     */
+    @JsonCreator
+    public Entry(
+        @JsonProperty("commandId")    CommandId commandId,
+        @JsonProperty("command")      Command command,
+        @JsonProperty("queryId")      Long queryId,
+        @JsonProperty("terminated")   boolean terminated,
+        @JsonProperty("dependencies") Set<String> dependencies
+    ) {
+      this.commandId = commandId;
+      this.command = command;
+      this.queryId = queryId;
+      this.terminated = terminated;
+      this.dependencies = dependencies;
+    }
+
+    public CommandId getCommandId() {
+      return commandId;
+    }
+
+    public Command getCommand() {
+      return command;
+    }
+
+    public Long getQueryId() {
+      return queryId;
+    }
+
+    public boolean isTerminated() {
+      return terminated;
+    }
+
+    public Set<String> getDependencies() {
+      return dependencies;
+    }
+
+    Entry asTerminated() {
+      return new Entry(commandId, command, queryId, true, dependencies);
+    }
+  }
+}
@@ -0,0 +1,135 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+
+
+package io.confluent.ksql.rest.server.computation;
+
+import io.confluent.ksql.rest.entity.CommandStatus;
+import io.confluent.ksql.util.Pair;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The latest status of every command, readable from any thread without locking. Statuses that
+ * can't change any more (success, error, terminated) are only kept up to a maximum count and age,
+ * oldest first, so a long-lived server doesn't accumulate one entry per statement it ever ran.
+ * Statuses of commands still in flight and of running queries are always kept.
+ */
+class CommandStatusStore {
+
+  private final Map<CommandId, CommandStatus> statuses = new ConcurrentHashMap<>();
+  // Final statuses in the order they were set, with the time they were set
+  private final ConcurrentLinkedQueue<Pair<Pair<CommandId, CommandStatus>, Long>> finalStatuses =
+      new ConcurrentLinkedQueue<>();
+  private final AtomicInteger finalStatusCount = new AtomicInteger();
+  private final int maxRetained;
+  private final long retentionMs;
+
+  /**
+   * @param maxRetained How many final statuses to keep at most
+   * @param retentionMs How long to keep final statuses for
+   */
+  CommandStatusStore(int maxRetained, long retentionMs) {
+    this.maxRetained = maxRetained;
+    this.retentionMs = retentionMs;
+  }
+
+  void put(CommandId commandId, CommandStatus commandStatus) {
+    statuses.put(commandId, commandStatus);
+    if (isFinal(commandStatus)) {
+      finalStatuses.add(
+          new Pair<>(new Pair<>(commandId, commandStatus), System.currentTimeMillis()));
+      finalStatusCount.incrementAndGet();
+    }
+  }
+
+  /**
+   * Removes the status only if it's still the one given, compared by identity: command IDs are
+   * reused, and a later command may well have an equal status.
+   */
+  boolean remove(CommandId commandId, CommandStatus commandStatus) {
+    AtomicBoolean removed = new AtomicBoolean();
+    statuses.computeIfPresent(commandId, (id, current) -> {
+      if (current != commandStatus) {
+        return current;
+      }
+      removed.set(true);
+      return null;
+    });
+    return removed.get();
+  }
+
+  CommandStatus get(CommandId commandId) {
+    return statuses.get(commandId);
+  }
+
+  boolean containsKey(CommandId commandId) {
+    return statuses.containsKey(commandId);
+  }
+
+  /**
+   * @return A live, read-only view of all the statuses
+   */
+  Map<CommandId, CommandStatus> getAll() {
+    return Collections.unmodifiableMap(statuses);
+  }
+
+  /**
+   * Drop the oldest final statuses beyond the retention limits.
+   * @return The commands whose statuses were dropped
+   */
+  List<CommandId> expire() {
+    List<CommandId> expired = new ArrayList<>();
+    long cutoff = System.currentTimeMillis() - retentionMs;
+    Pair<Pair<CommandId, CommandStatus>, Long> oldest;
+    while ((oldest = finalStatuses.peek()) != null
+           && (finalStatusCount.get() > maxRetained || oldest.getRight() < cutoff)) {
+      oldest = finalStatuses.poll();
+      if (oldest == null) {
+        break;
+      }
+      finalStatusCount.decrementAndGet();
+      CommandId commandId = oldest.getLeft().getLeft();
+      // Only drop the status if it hasn't been replaced since
+      if (remove(commandId, oldest.getLeft().getRight())) {
+        expired.add(commandId);
+      }
+    }
+    return expired;
+  }
+
+  int size() {
+    return statuses.size();
+  }
+
+  private static boolean isFinal(CommandStatus commandStatus) {
+    switch (commandStatus.getStatus()) {
+      case SUCCESS:
+      case ERROR:
+      case TERMINATED:
+        return true;
+      default:
+        return false;
+    }
+  }
+}
@@ -24,6 +24,7 @@ import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
 import org.apache.kafka.common.PartitionInfo;
 import org.apache.kafka.common.TopicPartition;
 import org.slf4j.Logger;
@@ -36,6 +37,7 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -79,24 +81,55 @@ public class CommandStore implements Closeable {
         commandProducer.close();
     }
 
+    /**
+     * @param statement The statement to be distributed
+     * @return The ID the statement is to be written to the command topic under. IDs are derived
+     *         from the statement, so the same ID is used again by a later statement on the same
+     *         entity, for instance when a stream is dropped and created again.
+     */
+    public CommandId getCommandId(Statement statement) {
+        return commandIdAssigner.getCommandId(statement);
+    }
+
     /**
      * Write the given statement to the command topic, to be read by all nodes in the current cluster.
      * Does not return until the statement has been successfully written, or an exception is thrown.
+     * @param commandId The ID of the statement, from {@link #getCommandId(Statement)}
      * @param statementString The string of the statement to be distributed
-     * @param statement The statement to be distributed
      * @param streamsProperties Any command-specific Streams properties to use.
-     * @return The ID assigned to the statement
      * @throws Exception TODO: Refine this
      */
-    public CommandId distributeStatement(
+    public void distributeStatement(
+            CommandId commandId,
             String statementString,
-            Statement statement,
             Map<String, Object> streamsProperties
     ) throws Exception {
-        CommandId commandId = commandIdAssigner.getCommandId(statement);
+        sendStatement(commandId, statementString, streamsProperties).get();
+    }
+
+    /**
+     * Hand the given statement to the producer without waiting for it to be written, so that
+     * several statements can be written together; call {@link #flush()} once they have all been
+     * sent.
+     * @param commandId The ID of the statement, from {@link #getCommandId(Statement)}
+     * @param statementString The string of the statement to be distributed
+     * @param streamsProperties Any command-specific Streams properties to use.
+     * @return The pending write
+     */
+    public Future<RecordMetadata> sendStatement(
+            CommandId commandId,
+            String statementString,
+            Map<String, Object> streamsProperties
+    ) {
         Command command = new Command(statementString, streamsProperties);
-        commandProducer.send(new ProducerRecord<>(commandTopic, commandId, command)).get();
-        return commandId;
+        return commandProducer.send(new ProducerRecord<>(commandTopic, commandId, command));
+    }
+
+    /**
+     * Send all statements handed to {@link #sendStatement} right away.
+     */
+    public void flush() {
+        commandProducer.flush();
     }
 
     /**
@@ -113,8 +146,18 @@ public class CommandStore implements Closeable {
      * @return The commands that have been read from the command topic
      */
     public List<Pair<CommandId, Command>> getPriorCommands() {
+        return getPriorCommands(0L);
+    }
+
+    /**
+     * Collect all commands that have been written to the command topic, starting at the given
+     * offset and proceeding until it appears that all have been returned.
+     * @param fromOffset The offset of the first command to return
+     * @return The commands that have been read from the command topic
+     */
+    public List<Pair<CommandId, Command>> getPriorCommands(long fromOffset) {
         List<Pair<CommandId, Command>> result = new ArrayList<>();
-        for (ConsumerRecord<CommandId, Command> commandRecord : getAllPriorCommandRecords()) {
+        for (ConsumerRecord<CommandId, Command> commandRecord : getAllPriorCommandRecords(fromOffset)) {
             CommandId commandId = commandRecord.key();
             Command command = commandRecord.value();
             if (command != null) {
@@ -125,12 +168,32 @@ public class CommandStore implements Closeable {
         return result;
     }
 
-    private List<ConsumerRecord<CommandId, Command>> getAllPriorCommandRecords() {
+    /**
+     * @return The offset of the next command that will be read from the command topic
+     */
+    public long getPosition() {
+        return commandConsumer.position(new TopicPartition(commandTopic, 0));
+    }
+
+    /**
+     * @return The offset just past the last command currently in the command topic
+     */
+    public long getEndOffset() {
+        TopicPartition topicPartition = new TopicPartition(commandTopic, 0);
+        return commandConsumer.endOffsets(Collections.singleton(topicPartition)).get(topicPartition);
+    }
+
+    private List<ConsumerRecord<CommandId, Command>> getAllPriorCommandRecords(long fromOffset) {
         Collection<TopicPartition> commandTopicPartitions = getTopicPartitionsForTopic(commandTopic);
 
         // Have to poll to make sure subscription has taken effect (subscribe() is lazy)
         commandConsumer.poll(0);
         commandConsumer.seekToBeginning(commandTopicPartitions);
+        if (fromOffset > 0) {
+            for (TopicPartition topicPartition : commandTopicPartitions) {
+                commandConsumer.seek(topicPartition, fromOffset);
+            }
+        }
 
 //        TODO: correctly handle a sequence of related records
         log.debug("Reading prior command records");
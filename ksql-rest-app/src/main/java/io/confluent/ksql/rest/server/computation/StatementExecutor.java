@@ -47,17 +47,26 @@ import org.apache.kafka.common.errors.WakeupException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.function.Predicate;
 
 /**
  * Handles the actual execution (or delegation to KSQL core) of all distributed statements, as well
@@ -67,38 +76,207 @@ public class StatementExecutor {
 
   private static final Logger log = LoggerFactory.getLogger(StatementExecutor.class);
 
-  private static final Pattern TERMINATE_PATTERN =
-      Pattern.compile("\\s*TERMINATE\\s+([0-9]+)\\s*;?\\s*");
-
   private final KsqlEngine ksqlEngine;
   private final StatementParser statementParser;
-  private final Map<CommandId, CommandStatus> statusStore;
-  private final Map<CommandId, CommandStatusFuture> statusFutures;
+  private final CommandStatusStore statusStore;
+  // Futures of the statements written by this node that it hasn't executed yet, oldest first
+  private final Map<CommandId, Queue<CommandStatusFuture>> statusFutures;
+  private final CommandLog commandLog;
+
+  // Queries planned while replaying prior commands, waiting for their sink topics to be created
+  private List<Pair<CommandId, PersistentQueryMetadata>> pendingQueryStarts;
 
   public StatementExecutor(
       KsqlEngine ksqlEngine,
       StatementParser statementParser
+  ) {
+    this(ksqlEngine, statementParser, Integer.MAX_VALUE, Long.MAX_VALUE);
+  }
+
+  /**
+   * @param maxRetainedStatuses How many statuses of finished commands to keep at most
+   * @param statusRetentionMs How long to keep the statuses of finished commands for
+   */
+  public StatementExecutor(
+      KsqlEngine ksqlEngine,
+      StatementParser statementParser,
+      int maxRetainedStatuses,
+      long statusRetentionMs
   ) {
     this.ksqlEngine = ksqlEngine;
     this.statementParser = statementParser;
 
-    this.statusStore = new HashMap<>();
-    this.statusFutures = new HashMap<>();
+    this.statusStore = new CommandStatusStore(maxRetainedStatuses, statusRetentionMs);
+    this.statusFutures = new ConcurrentHashMap<>();
+    this.commandLog = new CommandLog();
   }
 
+  /**
+   * Replay commands read from the command topic on startup. A forward scan first works out from
+   * the TERMINATE statements which queries end up terminated: those only have their sinks
+   * registered, without creating topics or Kafka Streams instances for them, and their TERMINATEs
+   * are granted along with them.
+   * @param priorCommands The commands to replay, in the order they were written
+   */
   public void handleStatements(List<Pair<CommandId, Command>> priorCommands) throws Exception {
-    for (Pair<CommandId, Command> commandIdCommandPair: priorCommands) {
-      log.info("Executing prior statement: '{}'", commandIdCommandPair.getRight());
+    Map<Long, CommandId> terminatedQueries = getTerminatedQueries(priorCommands);
+    Set<CommandId> terminateCommands = new HashSet<>(terminatedQueries.values());
+    int grantedTerminations = 0;
+
+    pendingQueryStarts = new ArrayList<>();
+    try {
+      for (Pair<CommandId, Command> commandIdCommandPair : priorCommands) {
+        CommandId commandId = commandIdCommandPair.getLeft();
+        if (terminateCommands.contains(commandId) && statusStore.containsKey(commandId)) {
+          // Already granted when the query it terminates was replayed
+          grantedTerminations++;
+          continue;
+        }
+        log.info("Executing prior statement: '{}'", commandIdCommandPair.getRight());
+        try {
+          handleStatementWithTerminatedQueries(
+              commandIdCommandPair.getRight(),
+              commandId,
+              terminatedQueries
+          );
+        } catch (Exception exception) {
+          log.warn("Failed to execute statement due to exception", exception);
+        }
+      }
+    } finally {
+      startPendingQueries();
+    }
+    log.info("Replayed {} prior commands, {} of them terminations granted with their queries",
+             priorCommands.size(), grantedTerminations);
+    expireStatuses();
+  }
+
+  /**
+   * Rebuild the state captured in a snapshot. Queries are given the same ids they had when the
+   * snapshot was taken; queries that had been terminated only have their sinks registered, without
+   * creating topics or Kafka Streams instances for them.
+   * @param snapshot The snapshot to replay
+   */
+  public void handleSnapshot(CommandSnapshot snapshot) {
+    pendingQueryStarts = new ArrayList<>();
+    try {
+      replaySnapshot(snapshot);
+    } finally {
+      startPendingQueries();
+    }
+    expireStatuses();
+  }
+
+  private void replaySnapshot(CommandSnapshot snapshot) {
+    try {
+      replaySnapshotEntries(snapshot);
+    } finally {
+      // Replaying records every entry again; the log is the snapshot, not what the replay recorded
+      commandLog.load(snapshot);
+    }
+  }
+
+  private void replaySnapshotEntries(CommandSnapshot snapshot) {
+    Map<Long, CommandId> terminatedQueries = new HashMap<>();
+    for (CommandSnapshot.Entry entry : snapshot.getEntries()) {
+      if (entry.isTerminated()) {
+        terminatedQueries.put(
+            entry.getQueryId(),
+            new CommandId(CommandId.Type.TERMINATE, entry.getQueryId().toString())
+        );
+      }
+    }
+    for (CommandSnapshot.Entry entry : snapshot.getEntries()) {
+      if (entry.getCommandId().getType() == CommandId.Type.TERMINATE
+          && terminatedQueries.containsValue(entry.getCommandId())) {
+        // Handled when the query it terminates is replayed
+        continue;
+      }
+      if (entry.getQueryId() != null) {
+        ksqlEngine.getQueryEngine().setNextQueryId(entry.getQueryId());
+      }
       try {
         handleStatementWithTerminatedQueries(
-            commandIdCommandPair.getRight(),
-            commandIdCommandPair.getLeft(),
-            Collections.emptyMap()
+            entry.getCommand(),
+            entry.getCommandId(),
+            terminatedQueries
         );
       } catch (Exception exception) {
         log.warn("Failed to execute statement due to exception", exception);
       }
     }
+    ksqlEngine.getQueryEngine().setNextQueryId(Math.max(
+        snapshot.getNextQueryId(),
+        ksqlEngine.getQueryEngine().peekNextQueryId()
+    ));
+  }
+
+  /**
+   * Start the queries planned during replay. While replaying, queries don't wait for their sink
+   * topics to be created before the next statement is executed, so the topics of a run of queries
+   * are created at once rather than one round trip after another. A statement only waits for the
+   * sink topics it depends on: a query for those of the queries it reads from, anything else for
+   * all of them. Queries are started in the order they were planned, each once its sink topic
+   * exists; starting a query doesn't block.
+   */
+  private void startPendingQueries() {
+    List<Pair<CommandId, PersistentQueryMetadata>> queries = pendingQueryStarts;
+    pendingQueryStarts = null;
+    Map<Long, PersistentQueryMetadata> runningQueries = ksqlEngine.getPersistentQueries();
+    int started = 0;
+    for (Pair<CommandId, PersistentQueryMetadata> query : queries) {
+      // A later statement in the replay may already have terminated the query
+      if (!runningQueries.containsKey(query.getRight().getId())) {
+        continue;
+      }
+      try {
+        query.getRight().getSinkTopicCreation().get();
+        query.getRight().getKafkaStreams().start();
+        started++;
+      } catch (ExecutionException | InterruptedException exception) {
+        failPendingQuery(query, exception);
+      }
+    }
+    log.info("Started {} persistent queries", started);
+  }
+
+  /**
+   * Wait for the sink topics of the queries planned so far during replay whose sinks match the
+   * given predicate. A query whose sink topic couldn't be created is failed and not started.
+   */
+  private void awaitPendingSinkTopics(Predicate<String> isAwaited) {
+    Iterator<Pair<CommandId, PersistentQueryMetadata>> pending = pendingQueryStarts.iterator();
+    while (pending.hasNext()) {
+      Pair<CommandId, PersistentQueryMetadata> query = pending.next();
+      String sinkName = query.getRight().getOutputNode().getId().toString().toUpperCase();
+      if (!isAwaited.test(sinkName)) {
+        continue;
+      }
+      try {
+        query.getRight().getSinkTopicCreation().get();
+      } catch (ExecutionException | InterruptedException exception) {
+        failPendingQuery(query, exception);
+        pending.remove();
+      }
+    }
+  }
+
+  private void failPendingQuery(Pair<CommandId, PersistentQueryMetadata> query, Exception exception) {
+    CommandId commandId = query.getLeft();
+    String stackTraceString = ExceptionUtil.stackTraceToString(exception);
+    log.error("Failed to start query for {}: {}", commandId, stackTraceString);
+    ksqlEngine.terminateQuery(query.getRight().getId(), true);
+    CommandStatus errorStatus = new CommandStatus(CommandStatus.Status.ERROR, stackTraceString);
+    statusStore.put(commandId, errorStatus);
+    completeStatusFuture(commandId, errorStatus);
+  }
+
+  /**
+   * @param offset The offset of the first command in the command topic that hasn't been executed
+   * @return A snapshot of the commands executed so far, if they can be compacted into one
+   */
+  public Optional<CommandSnapshot> getSnapshot(long offset) {
+    return commandLog.toSnapshot(offset, ksqlEngine.getQueryEngine().peekNextQueryId());
   }
 
   /**
@@ -112,6 +290,7 @@ public class StatementExecutor {
       CommandId commandId
   ) throws Exception {
     handleStatementWithTerminatedQueries(command, commandId, null);
+    expireStatuses();
   }
 
   /**
@@ -120,7 +299,7 @@ public class StatementExecutor {
    *         (or attempted to execute).
    */
   public Map<CommandId, CommandStatus> getStatuses() {
-    return new HashMap<>(statusStore);
+    return statusStore.getAll();
   }
 
   /**
@@ -132,58 +311,71 @@ public class StatementExecutor {
   }
 
   /**
-   * Register the existence of a new statement that has been written to the command topic. All other
-   * statement status information is updated exclusively by the current {@link StatementExecutor}
-   * instance, but in the (unlikely but possible) event that a statement is written to the command
-   * topic but never picked up by this instance, it should be possible to know that it was at least
-   * written to the topic in the first place.
-   * @param commandId The ID of the statement that has been written to the command topic.
+   * Register the existence of a new statement that is about to be written to the command topic.
+   * All other statement status information is updated exclusively by the current
+   * {@link StatementExecutor} instance, but in the (unlikely but possible) event that a statement
+   * is written to the command topic but never picked up by this instance, it should be possible to
+   * know that it was at least written to the topic in the first place.
+   *
+   * <p>Command IDs are reused, for instance when a stream is dropped and created again, so this
+   * must be called before the statement is written: the status of the ID is then reset to QUEUED,
+   * replacing that of any earlier command, and the returned future is completed by the next
+   * execution of a command with the ID rather than by one that happened before. If the statement
+   * couldn't be written, cancel the future.
+   * @param commandId The ID of the statement that is to be written to the command topic.
    */
   public Future<CommandStatus> registerQueuedStatement(CommandId commandId) {
-    statusStore.put(
+    CommandStatusFuture statusFuture = new CommandStatusFuture(
         commandId,
         new CommandStatus(CommandStatus.Status.QUEUED, "Statement written to command topic")
     );
-
-    CommandStatusFuture result;
-    synchronized (statusFutures) {
-      result = statusFutures.get(commandId);
-      if (result != null) {
-        return result;
-      } else {
-        result = new CommandStatusFuture(commandId);
-        statusFutures.put(commandId, result);
-        return result;
-      }
-    }
+    statusFutures.compute(commandId, (id, pending) -> {
+      Queue<CommandStatusFuture> futures = pending != null ? pending : new ArrayDeque<>();
+      futures.add(statusFuture);
+      return futures;
+    });
+    statusStore.put(commandId, statusFuture.queuedStatus);
+    return statusFuture;
   }
 
   private void completeStatusFuture(CommandId commandId, CommandStatus commandStatus) {
-    synchronized (statusFutures) {
-      CommandStatusFuture statusFuture = statusFutures.get(commandId);
-      if (statusFuture != null) {
-        statusFuture.complete(commandStatus);
-      } else {
-        CommandStatusFuture newStatusFuture = new CommandStatusFuture(commandId);
-        newStatusFuture.complete(commandStatus);
-        statusFutures.put(commandId, newStatusFuture);
-      }
+    // Only statements written by this node have a future; replayed ones and those written by
+    // other nodes have nobody waiting for them
+    AtomicReference<CommandStatusFuture> next = new AtomicReference<>();
+    statusFutures.computeIfPresent(commandId, (id, pending) -> {
+      next.set(pending.poll());
+      return pending.isEmpty() ? null : pending;
+    });
+    if (next.get() != null) {
+      next.get().complete(commandStatus);
     }
   }
 
-  private Map<Long, CommandId> getTerminatedQueries(Map<CommandId, Command> commands) {
-    Map<Long, CommandId> result = new HashMap<>();
+  private void expireStatuses() {
+    statusStore.expire();
+  }
 
-    for (Map.Entry<CommandId, Command> commandEntry : commands.entrySet()) {
-      CommandId commandId = commandEntry.getKey();
-      String command = commandEntry.getValue().getStatement();
-      Matcher terminateMatcher = TERMINATE_PATTERN.matcher(command.toUpperCase());
-      if (terminateMatcher.matches()) {
-        Long queryId = Long.parseLong(terminateMatcher.group(1));
-        result.put(queryId, commandId);
+  /**
+   * @return The ids of the queries terminated by the given commands, each with the command that
+   *         terminated it
+   */
+  private Map<Long, CommandId> getTerminatedQueries(List<Pair<CommandId, Command>> commands) {
+    Map<Long, CommandId> result = new HashMap<>();
+    for (Pair<CommandId, Command> command : commands) {
+      if (command.getLeft().getType() != CommandId.Type.TERMINATE) {
+        continue;
+      }
+      try {
+        Statement statement = statementParser.parseSingleStatement(command.getRight().getStatement());
+        if (statement instanceof TerminateQuery) {
+          result.put(((TerminateQuery) statement).getQueryId(), command.getLeft());
+        }
+      } catch (Exception exception) {
+        // Reported when the command itself is replayed
+        log.debug("Failed to parse {} while looking for terminated queries", command.getLeft(),
+                  exception);
       }
     }
-
     return result;
   }
 
@@ -230,11 +422,17 @@ public class StatementExecutor {
       CommandId commandId,
       Map<Long, CommandId> terminatedQueries
   ) throws Exception {
-    String statementStr = command.getStatement();
-
     DDLCommandResult result = null;
     String successMessage = "";
 
+    if (pendingQueryStarts != null) {
+      if (statement instanceof CreateStreamAsSelect || statement instanceof CreateTableAsSelect) {
+        awaitPendingSinkTopics(CommandLog.getDependencies(statement)::contains);
+      } else {
+        awaitPendingSinkTopics(sinkName -> true);
+      }
+    }
+
     if (statement instanceof RegisterTopic
         || statement instanceof CreateStream
         || statement instanceof CreateTable
@@ -255,7 +453,7 @@ public class StatementExecutor {
           createStreamAsSelect.getProperties(),
           createStreamAsSelect.getPartitionByColumn()
       );
-      if (startQuery(statementStr, query, commandId, terminatedQueries, command.getStreamsProperties())) {
+      if (startQuery(statement, command, query, commandId, terminatedQueries)) {
         successMessage = "Stream created and running";
       } else {
         return;
@@ -271,7 +469,7 @@ public class StatementExecutor {
           createTableAsSelect.getProperties(),
           Optional.empty()
       );
-      if (startQuery(statementStr, query, commandId, terminatedQueries, command.getStreamsProperties())) {
+      if (startQuery(statement, command, query, commandId, terminatedQueries)) {
         successMessage = "Table created and running";
       } else {
         return;
@@ -301,6 +499,9 @@ public class StatementExecutor {
           statement.getClass().getName()
       ));
     }
+    if (!(statement instanceof CreateStreamAsSelect || statement instanceof CreateTableAsSelect)) {
+      commandLog.record(commandId, command, statement);
+    }
     // TODO: change to unified return message
     CommandStatus successStatus = new CommandStatus(CommandStatus.Status.SUCCESS,
         result != null ? result.getMessage(): successMessage);
@@ -309,11 +510,11 @@ public class StatementExecutor {
   }
 
   private boolean startQuery(
-      String queryString,
+      Statement statement,
+      Command command,
       Query query,
       CommandId commandId,
-      Map<Long, CommandId> terminatedQueries,
-      Map<String, Object> queryConfigProperties
+      Map<Long, CommandId> terminatedQueries
   ) throws Exception {
     if (query.getQueryBody() instanceof QuerySpecification) {
       QuerySpecification querySpecification = (QuerySpecification) query.getQueryBody();
@@ -329,37 +530,36 @@ public class StatementExecutor {
       }
     }
 
-    QueryMetadata queryMetadata = ksqlEngine.buildMultipleQueries(
-        false, queryString, queryConfigProperties).get(0);
-
-    if (queryMetadata instanceof PersistentQueryMetadata) {
-      PersistentQueryMetadata persistentQueryMetadata = (PersistentQueryMetadata) queryMetadata;
-      long queryId = persistentQueryMetadata.getId();
+    long queryId = ksqlEngine.buildPersistentQuery(
+        command.getStatement(),
+        command.getStreamsProperties(),
+        terminatedQueries != null ? terminatedQueries.keySet() : Collections.emptySet(),
+        pendingQueryStarts == null
+    );
 
-      if (terminatedQueries != null && terminatedQueries.containsKey(queryId)) {
-        CommandId terminateId = terminatedQueries.get(queryId);
-        statusStore.put(
-            terminateId,
-            new CommandStatus(CommandStatus.Status.SUCCESS, "Termination request granted")
-        );
-        statusStore.put(
-            commandId,
-            new CommandStatus(CommandStatus.Status.TERMINATED, "Query terminated")
-        );
-        ksqlEngine.terminateQuery(queryId, false);
-        return false;
-      } else {
-        persistentQueryMetadata.getKafkaStreams().start();
-        return true;
-      }
+    if (terminatedQueries != null && terminatedQueries.containsKey(queryId)) {
+      // Only its sink was registered; there is nothing to start or stop
+      CommandId terminateId = terminatedQueries.get(queryId);
+      statusStore.put(
+          terminateId,
+          new CommandStatus(CommandStatus.Status.SUCCESS, "Termination request granted")
+      );
+      statusStore.put(
+          commandId,
+          new CommandStatus(CommandStatus.Status.TERMINATED, "Query terminated")
+      );
+      commandLog.recordQuery(commandId, command, statement, queryId, true);
+      return false;
+    }
 
+    PersistentQueryMetadata persistentQueryMetadata = ksqlEngine.getPersistentQueries().get(queryId);
+    if (pendingQueryStarts != null) {
+      pendingQueryStarts.add(new Pair<>(commandId, persistentQueryMetadata));
     } else {
-      throw new Exception(String.format(
-          "Unexpected query metadata type: %s; was expecting %s",
-          queryMetadata.getClass().getCanonicalName(),
-          PersistentQueryMetadata.class.getCanonicalName()
-      ));
+      persistentQueryMetadata.getKafkaStreams().start();
     }
+    commandLog.recordQuery(commandId, command, statement, queryId, false);
+    return true;
   }
 
   private void terminateQuery(TerminateQuery terminateQuery) throws Exception {
@@ -397,36 +597,55 @@ public class StatementExecutor {
   private class CommandStatusFuture implements Future<CommandStatus> {
 
     private final CommandId commandId;
+    private final CommandStatus queuedStatus;
     private final AtomicReference<CommandStatus> result;
+    private volatile boolean cancelled;
 
-    public CommandStatusFuture(CommandId commandId) {
+    public CommandStatusFuture(CommandId commandId, CommandStatus queuedStatus) {
       this.commandId = commandId;
+      this.queuedStatus = queuedStatus;
       this.result = new AtomicReference<>(null);
     }
 
+    /**
+     * Stop waiting for a statement that was never written. Fails if the statement has already
+     * been executed.
+     */
     @Override
     public boolean cancel(boolean mayInterruptIfRunning) {
-      return false; // TODO: Is an implementation of this method necessary?
+      AtomicBoolean removed = new AtomicBoolean();
+      statusFutures.computeIfPresent(commandId, (id, pending) -> {
+        removed.set(pending.remove(this));
+        return pending.isEmpty() ? null : pending;
+      });
+      if (!removed.get()) {
+        return false;
+      }
+      statusStore.remove(commandId, queuedStatus);
+      synchronized (result) {
+        cancelled = true;
+        result.notifyAll();
+      }
+      return true;
     }
 
     @Override
     public boolean isCancelled() {
-      return false; // TODO: Is an implementation of this method necessary?
+      return cancelled;
     }
 
     @Override
     public boolean isDone() {
-      return result.get() != null;
+      return cancelled || result.get() != null;
     }
 
     @Override
     public CommandStatus get() throws InterruptedException {
       synchronized (result) {
-        while (result.get() == null) {
+        while (!cancelled && result.get() == null) {
           result.wait();
         }
-        removeFromFutures();
-        return result.get();
+        return getResult();
       }
     }
 
@@ -435,28 +654,28 @@ public class StatementExecutor {
         throws InterruptedException, TimeoutException {
       long endTimeMs = System.currentTimeMillis() + unit.toMillis(timeout);
       synchronized (result) {
-        while (System.currentTimeMillis() < endTimeMs && result.get() == null) {
+        while (System.currentTimeMillis() < endTimeMs && !cancelled && result.get() == null) {
           result.wait(Math.max(1, endTimeMs - System.currentTimeMillis()));
         }
-        if (result.get() == null) {
+        if (!cancelled && result.get() == null) {
           throw new TimeoutException();
         }
-        removeFromFutures();
-        return result.get();
+        return getResult();
       }
     }
 
+    private CommandStatus getResult() {
+      if (cancelled) {
+        throw new CancellationException("Statement " + commandId + " was never written");
+      }
+      return result.get();
+    }
+
     private void complete(CommandStatus result) {
       synchronized (this.result) {
         this.result.set(result);
         this.result.notifyAll();
       }
     }
-
-    private void removeFromFutures() {
-      synchronized (statusFutures) {
-        statusFutures.remove(commandId);
-      }
-    }
   }
 }
@@ -42,6 +42,7 @@ import io.confluent.ksql.parser.tree.DropStream;
 import io.confluent.ksql.parser.tree.DropTable;
 import io.confluent.ksql.parser.tree.DropTopic;
 import io.confluent.ksql.parser.tree.Explain;
+import io.confluent.ksql.parser.tree.ExplainAnalyze;
 import io.confluent.ksql.parser.tree.ListProperties;
 import io.confluent.ksql.parser.tree.ListQueries;
 import io.confluent.ksql.parser.tree.ListStreams;
@@ -62,6 +63,7 @@ import io.confluent.ksql.rest.entity.KsqlEntityList;
 import io.confluent.ksql.rest.entity.KsqlRequest;
 import io.confluent.ksql.rest.entity.PropertiesList;
 import io.confluent.ksql.rest.entity.Queries;
+import io.confluent.ksql.rest.entity.RunningQueryMetrics;
 import io.confluent.ksql.rest.entity.SourceDescription;
 import io.confluent.ksql.rest.entity.StreamsList;
 import io.confluent.ksql.rest.entity.TablesList;
@@ -74,11 +76,13 @@ import io.confluent.ksql.rest.server.computation.StatementExecutor;
 import io.confluent.ksql.serde.avro.KsqlAvroTopicSerDe;
 import io.confluent.ksql.util.KafkaTopicClient;
 import io.confluent.ksql.util.KsqlException;
+import io.confluent.ksql.util.Pair;
 import io.confluent.ksql.util.PersistentQueryMetadata;
 import io.confluent.ksql.util.QueryMetadata;
 
 import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.misc.Interval;
+import org.apache.kafka.clients.producer.RecordMetadata;
 import org.slf4j.LoggerFactory;
 
 import javax.ws.rs.Consumes;
@@ -88,6 +92,8 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
@@ -132,9 +138,21 @@ public class KsqlResource {
         ));
       }
 
-      for (int i = 0; i < parsedStatements.size(); i++) {
-        String statementText = statementStrings.get(i);
-        result.add(executeStatement(statementText, parsedStatements.get(i), streamsProperties));
+      CommandBatch commandBatch = request.isAsync() ? new CommandBatch() : null;
+      try {
+        for (int i = 0; i < parsedStatements.size(); i++) {
+          String statementText = statementStrings.get(i);
+          result.add(executeStatement(
+              statementText,
+              parsedStatements.get(i),
+              streamsProperties,
+              commandBatch
+          ));
+        }
+      } finally {
+        if (commandBatch != null) {
+          commandBatch.flush();
+        }
       }
     } catch (Exception exception) {
       String stackTrace = ExceptionUtil.stackTraceToString(exception);
@@ -169,10 +187,15 @@ public class KsqlResource {
     return ksqlEngine;
   }
 
+  /**
+   * @param commandBatch If not null, statements for the command topic are only sent through it and
+   *                     not waited for
+   */
   private KsqlEntity executeStatement(
       String statementText,
       Statement statement,
-      Map<String, Object> streamsProperties
+      Map<String, Object> streamsProperties,
+      CommandBatch commandBatch
   ) throws Exception {
     if (statement instanceof ListTopics) {
       return listTopics(statementText);
@@ -189,14 +212,17 @@ public class KsqlResource {
       if (showColumns.isTopic()) {
         return describeTopic(statementText, showColumns.getTable().getSuffix());
       }
-      return describe(statementText, showColumns.getTable().getSuffix());
+      return describe(statementText, showColumns.getTable().getSuffix(),
+                      showColumns.isExtended());
     } else if (statement instanceof ListProperties) {
       return listProperties(statementText);
+    } else if (statement instanceof ExplainAnalyze) {
+      return getAnalyzedExecutionPlan(((ExplainAnalyze) statement).getQueryId());
     } else if (statement instanceof Explain) {
       Explain explain = (Explain) statement;
       return getStatementExecutionPlan(explain, statementText);
     } else if (statement instanceof RunScript) {
-      return distributeStatement(statementText, statement, streamsProperties);
+      return distributeStatement(statementText, statement, streamsProperties, commandBatch);
     }else if (statement instanceof RegisterTopic
             || statement instanceof CreateStream
             || statement instanceof CreateTable
@@ -207,9 +233,18 @@ public class KsqlResource {
             || statement instanceof DropStream
             || statement instanceof DropTable
     ) {
-      ExecutionPlan executionPlan = getStatementExecutionPlan(statement, statementText,
-                                                              streamsProperties);
-      return distributeStatement(statementText, statement, streamsProperties);
+      try {
+        getStatementExecutionPlan(statement, statementText, streamsProperties);
+      } catch (Exception exception) {
+        if (commandBatch == null || !commandBatch.hasPendingCommands()) {
+          throw exception;
+        }
+        // The statement may depend on earlier ones in the batch, which haven't necessarily been
+        // executed yet: wait for them and try again
+        commandBatch.awaitExecuted();
+        getStatementExecutionPlan(statement, statementText, streamsProperties);
+      }
+      return distributeStatement(statementText, statement, streamsProperties, commandBatch);
     } else {
       if (statement != null) {
         throw new Exception(String.format(
@@ -230,14 +265,25 @@ public class KsqlResource {
   private CommandStatusEntity distributeStatement(
       String statementText,
       Statement statement,
-      Map<String, Object> streamsProperties
+      Map<String, Object> streamsProperties,
+      CommandBatch commandBatch
   ) throws Exception {
-    CommandId commandId =
-        commandStore.distributeStatement(statementText, statement, streamsProperties);
+    if (commandBatch != null) {
+      return commandBatch.send(statementText, statement, streamsProperties);
+    }
+    CommandId commandId = commandStore.getCommandId(statement);
+    // Registered before it's written, so it can't be confused with an earlier command of the
+    // same id
+    Future<CommandStatus> statusFuture = statementExecutor.registerQueuedStatement(commandId);
+    try {
+      commandStore.distributeStatement(commandId, statementText, streamsProperties);
+    } catch (Exception exception) {
+      statusFuture.cancel(false);
+      throw exception;
+    }
     CommandStatus commandStatus;
     try {
-      commandStatus = statementExecutor.registerQueuedStatement(commandId)
-          .get(distributedCommandResponseTimeout, TimeUnit.MILLISECONDS);
+      commandStatus = statusFuture.get(distributedCommandResponseTimeout, TimeUnit.MILLISECONDS);
     } catch (TimeoutException exception) {
       LOGGER.warn("Timeout to get commandStatus, waited {} milliseconds.",
                   distributedCommandResponseTimeout);
@@ -273,7 +319,8 @@ public class KsqlResource {
       runningQueries.add(new Queries.RunningQuery(
           persistentQueryMetadata.getStatementString(),
           ksqlStructuredDataOutputNode.getKafkaTopicName(),
-          persistentQueryMetadata.getId()
+          persistentQueryMetadata.getId(),
+          new RunningQueryMetrics(ksqlEngine.getQueryMetrics(persistentQueryMetadata))
       ));
     }
     return new Queries(statementText, runningQueries);
@@ -297,14 +344,28 @@ public class KsqlResource {
     return topicDescription;
   }
 
-  private SourceDescription describe(String statementText, String name) throws Exception {
+  private SourceDescription describe(String statementText, String name, boolean extended)
+      throws Exception {
 
     StructuredDataSource dataSource = ksqlEngine.getMetaStore().getSource(name);
     if (dataSource == null) {
       throw new Exception(String.format("Could not find data stream/table '%s' in the metastore",
                                         name));
     }
-    return new SourceDescription(statementText, dataSource);
+    if (!extended) {
+      return new SourceDescription(statementText, dataSource);
+    }
+    // Only a source written by a query running on this machine has metrics to show
+    RunningQueryMetrics metrics = null;
+    for (PersistentQueryMetadata persistentQueryMetadata :
+        ksqlEngine.getPersistentQueries().values()
+    ) {
+      if (persistentQueryMetadata.getOutputNode().getId().toString().equals(name)) {
+        metrics = new RunningQueryMetrics(ksqlEngine.getQueryMetrics(persistentQueryMetadata));
+        break;
+      }
+    }
+    return new SourceDescription(statementText, dataSource, metrics);
   }
 
   private PropertiesList listProperties(String statementText) {
@@ -319,6 +380,16 @@ public class KsqlResource {
     return TablesList.fromKsqlTables(statementText, getSpecificSources(KsqlTable.class));
   }
 
+  // Like SHOW QUERIES, only covers queries running on the current machine
+  private ExecutionPlan getAnalyzedExecutionPlan(long queryId) {
+    PersistentQueryMetadata persistentQueryMetadata =
+        ksqlEngine.getPersistentQueries().get(queryId);
+    if (persistentQueryMetadata == null) {
+      throw new KsqlException(String.format("Could not find running query with id %d", queryId));
+    }
+    return new ExecutionPlan(persistentQueryMetadata.getAnalyzedExecutionPlan());
+  }
+
   private ExecutionPlan getStatementExecutionPlan(Explain explain, String statementText)
       throws Exception {
     return getStatementExecutionPlan(explain.getStatement(), statementText, Collections.emptyMap());
@@ -416,4 +487,82 @@ public class KsqlResource {
             .collect(Collectors.toList());
   }
 
+  /**
+   * The statements of one asynchronous request. They are handed to the command producer one after
+   * the other and written with a single flush at the end, and the request returns as soon as they
+   * are written; clients follow their progress through the status endpoint.
+   */
+  private class CommandBatch {
+    // Each write with the status of its statement
+    private final List<Pair<Future<RecordMetadata>, Future<CommandStatus>>> pendingWrites =
+        new ArrayList<>();
+    private final List<Future<CommandStatus>> pendingStatuses = new ArrayList<>();
+
+    private CommandStatusEntity send(
+        String statementText,
+        Statement statement,
+        Map<String, Object> streamsProperties
+    ) {
+      CommandId commandId = commandStore.getCommandId(statement);
+      Future<CommandStatus> statusFuture = statementExecutor.registerQueuedStatement(commandId);
+      Future<RecordMetadata> write;
+      try {
+        write = commandStore.sendStatement(commandId, statementText, streamsProperties);
+      } catch (RuntimeException exception) {
+        statusFuture.cancel(false);
+        throw exception;
+      }
+      pendingWrites.add(new Pair<>(write, statusFuture));
+      pendingStatuses.add(statusFuture);
+      return new CommandStatusEntity(
+          statementText,
+          commandId,
+          statementExecutor.getStatus(commandId).get()
+      );
+    }
+
+    private boolean hasPendingCommands() {
+      return !pendingStatuses.isEmpty();
+    }
+
+    /**
+     * Write everything sent so far and wait for this node to execute it.
+     */
+    private void awaitExecuted() throws Exception {
+      flush();
+      for (Future<CommandStatus> pendingStatus : pendingStatuses) {
+        try {
+          pendingStatus.get(distributedCommandResponseTimeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException exception) {
+          LOGGER.warn("Timeout to get commandStatus, waited {} milliseconds.",
+                      distributedCommandResponseTimeout);
+        }
+      }
+      pendingStatuses.clear();
+    }
+
+    private void flush() throws Exception {
+      if (pendingWrites.isEmpty()) {
+        return;
+      }
+      commandStore.flush();
+      ExecutionException failure = null;
+      for (Pair<Future<RecordMetadata>, Future<CommandStatus>> pendingWrite : pendingWrites) {
+        try {
+          pendingWrite.getLeft().get();
+        } catch (ExecutionException exception) {
+          // Never written, so never executed either
+          pendingWrite.getRight().cancel(false);
+          pendingStatuses.remove(pendingWrite.getRight());
+          if (failure == null) {
+            failure = exception;
+          }
+        }
+      }
+      pendingWrites.clear();
+      if (failure != null) {
+        throw failure;
+      }
+    }
+  }
 }
@@ -16,10 +16,12 @@
 
 package io.confluent.ksql.rest.server.resources;
 
+import io.confluent.ksql.StatementCache;
 import io.confluent.ksql.rest.entity.CommandStatus;
 import io.confluent.ksql.rest.entity.CommandStatuses;
 import io.confluent.ksql.rest.server.computation.CommandId;
 import io.confluent.ksql.rest.server.computation.StatementExecutor;
+import io.confluent.ksql.rest.server.resources.streaming.TransientQueryAdmission;
 
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
@@ -27,16 +29,29 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 @Path("/status")
 @Produces(MediaType.APPLICATION_JSON)
 public class StatusResource {
 
   private final StatementExecutor statementExecutor;
+  private final TransientQueryAdmission queryAdmission;
+  private final StatementCache statementCache;
+  private final Supplier<Map<String, Object>> latencyStats;
 
-  public StatusResource(StatementExecutor statementExecutor) {
+  public StatusResource(
+      StatementExecutor statementExecutor,
+      TransientQueryAdmission queryAdmission,
+      StatementCache statementCache,
+      Supplier<Map<String, Object>> latencyStats
+  ) {
     this.statementExecutor = statementExecutor;
+    this.queryAdmission = queryAdmission;
+    this.statementCache = statementCache;
+    this.latencyStats = latencyStats;
   }
 
   @GET
@@ -44,6 +59,24 @@ public class StatusResource {
     return Response.ok(CommandStatuses.fromFullStatuses(statementExecutor.getStatuses())).build();
   }
 
+  @GET
+  @Path("/admission")
+  public Response getQueryAdmissionStatus() {
+    return Response.ok(queryAdmission.getStatus()).build();
+  }
+
+  @GET
+  @Path("/statement-cache")
+  public Response getStatementCacheStatus() {
+    return Response.ok(statementCache.getStats()).build();
+  }
+
+  @GET
+  @Path("/latency")
+  public Response getLatencyStatus() {
+    return Response.ok(latencyStats.get()).build();
+  }
+
   @GET
   @Path("/{type}/{entity}")
   public Response getStatus(@PathParam("type") String type, @PathParam("entity") String entity)
@@ -20,6 +20,7 @@ import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.confluent.ksql.GenericRow;
 import io.confluent.ksql.rest.entity.StreamedRow;
+import io.confluent.ksql.util.QueuedQueryMetadata;
 import org.apache.kafka.streams.KeyValue;
 
 import java.io.IOException;
@@ -35,6 +36,8 @@ class QueryRowWriter implements Runnable {
   private final AtomicBoolean rowsWritten;
   private final ObjectMapper objectMapper;
 
+  private volatile boolean limitReached = false;
+
   QueryRowWriter(
       OutputStream output,
       AtomicReference<Throwable> streamsException,
@@ -53,7 +56,13 @@ class QueryRowWriter implements Runnable {
   public void run() {
     try {
       while (true) {
-        write(rowQueue.take().value);
+        KeyValue<String, GenericRow> next = rowQueue.take();
+        if (next == QueuedQueryMetadata.END_OF_QUERY) {
+          // The query's LIMIT has been satisfied; returning signals completion to the writer
+          limitReached = true;
+          return;
+        }
+        write(next.value);
       }
     } catch (InterruptedException exception) {
       // Interrupt is used to end the thread
@@ -65,6 +74,13 @@ class QueryRowWriter implements Runnable {
     }
   }
 
+  /**
+   * @return Whether the thread ended because every row allowed by the query's LIMIT was written
+   */
+  boolean isLimitReached() {
+    return limitReached;
+  }
+
   private void write(GenericRow row) throws IOException {
     synchronized (output) {
       objectMapper.writeValue(output, new StreamedRow(row));
@@ -41,12 +41,14 @@ class QueryStreamWriter implements StreamingOutput {
   private final QueuedQueryMetadata queryMetadata;
   private final long disconnectCheckInterval;
   private final AtomicReference<Throwable> streamsException;
+  private final Runnable onClose;
 
   QueryStreamWriter(
       KsqlEngine ksqlEngine,
       long disconnectCheckInterval,
       String queryString,
-      Map<String, Object> overriddenProperties
+      Map<String, Object> overriddenProperties,
+      Runnable onClose
   )
       throws Exception {
     QueryMetadata queryMetadata =
@@ -60,6 +62,7 @@ class QueryStreamWriter implements StreamingOutput {
 
     this.disconnectCheckInterval = disconnectCheckInterval;
     this.queryMetadata = ((QueuedQueryMetadata) queryMetadata);
+    this.onClose = onClose;
 
     this.streamsException = new AtomicReference<>(null);
     this.queryMetadata.getKafkaStreams().setUncaughtExceptionHandler(new StreamsExceptionHandler());
@@ -69,6 +72,7 @@ class QueryStreamWriter implements StreamingOutput {
 
   @Override
   public void write(OutputStream out) throws IOException {
+    boolean limitReached = false;
     try {
       AtomicBoolean rowsWritten = new AtomicBoolean(false);
       QueryRowWriter queryRowWriter = new QueryRowWriter(
@@ -81,11 +85,17 @@ class QueryStreamWriter implements StreamingOutput {
       rowWriterThread.start();
       try {
         while (true) {
-          Thread.sleep(disconnectCheckInterval);
+          rowWriterThread.join(disconnectCheckInterval);
           Throwable exception = streamsException.get();
           if (exception != null) {
             throw exception;
           }
+          if (!rowWriterThread.isAlive()) {
+            // If all rows allowed by the query's LIMIT have been written, ending the response
+            // tells the client the query is complete
+            limitReached = queryRowWriter.isLimitReached();
+            break;
+          }
           // If no new rows have been written, the user may have terminated the connection without
           // us knowing. Check by trying to write a single newline.
           if (!rowsWritten.getAndSet(false)) {
@@ -128,8 +138,26 @@ class QueryStreamWriter implements StreamingOutput {
       }
 
     } finally {
+      // Nothing reads the rows any more; stream threads waiting to hand one over must not block
+      queryMetadata.closeRowQueue();
+      if (limitReached) {
+        // Nothing more will be read from the topology, so there is no reason to hold the
+        // response open while it shuts down
+        Thread closeThread = new Thread(this::closeStreams, "ksql-query-close");
+        closeThread.setDaemon(true);
+        closeThread.start();
+      } else {
+        closeStreams();
+      }
+    }
+  }
+
+  private void closeStreams() {
+    try {
       queryMetadata.getKafkaStreams().close(100L, TimeUnit.MILLISECONDS);
       queryMetadata.getKafkaStreams().cleanUp();
+    } finally {
+      onClose.run();
     }
   }
 
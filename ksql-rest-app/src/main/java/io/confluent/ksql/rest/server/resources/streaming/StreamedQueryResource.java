@@ -22,15 +22,19 @@ import io.confluent.ksql.parser.tree.LongLiteral;
 import io.confluent.ksql.parser.tree.PrintTopic;
 import io.confluent.ksql.parser.tree.Query;
 import io.confluent.ksql.parser.tree.Statement;
+import io.confluent.ksql.rest.entity.ErrorMessage;
 import io.confluent.ksql.rest.entity.KsqlRequest;
 import io.confluent.ksql.rest.server.StatementParser;
+import io.confluent.ksql.util.TableLookup;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import java.util.Collections;
@@ -43,18 +47,30 @@ import java.util.Optional;
 public class StreamedQueryResource {
   private static final Logger log = LoggerFactory.getLogger(StreamedQueryResource.class);
 
+  // Too Many Requests; not part of Response.Status in this version of JAX-RS
+  private static final int QUERY_REJECTED_STATUS = 429;
+
   private final KsqlEngine ksqlEngine;
   private final StatementParser statementParser;
   private final long disconnectCheckInterval;
+  private final long printMaxBytesPerSecond;
+  private final TransientQueryAdmission queryAdmission;
+
+  @Context
+  private HttpServletRequest servletRequest;
 
   public StreamedQueryResource(
       KsqlEngine ksqlEngine,
       StatementParser statementParser,
-      long disconnectCheckInterval
+      long disconnectCheckInterval,
+      long printMaxBytesPerSecond,
+      TransientQueryAdmission queryAdmission
   ) {
     this.ksqlEngine = ksqlEngine;
     this.statementParser = statementParser;
     this.disconnectCheckInterval = disconnectCheckInterval;
+    this.printMaxBytesPerSecond = printMaxBytesPerSecond;
+    this.queryAdmission = queryAdmission;
   }
 
   @POST
@@ -65,8 +81,38 @@ public class StreamedQueryResource {
         Optional.ofNullable(request.getStreamsProperties()).orElse(Collections.emptyMap());
     Statement statement = statementParser.parseSingleStatement(ksql);
     if (statement instanceof Query) {
-      QueryStreamWriter queryStreamWriter =
-          new QueryStreamWriter(ksqlEngine, disconnectCheckInterval, ksql, clientLocalProperties);
+      Optional<TableLookup> tableLookup =
+          ksqlEngine.buildTableLookup((Query) statement, clientLocalProperties);
+      if (tableLookup.isPresent()) {
+        log.info("Looking up key '{}' in table '{}'", tableLookup.get().getKey(),
+                 tableLookup.get().getTableName());
+        return Response.ok().entity(new TableLookupWriter(tableLookup.get())).build();
+      }
+      String clientId = getClientId();
+      if (!queryAdmission.tryAdmit(clientId)) {
+        log.warn("Rejecting query '{}' from {}: too many queries running", ksql, clientId);
+        return Response
+            .status(QUERY_REJECTED_STATUS)
+            .type(MediaType.APPLICATION_JSON_TYPE)
+            .entity(new ErrorMessage(
+                "Too many queries are running on this server; try again later",
+                Collections.emptyList()
+            ))
+            .build();
+      }
+      QueryStreamWriter queryStreamWriter;
+      try {
+        queryStreamWriter = new QueryStreamWriter(
+            ksqlEngine,
+            disconnectCheckInterval,
+            ksql,
+            queryAdmission.applyBudget(clientLocalProperties),
+            () -> queryAdmission.release(clientId)
+        );
+      } catch (Exception exception) {
+        queryAdmission.release(clientId);
+        throw exception;
+      }
       log.info("Streaming query '{}'", ksql);
       return Response.ok().entity(queryStreamWriter).build();
     } else if (statement instanceof PrintTopic) {
@@ -86,7 +132,8 @@ public class StreamedQueryResource {
           ksqlTopic,
           interval,
           disconnectCheckInterval,
-          printTopic.getFromBeginning()
+          printTopic.getFromBeginning(),
+          printMaxBytesPerSecond
       );
       log.info("Printing topic '{}'", topicName);
       return Response.ok().entity(topicStreamWriter).build();
@@ -97,4 +144,8 @@ public class StreamedQueryResource {
       ));
     }
   }
+
+  private String getClientId() {
+    return servletRequest == null ? "" : servletRequest.getRemoteAddr();
+  }
 }
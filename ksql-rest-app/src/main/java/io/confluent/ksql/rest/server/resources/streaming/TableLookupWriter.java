@@ -0,0 +1,61 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+
+package io.confluent.ksql.rest.server.resources.streaming;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.confluent.ksql.GenericRow;
+import io.confluent.ksql.rest.entity.StreamedRow;
+import io.confluent.ksql.util.TableLookup;
+
+import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Writes the result of a table lookup in the same row-per-line format used for streamed
+ * queries, then ends the response.
+ */
+class TableLookupWriter implements StreamingOutput {
+
+  private final TableLookup tableLookup;
+  private final ObjectMapper objectMapper;
+
+  TableLookupWriter(TableLookup tableLookup) {
+    this.tableLookup = tableLookup;
+    this.objectMapper = new ObjectMapper().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+  }
+
+  @Override
+  public void write(OutputStream out) throws IOException {
+    List<GenericRow> rows;
+    try {
+      rows = tableLookup.execute();
+    } catch (Exception exception) {
+      objectMapper.writeValue(out, new StreamedRow(exception));
+      out.write("\n".getBytes());
+      out.flush();
+      return;
+    }
+    for (GenericRow row : rows) {
+      objectMapper.writeValue(out, new StreamedRow(row));
+      out.write("\n".getBytes());
+    }
+    out.flush();
+  }
+}
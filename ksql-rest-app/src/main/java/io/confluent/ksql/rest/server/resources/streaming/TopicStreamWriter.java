@@ -16,9 +16,7 @@
 
 package io.confluent.ksql.rest.server.resources.streaming;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
 
 import io.confluent.ksql.serde.DataSource;
 import io.confluent.ksql.metastore.KsqlTopic;
@@ -31,16 +29,18 @@ import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
 import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
 import org.apache.kafka.common.serialization.Deserializer;
-import org.apache.kafka.common.serialization.StringDeserializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.StreamingOutput;
+import java.io.ByteArrayOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -50,32 +50,48 @@ import java.util.stream.Collectors;
 public class TopicStreamWriter implements StreamingOutput {
 
   private static final Logger log = LoggerFactory.getLogger(TopicStreamWriter.class);
+
+  private static final byte[] NEWLINE = "\n".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] ROWTIME_PREFIX =
+      ("{\"" + SchemaUtil.ROWTIME_NAME + "\":").getBytes(StandardCharsets.UTF_8);
+  private static final byte[] ROWKEY_PREFIX =
+      (",\"" + SchemaUtil.ROWKEY_NAME + "\":\"").getBytes(StandardCharsets.UTF_8);
+  private static final byte[] NULL_KEY = "null".getBytes(StandardCharsets.UTF_8);
+
   private final Long interval;
   private final long disconnectCheckInterval;
-  private final KafkaConsumer<?, ?> topicConsumer;
+  private final long maxBytesPerSecond;
+  private final KafkaConsumer<byte[], byte[]> topicConsumer;
   private final String kafkaTopic;
   KsqlTopic ksqlTopic;
-  private final ObjectMapper objectMapper;
+  private final DataSource.DataSourceSerDe serDe;
+  private final Deserializer<?> avroDeserializer;
+  private final ByteArrayOutputStream batch;
 
   private long messagesWritten;
+  private long windowStart;
+  private long windowBytes;
 
   public TopicStreamWriter(
       Map<String, Object> consumerProperties,
       KsqlTopic ksqlTopic,
       long interval,
       long disconnectCheckInterval,
-      boolean fromBeginning
+      boolean fromBeginning,
+      long maxBytesPerSecond
   ) {
     this.ksqlTopic = ksqlTopic;
     this.kafkaTopic = ksqlTopic.getKafkaTopicName();
     this.messagesWritten = 0;
-    this.objectMapper = new ObjectMapper();
+    this.serDe = ksqlTopic.getKsqlTopicSerDe().getSerDe();
+    this.batch = new ByteArrayOutputStream();
 
-    Deserializer<?> valueDeserializer;
-    switch (ksqlTopic.getKsqlTopicSerDe().getSerDe()) {
+    // Values are always consumed as raw bytes so that records skipped by SAMPLE are never decoded;
+    // only the sampled Avro records pay for deserialization.
+    switch (serDe) {
       case JSON:
       case DELIMITED:
-        valueDeserializer = new StringDeserializer();
+        this.avroDeserializer = null;
         break;
       case AVRO:
         KsqlAvroTopicSerDe avroTopicSerDe = (KsqlAvroTopicSerDe) ksqlTopic.getKsqlTopicSerDe();
@@ -84,8 +100,8 @@ public class TopicStreamWriter implements StreamingOutput {
             KsqlGenericRowAvroSerializer.AVRO_SERDE_SCHEMA_CONFIG,
             avroTopicSerDe.getSchemaString()
         );
-        valueDeserializer = new KsqlGenericRowAvroDeserializer(null);
-        valueDeserializer.configure(avroSerdeProps, false);
+        this.avroDeserializer = new KsqlGenericRowAvroDeserializer(null);
+        this.avroDeserializer.configure(avroSerdeProps, false);
         break;
       default:
         throw new RuntimeException(String.format(
@@ -95,9 +111,13 @@ public class TopicStreamWriter implements StreamingOutput {
     }
 
     this.disconnectCheckInterval = disconnectCheckInterval;
+    this.maxBytesPerSecond = maxBytesPerSecond;
 
-    this.topicConsumer =
-        new KafkaConsumer<>(consumerProperties, new StringDeserializer(), valueDeserializer);
+    this.topicConsumer = new KafkaConsumer<>(
+        consumerProperties,
+        new ByteArrayDeserializer(),
+        new ByteArrayDeserializer()
+    );
     List<TopicPartition> topicPartitions = topicConsumer.partitionsFor(kafkaTopic)
         .stream()
         .map(partitionInfo -> new TopicPartition(partitionInfo.topic(), partitionInfo.partition()))
@@ -115,35 +135,44 @@ public class TopicStreamWriter implements StreamingOutput {
   public void write(OutputStream out) throws IOException, WebApplicationException {
     try {
       while (true) {
-        ConsumerRecords<?, ?> records = topicConsumer.poll(disconnectCheckInterval);
+        ConsumerRecords<byte[], byte[]> records = topicConsumer.poll(disconnectCheckInterval);
         if (records.isEmpty()) {
           synchronized (out) {
-            out.write("\n".getBytes());
+            out.write(NEWLINE);
             out.flush();
           }
-        } else {
-          synchronized (out) {
-            for (ConsumerRecord<?, ?> record : records.records(kafkaTopic)) {
-              if (record.value() != null) {
-                if (messagesWritten++ % interval == 0) {
-                  if (ksqlTopic.getKsqlTopicSerDe().getSerDe() == DataSource.DataSourceSerDe.JSON) {
-                    printJsonValue(out, record);
-                  } else {
-                    printAvroOrDelimitedValue(out, record);
-                  }
-                }
-              }
+          continue;
+        }
+
+        batch.reset();
+        for (ConsumerRecord<byte[], byte[]> record : records.records(kafkaTopic)) {
+          if (record.value() != null && messagesWritten++ % interval == 0) {
+            if (serDe == DataSource.DataSourceSerDe.JSON) {
+              printJsonValue(batch, record);
+            } else {
+              printAvroOrDelimitedValue(batch, record);
             }
           }
         }
+
+        if (batch.size() > 0) {
+          synchronized (out) {
+            batch.writeTo(out);
+            out.flush();
+          }
+          throttle(batch.size());
+        }
       }
     } catch (EOFException exception) {
       // Connection terminated, we can stop writing
+    } catch (InterruptedException exception) {
+      log.warn("Interrupted while printing topic '{}'", kafkaTopic);
+      Thread.currentThread().interrupt();
     } catch (Exception exception) {
       log.error("Exception encountered while writing to output stream", exception);
       synchronized (out) {
-        out.write(exception.getMessage().getBytes());
-        out.write("\n".getBytes());
+        out.write(String.valueOf(exception.getMessage()).getBytes(StandardCharsets.UTF_8));
+        out.write(NEWLINE);
         out.flush();
       }
     } finally {
@@ -151,24 +180,114 @@ public class TopicStreamWriter implements StreamingOutput {
     }
   }
 
-  private void printJsonValue(OutputStream out, ConsumerRecord<?, ?> record) throws IOException {
-    JsonNode jsonNode = objectMapper.readTree(record.value().toString());
-    ObjectNode objectNode = objectMapper.createObjectNode();
-    objectNode.put(SchemaUtil.ROWTIME_NAME, record.timestamp());
-    objectNode.put(SchemaUtil.ROWKEY_NAME, (record.key() != null)? record.key()
-        .toString(): "null");
-    objectNode.setAll((ObjectNode) jsonNode);
-    objectMapper.writeValue(out, objectNode);
-    out.write("\n".getBytes());
-    out.flush();
+  /**
+   * Writes the record as a JSON object with ROWTIME and ROWKEY spliced in ahead of the original
+   * fields, copying the value bytes rather than parsing them. Only the first and last
+   * non-whitespace bytes are looked at to tell an object from any other value, so an object that
+   * is malformed inside is printed just as malformed as it was written to the topic.
+   */
+  static void printJsonValue(ByteArrayOutputStream out, ConsumerRecord<byte[], byte[]> record)
+      throws IOException {
+    byte[] value = record.value();
+    int start = skipWhitespace(value, 0);
+    if (start >= value.length || value[start] != '{' || !endsWithClosingBrace(value, start)) {
+      // Not a JSON object, so there is nowhere to splice the row metadata into.
+      printAvroOrDelimitedLine(out, record.timestamp(), record.key(), value);
+      return;
+    }
+
+    out.write(ROWTIME_PREFIX);
+    out.write(Long.toString(record.timestamp()).getBytes(StandardCharsets.UTF_8));
+    out.write(ROWKEY_PREFIX);
+    if (record.key() == null) {
+      out.write(NULL_KEY);
+    } else {
+      out.write(JsonStringEncoder.getInstance().quoteAsUTF8(
+          new String(record.key(), StandardCharsets.UTF_8)
+      ));
+    }
+    out.write('"');
+
+    int rest = skipWhitespace(value, start + 1);
+    if (rest < value.length && value[rest] != '}') {
+      out.write(',');
+    }
+    // Line breaks can only be whitespace between tokens here, and each row must stay one line, so
+    // the bytes between them are copied in runs and each break becomes a space
+    int runStart = rest;
+    for (int i = rest; i < value.length; i++) {
+      if (value[i] == '\n' || value[i] == '\r') {
+        out.write(value, runStart, i - runStart);
+        out.write(' ');
+        runStart = i + 1;
+      }
+    }
+    out.write(value, runStart, value.length - runStart);
+    out.write(NEWLINE);
+  }
+
+  private static boolean endsWithClosingBrace(byte[] value, int start) {
+    int end = value.length - 1;
+    while (end > start && Character.isWhitespace(value[end])) {
+      end--;
+    }
+    return end > start && value[end] == '}';
+  }
+
+  private void printAvroOrDelimitedValue(
+      ByteArrayOutputStream out,
+      ConsumerRecord<byte[], byte[]> record
+  ) throws IOException {
+    byte[] value = record.value();
+    if (avroDeserializer != null) {
+      value = String.valueOf(avroDeserializer.deserialize(kafkaTopic, value))
+          .getBytes(StandardCharsets.UTF_8);
+    }
+    printAvroOrDelimitedLine(out, record.timestamp(), record.key(), value);
+  }
+
+  private static void printAvroOrDelimitedLine(
+      ByteArrayOutputStream out,
+      long timestamp,
+      byte[] key,
+      byte[] value
+  ) throws IOException {
+    out.write((timestamp + " , ").getBytes(StandardCharsets.UTF_8));
+    out.write(key == null ? NULL_KEY : key);
+    out.write(" , ".getBytes(StandardCharsets.UTF_8));
+    out.write(value);
+    out.write(NEWLINE);
+  }
+
+  /**
+   * Sleeps for long enough to keep the average output rate under the configured cap, if any.
+   */
+  private void throttle(int bytesWritten) throws InterruptedException {
+    if (maxBytesPerSecond <= 0) {
+      return;
+    }
+    long now = System.currentTimeMillis();
+    if (now - windowStart >= 1000) {
+      windowStart = now;
+      windowBytes = 0;
+    }
+    windowBytes += bytesWritten;
+    if (windowBytes >= maxBytesPerSecond) {
+      long backoff = (windowBytes * 1000 / maxBytesPerSecond) - (now - windowStart);
+      if (backoff > 0) {
+        Thread.sleep(backoff);
+      }
+      windowStart = System.currentTimeMillis();
+      windowBytes = 0;
+    }
   }
 
-  private void printAvroOrDelimitedValue(OutputStream out, ConsumerRecord<?, ?> record) throws
-                                                                                   IOException {
-    out.write((record.timestamp() + " , " +record.key().toString() + " , " + record.value()
-        .toString()).getBytes());
-    out.write("\n".getBytes());
-    out.flush();
+  private static int skipWhitespace(byte[] bytes, int from) {
+    int i = from;
+    while (i < bytes.length && Character.isWhitespace(bytes[i])) {
+      i++;
+    }
+    return i;
   }
 
 }
@@ -0,0 +1,163 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+
+package io.confluent.ksql.rest.server.resources.streaming;
+
+import io.confluent.ksql.rest.entity.QueryAdmissionStatus;
+import org.apache.kafka.streams.StreamsConfig;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bounds the number of transient (push) queries a node runs at once, both in total and for a
+ * single client, and caps the stream threads and record cache each of them may ask for. A query
+ * that can't be admitted straight away waits up to the configured time for a slot to free up
+ * before being rejected.
+ */
+public class TransientQueryAdmission {
+
+  private final int maxRunning;
+  private final int maxRunningPerClient;
+  private final long maxWaitMs;
+  private final int maxStreamThreads;
+  private final long maxCacheBytes;
+  private final Map<String, Object> serverStreamsProperties;
+
+  private final Map<String, Integer> runningPerClient = new HashMap<>();
+  private int running = 0;
+  private int waiting = 0;
+  private long admitted = 0;
+  private long rejected = 0;
+
+  /**
+   * @param maxRunning Maximum number of transient queries on this node; zero or less for no limit
+   * @param maxRunningPerClient Maximum number of transient queries for one client; zero or less
+   *                            for no limit
+   * @param maxWaitMs How long a query may wait for a slot before it is rejected
+   * @param maxStreamThreads Maximum number of stream threads a single query may use
+   * @param maxCacheBytes Maximum record cache size a single query may use
+   * @param serverStreamsProperties The streams properties of the server, which a query runs with
+   *                                for whatever the client doesn't set
+   */
+  public TransientQueryAdmission(
+      int maxRunning,
+      int maxRunningPerClient,
+      long maxWaitMs,
+      int maxStreamThreads,
+      long maxCacheBytes,
+      Map<String, Object> serverStreamsProperties
+  ) {
+    this.maxRunning = maxRunning;
+    this.maxRunningPerClient = maxRunningPerClient;
+    this.maxWaitMs = maxWaitMs;
+    this.maxStreamThreads = maxStreamThreads;
+    this.maxCacheBytes = maxCacheBytes;
+    this.serverStreamsProperties = serverStreamsProperties;
+  }
+
+  /**
+   * An admission controller that never queues or rejects, for tests and embedded use.
+   */
+  public static TransientQueryAdmission unbounded() {
+    return new TransientQueryAdmission(0, 0, 0, Integer.MAX_VALUE, Long.MAX_VALUE,
+                                       Collections.emptyMap());
+  }
+
+  /**
+   * Reserve a slot for a new query from the given client, waiting if necessary.
+   *
+   * @return Whether the query was admitted; if so, {@link #release(String)} must be called once
+   *         it has finished
+   */
+  public synchronized boolean tryAdmit(String clientId) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + maxWaitMs;
+    waiting++;
+    try {
+      while (!hasCapacity(clientId)) {
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0) {
+          rejected++;
+          return false;
+        }
+        wait(remaining);
+      }
+    } finally {
+      waiting--;
+    }
+    running++;
+    runningPerClient.merge(clientId, 1, Integer::sum);
+    admitted++;
+    return true;
+  }
+
+  public synchronized void release(String clientId) {
+    running--;
+    runningPerClient.computeIfPresent(clientId, (client, count) -> count > 1 ? count - 1 : null);
+    notifyAll();
+  }
+
+  /**
+   * Apply the per-query resource budget to the properties a client asked to run its query with.
+   * The budget holds whether or not the client set the thread and cache settings: those it
+   * leaves out are taken from the server's properties, and capped the same way.
+   *
+   * @return A copy of the given properties with thread and cache settings capped to the budget
+   */
+  public Map<String, Object> applyBudget(Map<String, Object> requestedProperties) {
+    Map<String, Object> properties = new HashMap<>(requestedProperties);
+    Object threads = getRequestedOrServerValue(
+        requestedProperties, StreamsConfig.NUM_STREAM_THREADS_CONFIG);
+    if (threads != null) {
+      properties.put(StreamsConfig.NUM_STREAM_THREADS_CONFIG,
+                     Math.min(Integer.parseInt(threads.toString()), maxStreamThreads));
+    }
+    Object cacheBytes = getRequestedOrServerValue(
+        requestedProperties, StreamsConfig.CACHE_MAX_BYTES_BUFFERING_CONFIG);
+    if (cacheBytes != null) {
+      properties.put(StreamsConfig.CACHE_MAX_BYTES_BUFFERING_CONFIG,
+                     Math.min(Long.parseLong(cacheBytes.toString()), maxCacheBytes));
+    }
+    return properties;
+  }
+
+  private Object getRequestedOrServerValue(Map<String, Object> requestedProperties,
+                                           String propertyName) {
+    Object value = requestedProperties.get(propertyName);
+    return value != null ? value : serverStreamsProperties.get(propertyName);
+  }
+
+  public synchronized QueryAdmissionStatus getStatus() {
+    return new QueryAdmissionStatus(
+        maxRunning,
+        maxRunningPerClient,
+        running,
+        waiting,
+        admitted,
+        rejected,
+        new HashMap<>(runningPerClient)
+    );
+  }
+
+  private boolean hasCapacity(String clientId) {
+    if (maxRunning > 0 && running >= maxRunning) {
+      return false;
+    }
+    return maxRunningPerClient <= 0
+        || runningPerClient.getOrDefault(clientId, 0) < maxRunningPerClient;
+  }
+}
@@ -0,0 +1,206 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+
+package io.confluent.ksql.rest.server.computation;
+
+import io.confluent.ksql.ddl.DdlConfig;
+import io.confluent.ksql.parser.tree.AllColumns;
+import io.confluent.ksql.parser.tree.CreateStream;
+import io.confluent.ksql.parser.tree.CreateStreamAsSelect;
+import io.confluent.ksql.parser.tree.DropStream;
+import io.confluent.ksql.parser.tree.DropTopic;
+import io.confluent.ksql.parser.tree.QualifiedName;
+import io.confluent.ksql.parser.tree.Query;
+import io.confluent.ksql.parser.tree.QuerySpecification;
+import io.confluent.ksql.parser.tree.RegisterTopic;
+import io.confluent.ksql.parser.tree.Select;
+import io.confluent.ksql.parser.tree.StringLiteral;
+import io.confluent.ksql.parser.tree.Table;
+import io.confluent.ksql.parser.tree.TableElement;
+import io.confluent.ksql.parser.tree.TerminateQuery;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+
+public class CommandLogTest {
+
+  private static Command command(String statement) {
+    return new Command(statement, new HashMap<>());
+  }
+
+  private static CreateStream createStream(String name, String registeredTopic) {
+    return new CreateStream(
+        QualifiedName.of(name),
+        Collections.singletonList(new TableElement("COL0", "STRING")),
+        false,
+        Collections.singletonMap(
+            DdlConfig.TOPIC_NAME_PROPERTY,
+            new StringLiteral(registeredTopic)
+        )
+    );
+  }
+
+  private static CreateStreamAsSelect createStreamAsSelect(String name, String source) {
+    QuerySpecification querySpecification = new QuerySpecification(
+        new Select(false, Collections.singletonList(new AllColumns())),
+        Optional.empty(),
+        Optional.of(new Table(QualifiedName.of(source))),
+        Optional.empty(),
+        Optional.empty(),
+        Optional.empty(),
+        Optional.empty(),
+        Collections.emptyList(),
+        Optional.empty()
+    );
+    return new CreateStreamAsSelect(
+        QualifiedName.of(name),
+        new Query(Optional.empty(), querySpecification, Collections.emptyList(), Optional.empty()),
+        false,
+        Collections.emptyMap(),
+        Optional.empty()
+    );
+  }
+
+  private static List<CommandId> getCommandIds(CommandSnapshot snapshot) {
+    List<CommandId> result = new ArrayList<>();
+    for (CommandSnapshot.Entry entry : snapshot.getEntries()) {
+      result.add(entry.getCommandId());
+    }
+    return result;
+  }
+
+  @Test
+  public void testDropCompactsCreatorOnlyOnceNothingDependsOnIt() {
+    CommandLog commandLog = new CommandLog();
+    commandLog.record(
+        new CommandId(CommandId.Type.TOPIC, "T"),
+        command("REGISTER TOPIC T ..."),
+        new RegisterTopic(QualifiedName.of("T"), false, Collections.emptyMap())
+    );
+    commandLog.record(
+        new CommandId(CommandId.Type.STREAM, "S"),
+        command("CREATE STREAM S ..."),
+        createStream("S", "T")
+    );
+
+    // S still reads from T, so the drop has to be kept
+    commandLog.record(
+        new CommandId(CommandId.Type.TOPIC, "T_DROP"),
+        command("DROP TOPIC T;"),
+        new DropTopic(QualifiedName.of("T"), false)
+    );
+    Assert.assertEquals(3, commandLog.size());
+
+    // Dropping S frees up the earlier drop of T as well
+    commandLog.record(
+        new CommandId(CommandId.Type.STREAM, "S_DROP"),
+        command("DROP STREAM S;"),
+        new DropStream(QualifiedName.of("S"), false)
+    );
+    Assert.assertEquals(0, commandLog.size());
+  }
+
+  @Test
+  public void testDropOfQuerySinkCompactsOnlyAfterTermination() {
+    CommandLog commandLog = new CommandLog();
+    commandLog.recordQuery(
+        new CommandId(CommandId.Type.STREAM, "S"),
+        command("CREATE STREAM S AS SELECT ..."),
+        createStream("S", "T"),
+        1L,
+        false
+    );
+    commandLog.record(
+        new CommandId(CommandId.Type.STREAM, "S_DROP"),
+        command("DROP STREAM S;"),
+        new DropStream(QualifiedName.of("S"), false)
+    );
+    Assert.assertEquals(2, commandLog.size());
+
+    // The drop goes once the query is terminated, along with the query and the TERMINATE
+    commandLog.record(
+        new CommandId(CommandId.Type.TERMINATE, "1"),
+        command("TERMINATE 1;"),
+        new TerminateQuery(1L)
+    );
+
+    CommandSnapshot snapshot = commandLog.toSnapshot(10L, 2L).get();
+    Assert.assertTrue(snapshot.getEntries().isEmpty());
+    Assert.assertEquals(10L, snapshot.getOffset());
+    Assert.assertEquals(2L, snapshot.getNextQueryId());
+  }
+
+  @Test
+  public void testSnapshotKeepsCommandsInTheOrderTheyWereExecuted() {
+    CommandLog commandLog = new CommandLog();
+    commandLog.record(
+        new CommandId(CommandId.Type.STREAM, "A"),
+        command("CREATE STREAM A ..."),
+        createStream("A", "T")
+    );
+    commandLog.recordQuery(
+        new CommandId(CommandId.Type.STREAM, "B"),
+        command("CREATE STREAM B AS SELECT * FROM A;"),
+        createStreamAsSelect("B", "A"),
+        1L,
+        false
+    );
+    // B still reads from A, so neither the drop nor the original A can be compacted
+    commandLog.record(
+        new CommandId(CommandId.Type.STREAM, "A_DROP"),
+        command("DROP STREAM A;"),
+        new DropStream(QualifiedName.of("A"), false)
+    );
+    commandLog.record(
+        new CommandId(CommandId.Type.STREAM, "A"),
+        command("CREATE STREAM A ..."),
+        createStream("A", "T")
+    );
+
+    CommandSnapshot snapshot = commandLog.toSnapshot(10L, 2L).get();
+    Assert.assertEquals(
+        Arrays.asList(
+            new CommandId(CommandId.Type.STREAM, "A"),
+            new CommandId(CommandId.Type.STREAM, "B"),
+            new CommandId(CommandId.Type.STREAM, "A_DROP"),
+            new CommandId(CommandId.Type.STREAM, "A")
+        ),
+        getCommandIds(snapshot)
+    );
+    Assert.assertEquals(Long.valueOf(1L), snapshot.getEntries().get(1).getQueryId());
+
+    // Dropping the re-created A only compacts it, not the original that B reads from
+    commandLog.record(
+        new CommandId(CommandId.Type.STREAM, "A_DROP"),
+        command("DROP STREAM A;"),
+        new DropStream(QualifiedName.of("A"), false)
+    );
+    Assert.assertEquals(
+        Arrays.asList(
+            new CommandId(CommandId.Type.STREAM, "A"),
+            new CommandId(CommandId.Type.STREAM, "B"),
+            new CommandId(CommandId.Type.STREAM, "A_DROP")
+        ),
+        getCommandIds(commandLog.toSnapshot(11L, 2L).get())
+    );
+  }
+}
@@ -0,0 +1,69 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+
+
+package io.confluent.ksql.rest.server.computation;
+
+import io.confluent.ksql.rest.entity.CommandStatus;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+
+public class CommandStatusStoreTest {
+
+  private static CommandId streamId(String name) {
+    return new CommandId(CommandId.Type.STREAM, name);
+  }
+
+  @Test
+  public void testOnlyOldestFinalStatusesAreExpired() {
+    CommandStatusStore statusStore = new CommandStatusStore(2, Long.MAX_VALUE);
+    statusStore.put(streamId("A"), new CommandStatus(CommandStatus.Status.RUNNING, "running"));
+    statusStore.put(streamId("B"), new CommandStatus(CommandStatus.Status.SUCCESS, "done"));
+    statusStore.put(streamId("C"), new CommandStatus(CommandStatus.Status.ERROR, "failed"));
+    statusStore.put(streamId("D"), new CommandStatus(CommandStatus.Status.SUCCESS, "done"));
+
+    Assert.assertEquals(Collections.singletonList(streamId("B")), statusStore.expire());
+    Assert.assertEquals(3, statusStore.size());
+    Assert.assertTrue(statusStore.containsKey(streamId("A")));
+    Assert.assertFalse(statusStore.containsKey(streamId("B")));
+  }
+
+  @Test
+  public void testStatusOfReusedIdIsNotExpiredWithEqualOlderStatus() {
+    CommandStatusStore statusStore = new CommandStatusStore(1, Long.MAX_VALUE);
+    statusStore.put(streamId("A"), new CommandStatus(CommandStatus.Status.SUCCESS, "done"));
+    CommandStatus reused = new CommandStatus(CommandStatus.Status.SUCCESS, "done");
+    statusStore.put(streamId("A"), reused);
+
+    Assert.assertEquals(Collections.emptyList(), statusStore.expire());
+    Assert.assertSame(reused, statusStore.get(streamId("A")));
+  }
+
+  @Test
+  public void testRemoveOnlyRemovesSameStatus() {
+    CommandStatusStore statusStore = new CommandStatusStore(10, Long.MAX_VALUE);
+    CommandStatus queued = new CommandStatus(CommandStatus.Status.QUEUED, "queued");
+    statusStore.put(streamId("A"), queued);
+
+    Assert.assertFalse(statusStore.remove(
+        streamId("A"), new CommandStatus(CommandStatus.Status.QUEUED, "queued")));
+    Assert.assertTrue(statusStore.containsKey(streamId("A")));
+    Assert.assertTrue(statusStore.remove(streamId("A"), queued));
+    Assert.assertFalse(statusStore.containsKey(streamId("A")));
+  }
+}
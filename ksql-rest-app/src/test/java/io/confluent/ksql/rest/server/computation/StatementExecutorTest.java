@@ -20,10 +20,16 @@ import org.easymock.EasyMockSupport;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import io.confluent.ksql.rest.entity.CommandStatus;
 import io.confluent.ksql.rest.server.StatementParser;
@@ -117,6 +123,79 @@ public class StatementExecutorTest extends EasyMockSupport {
     Assert.assertEquals(statusStore.get(terminateCommandId).getStatus(), CommandStatus.Status.ERROR);
   }
 
+  @Test
+  public void registerQueuedStatementReplacesStatusOfEarlierCommandWithSameId() throws Exception {
+    CommandId commandId = new CommandId(CommandId.Type.TOPIC, "USERS_TOPIC");
+    Future<CommandStatus> first = statementExecutor.registerQueuedStatement(commandId);
+    statementExecutor.handleStatement(
+        new Command("REGISTER TOPIC users_topic WITH (value_format = 'json', "
+                    + "kafka_topic='user_topic_json');", new HashMap<>()),
+        commandId);
+    Assert.assertEquals(CommandStatus.Status.SUCCESS,
+                        first.get(0, TimeUnit.MILLISECONDS).getStatus());
+
+    Future<CommandStatus> second = statementExecutor.registerQueuedStatement(commandId);
+    Assert.assertFalse(second.isDone());
+    Assert.assertEquals(CommandStatus.Status.QUEUED,
+                        statementExecutor.getStatus(commandId).get().getStatus());
+
+    statementExecutor.handleStatement(
+        new Command("REGIST ER TOPIC users_topic WITH (value_format = 'json', "
+                    + "kafka_topic='user_topic_json');", new HashMap<>()),
+        commandId);
+    Assert.assertEquals(CommandStatus.Status.ERROR,
+                        second.get(0, TimeUnit.MILLISECONDS).getStatus());
+    Assert.assertEquals(CommandStatus.Status.SUCCESS,
+                        first.get(0, TimeUnit.MILLISECONDS).getStatus());
+  }
+
+  @Test
+  public void registerQueuedStatementIsNotCompletedByEarlierExecution() throws Exception {
+    CommandId commandId = new CommandId(CommandId.Type.TOPIC, "USERS_TOPIC");
+    statementExecutor.handleStatement(
+        new Command("REGISTER TOPIC users_topic WITH (value_format = 'json', "
+                    + "kafka_topic='user_topic_json');", new HashMap<>()),
+        commandId);
+
+    Future<CommandStatus> statusFuture = statementExecutor.registerQueuedStatement(commandId);
+    Assert.assertFalse(statusFuture.isDone());
+    Assert.assertEquals(CommandStatus.Status.QUEUED,
+                        statementExecutor.getStatus(commandId).get().getStatus());
+  }
+
+  @Test
+  public void registeredStatementsWithSameIdCompleteInOrder() throws Exception {
+    CommandId commandId = new CommandId(CommandId.Type.TOPIC, "USERS_TOPIC");
+    Future<CommandStatus> first = statementExecutor.registerQueuedStatement(commandId);
+    Future<CommandStatus> second = statementExecutor.registerQueuedStatement(commandId);
+
+    statementExecutor.handleStatement(
+        new Command("REGISTER TOPIC users_topic WITH (value_format = 'json', "
+                    + "kafka_topic='user_topic_json');", new HashMap<>()),
+        commandId);
+    Assert.assertTrue(first.isDone());
+    Assert.assertFalse(second.isDone());
+
+    statementExecutor.handleStatement(
+        new Command("REGISTER TOPIC users_topic WITH (value_format = 'json', "
+                    + "kafka_topic='user_topic_json');", new HashMap<>()),
+        commandId);
+    Assert.assertEquals(CommandStatus.Status.SUCCESS,
+                        first.get(0, TimeUnit.MILLISECONDS).getStatus());
+    Assert.assertEquals(CommandStatus.Status.ERROR,
+                        second.get(0, TimeUnit.MILLISECONDS).getStatus());
+  }
+
+  @Test
+  public void cancelledRegistrationLeavesNoStatus() throws Exception {
+    CommandId commandId = new CommandId(CommandId.Type.TOPIC, "USERS_TOPIC");
+    Future<CommandStatus> statusFuture = statementExecutor.registerQueuedStatement(commandId);
+
+    Assert.assertTrue(statusFuture.cancel(false));
+    Assert.assertTrue(statusFuture.isCancelled());
+    Assert.assertFalse(statementExecutor.getStatus(commandId).isPresent());
+  }
+
   @Test
   public void handlePriorStatement() throws Exception {
     TestUtils testUtils = new TestUtils();
@@ -138,4 +217,230 @@ public class StatementExecutorTest extends EasyMockSupport {
     Assert.assertEquals(statusStore.get(ctasCommandId).getStatus(), CommandStatus.Status.ERROR);
   }
 
+  /**
+   * A topic and a stream registered on it, and the sink of a query that has been terminated.
+   */
+  private static CommandSnapshot terminatedQuerySnapshot() {
+    return new CommandSnapshot(10L, 8L, Arrays.asList(
+        new CommandSnapshot.Entry(
+            new CommandId(CommandId.Type.TOPIC, "pageview_topic"),
+            new Command("REGISTER TOPIC pageview_topic WITH (value_format = 'json', "
+                        + "kafka_topic='pageview_topic_json');", new HashMap<>()),
+            null,
+            false,
+            Collections.emptySet()
+        ),
+        new CommandSnapshot.Entry(
+            new CommandId(CommandId.Type.STREAM, "pageview"),
+            new Command("CREATE STREAM pageview (viewtime bigint, pageid varchar, userid varchar) "
+                        + "WITH (registered_topic = 'pageview_topic');", new HashMap<>()),
+            null,
+            false,
+            Collections.singleton("PAGEVIEW_TOPIC")
+        ),
+        new CommandSnapshot.Entry(
+            new CommandId(CommandId.Type.STREAM, "user1pv"),
+            new Command("CREATE STREAM user1pv AS select * from pageview WHERE userid = 'user1';",
+                        new HashMap<>()),
+            7L,
+            true,
+            Collections.singleton("PAGEVIEW")
+        )
+    ));
+  }
+
+  @Test
+  public void handleSnapshotRegistersTerminatedQueryWithoutCreatingTopics() throws Exception {
+    CommandId csasCommandId = new CommandId(CommandId.Type.STREAM, "user1pv");
+
+    // The mock topic client fails any attempt to create a topic
+    statementExecutor.handleSnapshot(terminatedQuerySnapshot());
+
+    Map<CommandId, CommandStatus> statusStore = statementExecutor.getStatuses();
+    Assert.assertEquals(CommandStatus.Status.TERMINATED, statusStore.get(csasCommandId).getStatus());
+    Assert.assertNotNull(mockKsqkEngine.getMetaStore().getSource("USER1PV"));
+    Assert.assertTrue(mockKsqkEngine.getPersistentQueries().isEmpty());
+    Assert.assertEquals(8L, mockKsqkEngine.getQueryEngine().peekNextQueryId());
+    // Replaying the snapshot doesn't record its entries a second time
+    List<CommandSnapshot.Entry> entries = statementExecutor.getSnapshot(10L).get().getEntries();
+    Assert.assertEquals(3, entries.size());
+    CommandSnapshot.Entry csasEntry = entries.get(2);
+    Assert.assertEquals(csasCommandId, csasEntry.getCommandId());
+    Assert.assertTrue(csasEntry.isTerminated());
+  }
+
+  @Test
+  public void handleSnapshotKeepsDroppedSourceDroppedAfterNextRestore() throws Exception {
+    statementExecutor.handleSnapshot(terminatedQuerySnapshot());
+    CommandId dropCommandId = new CommandId(CommandId.Type.STREAM, "USER1PV_DROP");
+    statementExecutor.handleStatement(
+        new Command("DROP STREAM user1pv;", new HashMap<>()),
+        dropCommandId
+    );
+    Assert.assertEquals(CommandStatus.Status.SUCCESS,
+                        statementExecutor.getStatuses().get(dropCommandId).getStatus());
+    CommandSnapshot snapshot = statementExecutor.getSnapshot(11L).get();
+    Assert.assertEquals(2, snapshot.getEntries().size());
+
+    MockKsqkEngine restartedEngine = new MockKsqkEngine(
+        TestUtils.getMockKsqlConfig(), new MockKafkaTopicClient());
+    StatementExecutor restartedExecutor =
+        new StatementExecutor(restartedEngine, new StatementParser(restartedEngine));
+    restartedExecutor.handleSnapshot(snapshot);
+
+    Assert.assertNull(restartedEngine.getMetaStore().getSource("USER1PV"));
+    Assert.assertNotNull(restartedEngine.getMetaStore().getSource("PAGEVIEW"));
+    Assert.assertEquals(2, restartedExecutor.getSnapshot(11L).get().getEntries().size());
+  }
+
+  @Test
+  public void handlePriorStatementsCreatesSinkTopicsOfIndependentQueriesAtOnce() throws Exception {
+    SinkTopicRecordingClient topicClient = new SinkTopicRecordingClient();
+    MockKsqkEngine ksqlEngine = new MockKsqkEngine(TestUtils.getMockKsqlConfig(), topicClient);
+    StatementExecutor statementExecutor =
+        new StatementExecutor(ksqlEngine, new StatementParser(ksqlEngine));
+
+    List<Pair<CommandId, Command>> priorCommands = new ArrayList<>();
+    priorCommands.add(new Pair<>(
+        new CommandId(CommandId.Type.TOPIC, "pageview_topic"),
+        new Command("REGISTER TOPIC pageview_topic WITH (value_format = 'json', "
+                    + "kafka_topic='pageview_topic_json');", new HashMap<>())
+    ));
+    priorCommands.add(new Pair<>(
+        new CommandId(CommandId.Type.STREAM, "pageview"),
+        new Command("CREATE STREAM pageview (viewtime bigint, pageid varchar, userid varchar) "
+                    + "WITH (registered_topic = 'pageview_topic');", new HashMap<>())
+    ));
+    priorCommands.add(new Pair<>(
+        new CommandId(CommandId.Type.STREAM, "a"),
+        new Command("CREATE STREAM a AS SELECT * FROM pageview;", new HashMap<>())
+    ));
+    priorCommands.add(new Pair<>(
+        new CommandId(CommandId.Type.STREAM, "b"),
+        new Command("CREATE STREAM b AS SELECT * FROM pageview;", new HashMap<>())
+    ));
+    priorCommands.add(new Pair<>(
+        new CommandId(CommandId.Type.STREAM, "c"),
+        new Command("CREATE STREAM c AS SELECT * FROM a;", new HashMap<>())
+    ));
+
+    statementExecutor.handleStatements(priorCommands);
+
+    // B doesn't wait for A, but C has to wait for A, which it reads from; every creation fails, so
+    // no query is ever started
+    Assert.assertEquals(
+        Arrays.asList("create a", "create b", "await a", "create c", "await b", "await c"),
+        topicClient.events
+    );
+    Map<CommandId, CommandStatus> statusStore = statementExecutor.getStatuses();
+    for (String sink : Arrays.asList("a", "b", "c")) {
+      Assert.assertEquals(
+          CommandStatus.Status.ERROR,
+          statusStore.get(new CommandId(CommandId.Type.STREAM, sink)).getStatus()
+      );
+    }
+    Assert.assertTrue(ksqlEngine.getPersistentQueries().isEmpty());
+  }
+
+  @Test
+  public void handlePriorStatementsOnlyRegistersSinksOfTerminatedQueries() throws Exception {
+    List<Pair<CommandId, Command>> priorCommands = new TestUtils().getAllPriorCommandRecords();
+    priorCommands.remove(3);
+    // Fails to plan, so the query after it is the one given id 1
+    CommandId failedCommandId = new CommandId(CommandId.Type.STREAM, "missing_pv");
+    priorCommands.add(2, new Pair<>(
+        failedCommandId,
+        new Command("CREATE STREAM missing_pv AS SELECT * FROM missing;", new HashMap<>())
+    ));
+    CommandId csasCommandId = priorCommands.get(3).getLeft();
+    CommandId terminateCommandId = new CommandId(CommandId.Type.TERMINATE, "1");
+    priorCommands.add(new Pair<>(
+        terminateCommandId,
+        new Command("terminate\n  1 ;", new HashMap<>())
+    ));
+
+    // The mock topic client fails any attempt to create a topic
+    statementExecutor.handleStatements(priorCommands);
+
+    Map<CommandId, CommandStatus> statusStore = statementExecutor.getStatuses();
+    Assert.assertEquals(CommandStatus.Status.ERROR, statusStore.get(failedCommandId).getStatus());
+    Assert.assertEquals(CommandStatus.Status.TERMINATED, statusStore.get(csasCommandId).getStatus());
+    Assert.assertEquals(
+        CommandStatus.Status.SUCCESS,
+        statusStore.get(terminateCommandId).getStatus()
+    );
+    Assert.assertNotNull(mockKsqkEngine.getMetaStore().getSource("USER1PV"));
+    Assert.assertTrue(mockKsqkEngine.getPersistentQueries().isEmpty());
+    Assert.assertEquals(2L, mockKsqkEngine.getQueryEngine().peekNextQueryId());
+  }
+
+  @Test
+  public void handlePriorStatementsDropsSinkOfTerminatedQuery() throws Exception {
+    List<Pair<CommandId, Command>> priorCommands = new TestUtils().getAllPriorCommandRecords();
+    priorCommands.remove(3);
+    // With the id the command would have been distributed with, so that the drop can compact it
+    priorCommands.set(2, new Pair<>(
+        new CommandId(CommandId.Type.STREAM, "USER1PV"),
+        priorCommands.get(2).getRight()
+    ));
+    priorCommands.add(new Pair<>(
+        new CommandId(CommandId.Type.TERMINATE, "1"),
+        new Command("TERMINATE 1;", new HashMap<>())
+    ));
+    CommandId dropCommandId = new CommandId(CommandId.Type.STREAM, "USER1PV_DROP");
+    priorCommands.add(new Pair<>(
+        dropCommandId,
+        new Command("DROP STREAM user1pv;", new HashMap<>())
+    ));
+
+    statementExecutor.handleStatements(priorCommands);
+
+    Map<CommandId, CommandStatus> statusStore = statementExecutor.getStatuses();
+    Assert.assertEquals(CommandStatus.Status.SUCCESS, statusStore.get(dropCommandId).getStatus());
+    Assert.assertNull(mockKsqkEngine.getMetaStore().getSource("USER1PV"));
+    // Nothing of the query is left to replay after a restart
+    CommandSnapshot snapshot = statementExecutor.getSnapshot(priorCommands.size()).get();
+    Assert.assertEquals(2, snapshot.getEntries().size());
+  }
+
+  /**
+   * Records when each sink topic creation is requested and waited for; every creation fails.
+   */
+  private static class SinkTopicRecordingClient extends MockKafkaTopicClient {
+
+    private final List<String> events = new ArrayList<>();
+
+    @Override
+    public Future<Void> createTopicAsync(String topic, int numPartitions, short replicatonFactor) {
+      String name = topic.toLowerCase();
+      events.add("create " + name);
+      return new Future<Void>() {
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+          return false;
+        }
+
+        @Override
+        public boolean isCancelled() {
+          return false;
+        }
+
+        @Override
+        public boolean isDone() {
+          return true;
+        }
+
+        @Override
+        public Void get() throws ExecutionException {
+          events.add("await " + name);
+          throw new ExecutionException(new RuntimeException("Failed to create " + name));
+        }
+
+        @Override
+        public Void get(long timeout, TimeUnit unit) throws ExecutionException {
+          return get();
+        }
+      };
+    }
+  }
 }
@@ -82,13 +82,16 @@ public class MockCommandStore extends CommandStore {
   }
 
   @Override
-  public CommandId distributeStatement(
+  public CommandId getCommandId(Statement statement) {
+    return commandIdAssigner.getCommandId(statement);
+  }
+
+  @Override
+  public void distributeStatement(
+      CommandId commandId,
       String statementString,
-      Statement statement,
       Map<String, Object> streamsProperties
   ) throws Exception {
-    CommandId commandId = commandIdAssigner.getCommandId(statement);
-    return commandId;
   }
 
   @Override
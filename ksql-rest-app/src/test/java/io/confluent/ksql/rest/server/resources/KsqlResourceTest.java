@@ -225,6 +225,31 @@ public class KsqlResourceTest {
     assertEquals(expectedCommandStatusEntity, testKsqlEntity);
   }
 
+  @Test
+  public void testAsyncRequestReturnsQueuedStatuses() throws Exception {
+    KsqlResource testResource = TestKsqlResourceUtil.get();
+    final String ksqlString =
+        "REGISTER TOPIC FOO WITH (kafka_topic='foo', value_format='json');"
+        + "REGISTER TOPIC BAR WITH (kafka_topic='bar', value_format='json');";
+
+    Object responseEntity = testResource.handleKsqlStatements(
+        new KsqlRequest(ksqlString, Collections.emptyMap(), true)
+    ).getEntity();
+    assertThat(responseEntity, instanceOf(List.class));
+
+    List responseList = (List) responseEntity;
+    assertEquals(2, responseList.size());
+    final CommandStatus queued = new CommandStatus(
+        CommandStatus.Status.QUEUED,
+        "Statement written to command topic"
+    );
+    assertEquals(new CommandId(CommandId.Type.TOPIC, "FOO"),
+                 ((CommandStatusEntity) responseList.get(0)).getCommandId());
+    assertEquals(queued, ((CommandStatusEntity) responseList.get(0)).getCommandStatus());
+    assertEquals(new CommandId(CommandId.Type.TOPIC, "BAR"),
+                 ((CommandStatusEntity) responseList.get(1)).getCommandId());
+  }
+
   @Test
   public void testErroneousStatement() throws Exception {
     KsqlResource testResource = TestKsqlResourceUtil.get();
@@ -16,12 +16,15 @@
 
 package io.confluent.ksql.rest.server.resources;
 
+import io.confluent.ksql.StatementCache;
 import io.confluent.ksql.rest.entity.CommandStatus;
 import io.confluent.ksql.rest.entity.CommandStatuses;
 import io.confluent.ksql.rest.server.computation.CommandId;
 import io.confluent.ksql.rest.server.computation.StatementExecutor;
+import io.confluent.ksql.rest.server.resources.streaming.TransientQueryAdmission;
 import org.junit.Test;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
@@ -70,7 +73,12 @@ public class StatusResourceTest {
 
     replay(mockStatementExecutor);
 
-    return new StatusResource(mockStatementExecutor);
+    return new StatusResource(
+        mockStatementExecutor,
+        TransientQueryAdmission.unbounded(),
+        new StatementCache(0),
+        Collections::emptyMap
+    );
   }
 
   @Test
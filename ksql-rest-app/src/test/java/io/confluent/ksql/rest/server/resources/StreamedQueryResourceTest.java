@@ -26,6 +26,7 @@ import io.confluent.ksql.rest.entity.KsqlRequest;
 import io.confluent.ksql.rest.entity.StreamedRow;
 import io.confluent.ksql.rest.server.StatementParser;
 import io.confluent.ksql.rest.server.resources.streaming.StreamedQueryResource;
+import io.confluent.ksql.rest.server.resources.streaming.TransientQueryAdmission;
 import io.confluent.ksql.util.QueuedQueryMetadata;
 import org.apache.kafka.connect.data.SchemaBuilder;
 import org.apache.kafka.streams.KafkaStreams;
@@ -41,12 +42,15 @@ import java.io.PipedOutputStream;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Scanner;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.eq;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.expectLastCall;
 import static org.easymock.EasyMock.mock;
@@ -103,11 +107,14 @@ public class StreamedQueryResourceTest {
 
     final QueuedQueryMetadata queuedQueryMetadata =
         new QueuedQueryMetadata(queryString, mockKafkaStreams, mockOutputNode, "",
-                                rowQueue, DataSource.DataSourceType.KSTREAM);
+                                rowQueue, new AtomicBoolean(false),
+                                DataSource.DataSourceType.KSTREAM);
 
     final Map<String, Object> requestStreamsProperties = Collections.emptyMap();
 
     KsqlEngine mockKsqlEngine = mock(KsqlEngine.class);
+    expect(mockKsqlEngine.buildTableLookup(anyObject(Query.class), eq(requestStreamsProperties)))
+        .andReturn(Optional.empty());
     expect(mockKsqlEngine.buildMultipleQueries(true, queryString, requestStreamsProperties))
         .andReturn(Collections.singletonList(queuedQueryMetadata));
 
@@ -116,7 +123,8 @@ public class StreamedQueryResourceTest {
 
     replay(mockKsqlEngine, mockStatementParser, mockKafkaStreams, mockOutputNode);
 
-    StreamedQueryResource testResource = new StreamedQueryResource(mockKsqlEngine, mockStatementParser, 1000);
+    StreamedQueryResource testResource = new StreamedQueryResource(
+        mockKsqlEngine, mockStatementParser, 1000, 0, TransientQueryAdmission.unbounded());
 
     Response response =
         testResource.streamQuery(new KsqlRequest(queryString, requestStreamsProperties));
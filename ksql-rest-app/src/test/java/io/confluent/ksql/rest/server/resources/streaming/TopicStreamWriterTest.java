@@ -0,0 +1,87 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+
+package io.confluent.ksql.rest.server.resources.streaming;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+
+public class TopicStreamWriterTest {
+
+  private static String print(String key, String value) throws Exception {
+    ConsumerRecord<byte[], byte[]> record = new ConsumerRecord<>(
+        "topic",
+        0,
+        0L,
+        key == null ? null : key.getBytes(StandardCharsets.UTF_8),
+        value.getBytes(StandardCharsets.UTF_8)
+    );
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    TopicStreamWriter.printJsonValue(out, record);
+    return new String(out.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void testPrintJsonValueSplicesRowTimeAndRowKey() throws Exception {
+    assertEquals(
+        "{\"ROWTIME\":-1,\"ROWKEY\":\"k1\",\"a\":1,\"b\":\"x\"}\n",
+        print("k1", "{\"a\":1,\"b\":\"x\"}")
+    );
+  }
+
+  @Test
+  public void testPrintJsonValueEscapesKey() throws Exception {
+    assertEquals(
+        "{\"ROWTIME\":-1,\"ROWKEY\":\"a\\\"b\",\"a\":1}\n",
+        print("a\"b", "{\"a\":1}")
+    );
+  }
+
+  @Test
+  public void testPrintJsonValueHandlesEmptyObjectAndNullKey() throws Exception {
+    assertEquals(
+        "{\"ROWTIME\":-1,\"ROWKEY\":\"null\"}\n",
+        print(null, "  { }")
+    );
+  }
+
+  @Test
+  public void testPrintJsonValueKeepsEachRowOnOneLine() throws Exception {
+    assertEquals(
+        "{\"ROWTIME\":-1,\"ROWKEY\":\"k1\",\"a\": 1, \"b\":\"x\"} \n",
+        print("k1", "{\"a\": 1,\n\"b\":\"x\"}\n")
+    );
+  }
+
+  @Test
+  public void testPrintJsonValueReplacesEachLineBreakOfCrLf() throws Exception {
+    assertEquals(
+        "{\"ROWTIME\":-1,\"ROWKEY\":\"k1\",\"a\":1,  \"b\":2}\n",
+        print("k1", "{\"a\":1,\r\n\"b\":2}")
+    );
+  }
+
+  @Test
+  public void testPrintJsonValueFallsBackForValueThatIsNotJson() throws Exception {
+    assertEquals("-1 , k1 , {not json\n", print("k1", "{not json"));
+    assertEquals("-1 , k1 , {\"a\":1} trailing\n", print("k1", "{\"a\":1} trailing"));
+  }
+}
@@ -0,0 +1,90 @@
+/**
+ * Copyright 2017 Confluent Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+
+package io.confluent.ksql.rest.server.resources.streaming;
+
+import org.apache.kafka.streams.StreamsConfig;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TransientQueryAdmissionTest {
+
+  @Test
+  public void testRejectsBeyondNodeAndClientLimits() throws Exception {
+    TransientQueryAdmission admission = new TransientQueryAdmission(2, 1, 0, 1, 1024,
+                                                                    Collections.emptyMap());
+
+    assertTrue(admission.tryAdmit("a"));
+    assertFalse(admission.tryAdmit("a"));
+    assertTrue(admission.tryAdmit("b"));
+    assertFalse(admission.tryAdmit("c"));
+
+    admission.release("a");
+    assertTrue(admission.tryAdmit("c"));
+
+    assertEquals(2, admission.getStatus().getRunning());
+    assertEquals(3, admission.getStatus().getAdmitted());
+    assertEquals(2, admission.getStatus().getRejected());
+  }
+
+  @Test
+  public void testApplyBudgetCapsThreadsAndCache() {
+    TransientQueryAdmission admission = new TransientQueryAdmission(0, 0, 0, 2, 1024,
+                                                                    Collections.emptyMap());
+
+    Map<String, Object> requested = new HashMap<>();
+    requested.put(StreamsConfig.NUM_STREAM_THREADS_CONFIG, "8");
+    requested.put(StreamsConfig.CACHE_MAX_BYTES_BUFFERING_CONFIG, 512L);
+
+    Map<String, Object> applied = admission.applyBudget(requested);
+    assertEquals(2, applied.get(StreamsConfig.NUM_STREAM_THREADS_CONFIG));
+    assertEquals(512L, applied.get(StreamsConfig.CACHE_MAX_BYTES_BUFFERING_CONFIG));
+    assertEquals("8", requested.get(StreamsConfig.NUM_STREAM_THREADS_CONFIG));
+  }
+
+  @Test
+  public void testApplyBudgetCapsServerDefaultsWithoutOverrides() {
+    Map<String, Object> serverProperties = new HashMap<>();
+    serverProperties.put(StreamsConfig.NUM_STREAM_THREADS_CONFIG, 4);
+    serverProperties.put(StreamsConfig.CACHE_MAX_BYTES_BUFFERING_CONFIG, 10000000L);
+    TransientQueryAdmission admission =
+        new TransientQueryAdmission(0, 0, 0, 2, 1024, serverProperties);
+
+    Map<String, Object> applied = admission.applyBudget(Collections.emptyMap());
+    assertEquals(2, applied.get(StreamsConfig.NUM_STREAM_THREADS_CONFIG));
+    assertEquals(1024L, applied.get(StreamsConfig.CACHE_MAX_BYTES_BUFFERING_CONFIG));
+  }
+
+  @Test
+  public void testApplyBudgetKeepsServerDefaultsWithinBudget() {
+    Map<String, Object> serverProperties = new HashMap<>();
+    serverProperties.put(StreamsConfig.NUM_STREAM_THREADS_CONFIG, "1");
+    serverProperties.put(StreamsConfig.CACHE_MAX_BYTES_BUFFERING_CONFIG, 512L);
+    TransientQueryAdmission admission =
+        new TransientQueryAdmission(0, 0, 0, 2, 1024, serverProperties);
+
+    Map<String, Object> applied = admission.applyBudget(Collections.emptyMap());
+    assertEquals(1, applied.get(StreamsConfig.NUM_STREAM_THREADS_CONFIG));
+    assertEquals(512L, applied.get(StreamsConfig.CACHE_MAX_BYTES_BUFFERING_CONFIG));
+  }
+}